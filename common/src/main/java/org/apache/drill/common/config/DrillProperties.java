@@ -72,6 +72,9 @@ public final class DrillProperties extends Properties {
 
   public static final String QUOTING_IDENTIFIERS = "quoting_identifiers";
 
+  // byte target of the batches of results sent to the client, the smaller batches being coalesced up to it
+  public static final String COALESCE_RESULT_BYTES = "coalesce_result_bytes";
+
   // Although all properties from the application are sent to the server (from the client), the following
   // sets of properties are used by the client and server respectively. These are reserved words.
 
@@ -87,7 +90,8 @@ public final class DrillProperties extends Properties {
       USER /** deprecated */, PASSWORD /** deprecated */,
       SCHEMA,
       IMPERSONATION_TARGET,
-      QUOTING_IDENTIFIERS
+      QUOTING_IDENTIFIERS,
+      COALESCE_RESULT_BYTES
   );
 
   private DrillProperties() {
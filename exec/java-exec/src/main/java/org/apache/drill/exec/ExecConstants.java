@@ -46,6 +46,9 @@ public interface ExecConstants {
   String INITIAL_BIT_PORT = "drill.exec.rpc.bit.server.port";
   String INITIAL_DATA_PORT = "drill.exec.rpc.bit.server.dataport";
   String BIT_RPC_TIMEOUT = "drill.exec.rpc.bit.timeout";
+  String BIT_DATA_COMPRESSION_CODEC = "drill.exec.rpc.bit.compression.codec";
+  /** number of data connections to each drillbit, the queries are spread over them */
+  String BIT_DATA_CONNECTIONS_PER_PEER = "drill.exec.rpc.bit.connections_per_peer";
   String INITIAL_USER_PORT = "drill.exec.rpc.user.server.port";
   String USER_RPC_TIMEOUT = "drill.exec.rpc.user.timeout";
   String METRICS_CONTEXT_NAME = "drill.exec.metrics.context";
@@ -58,7 +61,7 @@ public interface ExecConstants {
   String TEMP_DIRECTORIES = "drill.exec.tmp.directories";
   String TEMP_FILESYSTEM = "drill.exec.tmp.filesystem";
   String INCOMING_BUFFER_IMPL = "drill.exec.buffer.impl";
-  /** incoming buffer size (number of batches) */
+  /** incoming buffer size (number of batches per sender), and credits of the senders per receiver */
   String INCOMING_BUFFER_SIZE = "drill.exec.buffer.size";
   String SPOOLING_BUFFER_DELETE = "drill.exec.buffer.spooling.delete";
   String SPOOLING_BUFFER_MEMORY = "drill.exec.buffer.spooling.size";
@@ -69,6 +72,9 @@ public interface ExecConstants {
 
   String SPILL_FILESYSTEM = "drill.exec.spill.fs";
   String SPILL_DIRS = "drill.exec.spill.directories";
+  String SPILL_MIN_FREE_SPACE = "drill.exec.spill.min_free_space";
+  String SPILL_SLOW_DISK_RATIO = "drill.exec.spill.slow_disk_ratio";
+  String SPILL_IO_THREADPOOL_SIZE = "drill.exec.spill.io_threadpool_size";
 
   // External Sort Boot configuration
 
@@ -90,6 +96,16 @@ public interface ExecConstants {
 
   BooleanValidator EXTERNAL_SORT_DISABLE_MANAGED_OPTION = new BooleanValidator("exec.sort.disable_managed", false);
 
+  // Sorts the in-memory batches of the managed sort by a normalized key of their leading sort key
+  String EXTERNAL_SORT_NORMALIZED_KEYS_KEY = "exec.sort.normalized_keys";
+  BooleanValidator EXTERNAL_SORT_NORMALIZED_KEYS_VALIDATOR = new BooleanValidator(EXTERNAL_SORT_NORMALIZED_KEYS_KEY, false);
+
+  // TopN Options
+
+  // Memory budget of the TopN operator; beyond it the retained rows are spilled. 0 means use the operator's allocator limit
+  String TOPN_MAX_MEMORY_KEY = "exec.topn.mem_limit";
+  LongValidator TOPN_MAX_MEMORY_VALIDATOR = new RangeLongValidator(TOPN_MAX_MEMORY_KEY, 0, Long.MAX_VALUE, 0);
+
   // Hash Aggregate Options
 
   String HASHAGG_NUM_PARTITIONS = "drill.exec.hashagg.num_partitions";
@@ -106,6 +122,81 @@ public interface ExecConstants {
   LongValidator HASHAGG_MIN_BATCHES_PER_PARTITION_VALIDATOR = new RangeLongValidator(HASHAGG_MIN_BATCHES_PER_PARTITION_KEY, 2, 5, 3);
   String HASHAGG_SPILL_DIRS = "drill.exec.hashagg.spill.directories";
   String HASHAGG_SPILL_FILESYSTEM = "drill.exec.hashagg.spill.fs";
+  // 1st phase of a two phase aggregate: when the first incoming batches show a poor reduction (the ratio of new
+  // groups to rows is at least the given ratio), each partition is returned downstream as soon as its batch is full
+  String HASHAGG_ADAPTIVE_BYPASS_KEY = "exec.hashagg.adaptive_bypass";
+  BooleanValidator HASHAGG_ADAPTIVE_BYPASS_VALIDATOR = new BooleanValidator(HASHAGG_ADAPTIVE_BYPASS_KEY, false);
+  String HASHAGG_BYPASS_GROUP_RATIO_KEY = "exec.hashagg.bypass_group_ratio";
+  DoubleValidator HASHAGG_BYPASS_GROUP_RATIO_VALIDATOR = new RangeDoubleValidator(HASHAGG_BYPASS_GROUP_RATIO_KEY, 0.0, 1.0, 0.9);
+
+  // Hash Join Options
+
+  // Number of partitions used by the hybrid (spilling) hash join; 1 means the classic in-memory join
+  String HASHJOIN_NUM_PARTITIONS_KEY = "exec.hashjoin.num_partitions";
+  LongValidator HASHJOIN_NUM_PARTITIONS_VALIDATOR = new RangeLongValidator(HASHJOIN_NUM_PARTITIONS_KEY, 1, 128, 1); // 1 means - no spilling
+  // Memory budget of the hybrid hash join; 0 means use the operator's allocator limit
+  String HASHJOIN_MAX_MEMORY_KEY = "exec.hashjoin.mem_limit";
+  LongValidator HASHJOIN_MAX_MEMORY_VALIDATOR = new RangeLongValidator(HASHJOIN_MAX_MEMORY_KEY, 0, Long.MAX_VALUE, 0);
+  // Runtime (Bloom) filter over the build side keys, used to skip probe rows that can not match
+  String HASHJOIN_ENABLE_RUNTIME_FILTER_KEY = "exec.hashjoin.enable_runtime_filter";
+  BooleanValidator HASHJOIN_ENABLE_RUNTIME_FILTER_VALIDATOR = new BooleanValidator(HASHJOIN_ENABLE_RUNTIME_FILTER_KEY, false);
+  String HASHJOIN_RUNTIME_FILTER_SIZE_KEY = "exec.hashjoin.runtime_filter_size";
+  LongValidator HASHJOIN_RUNTIME_FILTER_SIZE_VALIDATOR = new RangeLongValidator(HASHJOIN_RUNTIME_FILTER_SIZE_KEY, 1024, 64 * 1024 * 1024, 1024 * 1024);
+  String HASHJOIN_SPILL_DIRS = "drill.exec.hashjoin.spill.directories";
+  String HASHJOIN_SPILL_FILESYSTEM = "drill.exec.hashjoin.spill.fs";
+
+  // Hash Table Options
+
+  // Use the open addressing hash table layout (instead of the chained one) for hash aggregate and hash join
+  String HASHTABLE_OPEN_ADDRESSING_KEY = "exec.hashtable.open_addressing";
+  BooleanValidator HASHTABLE_OPEN_ADDRESSING_VALIDATOR = new BooleanValidator(HASHTABLE_OPEN_ADDRESSING_KEY, false);
+
+  // Filter Options
+
+  // Evaluate the common filter conditions (column vs. constant comparisons, IN, BETWEEN, IS NULL) with prebuilt
+  // kernels instead of generated code; other conditions always use generated code
+  String FILTER_KERNELS_KEY = "exec.filter.enable_kernels";
+  BooleanValidator FILTER_KERNELS_VALIDATOR = new BooleanValidator(FILTER_KERNELS_KEY, true);
+
+  // Partition Sender Options
+
+  // Target size (bytes) of the batches the hash partition sender sends to each receiver; the number of rows of the
+  // outgoing batches follows from the width of the incoming rows
+  String PARTITIONER_BATCH_SIZE_KEY = "exec.partitioner.batch_size";
+  LongValidator PARTITIONER_BATCH_SIZE_VALIDATOR = new RangeLongValidator(PARTITIONER_BATCH_SIZE_KEY, 1024, 16 * 1024 * 1024, 256 * 1024);
+  // Memory budget (bytes) of the outgoing batches of a hash partition sender, divided among the receivers; it caps
+  // the size of the outgoing batches when there are many receivers. The default keeps the 256K batches up to 128
+  // receivers, and each sender of a wide shuffle (many senders per drillbit) to 32M, as the 1023 row batches used to
+  String PARTITIONER_MEMORY_BUDGET_KEY = "exec.partitioner.memory_budget";
+  LongValidator PARTITIONER_MEMORY_BUDGET_VALIDATOR = new RangeLongValidator(PARTITIONER_MEMORY_BUDGET_KEY, 1024 * 1024, Long.MAX_VALUE, 32 * 1024 * 1024);
+  // Weight of a query in the sharing of congested data connections between drillbits: the queries get shares of the
+  // connection proportional to their weights, e.g. interactive queries with a weight of 10 next to ETL shuffles
+  String SEND_WEIGHT_KEY = "exec.send.weight";
+  LongValidator SEND_WEIGHT_VALIDATOR = new RangeLongValidator(SEND_WEIGHT_KEY, 1, 100, 1);
+  // Byte target of the batches of results sent to the client: the smaller batches are coalesced up to it by the
+  // screen before they are sent, rather than sent as one message each. 0 sends the batches as they come. Server side
+  // only: the clients receive and read the coalesced batches as any other batch
+  String RESULT_COALESCE_BYTES_KEY = "exec.result.coalesce_bytes";
+  LongValidator RESULT_COALESCE_BYTES_VALIDATOR = new RangeLongValidator(RESULT_COALESCE_BYTES_KEY, 0, 64 * 1024 * 1024, 0);
+  // Whether the results are spooled to the local disk before they are sent to the client, so that the operators of
+  // the query complete whatever the pace of the client. The screen (and the memory of its fragment) stays until the
+  // client took the results
+  String RESULT_SPOOL_KEY = "exec.result.spool";
+  BooleanValidator RESULT_SPOOL_VALIDATOR = new BooleanValidator(RESULT_SPOOL_KEY, false);
+  // Seconds the spooled results a client did not take are kept once it disconnected, for it to resume their delivery
+  // by query id from the drillbit of the screen; 0 drops them with the connection
+  String RESULT_SPOOL_TTL_KEY = "exec.result.spool_ttl_secs";
+  LongValidator RESULT_SPOOL_TTL_VALIDATOR = new RangeLongValidator(RESULT_SPOOL_TTL_KEY, 0, 24 * 60 * 60, 300);
+  // Whether the spill files of the operators are compressed by blocks
+  String SPILL_COMPRESS_KEY = "exec.spill.compress";
+  BooleanValidator SPILL_COMPRESS_VALIDATOR = new BooleanValidator(SPILL_COMPRESS_KEY, false);
+  // Whether the blocks of the spill files are written, and read ahead, on I/O threads while the operators go on
+  String SPILL_ASYNC_IO_KEY = "exec.spill.async_io";
+  BooleanValidator SPILL_ASYNC_IO_VALIDATOR = new BooleanValidator(SPILL_ASYNC_IO_KEY, false);
+  // Whether the larger buffers of the uncompressed spill files on local disk are mapped in memory when read back,
+  // rather than copied from the files
+  String SPILL_MMAP_READS_KEY = "exec.spill.mmap_reads";
+  BooleanValidator SPILL_MMAP_READS_VALIDATOR = new BooleanValidator(SPILL_MMAP_READS_KEY, false);
 
   String TEXT_LINE_READER_BATCH_SIZE = "drill.exec.storage.file.text.batch.size";
   String TEXT_LINE_READER_BUFFER_SIZE = "drill.exec.storage.file.text.buffer.size";
@@ -222,6 +313,11 @@ public interface ExecConstants {
   String PARQUET_PAGEREADER_ENFORCETOTALSIZE = "store.parquet.reader.pagereader.enforceTotalSize";
   OptionValidator PARQUET_PAGEREADER_ENFORCETOTALSIZE_VALIDATOR = new BooleanValidator(PARQUET_PAGEREADER_ENFORCETOTALSIZE, false);
 
+  // Decompress the data pages read ahead by the Async Parquet page reader on the (shared, bounded) scan
+  // decode thread pool, so that all the columns of a row group are decompressed in parallel
+  String PARQUET_PAGEREADER_ASYNC_DECOMPRESS = "store.parquet.reader.pagereader.asyncdecompress";
+  OptionValidator PARQUET_PAGEREADER_ASYNC_DECOMPRESS_VALIDATOR = new BooleanValidator(PARQUET_PAGEREADER_ASYNC_DECOMPRESS, false);
+
   String PARQUET_COLUMNREADER_ASYNC = "store.parquet.reader.columnreader.async";
   OptionValidator PARQUET_COLUMNREADER_ASYNC_VALIDATOR = new BooleanValidator(PARQUET_COLUMNREADER_ASYNC, false);
 
@@ -237,6 +333,11 @@ public interface ExecConstants {
   String PARQUET_PAGEREADER_USE_FADVISE = "store.parquet.reader.pagereader.usefadvise";
   OptionValidator PARQUET_PAGEREADER_USE_FADVISE_VALIDATOR = new  BooleanValidator(PARQUET_PAGEREADER_USE_FADVISE, false);
 
+  // decode the columns of the pushed down filter first, and then only the matching values of the other
+  // (variable width) columns; the pages that the statistics of the filter columns rule out are skipped
+  String PARQUET_LATE_MATERIALIZATION = "store.parquet.reader.late_materialization";
+  OptionValidator PARQUET_LATE_MATERIALIZATION_VALIDATOR = new BooleanValidator(PARQUET_LATE_MATERIALIZATION, false);
+
   OptionValidator COMPILE_SCALAR_REPLACEMENT = new BooleanValidator("exec.compile.scalar_replacement", false);
 
   String JSON_ALL_TEXT_MODE = "store.json.all_text_mode";
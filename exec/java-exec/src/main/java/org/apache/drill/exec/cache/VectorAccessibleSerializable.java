@@ -19,9 +19,12 @@ package org.apache.drill.exec.cache;
 
 import io.netty.buffer.DrillBuf;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.List;
 
 import org.apache.drill.exec.expr.TypeHelper;
@@ -39,6 +42,7 @@ import org.apache.drill.exec.vector.ValueVector;
 
 import com.codahale.metrics.MetricRegistry;
 import com.codahale.metrics.Timer;
+import com.google.protobuf.CodedInputStream;
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Lists;
 
@@ -61,6 +65,13 @@ public class VectorAccessibleSerializable extends AbstractStreamSerializable {
 
   private boolean retain = false;
 
+  /**
+   * Bytes of the smallest buffer mapped from a file rather than read into a
+   * new buffer: mapping and unmapping a region costs more than copying a few
+   * pages.
+   */
+  public static final int MIN_MAPPED_LENGTH = 256 * 1024;
+
   public VectorAccessibleSerializable(BufferAllocator allocator) {
     this.allocator = allocator;
     va = new VectorContainer();
@@ -138,6 +149,107 @@ public class VectorAccessibleSerializable extends AbstractStreamSerializable {
     va = container;
   }
 
+  /**
+   * Reads a batch written by {@link #writeToStream(OutputStream)} from a file
+   * channel, at the given position: the buffers of the vectors of at least
+   * {@link #MIN_MAPPED_LENGTH} bytes are mapped from the file, the others
+   * read into newly allocated buffers, without going through a heap buffer.
+   *
+   * @param channel the channel of the file, open for reading and writing
+   * @param position the position of the batch in the file
+   * @return the position of the next batch in the file
+   * @throws IOException
+   */
+  public long readFromChannel(FileChannel channel, long position) throws IOException {
+    final long start = System.nanoTime();
+
+    // the definition of the batch is prefixed by its length, as a varint
+    final ByteBuffer prefix = ByteBuffer.allocate(5);
+    readFully(channel, prefix, position, true);
+    final CodedInputStream prefixInput = CodedInputStream.newInstance(prefix.array(), 0, prefix.position());
+    final int defLength = prefixInput.readRawVarint32();
+    position += prefixInput.getTotalBytesRead();
+    final ByteBuffer def = ByteBuffer.allocate(defLength);
+    readFully(channel, def, position, false);
+    position += defLength;
+    final RecordBatchDef batchDef = RecordBatchDef.parseFrom(def.array());
+
+    recordCount = batchDef.getRecordCount();
+    if (batchDef.hasCarriesTwoByteSelectionVector() && batchDef.getCarriesTwoByteSelectionVector()) {
+      if (sv2 != null) {
+        sv2.clear();
+      }
+      final int dataLength = recordCount * SelectionVector2.RECORD_SIZE;
+      svMode = BatchSchema.SelectionVectorMode.TWO_BYTE;
+      @SuppressWarnings("resource")
+      DrillBuf buf = readBuffer(channel, position, dataLength);
+      position += dataLength;
+      sv2 = new SelectionVector2(allocator, buf, recordCount);
+      buf.release(); // SV2 now owns the buffer
+    }
+
+    final VectorContainer container = new VectorContainer();
+    final List<ValueVector> vectorList = Lists.newArrayList();
+    try {
+      for (SerializedField metaData : batchDef.getFieldList()) {
+        final int dataLength = metaData.getBufferLength();
+        final MaterializedField field = MaterializedField.create(metaData);
+        @SuppressWarnings("resource")
+        final DrillBuf buf = dataLength >= MIN_MAPPED_LENGTH ?
+            allocator.map(channel, position, dataLength) : readBuffer(channel, position, dataLength);
+        position += dataLength;
+        final ValueVector vector = TypeHelper.getNewVector(field, allocator);
+        vector.load(metaData, buf);
+        buf.release(); // Vector now owns the buffer
+        vectorList.add(vector);
+      }
+    } catch (IOException | RuntimeException e) {
+      for (ValueVector vector : vectorList) {
+        vector.clear();
+      }
+      throw e;
+    }
+    container.addCollection(vectorList);
+    container.buildSchema(svMode);
+    container.setRecordCount(recordCount);
+    va = container;
+    timeNs = System.nanoTime() - start;
+    return position;
+  }
+
+  private DrillBuf readBuffer(FileChannel channel, long position, int length) throws IOException {
+    final DrillBuf buf = allocator.buffer(length);
+    if (length == 0) {
+      return buf;
+    }
+    try {
+      readFully(channel, buf.nioBuffer(0, length), position, false);
+      buf.writerIndex(length);
+      return buf;
+    } catch (IOException e) {
+      buf.release();
+      throw e;
+    }
+  }
+
+  /**
+   * Reads from a channel until the buffer is full, or, if allowed, the end
+   * of the file.
+   */
+  private static void readFully(FileChannel channel, ByteBuffer buffer, long position, boolean partial)
+      throws IOException {
+    while (buffer.hasRemaining()) {
+      final int read = channel.read(buffer, position);
+      if (read == -1) {
+        if (partial && buffer.position() > 0) {
+          return;
+        }
+        throw new EOFException("Unexpected end of file");
+      }
+      position += read;
+    }
+  }
+
   // Like above, only preserve the original container and list of value-vectors
   @SuppressWarnings("resource")
   public void readFromStreamWithContainer(VectorContainer myContainer, InputStream input) throws IOException {
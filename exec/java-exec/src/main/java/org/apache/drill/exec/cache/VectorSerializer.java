@@ -20,6 +20,7 @@ package org.apache.drill.exec.cache;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.record.VectorAccessible;
@@ -29,7 +30,7 @@ import org.apache.drill.exec.record.selection.SelectionVector2;
 
 /**
  * Serializes vector containers to an output stream or from
- * an input stream.
+ * an input stream or a file channel.
  */
 
 public class VectorSerializer {
@@ -111,6 +112,40 @@ public class VectorSerializer {
     public long timeNs() { return timeNs; }
   }
 
+  /**
+   * Read one or more vector containers from a file channel, mapping
+   * the larger buffers of the vectors from the file rather than
+   * copying them.
+   */
+
+  public static class ChannelReader {
+    private final FileChannel channel;
+    private long position;
+    private long timeNs;
+    private final VectorAccessibleSerializable vas;
+
+    public ChannelReader(BufferAllocator allocator, FileChannel channel) {
+      this.channel = channel;
+      vas = new VectorAccessibleSerializable(allocator);
+    }
+
+    public VectorContainer read() throws IOException {
+      position = vas.readFromChannel(channel, position);
+      timeNs = vas.getTimeNs();
+      return vas.get();
+    }
+
+    public SelectionVector2 sv2() { return vas.getSv2(); }
+
+    public long timeNs() { return timeNs; }
+
+    /**
+     * @return the bytes of the file read so far
+     */
+
+    public long position() { return position; }
+  }
+
   public static Writer writer(BufferAllocator allocator, OutputStream stream) {
     return new Writer(allocator, stream);
   }
@@ -118,4 +153,8 @@ public class VectorSerializer {
   public static Reader reader(BufferAllocator allocator, InputStream stream) {
     return new Reader(allocator, stream);
   }
+
+  public static ChannelReader reader(BufferAllocator allocator, FileChannel channel) {
+    return new ChannelReader(allocator, channel);
+  }
 }
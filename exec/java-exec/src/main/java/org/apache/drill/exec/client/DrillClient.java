@@ -632,6 +632,21 @@ public class DrillClient implements Closeable, ConnectionThrottle {
     return client.send(RpcType.RESUME_PAUSED_QUERY, queryId, Ack.class);
   }
 
+  /**
+   * Resumes the delivery of the results of a query run with the exec.result.spool option, after the connection it was
+   * submitted on closed before all its results were received: the results not acknowledged are sent again, as long as
+   * the drillbit of the query (the one this client is connected to) keeps them.
+   *
+   * @param queryId the query
+   * @param resultsListener the listener of the remaining results
+   */
+  public void resumeResults(QueryId queryId, UserResultsListener resultsListener) {
+    if (logger.isDebugEnabled()) {
+      logger.debug("Resuming the results of query {}", QueryIdHelper.getQueryId(queryId));
+    }
+    client.resumeResults(resultsListener, queryId);
+  }
+
   /**
    * Get the list of catalogs in <code>INFORMATION_SCHEMA.CATALOGS</code> table satisfying the given filters.
    *
@@ -85,12 +85,18 @@ public enum ServerMethod {
   /**
    * Get server metadata
    */
-  GET_SERVER_META(RpcType.GET_SERVER_META, Constants.DRILL_1_10_0);
+  GET_SERVER_META(RpcType.GET_SERVER_META, Constants.DRILL_1_10_0),
+
+  /**
+   * Resume the delivery of the spooled results of a query
+   */
+  RESUME_RESULTS(RpcType.RESUME_RESULTS, Constants.DRILL_1_12_0);
 
   private static class Constants {
     private static final Version DRILL_0_0_0 = new Version("0.0.0", 0, 0, 0, 0, "");
     private static final Version DRILL_1_8_0 = new Version("1.8.0", 1, 8, 0, 0, "");
     private static final Version DRILL_1_10_0 = new Version("1.10.0", 1, 10, 0, 0, "");
+    private static final Version DRILL_1_12_0 = new Version("1.12.0", 1, 12, 0, 0, "");
   }
 
   private static final Map<RpcType, ServerMethod> REVERSE_MAPPING;
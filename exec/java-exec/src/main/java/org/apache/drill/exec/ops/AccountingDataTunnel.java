@@ -46,6 +46,27 @@ public class AccountingDataTunnel {
     tunnel.sendRecordBatch(statusHandler, batch);
   }
 
+  /**
+   * See {@link DataTunnel#getCreditWaitNanos()}.
+   */
+  public long getCreditWaitNanos() {
+    return tunnel.getCreditWaitNanos();
+  }
+
+  /**
+   * See {@link DataTunnel#getUncompressedBytes()}.
+   */
+  public long getUncompressedBytes() {
+    return tunnel.getUncompressedBytes();
+  }
+
+  /**
+   * See {@link DataTunnel#getCompressedBytes()}.
+   */
+  public long getCompressedBytes() {
+    return tunnel.getCompressedBytes();
+  }
+
   /**
    * See {@link DataTunnel#setTestInjectionControls(ControlsInjector, ExecutionControls, Logger)}.
    */
@@ -17,8 +17,11 @@
  */
 package org.apache.drill.exec.ops;
 
+import io.netty.buffer.ByteBuf;
+
 import org.apache.drill.exec.physical.impl.materialize.QueryWritableBatch;
 import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
+import org.apache.drill.exec.rpc.RpcException;
 import org.apache.drill.exec.rpc.RpcOutcomeListener;
 import org.apache.drill.exec.rpc.UserClientConnection;
 
@@ -41,4 +44,37 @@ public class AccountingUserConnection {
     sendingAccountor.increment();
     connection.sendData(statusHandler, batch);
   }
+
+  /**
+   * Sends a batch, and notifies the given listener of its outcome as well.
+   */
+  public void sendData(QueryWritableBatch batch, final RpcOutcomeListener<Ack> listener) {
+    sendingAccountor.increment();
+    connection.sendData(new RpcOutcomeListener<Ack>() {
+      @Override
+      public void failed(RpcException ex) {
+        statusHandler.failed(ex);
+        listener.failed(ex);
+      }
+
+      @Override
+      public void success(Ack value, ByteBuf buffer) {
+        statusHandler.success(value, buffer);
+        listener.success(value, buffer);
+      }
+
+      @Override
+      public void interrupted(InterruptedException e) {
+        statusHandler.interrupted(e);
+        listener.interrupted(e);
+      }
+    }, batch);
+  }
+
+  /**
+   * @return whether the connection to the client is closed
+   */
+  public boolean isClosed() {
+    return connection.getChannelClosureFuture().isDone();
+  }
 }
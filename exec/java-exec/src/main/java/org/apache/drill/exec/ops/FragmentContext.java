@@ -39,6 +39,7 @@ import org.apache.drill.exec.expr.fn.FunctionImplementationRegistry;
 import org.apache.drill.exec.expr.holders.ValueHolder;
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.physical.base.PhysicalOperator;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilterRegistry;
 import org.apache.drill.exec.planner.physical.PlannerSettings;
 import org.apache.drill.exec.proto.BitControl.PlanFragment;
 import org.apache.drill.exec.proto.CoordinationProtos.DrillbitEndpoint;
@@ -85,6 +86,7 @@ public class FragmentContext implements AutoCloseable, UdfUtilities, FragmentExe
   private IncomingBuffers buffers;
   private final OptionManager fragmentOptions;
   private final BufferManager bufferManager;
+  private final RuntimeFilterRegistry runtimeFilters;
   private ExecutorState executorState;
   private final ExecutionControls executionControls;
 
@@ -179,6 +181,7 @@ public class FragmentContext implements AutoCloseable, UdfUtilities, FragmentExe
 
     stats = new FragmentStats(allocator, fragment.getAssignment());
     bufferManager = new BufferManagerImpl(this.allocator);
+    runtimeFilters = new RuntimeFilterRegistry(this.allocator);
     constantValueHolderCache = Maps.newHashMap();
   }
 
@@ -347,7 +350,9 @@ public class FragmentContext implements AutoCloseable, UdfUtilities, FragmentExe
   public AccountingDataTunnel getDataTunnel(final DrillbitEndpoint endpoint) {
     AccountingDataTunnel tunnel = tunnels.get(endpoint);
     if (tunnel == null) {
-      tunnel = new AccountingDataTunnel(context.getDataConnectionsPool().getTunnel(endpoint), sendingAccountor, statusHandler);
+      final int weight = (int) fragmentOptions.getOption(ExecConstants.SEND_WEIGHT_VALIDATOR);
+      tunnel = new AccountingDataTunnel(context.getDataConnectionsPool().getTunnel(endpoint, getHandle().getQueryId(),
+          weight), sendingAccountor, statusHandler);
       tunnels.put(endpoint, tunnel);
     }
     return tunnel;
@@ -357,6 +362,13 @@ public class FragmentContext implements AutoCloseable, UdfUtilities, FragmentExe
     return buffers;
   }
 
+  /**
+   * @return the runtime filters of the joins applied by this fragment
+   */
+  public RuntimeFilterRegistry getRuntimeFilters() {
+    return runtimeFilters;
+  }
+
   public OperatorContext newOperatorContext(PhysicalOperator popConfig, OperatorStats stats)
       throws OutOfMemoryException {
     OperatorContextImpl context = new OperatorContextImpl(popConfig, this, stats);
@@ -427,6 +439,7 @@ public class FragmentContext implements AutoCloseable, UdfUtilities, FragmentExe
 
     suppressingClose(bufferManager);
     suppressingClose(buffers);
+    suppressingClose(runtimeFilters);
     suppressingClose(allocator);
   }
 
@@ -137,7 +137,13 @@ public abstract class BaseRootExec implements RootExec {
       stats.stopProcessing();
     }
 
-    // close all operators.
+    closeOperators();
+  }
+
+  /**
+   * Closes the operators of the fragment, once; for a root which no longer needs them before the fragment ends.
+   */
+  protected void closeOperators() {
     if (operators != null) {
       final DeferredException df = new DeferredException(new Supplier<Exception>() {
         @Override
@@ -152,6 +158,7 @@ public abstract class BaseRootExec implements RootExec {
           logger.debug(String.format("closed operator %d", System.identityHashCode(crb)));
         }
       }
+      operators = null;
 
       try {
         df.close();
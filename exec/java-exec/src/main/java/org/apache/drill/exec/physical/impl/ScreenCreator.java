@@ -17,22 +17,40 @@
  */
 package org.apache.drill.exec.physical.impl;
 
+import io.netty.buffer.ByteBuf;
+
+import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.drill.common.exceptions.ExecutionSetupException;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.exception.ClassTransformationException;
 import org.apache.drill.exec.exception.OutOfMemoryException;
 import org.apache.drill.exec.exception.OutOfMemoryException;
+import org.apache.drill.exec.exception.SchemaChangeException;
+import org.apache.drill.exec.expr.CodeGenerator;
 import org.apache.drill.exec.ops.AccountingUserConnection;
 import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.ops.MetricDef;
 import org.apache.drill.exec.physical.config.Screen;
 import org.apache.drill.exec.physical.impl.materialize.QueryWritableBatch;
 import org.apache.drill.exec.physical.impl.materialize.RecordMaterializer;
+import org.apache.drill.exec.physical.impl.materialize.ResultCoalescer;
+import org.apache.drill.exec.physical.impl.materialize.ResultSpool;
 import org.apache.drill.exec.physical.impl.materialize.VectorRecordMaterializer;
+import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
 import org.apache.drill.exec.proto.UserBitShared.QueryData;
 import org.apache.drill.exec.proto.UserBitShared.RecordBatchDef;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
 import org.apache.drill.exec.record.RecordBatch;
 import org.apache.drill.exec.record.RecordBatch.IterOutcome;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorWrapper;
+import org.apache.drill.exec.record.WritableBatch;
+import org.apache.drill.exec.rpc.BaseRpcOutcomeListener;
+import org.apache.drill.exec.rpc.RpcOutcomeListener;
+import org.apache.drill.exec.vector.CopyUtil;
 
 import com.google.common.base.Preconditions;
 
@@ -57,11 +75,30 @@ public class ScreenCreator implements RootCreator<Screen> {
     private final FragmentContext context;
     private final AccountingUserConnection userConnection;
     private RecordMaterializer materializer;
+    // the small batches of results are appended to the coalesced batch, sent once it reaches the byte target
+    private ResultCoalescer coalescer;
+    private VectorContainer coalesced;
+    private long coalesceBytes;
+    private long coalescedBytes;
+    // the results are written to the spool until the last batch, then read back and sent to the client
+    private final ResultSpool spool;
+    private boolean spooled;
+    // counts the spooled batches the client acknowledged, from which a resumed delivery starts
+    private final RpcOutcomeListener<Ack> deliveryListener = new BaseRpcOutcomeListener<Ack>() {
+      @Override
+      public void success(Ack value, ByteBuf buffer) {
+        spool.delivered();
+      }
+    };
 
     private boolean firstBatch = true;
 
     public enum Metric implements MetricDef {
-      BYTES_SENT;
+      BYTES_SENT,
+      BATCHES_SENT,
+      COALESCED_BATCHES,
+      SPOOLED_BATCHES,
+      SPOOLED_BYTES;
 
       @Override
       public int metricId() {
@@ -74,10 +111,15 @@ public class ScreenCreator implements RootCreator<Screen> {
       this.context = context;
       this.incoming = incoming;
       userConnection = context.getUserDataTunnel();
+      spool = context.getOptions().getOption(ExecConstants.RESULT_SPOOL_VALIDATOR) ?
+          new ResultSpool(context, config, oContext.getAllocator()) : null;
     }
 
     @Override
     public boolean innerNext() {
+      if (spooled) {
+        return sendSpooled();
+      }
       IterOutcome outcome = next(incoming);
       logger.trace("Screen Outcome {}", outcome);
       switch (outcome) {
@@ -86,40 +128,48 @@ public class ScreenCreator implements RootCreator<Screen> {
       case STOP:
         return false;
       case NONE:
-        if (firstBatch) {
-          // this is the only data message sent to the client and may contain the schema
-          QueryWritableBatch batch;
-          QueryData header = QueryData.newBuilder()
-            .setQueryId(context.getHandle().getQueryId())
-            .setRowCount(0)
-            .setDef(RecordBatchDef.getDefaultInstance())
-            .build();
-          batch = new QueryWritableBatch(header);
-
-          stats.startWait();
-          try {
-            userConnection.sendData(batch);
-          } finally {
-            stats.stopWait();
-          }
-          firstBatch = false; // we don't really need to set this. But who knows!
+        sendCoalesced();
+        if (spool != null) {
+          // all the results are spooled: the upstream fragments are done, and the operators of this one are closed
+          clearCoalesced();
+          closeOperators();
+          spooled = true;
+          stats.setLongStat(Metric.SPOOLED_BATCHES, spool.getWrittenBatches());
+          return sendSpooled();
         }
+        sendEmptyBatch();
 
         return false;
       case OK_NEW_SCHEMA:
+        sendCoalesced();
         materializer = new VectorRecordMaterializer(context, oContext, incoming);
+        try {
+          setupCoalescer();
+        } catch (SchemaChangeException e) {
+          incoming.kill(false);
+          logger.error("Error while setting up the coalescing of the results", e);
+          context.fail(e);
+          return false;
+        }
         //$FALL-THROUGH$
       case OK:
         injector.injectPause(context.getExecutionControls(), "sending-data", logger);
-        final QueryWritableBatch batch = materializer.convertNext();
-        updateStats(batch);
-        stats.startWait();
         try {
-          userConnection.sendData(batch);
-        } finally {
-          stats.stopWait();
+          if (coalesce()) {
+            return true;
+          }
+        } catch (SchemaChangeException e) {
+          incoming.kill(false);
+          logger.error("Error while coalescing the results", e);
+          context.fail(e);
+          return false;
+        }
+        sendCoalesced();
+        if (spool != null) {
+          spool.write(WritableBatch.get(incoming));
+        } else {
+          send(materializer.convertNext());
         }
-        firstBatch = false;
 
         return true;
       default:
@@ -129,6 +179,166 @@ public class ScreenCreator implements RootCreator<Screen> {
 
     public void updateStats(QueryWritableBatch queryBatch) {
       stats.addLongStat(Metric.BYTES_SENT, queryBatch.getByteCount());
+      stats.addLongStat(Metric.BATCHES_SENT, 1);
+    }
+
+    private void send(QueryWritableBatch batch) {
+      send(batch, null);
+    }
+
+    private void send(QueryWritableBatch batch, RpcOutcomeListener<Ack> listener) {
+      updateStats(batch);
+      stats.startWait();
+      try {
+        if (listener == null) {
+          userConnection.sendData(batch);
+        } else {
+          userConnection.sendData(batch, listener);
+        }
+      } finally {
+        stats.stopWait();
+      }
+      firstBatch = false;
+    }
+
+    /**
+     * Sets up the coalescing of the batches of a new schema, unless disabled.
+     */
+    private void setupCoalescer() throws SchemaChangeException {
+      clearCoalesced();
+      coalescer = null;
+      coalesceBytes = context.getOptions().getOption(ExecConstants.RESULT_COALESCE_BYTES_VALIDATOR);
+      if (coalesceBytes == 0 || incoming.getSchema().getSelectionVectorMode() != SelectionVectorMode.NONE) {
+        return;
+      }
+
+      coalesced = new VectorContainer(oContext.getAllocator(), incoming.getSchema());
+      final CodeGenerator<ResultCoalescer> cg = CodeGenerator.get(ResultCoalescer.TEMPLATE_DEFINITION,
+          context.getFunctionRegistry(), context.getOptions());
+      CopyUtil.generateCopies(cg.getRoot(), incoming, false, true);
+      cg.plainJavaCapable(true);
+      // Uncomment out this line to debug the generated code.
+//      cg.saveCodeForDebugging(true);
+      try {
+        coalescer = context.getImplementationClass(cg);
+      } catch (ClassTransformationException | IOException e) {
+        throw new SchemaChangeException("Failure while attempting to load generated class", e);
+      }
+      coalescer.setup(context, incoming, coalesced);
+      coalesced.allocateNew();
+      coalesced.setRecordCount(0);
+      coalescedBytes = 0;
+    }
+
+    /**
+     * Appends the incoming batch to the coalesced batch if smaller than the byte target, and sends the coalesced batch
+     * once it reaches the target. The larger batches are sent as they are, without copies, as are the batches without
+     * records, which may carry a new schema.
+     *
+     * @return whether the incoming batch was coalesced
+     */
+    private boolean coalesce() throws SchemaChangeException {
+      final int recordCount = incoming.getRecordCount();
+      if (coalescer == null || recordCount == 0) {
+        return false;
+      }
+      long bytes = 0;
+      for (VectorWrapper<?> w : incoming) {
+        bytes += w.getValueVector().getBufferSize();
+      }
+      if (bytes >= coalesceBytes) {
+        return false;
+      }
+
+      if (coalesced.getRecordCount() + recordCount > Character.MAX_VALUE) {
+        sendCoalesced();
+      }
+      coalescer.append(coalesced.getRecordCount());
+      coalesced.setRecordCount(coalesced.getRecordCount() + recordCount);
+      coalescedBytes += bytes;
+      stats.addLongStat(Metric.COALESCED_BATCHES, 1);
+      // the records of the incoming batch were copied
+      for (VectorWrapper<?> w : incoming) {
+        w.getValueVector().clear();
+      }
+      if (coalescedBytes >= coalesceBytes) {
+        sendCoalesced();
+      }
+      return true;
+    }
+
+    /**
+     * Sends the coalesced batch, if any records were appended to it.
+     */
+    private void sendCoalesced() {
+      if (coalesced == null || coalesced.getRecordCount() == 0) {
+        return;
+      }
+      final int recordCount = coalesced.getRecordCount();
+      for (VectorWrapper<?> w : coalesced) {
+        w.getValueVector().getMutator().setValueCount(recordCount);
+      }
+      final WritableBatch w = WritableBatch.getBatchNoHVWrap(recordCount, coalesced, false);
+      if (spool != null) {
+        spool.write(w);
+      } else {
+        final QueryData header = QueryData.newBuilder()
+            .setQueryId(context.getHandle().getQueryId())
+            .setRowCount(recordCount)
+            .setDef(w.getDef())
+            .build();
+        send(new QueryWritableBatch(header, w.getBuffers()));
+      }
+
+      coalesced.allocateNew();
+      coalesced.setRecordCount(0);
+      coalescedBytes = 0;
+    }
+
+    /**
+     * Sends the next batch of results read from the spool, at the pace of the client.
+     *
+     * @return whether a batch was sent
+     */
+    private boolean sendSpooled() {
+      if (spool.hasNext()) {
+        send(spool.next(context.getHandle().getQueryId()), deliveryListener);
+        return true;
+      }
+      stats.setLongStat(Metric.SPOOLED_BYTES, spool.getWriteBytes());
+      sendEmptyBatch();
+      return false;
+    }
+
+    /**
+     * Sends a batch without records if no batch was sent: this is the only data message sent to the client.
+     */
+    private void sendEmptyBatch() {
+      if (firstBatch) {
+        // this is the only data message sent to the client and may contain the schema
+        QueryWritableBatch batch;
+        QueryData header = QueryData.newBuilder()
+          .setQueryId(context.getHandle().getQueryId())
+          .setRowCount(0)
+          .setDef(RecordBatchDef.getDefaultInstance())
+          .build();
+        batch = new QueryWritableBatch(header);
+
+        stats.startWait();
+        try {
+          userConnection.sendData(batch);
+        } finally {
+          stats.stopWait();
+        }
+        firstBatch = false; // we don't really need to set this. But who knows!
+      }
+    }
+
+    private void clearCoalesced() {
+      if (coalesced != null) {
+        coalesced.clear();
+        coalesced = null;
+      }
     }
 
     RecordBatch getIncoming() {
@@ -138,7 +348,29 @@ public class ScreenCreator implements RootCreator<Screen> {
     @Override
     public void close() throws Exception {
       injector.injectPause(context.getExecutionControls(), "send-complete", logger);
-      super.close();
+      clearCoalesced();
+      try {
+        // waits for the acks of the batches sent
+        super.close();
+      } finally {
+        if (spool != null) {
+          closeSpool();
+        }
+      }
+    }
+
+    /**
+     * Closes the spool, unless the client disconnected before it took all the results: the spool is then kept for the
+     * client to resume their delivery.
+     */
+    private void closeSpool() {
+      final long ttlSecs = context.getOptions().getOption(ExecConstants.RESULT_SPOOL_TTL_VALIDATOR);
+      if (spooled && ttlSecs > 0 && spool.isUndelivered() && userConnection.isClosed()) {
+        context.getDrillbitContext().getResultSpools().add(context.getHandle().getQueryId(),
+            context.getQueryUserName(), spool, TimeUnit.SECONDS.toMillis(ttlSecs));
+      } else {
+        spool.close();
+      }
     }
   }
 }
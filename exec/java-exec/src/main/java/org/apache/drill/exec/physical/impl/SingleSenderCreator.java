@@ -56,7 +56,10 @@ public class SingleSenderCreator implements RootCreator<SingleSender>{
     private volatile boolean done = false;
 
     public enum Metric implements MetricDef {
-      BYTES_SENT;
+      BYTES_SENT,
+      CREDIT_WAIT_NANOS,
+      UNCOMPRESSED_BYTES,
+      COMPRESSED_BYTES;
 
       @Override
       public int metricId() {
@@ -140,6 +143,14 @@ public class SingleSenderCreator implements RootCreator<SingleSender>{
       stats.addLongStat(Metric.BYTES_SENT, writableBatch.getByteCount());
     }
 
+    @Override
+    public void close() throws Exception {
+      super.close();
+      stats.setLongStat(Metric.CREDIT_WAIT_NANOS, tunnel.getCreditWaitNanos());
+      stats.setLongStat(Metric.UNCOMPRESSED_BYTES, tunnel.getUncompressedBytes());
+      stats.setLongStat(Metric.COMPRESSED_BYTES, tunnel.getCompressedBytes());
+    }
+
     @Override
     public void receivingFragmentFinished(FragmentHandle handle) {
       done = true;
@@ -34,6 +34,27 @@ public interface PriorityQueue {
   public SelectionVector4 getFinalSv4();
   public boolean validate();
   public void resetQueue(VectorContainer container, SelectionVector4 vector4) throws SchemaChangeException;
+
+  /**
+   * Drop all the rows held by the queue (e.g. once they were spilled); the queue can then be added to again.
+   */
+  public void clearQueue();
+
+  /**
+   * Add a single row batch (owned by the queue from now on) as the retention boundary: from now on
+   * only rows that sort before this row are added. Any reset of the queue drops the boundary.
+   */
+  public void setBoundary(VectorContainer boundary) throws SchemaChangeException;
+
+  /**
+   * @return true once the queue holds limit rows
+   */
+  public boolean isFull();
+
+  /**
+   * @return the number of incoming batches that had no row retained when added, and were released at once
+   */
+  public long getReleasedBatches();
   public void cleanup();
 
   public static TemplateClassDefinition<PriorityQueue> TEMPLATE_DEFINITION = new TemplateClassDefinition<PriorityQueue>(PriorityQueue.class, PriorityQueueTemplate.class);
@@ -50,6 +50,11 @@ public abstract class PriorityQueueTemplate implements PriorityQueue {
   private int queueSize = 0;
   private int batchCount = 0;
   private boolean hasSv2;
+  // Composite index (in the hyper batch) of the boundary row, or -1 if none
+  private int boundary = -1;
+  // Rows of the current incoming batch that passed the pre-filter against the heap root
+  private int[] candidates = new int[0];
+  private long releasedBatches;
 
   @Override
   public void init(int limit, FragmentContext context, BufferAllocator allocator,  boolean hasSv2) throws SchemaChangeException {
@@ -89,9 +94,48 @@ public abstract class PriorityQueueTemplate implements PriorityQueue {
       ++queueSize;
     }
     v4.clear();
+    boundary = -1;
     doSetup(context, hyperBatch, null);
   }
 
+  @Override
+  public void clearQueue() {
+    if (hyperBatch != null) {
+      hyperBatch.clear();
+      hyperBatch = null;
+    }
+    if (finalSv4 != null) {
+      finalSv4.clear();
+      finalSv4 = null;
+    }
+    batchCount = 0;
+    queueSize = 0;
+    boundary = -1;
+  }
+
+  @Override
+  public void setBoundary(VectorContainer boundaryBatch) throws SchemaChangeException {
+    assert boundaryBatch.getRecordCount() == 1;
+    if (hyperBatch == null) {
+      hyperBatch = new ExpandableHyperContainer(boundaryBatch);
+    } else {
+      hyperBatch.addBatch(boundaryBatch);
+    }
+    boundary = batchCount << 16;
+    batchCount++;
+    doSetup(context, hyperBatch, null);
+  }
+
+  @Override
+  public boolean isFull() {
+    return queueSize == limit;
+  }
+
+  @Override
+  public long getReleasedBatches() {
+    return releasedBatches;
+  }
+
   @SuppressWarnings("resource")
   @Override
   public void add(FragmentContext context, RecordBatchData batch) throws SchemaChangeException{
@@ -105,29 +149,65 @@ public abstract class PriorityQueueTemplate implements PriorityQueue {
     doSetup(context, hyperBatch, null); // may not need to do this every time
 
     int count = 0;
+    int retained = 0;
     SelectionVector2 sv2 = null;
     if (hasSv2) {
       sv2 = batch.getSv2();
     }
-    for (; queueSize < limit && count < batch.getRecordCount();  count++) {
+    final int recordCount = batch.getRecordCount();
+    for (; queueSize < limit && count < recordCount;  count++) {
       heapSv4.set(queueSize, batchCount, hasSv2 ? sv2.getIndex(count) : count);
+      if (boundary != -1 && doEval(heapSv4.get(queueSize), boundary) >= 0) {
+        continue; // does not sort before the boundary (the spilled rows), so can not be in the top N
+      }
       queueSize++;
+      retained++;
       siftUp();
     }
-    for (; count < batch.getRecordCount(); count++) {
-      heapSv4.set(limit, batchCount, hasSv2 ? sv2.getIndex(count) : count);
-      if (compare(limit, 0) < 0) {
-        swap(limit, 0);
-        siftDown();
+    if (count < recordCount) {
+      // The heap is full: filter the remaining rows against its current root first, then insert
+      // only the candidates (the root can only get smaller while inserting, so re-check each)
+      final int numCandidates = selectCandidates(count, recordCount, sv2);
+      for (int i = 0; i < numCandidates; i++) {
+        heapSv4.set(limit, batchCount, candidates[i]);
+        if (compare(limit, 0) < 0) {
+          swap(limit, 0);
+          siftDown();
+          retained++;
+        }
       }
     }
     batchCount++;
     if (hasSv2) {
       sv2.clear();
     }
+    if (retained == 0) {
+      // No row of this batch is in the heap, so free its memory now instead of at the next purge;
+      // the (empty) batch keeps its place in the hyper batch, so the indexes of other batches stay valid
+      batch.getContainer().zeroVectors();
+      releasedBatches++;
+    }
     logger.debug("Took {} us to add {} records", watch.elapsed(TimeUnit.MICROSECONDS), count);
   }
 
+  // Select the rows (starting at the given position) that sort before the heap root; a tight loop
+  // over the batch without any heap maintenance, as most rows are rejected once the heap is warm
+  private int selectCandidates(int start, int recordCount, SelectionVector2 sv2) throws SchemaChangeException {
+    if (candidates.length < recordCount - start) {
+      candidates = new int[recordCount];
+    }
+    final int root = heapSv4.get(0);
+    final int batchBase = batchCount << 16;
+    int numCandidates = 0;
+    for (int i = start; i < recordCount; i++) {
+      final int index = hasSv2 ? sv2.getIndex(i) : i;
+      if (doEval(batchBase | index, root) < 0) {
+        candidates[numCandidates++] = index;
+      }
+    }
+    return numCandidates;
+  }
+
   @Override
   public void generate() throws SchemaChangeException {
     Stopwatch watch = Stopwatch.createStarted();
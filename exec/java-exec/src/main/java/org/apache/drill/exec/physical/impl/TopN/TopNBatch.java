@@ -17,17 +17,19 @@
  */
 package org.apache.drill.exec.physical.impl.TopN;
 
+import io.netty.buffer.DrillBuf;
+
 import java.io.IOException;
-import java.util.Iterator;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 import org.apache.drill.common.DrillAutoCloseables;
+import org.apache.drill.common.exceptions.UserException;
 import org.apache.drill.common.expression.ErrorCollector;
 import org.apache.drill.common.expression.ErrorCollectorImpl;
 import org.apache.drill.common.expression.LogicalExpression;
-import org.apache.drill.common.expression.SchemaPath;
 import org.apache.drill.common.logical.data.Order.Ordering;
 import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.compile.sig.MappingSet;
@@ -41,24 +43,35 @@ import org.apache.drill.exec.expr.ExpressionTreeMaterializer;
 import org.apache.drill.exec.expr.TypeHelper;
 import org.apache.drill.exec.expr.fn.FunctionGenerationHelper;
 import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.ops.MetricDef;
+import org.apache.drill.exec.ops.OperExecContext;
+import org.apache.drill.exec.ops.OperExecContextImpl;
 import org.apache.drill.exec.physical.config.TopN;
 import org.apache.drill.exec.physical.impl.sort.RecordBatchData;
 import org.apache.drill.exec.physical.impl.sort.SortRecordBatchBuilder;
+import org.apache.drill.exec.physical.impl.spill.SpillSet;
 import org.apache.drill.exec.physical.impl.svremover.Copier;
 import org.apache.drill.exec.physical.impl.svremover.RemovingRecordBatch;
+import org.apache.drill.exec.physical.impl.xsort.managed.BatchGroup;
+import org.apache.drill.exec.physical.impl.xsort.managed.PriorityQueueCopierWrapper;
+import org.apache.drill.exec.physical.impl.xsort.managed.SortImpl.SortResults;
+import org.apache.drill.exec.physical.impl.xsort.managed.SpilledRuns;
 import org.apache.drill.exec.record.AbstractRecordBatch;
 import org.apache.drill.exec.record.BatchSchema;
 import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
 import org.apache.drill.exec.record.ExpandableHyperContainer;
 import org.apache.drill.exec.record.RecordBatch;
 import org.apache.drill.exec.record.SchemaUtil;
-import org.apache.drill.exec.record.TypedFieldId;
+import org.apache.drill.exec.record.SimpleRecordBatch;
 import org.apache.drill.exec.record.VectorAccessible;
 import org.apache.drill.exec.record.VectorContainer;
 import org.apache.drill.exec.record.VectorWrapper;
 import org.apache.drill.exec.record.WritableBatch;
 import org.apache.drill.exec.record.selection.SelectionVector2;
 import org.apache.drill.exec.record.selection.SelectionVector4;
+import org.apache.drill.exec.testing.ControlsInjector;
+import org.apache.drill.exec.testing.ControlsInjectorFactory;
+import org.apache.drill.exec.vector.AllocationHelper;
 import org.apache.drill.exec.vector.ValueVector;
 import org.apache.drill.exec.vector.complex.AbstractContainerVector;
 
@@ -68,8 +81,13 @@ import com.sun.codemodel.JExpr;
 
 public class TopNBatch extends AbstractRecordBatch<TopN> {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(TopNBatch.class);
+  private static final ControlsInjector injector = ControlsInjectorFactory.getInjector(TopNBatch.class);
+
+  // Rows per batch of a spilled run, and per output batch of the final merge
+  private static final int SPILL_BATCH_SIZE = 4000;
 
   private  final int batchPurgeThreshold;
+  private final long memoryLimit;
 
   public final MappingSet MAIN_MAPPING = new MappingSet( (String) null, null, ClassGenerator.DEFAULT_SCALAR_MAP, ClassGenerator.DEFAULT_SCALAR_MAP);
   public final MappingSet LEFT_MAPPING = new MappingSet("leftIndex", null, ClassGenerator.DEFAULT_SCALAR_MAP, ClassGenerator.DEFAULT_SCALAR_MAP);
@@ -88,11 +106,35 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
   private boolean first = true;
   private int recordCount = 0;
 
+  // Spilling: the sorted runs of retained rows written so far, and the last (worst) row of the
+  // last full queue spilled - rows that do not sort before it can not be in the top N
+  private SpilledRuns spilledRuns;
+  private int spillCount;
+  private VectorContainer boundaryRow;
+  private SortResults mergedResults;
+  // the batches of the final merge, returned through the outgoing container as a hyper batch of
+  // a single batch, so that the output keeps the four byte selection vector whether or not it spilled
+  private VectorContainer mergedBatch;
+  private int mergedRowsLeft;
+
+  public enum Metric implements MetricDef {
+    SPILL_COUNT,      // Number of times the retained rows were spilled
+    SPILL_MB,         // Number of MB of data spilled to disk
+    RELEASED_BATCHES; // Incoming batches released right away, as none of their rows was retained
+
+    @Override
+    public int metricId() {
+      return ordinal();
+    }
+  }
+
   public TopNBatch(TopN popConfig, FragmentContext context, RecordBatch incoming) throws OutOfMemoryException {
     super(popConfig, context);
     this.incoming = incoming;
     this.config = popConfig;
     batchPurgeThreshold = context.getConfig().getInt(ExecConstants.BATCH_PURGE_THRESHOLD);
+    final long memLimit = context.getOptions().getOption(ExecConstants.TOPN_MAX_MEMORY_VALIDATOR);
+    memoryLimit = memLimit > 0 ? memLimit : oContext.getAllocator().getLimit();
   }
 
   @Override
@@ -118,6 +160,18 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
     if (priorityQueue != null) {
       priorityQueue.cleanup();
     }
+    if (mergedResults != null) {
+      mergedResults.close();
+    }
+    if (mergedBatch != null) {
+      mergedBatch.clear();
+    }
+    if (spilledRuns != null) {
+      spilledRuns.close();
+    }
+    if (boundaryRow != null) {
+      boundaryRow.clear();
+    }
     super.close();
   }
 
@@ -169,6 +223,9 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
     if (state == BatchState.DONE) {
       return IterOutcome.NONE;
     }
+    if (mergedResults != null) {
+      return nextMergedBatch(IterOutcome.OK);
+    }
     if (schema != null) {
       if (getSelectionVector4().next()) {
         recordCount = sv4.getCount();
@@ -207,6 +264,11 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
           // only change in the case that the schema truly changes.  Artificial schema changes are ignored.
           if (!incoming.getSchema().equals(schema)) {
             if (schema != null) {
+              if (spilledRuns != null) {
+                throw UserException.unsupportedError()
+                    .message("TopN does not support schema changes once it spilled.")
+                    .build(logger);
+              }
               if (!unionTypeEnabled) {
                 throw new UnsupportedOperationException("Sort doesn't currently support sorts with changing schemas.");
               } else {
@@ -242,12 +304,13 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
               priorityQueue = createNewPriorityQueue(context, config.getOrderings(), new ExpandableHyperContainer(batch.getContainer()), MAIN_MAPPING, LEFT_MAPPING, RIGHT_MAPPING);
             }
             priorityQueue.add(context, batch);
-            if (countSincePurge > config.getLimit() && batchCount > batchPurgeThreshold) {
+            if (countSincePurge > config.getLimit() && batchCount > batchPurgeThreshold && priorityQueue.isFull()) {
               purge();
               countSincePurge = 0;
               batchCount = 0;
             }
             success = true;
+            manageMemory();
           } finally {
             if (!success) {
               batch.clear();
@@ -265,6 +328,11 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
         return IterOutcome.NONE;
       }
 
+      stats.setLongStat(Metric.RELEASED_BATCHES, priorityQueue.getReleasedBatches());
+      if (spilledRuns != null) {
+        return startMergedOutput();
+      }
+
       priorityQueue.generate();
 
       this.sv4 = priorityQueue.getFinalSv4();
@@ -326,12 +394,175 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
       priorityQueue.resetQueue(newQueue, builder.getSv4().createNewWrapperCurrent());
       builder.getSv4().clear();
       selectionVector4.clear();
+      if (boundaryRow != null) {
+        priorityQueue.setBoundary(copyRow(boundaryRow, 0));
+      }
     } finally {
       DrillAutoCloseables.closeNoChecked(builder);
     }
     logger.debug("Took {} us to purge", watch.elapsed(TimeUnit.MICROSECONDS));
   }
 
+  /**
+   * Keep the memory held within the budget: first purge (keep only the rows retained by the queue),
+   * and if the retained rows alone are still too large, spill them as a sorted run. Both copy the
+   * retained rows, so only half the budget is used before acting.
+   */
+  private void manageMemory() throws SchemaChangeException {
+    if (oContext.getAllocator().getAllocatedMemory() <= memoryLimit / 2) {
+      return;
+    }
+    if (priorityQueue.isFull()) {
+      purge();
+      countSincePurge = 0;
+      batchCount = 0;
+      if (oContext.getAllocator().getAllocatedMemory() <= memoryLimit / 4) {
+        return;
+      }
+    }
+    spill();
+  }
+
+  private void spill() throws SchemaChangeException {
+    final Stopwatch watch = Stopwatch.createStarted();
+    final List<BatchGroup> batches = takeSortedBatches();
+    if (batches.isEmpty()) {
+      return;
+    }
+    if (spilledRuns == null) {
+      final OperExecContext opContext = new OperExecContextImpl(context, oContext, config, injector);
+      spilledRuns = new SpilledRuns(opContext, new SpillSet(context, config), new PriorityQueueCopierWrapper(opContext));
+      spilledRuns.setSchema(batches.get(0).getSchema());
+    }
+    spilledRuns.mergeAndSpill(batches, SPILL_BATCH_SIZE, null);
+    spillCount++;
+    stats.setLongStat(Metric.SPILL_COUNT, spillCount);
+    stats.setLongStat(Metric.SPILL_MB, Math.round(spilledRuns.getWriteBytes() / 1024.0D / 1024.0));
+    if (boundaryRow != null) {
+      priorityQueue.setBoundary(copyRow(boundaryRow, 0));
+    }
+    logger.debug("Took {} us to spill, memory now {}", watch.elapsed(TimeUnit.MICROSECONDS),
+        oContext.getAllocator().getAllocatedMemory());
+  }
+
+  /**
+   * Copy the rows of the queue, in sorted order, into batches of up to SPILL_BATCH_SIZE rows; the
+   * queue is cleared. If the queue was full, its last row becomes the new boundary.
+   */
+  private List<BatchGroup> takeSortedBatches() throws SchemaChangeException {
+    final boolean full = priorityQueue.isFull();
+    priorityQueue.generate();
+    final VectorContainer c = priorityQueue.getHyperBatch();
+    @SuppressWarnings("resource")
+    final SelectionVector4 selectionVector4 = priorityQueue.getFinalSv4();
+    final List<BatchGroup> batches = new ArrayList<>();
+    VectorContainer lastContainer = null;
+    boolean success = false;
+    try {
+      do {
+        final int count = selectionVector4.getCount();
+        if (count == 0) {
+          break;
+        }
+        final VectorContainer newContainer = new VectorContainer(oContext);
+        final SimpleRecordBatch batch = new SimpleRecordBatch(c, selectionVector4, context);
+        final SimpleRecordBatch newBatch = new SimpleRecordBatch(newContainer, null, context);
+        if (copier == null) {
+          copier = RemovingRecordBatch.getGenerated4Copier(batch, context, oContext.getAllocator(),  newContainer, newBatch, null);
+        } else {
+          for (VectorWrapper<?> i : batch) {
+            @SuppressWarnings("resource")
+            ValueVector v = TypeHelper.getNewVector(i.getField(), oContext.getAllocator());
+            newContainer.add(v);
+          }
+          copier.setupRemover(context, batch, newBatch);
+        }
+        final int copiedRecords = copier.copyRecords(0, count);
+        assert copiedRecords == count;
+        for (VectorWrapper<?> v : newContainer) {
+          v.getValueVector().getMutator().setValueCount(count);
+        }
+        newContainer.buildSchema(BatchSchema.SelectionVectorMode.NONE);
+        newContainer.setRecordCount(count);
+        // the rows are already sorted
+        final SelectionVector2 sv2 = new SelectionVector2(oContext.getAllocator());
+        sv2.allocateNew(count);
+        for (int i = 0; i < count; i++) {
+          sv2.setIndex(i, i);
+        }
+        sv2.setRecordCount(count);
+        batches.add(new BatchGroup.InputBatch(newContainer, sv2, oContext.getAllocator(), 0));
+        lastContainer = newContainer;
+      } while (selectionVector4.next());
+      if (full && lastContainer != null) {
+        if (boundaryRow != null) {
+          boundaryRow.clear();
+        }
+        boundaryRow = copyRow(lastContainer, lastContainer.getRecordCount() - 1);
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        BatchGroup.closeAll(batches);
+      }
+      priorityQueue.clearQueue();
+    }
+    return batches;
+  }
+
+  private VectorContainer copyRow(VectorAccessible source, int index) {
+    final VectorContainer row = new VectorContainer(oContext);
+    for (VectorWrapper<?> w : source) {
+      @SuppressWarnings("resource")
+      final ValueVector from = w.getValueVector();
+      @SuppressWarnings("resource")
+      final ValueVector to = row.addOrGet(from.getField());
+      AllocationHelper.allocatePrecomputedChildCount(to, 1, TypeHelper.getSize(from.getField().getType()), 0);
+      to.copyEntry(0, from, index);
+      to.getMutator().setValueCount(1);
+    }
+    row.buildSchema(SelectionVectorMode.NONE);
+    row.setRecordCount(1);
+    return row;
+  }
+
+  /**
+   * Some rows were spilled: merge the spilled runs with the rows still in the queue, and return
+   * the first limit rows of the merge. As without spilling, the output is a hyper batch with a
+   * four byte selection vector: it holds the merged batch (whose vectors are refilled by each
+   * step of the merge), and the selection vector lists its rows in order.
+   */
+  private IterOutcome startMergedOutput() throws SchemaChangeException {
+    final List<BatchGroup> batches = takeSortedBatches();
+    mergedBatch = new VectorContainer(oContext);
+    mergedResults = spilledRuns.finalMerge(batches, mergedBatch, SPILL_BATCH_SIZE, null);
+    container.clear();
+    for (VectorWrapper<?> w : mergedBatch) {
+      container.add(new ValueVector[] {w.getValueVector()});
+    }
+    container.buildSchema(SelectionVectorMode.FOUR_BYTE);
+    @SuppressWarnings("resource")
+    final DrillBuf sv4Buffer = oContext.getAllocator().buffer(4 * SPILL_BATCH_SIZE);
+    sv4 = new SelectionVector4(sv4Buffer, SPILL_BATCH_SIZE, SPILL_BATCH_SIZE);
+    for (int i = 0; i < SPILL_BATCH_SIZE; i++) {
+      sv4.set(i, 0, i);
+    }
+    mergedRowsLeft = config.getLimit();
+    return nextMergedBatch(IterOutcome.OK_NEW_SCHEMA);
+  }
+
+  private IterOutcome nextMergedBatch(IterOutcome outcome) {
+    if (mergedRowsLeft == 0 || !mergedResults.next()) {
+      recordCount = 0;
+      return IterOutcome.NONE;
+    }
+    recordCount = Math.min(mergedBatch.getRecordCount(), mergedRowsLeft);
+    sv4.setCount(recordCount);
+    container.setRecordCount(recordCount);
+    mergedRowsLeft -= recordCount;
+    return outcome;
+  }
+
   public PriorityQueue createNewPriorityQueue(FragmentContext context, List<Ordering> orderings,
                                                      VectorAccessible batch, MappingSet mainMapping, MappingSet leftMapping, MappingSet rightMapping)
           throws ClassTransformationException, IOException, SchemaChangeException{
@@ -439,82 +670,4 @@ public class TopNBatch extends AbstractRecordBatch<TopN> {
     incoming.kill(sendUpstream);
   }
 
-
-  public static class SimpleRecordBatch implements RecordBatch {
-
-    private VectorContainer container;
-    private SelectionVector4 sv4;
-    private FragmentContext context;
-
-    public SimpleRecordBatch(VectorContainer container, SelectionVector4 sv4, FragmentContext context) {
-      this.container = container;
-      this.sv4 = sv4;
-      this.context = context;
-    }
-
-    @Override
-    public FragmentContext getContext() {
-      return context;
-    }
-
-    @Override
-    public BatchSchema getSchema() {
-      return container.getSchema();
-    }
-
-    @Override
-    public int getRecordCount() {
-      if (sv4 != null) {
-        return sv4.getCount();
-      } else {
-        return container.getRecordCount();
-      }
-    }
-
-    @Override
-    public void kill(boolean sendUpstream) {
-    }
-
-    @Override
-    public SelectionVector2 getSelectionVector2() {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public SelectionVector4 getSelectionVector4() {
-      return sv4;
-    }
-
-    @Override
-    public TypedFieldId getValueVectorId(SchemaPath path) {
-      return container.getValueVectorId(path);
-    }
-
-    @Override
-    public VectorWrapper<?> getValueAccessorById(Class<?> clazz, int... ids) {
-      return container.getValueAccessorById(clazz, ids);
-    }
-
-    @Override
-    public IterOutcome next() {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public WritableBatch getWritableBatch() {
-      throw new UnsupportedOperationException();
-    }
-
-    @Override
-    public Iterator<VectorWrapper<?>> iterator() {
-      return container.iterator();
-    }
-
-    @Override
-    public VectorContainer getOutgoingContainer() {
-      throw new UnsupportedOperationException(String.format(" You should not call getOutgoingContainer() for class %s", this.getClass().getCanonicalName()));
-    }
-
-  }
-
 }
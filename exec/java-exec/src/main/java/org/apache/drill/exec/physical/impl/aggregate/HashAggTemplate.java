@@ -114,6 +114,17 @@ public abstract class HashAggTemplate implements HashAggregator {
   private boolean earlyOutput = false; // when 1st phase returns a partition due to no memory
   private int earlyPartition = 0; // which partition to return early
 
+  // Adaptive bypass (1st phase only): sample the reduction over the first incoming batches; when poor, return
+  // each partition downstream as soon as its batch is full (instead of building the whole table)
+  private static final int BYPASS_SAMPLE_BATCHES = 3;
+  private boolean adaptiveBypass = false; // still sampling the reduction ratio
+  private boolean flushWhenFull = false; // the reduction was found to be poor
+  private double bypassGroupRatio;
+  private int sampledBatches = 0;
+  private long sampledRows = 0;
+  private long sampledGroups = 0;
+  private int numFlushedWhenFull = 0; // number of partitions returned early because they were full
+
   private long memoryLimit; // max memory to be used by this oerator
   private long estMaxBatchSize = 0; // used for adjusting #partitions
   private long estRowWidth = 0;
@@ -123,6 +134,7 @@ public abstract class HashAggTemplate implements HashAggregator {
 
   private int underlyingIndex = 0;
   private int currentIndex = 0;
+  private int[] batchHashCodes = new int[0]; // hash codes of all the rows of the current incoming batch
   private IterOutcome outcome;
   private int numGroupedRecords = 0;
   private int currentBatchRecordCount = 0; // Performance: Avoid repeated calls to getRecordCount()
@@ -181,7 +193,10 @@ public abstract class HashAggTemplate implements HashAggregator {
                       // then later re-read. So, disk I/O is twice this amount.
                       // For first phase aggr -- this is an estimate of the amount of data
                       // returned early (analogous to a spill in the 2nd phase).
-    SPILL_CYCLE       // 0 - no spill, 1 - spill, 2 - SECONDARY, 3 - TERTIARY
+    SPILL_CYCLE,      // 0 - no spill, 1 - spill, 2 - SECONDARY, 3 - TERTIARY
+    FLUSHED_WHEN_FULL, // 1st phase: number of full partitions returned early due to a poor reduction
+    SPILL_RAW_MB,     // Number of MB of data spilled to disk, before compression
+    SPILL_WRITE_STALL_MS // Time waited for the asynchronous writes of spill blocks
     ;
 
     // duplicate for hash ag
@@ -321,6 +336,9 @@ public abstract class HashAggTemplate implements HashAggregator {
     is2ndPhase = hashAggrConfig.getAggPhase() == AggPrelBase.OperatorPhase.PHASE_2of2;
     isTwoPhase = hashAggrConfig.getAggPhase() != AggPrelBase.OperatorPhase.PHASE_1of1;
     canSpill = isTwoPhase; // single phase can not spill
+    adaptiveBypass = isTwoPhase && ! is2ndPhase &&
+        context.getOptions().getOption(ExecConstants.HASHAGG_ADAPTIVE_BYPASS_VALIDATOR);
+    bypassGroupRatio = context.getOptions().getOption(ExecConstants.HASHAGG_BYPASS_GROUP_RATIO_VALIDATOR);
 
     // Typically for testing - force a spill after a partition has more than so many batches
     minBatchesPerPartition = context.getConfig().getLong(ExecConstants.HASHAGG_MIN_BATCHES_PER_PARTITION);
@@ -397,8 +415,10 @@ public abstract class HashAggTemplate implements HashAggregator {
       numPartitions = 1; // single phase should use only a single partition (to save memory)
     } else { // two phase
       // Adjust down the number of partitions if needed - when the memory available can not hold as
-      // many batches (configurable option), plus overhead (e.g. hash table, links, hash values))
-      while ( numPartitions * ( estMaxBatchSize * minBatchesPerPartition + 2 * 1024 * 1024) > memAvail ) {
+      // many batches (configurable option), plus overhead (e.g. hash table, links, hash values, and
+      // in the 2nd phase the buffers of the spill file each partition may keep open)
+      final long spillBufferBytes = is2ndPhase ? spillSet.getOutputBufferBytes() : 0;
+      while ( numPartitions * ( estMaxBatchSize * minBatchesPerPartition + 2 * 1024 * 1024 + spillBufferBytes) > memAvail ) {
         numPartitions /= 2;
         if ( numPartitions < 2) {
           if ( is2ndPhase ) {
@@ -532,11 +552,15 @@ public abstract class HashAggTemplate implements HashAggregator {
       if (EXTRA_DEBUG_1) {
         logger.debug("Starting outer loop of doWork()...");
       }
+      // Compute the hash codes of all the rows of a new incoming batch at once
+      if (underlyingIndex == 0 && currentBatchRecordCount > 0) {
+        computeBatchHashCodes();
+      }
       for (; underlyingIndex < currentBatchRecordCount; incIndex()) {
         if (EXTRA_DEBUG_2) {
           logger.debug("Doing loop with values underlying {}, current {}", underlyingIndex, currentIndex);
         }
-        checkGroupAndAggrValues(currentIndex);
+        checkGroupAndAggrValues(currentIndex, batchHashCodes[underlyingIndex]);
         // If adding a group discovered a memory pressure during 1st phase, then start
         // outputing some partition downstream in order to free memory.
         if ( earlyOutput ) {
@@ -550,6 +574,8 @@ public abstract class HashAggTemplate implements HashAggregator {
         logger.debug("Processed {} records", underlyingIndex);
       }
 
+      if ( adaptiveBypass ) { checkReductionRatio(); }
+
       // Cleanup the previous batch since we are done processing it.
       for (VectorWrapper<?> v : incoming) {
         v.getValueVector().clear();
@@ -662,12 +688,24 @@ public abstract class HashAggTemplate implements HashAggregator {
     return lastBatchOutputCount;
   }
 
+  /**
+   * Update the stats of the spill streams - MB spilled before compression, and time
+   * waited for the asynchronous writes
+   */
+  private void updateSpillStreamStats() {
+    stats.setLongStat(Metric.SPILL_RAW_MB,
+        (int) Math.round(spillSet.getRawWriteBytes() / 1024.0D / 1024.0));
+    stats.setLongStat(Metric.SPILL_WRITE_STALL_MS,
+        TimeUnit.NANOSECONDS.toMillis(spillSet.getWriteStallNanos()));
+  }
+
   @Override
   public void cleanup() {
     if ( schema == null ) { return; } // not set up; nothing to clean
     if ( is2ndPhase && spillSet.getWriteBytes() > 0 ) {
       stats.setLongStat(Metric.SPILL_MB, // update stats - total MB spilled
           (int) Math.round(spillSet.getWriteBytes() / 1024.0D / 1024.0));
+      updateSpillStreamStats();
     }
     // clean (and deallocate) each partition
     for ( int i = 0; i < numPartitions; i++) {
@@ -737,6 +775,41 @@ public abstract class HashAggTemplate implements HashAggregator {
     catch (SchemaChangeException sc) { throw new UnsupportedOperationException(sc);}
   }
 
+  /**
+   * Called (during the 1st phase) after each of the first incoming batches is processed. Once enough batches
+   * were sampled, decide whether grouping reduces the data well enough to be worth keeping the groups in
+   * memory; if not, switch to "flush when full": every partition whose batch fills up is returned downstream
+   * (like an early output), leaving the final aggregation to the 2nd phase.
+   */
+  private void checkReductionRatio() {
+    sampledRows += currentBatchRecordCount;
+    if ( ++sampledBatches < BYPASS_SAMPLE_BATCHES ) { return; }
+    adaptiveBypass = false; // decide only once
+    if ( sampledRows > 0 && sampledGroups >= bypassGroupRatio * sampledRows ) {
+      flushWhenFull = true;
+      logger.debug("HashAggregate: 1st phase found {} groups in {} rows; switching to flush-when-full",
+          sampledGroups, sampledRows);
+    }
+  }
+
+  private void computeBatchHashCodes() {
+    if (batchHashCodes.length < currentBatchRecordCount) {
+      batchHashCodes = new int[currentBatchRecordCount];
+    }
+    try {
+      htables[0].updateBatches();
+      if (incoming.getSchema().getSelectionVectorMode() == BatchSchema.SelectionVectorMode.NONE) {
+        htables[0].computeHashCodes(currentBatchRecordCount, batchHashCodes, false);
+      } else {
+        for (int i = 0; i < currentBatchRecordCount; i++) {
+          batchHashCodes[i] = htables[0].getHashCode(getVectorIndex(i));
+        }
+      }
+    } catch (SchemaChangeException e) {
+      throw new UnsupportedOperationException("Unexpected schema change", e);
+    }
+  }
+
   private final void resetIndex() {
     underlyingIndex = -1;
     incIndex();
@@ -968,6 +1041,7 @@ public abstract class HashAggTemplate implements HashAggregator {
           if ( is2ndPhase && spillSet.getWriteBytes() > 0 ) {
             stats.setLongStat(Metric.SPILL_MB, // update stats - total MB spilled
                 (int) Math.round(spillSet.getWriteBytes() / 1024.0D / 1024.0));
+            updateSpillStreamStats();
           }
           return AggIterOutcome.AGG_NONE;  // then return NONE
         }
@@ -1115,7 +1189,7 @@ public abstract class HashAggTemplate implements HashAggregator {
   // Check if a group is present in the hash table; if not, insert it in the hash table.
   // The htIdxHolder contains the index of the group in the hash table container; this same
   // index is also used for the aggregation values maintained by the hash aggregate.
-  private void checkGroupAndAggrValues(int incomingRowIdx) {
+  private void checkGroupAndAggrValues(int incomingRowIdx, int hashCode) {
     if (incomingRowIdx < 0) {
       throw new IllegalArgumentException("Invalid incoming row index.");
     }
@@ -1148,15 +1222,8 @@ public abstract class HashAggTemplate implements HashAggregator {
       }
     }
     */
-    // The hash code is computed once, then its lower bits are used to determine the
-    // partition to use, and the higher bits determine the location in the hash table.
-    int hashCode;
-    try {
-      htables[0].updateBatches();
-      hashCode = htables[0].getHashCode(incomingRowIdx);
-    } catch (SchemaChangeException e) {
-      throw new UnsupportedOperationException("Unexpected schema change", e);
-    }
+    // The hash code is computed once (for the whole incoming batch), then its lower bits are used
+    // to determine the partition to use, and the higher bits determine the location in the hash table.
 
     // right shift hash code for secondary (or tertiary...) spilling
     for (int i = 0; i < cycleNum; i++) { hashCode >>>= bitsInMask; }
@@ -1180,6 +1247,8 @@ public abstract class HashAggTemplate implements HashAggregator {
     boolean needToCheckIfSpillIsNeeded = false;
     long allocatedBeforeAggCol = allocator.getAllocatedMemory();
 
+    if ( adaptiveBypass && putStatus != HashTable.PutStatus.KEY_PRESENT ) { sampledGroups++; }
+
     // Add an Aggr batch if needed:
     //
     //       In case put() added a new batch (for the keys) inside the hash table,
@@ -1203,6 +1272,12 @@ public abstract class HashAggTemplate implements HashAggregator {
       } catch (OutOfMemoryException exc) {
         throw new OutOfMemoryException(getOOMErrorMsg("AGGR"), exc); // may happen when can not spill
       }
+    } else if ( putStatus == HashTable.PutStatus.KEY_ADDED_LAST && flushWhenFull ) {
+        // Poor reduction: rather than allocate another batch, return this partition (once the aggregation
+        // below is done) - the 2nd phase would complete the grouping anyway
+        earlyOutput = true;
+        earlyPartition = currentPartition;
+        numFlushedWhenFull++;
     } else if ( putStatus == HashTable.PutStatus.KEY_ADDED_LAST ) {
         // If a batch just became full (i.e. another batch would be allocated soon) -- then need to
         // check (later, see below) if the memory limits are too close, and if so -- then spill !
@@ -1320,6 +1395,9 @@ public abstract class HashAggTemplate implements HashAggregator {
     if ( is2ndPhase ) {
       this.stats.setLongStat(Metric.SPILLED_PARTITIONS, numSpilled);
     }
+    if ( numFlushedWhenFull > 0 ) {
+      this.stats.setLongStat(Metric.FLUSHED_WHEN_FULL, numFlushedWhenFull);
+    }
     if ( rowsReturnedEarly > 0 ) {
       stats.setLongStat(Metric.SPILL_MB, // update stats - est. total MB returned early
           (int) Math.round( rowsReturnedEarly * estRowWidth / 1024.0D / 1024.0));
@@ -168,8 +168,8 @@ public class SpilledRecordbatch implements CloseableRecordBatch {
     }
     catch (IOException e) {
       throw new RuntimeException(e);
-    } finally {
-      spillSet.close();
     }
+    // The spill set is shared with the other (still unread) spilled partitions;
+    // its directories are removed by the owning operator once all are done.
   }
 }
@@ -50,7 +50,10 @@ public class BroadcastSenderRootExec extends BaseRootExec {
 
   public enum Metric implements MetricDef {
     N_RECEIVERS,
-    BYTES_SENT;
+    BYTES_SENT,
+    CREDIT_WAIT_NANOS,
+    UNCOMPRESSED_BYTES,
+    COMPRESSED_BYTES;
     @Override
     public int metricId() {
       return ordinal();
@@ -151,4 +154,20 @@ public class BroadcastSenderRootExec extends BaseRootExec {
     stats.setLongStat(Metric.N_RECEIVERS, tunnels.length);
     stats.addLongStat(Metric.BYTES_SENT, writableBatch.getByteCount());
   }
+
+  @Override
+  public void close() throws Exception {
+    super.close();
+    long creditWaitNanos = 0;
+    long uncompressedBytes = 0;
+    long compressedBytes = 0;
+    for (AccountingDataTunnel tunnel : tunnels) {
+      creditWaitNanos += tunnel.getCreditWaitNanos();
+      uncompressedBytes += tunnel.getUncompressedBytes();
+      compressedBytes += tunnel.getCompressedBytes();
+    }
+    stats.setLongStat(Metric.CREDIT_WAIT_NANOS, creditWaitNanos);
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES, uncompressedBytes);
+    stats.setLongStat(Metric.COMPRESSED_BYTES, compressedBytes);
+  }
 }
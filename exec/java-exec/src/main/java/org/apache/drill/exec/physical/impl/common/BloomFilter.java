@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import io.netty.buffer.DrillBuf;
+
+import org.apache.drill.exec.memory.BaseAllocator;
+import org.apache.drill.exec.memory.BufferAllocator;
+
+/**
+ * A Bloom filter over the hash codes computed by a {@link HashTable}.
+ * <p>
+ * Used as a runtime filter by the hash join: the hash codes of all the build side keys are
+ * inserted, then a probe row whose hash code is not (possibly) contained can not have a match,
+ * and is handled without looking up the hash table (or spilling the row).
+ * <p>
+ * The bit positions are derived from the single 32 bit hash code (via double hashing), after
+ * mixing it - the hash table uses the low bits for buckets, and the hybrid hash join the
+ * high bits for partitions. The bits are held in a direct buffer, charged to the operator.
+ * <p>
+ * The filters of the same size can be merged, e.g. the filters built by several fragments over
+ * their own part of the keys (see {@link RuntimeFilter}).
+ */
+public class BloomFilter implements AutoCloseable {
+
+  // Number of bits set for each inserted hash code
+  private static final int NUM_HASH_FUNCTIONS = 3;
+
+  private DrillBuf bits;
+  private final int bitMask;
+
+  /**
+   * @param allocator the allocator of the owning operator
+   * @param numBytes the size of the filter (rounded up to a power of 2)
+   */
+  public BloomFilter(BufferAllocator allocator, int numBytes) {
+    final int size = BaseAllocator.nextPowerOfTwo(Math.max(numBytes, 8));
+    bits = allocator.buffer(size);
+    bits.setZero(0, size);
+    bitMask = size * 8 - 1;
+  }
+
+  /**
+   * @param bits the bits of a filter (e.g. as received from another fragment), whose size is a power of 2;
+   * owned by the filter
+   */
+  public BloomFilter(DrillBuf bits) {
+    this.bits = bits;
+    bitMask = bits.capacity() * 8 - 1;
+  }
+
+  public int getSizeInBytes() {
+    return bits.capacity();
+  }
+
+  /**
+   * Copy the bits of the filter into a buffer
+   */
+  public void writeTo(DrillBuf out, int index) {
+    out.setBytes(index, bits, 0, bits.capacity());
+  }
+
+  /**
+   * Add the hash codes inserted into another filter of the same size to this one
+   */
+  public void merge(BloomFilter other) {
+    final int size = bits.capacity();
+    if (other.getSizeInBytes() != size) {
+      throw new IllegalArgumentException(String.format(
+          "Can not merge a Bloom filter of %d bytes into one of %d bytes", other.getSizeInBytes(), size));
+    }
+    int index = 0;
+    for (; index + 8 <= size; index += 8) {
+      bits.setLong(index, bits.getLong(index) | other.bits.getLong(index));
+    }
+    for (; index < size; index++) {
+      bits.setByte(index, bits.getByte(index) | other.bits.getByte(index));
+    }
+  }
+
+  public void insert(int hashCode) {
+    final int hash1 = hashCode * 0x9E3779B1;
+    final int hash2 = Integer.rotateLeft(hashCode, 16) * 0x85EBCA6B | 1;
+    for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+      final int bitIndex = (hash1 + i * hash2) & bitMask;
+      final int byteIndex = bitIndex >>> 3;
+      bits.setByte(byteIndex, bits.getByte(byteIndex) | (1 << (bitIndex & 7)));
+    }
+  }
+
+  /**
+   * @return false if the given hash code was certainly not inserted
+   */
+  public boolean mightContain(int hashCode) {
+    final int hash1 = hashCode * 0x9E3779B1;
+    final int hash2 = Integer.rotateLeft(hashCode, 16) * 0x85EBCA6B | 1;
+    for (int i = 0; i < NUM_HASH_FUNCTIONS; i++) {
+      final int bitIndex = (hash1 + i * hash2) & bitMask;
+      if ((bits.getByte(bitIndex >>> 3) & (1 << (bitIndex & 7))) == 0) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public void close() {
+    if (bits != null) {
+      bits.release();
+      bits = null;
+    }
+  }
+}
@@ -19,13 +19,17 @@ package org.apache.drill.exec.physical.impl.common;
 
 import java.io.IOException;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 
 import org.apache.drill.common.expression.ErrorCollector;
 import org.apache.drill.common.expression.ErrorCollectorImpl;
 import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.ValueExpressions;
 import org.apache.drill.common.logical.data.NamedExpression;
+import org.apache.drill.common.types.TypeProtos.MinorType;
 import org.apache.drill.common.types.Types;
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.compile.sig.GeneratorMapping;
 import org.apache.drill.exec.compile.sig.MappingSet;
 import org.apache.drill.exec.exception.ClassTransformationException;
@@ -34,6 +38,7 @@ import org.apache.drill.exec.expr.ClassGenerator;
 import org.apache.drill.exec.expr.ClassGenerator.HoldingContainer;
 import org.apache.drill.exec.expr.CodeGenerator;
 import org.apache.drill.exec.expr.ExpressionTreeMaterializer;
+import org.apache.drill.exec.expr.HoldingContainerExpression;
 import org.apache.drill.exec.expr.TypeHelper;
 import org.apache.drill.exec.expr.ValueVectorReadExpression;
 import org.apache.drill.exec.expr.ValueVectorWriteExpression;
@@ -51,6 +56,9 @@ import org.apache.drill.exec.vector.ValueVector;
 
 import com.sun.codemodel.JConditional;
 import com.sun.codemodel.JExpr;
+import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JForLoop;
+import com.sun.codemodel.JVar;
 
 
 public class ChainedHashTable {
@@ -72,6 +80,14 @@ public class ChainedHashTable {
       GeneratorMapping.create("doSetup" /* setup method */, "getHashProbe" /* eval method */, null /* reset */,
           null /* cleanup */);
 
+  private static final GeneratorMapping GET_HASH_BATCH_BUILD =
+      GeneratorMapping.create("doSetup" /* setup method */, "getHashBatchBuild" /* eval method */,
+          null /* reset */, null /* cleanup */);
+
+  private static final GeneratorMapping GET_HASH_BATCH_PROBE =
+      GeneratorMapping.create("doSetup" /* setup method */, "getHashBatchProbe" /* eval method */,
+          null /* reset */, null /* cleanup */);
+
   private static final GeneratorMapping SET_VALUE =
       GeneratorMapping.create("setupInterior" /* setup method */, "setValue" /* eval method */, null /* reset */,
           null /* cleanup */);
@@ -102,6 +118,10 @@ public class ChainedHashTable {
       new MappingSet("incomingRowIdx", null, "incomingBuild", null, DO_SETUP_CONSTANT, GET_HASH_BUILD);
   private final MappingSet GetHashIncomingProbeMapping =
       new MappingSet("incomingRowIdx", null, "incomingProbe", null, DO_SETUP_CONSTANT, GET_HASH_PROBE);
+  private final MappingSet GetHashBatchIncomingBuildMapping =
+      new MappingSet("incomingRowIdx", null, "incomingBuild", null, DO_SETUP_CONSTANT, GET_HASH_BATCH_BUILD);
+  private final MappingSet GetHashBatchIncomingProbeMapping =
+      new MappingSet("incomingRowIdx", null, "incomingProbe", null, DO_SETUP_CONSTANT, GET_HASH_BATCH_PROBE);
   private final MappingSet SetValueMapping =
       new MappingSet("incomingRowIdx" /* read index */, "htRowIdx" /* write index */,
           "incomingBuild" /* read container */, "htContainer" /* write container */, SETUP_INTERIOR_CONSTANT,
@@ -135,7 +155,11 @@ public class ChainedHashTable {
 
   public HashTable createAndSetupHashTable(TypedFieldId[] outKeyFieldIds, int numPartitions) throws ClassTransformationException,
       IOException, SchemaChangeException {
-    CodeGenerator<HashTable> top = CodeGenerator.get(HashTable.TEMPLATE_DEFINITION, context.getFunctionRegistry(), context.getOptions());
+    // Both templates have the same generated methods (and BatchHolder inner class), only the table layout differs
+    final boolean openAddressing = context.getOptions().getOption(ExecConstants.HASHTABLE_OPEN_ADDRESSING_VALIDATOR);
+    CodeGenerator<HashTable> top = CodeGenerator.get(
+        openAddressing ? HashTable.OPEN_ADDRESSING_TEMPLATE_DEFINITION : HashTable.TEMPLATE_DEFINITION,
+        context.getFunctionRegistry(), context.getOptions());
     top.plainJavaCapable(true);
     // Uncomment out this line to debug the generated code.
     // This code is called from generated code, so to step into this code,
@@ -221,6 +245,8 @@ public class ChainedHashTable {
 
     setupGetHash(cg /* use top level code generator for getHash */, GetHashIncomingBuildMapping, incomingBuild, keyExprsBuild, false);
     setupGetHash(cg /* use top level code generator for getHash */, GetHashIncomingProbeMapping, incomingProbe, keyExprsProbe, true);
+    setupGetHashBatch(cg, GetHashBatchIncomingBuildMapping, incomingBuild, keyExprsBuild);
+    setupGetHashBatch(cg, GetHashBatchIncomingProbeMapping, incomingProbe, keyExprsProbe);
 
     HashTable ht = context.getImplementationClass(top);
     ht.setup(htConfig, context, allocator, incomingBuild, incomingProbe, outgoing, htContainerOrig);
@@ -326,4 +352,51 @@ public class ChainedHashTable {
 
 
   }
+
+  /**
+   * Generates the hashing of a whole batch into the hashCodes array, one loop over the rows per key column: the first
+   * column is hashed with the seed of {@link #setupGetHash}, each following one with the hash codes of the previous
+   * columns, which gives the same codes as the per row hash.
+   */
+  private void setupGetHashBatch(ClassGenerator<HashTable> cg, MappingSet incomingMapping, VectorAccessible batch,
+                                 LogicalExpression[] keyExprs) throws SchemaChangeException {
+
+    cg.setMappingSet(incomingMapping);
+
+    final JExpression numRecords = JExpr.direct("numRecords");
+    final JExpression hashCodes = JExpr.direct("hashCodes");
+    if (keyExprs == null || keyExprs.length == 0) {
+      cg.getEvalBlock().add(cg.getModel().ref(Arrays.class).staticInvoke("fill")
+          .arg(hashCodes).arg(JExpr.lit(0)).arg(numRecords).arg(JExpr.lit(0)));
+      return;
+    }
+
+    // the same hash functions as setupGetHash()
+    final boolean hashAsDouble = incomingProbe != null;
+    HoldingContainer seed = null;
+    for (LogicalExpression keyExpr : keyExprs) {
+      LogicalExpression seedExpr = ValueExpressions.getInt(0);
+      if (seed != null) {
+        seedExpr = new HoldingContainerExpression(seed);
+      } else if (keyExprs.length > 1) {
+        seed = cg.declare(Types.required(MinorType.INT));
+      }
+      final LogicalExpression hashExpression = HashPrelUtil.createHashExpression(
+          Collections.singletonList(keyExpr), seedExpr, HashPrelUtil.HASH_HELPER_LOGICALEXPRESSION, hashAsDouble);
+      final LogicalExpression materializedExpr =
+          ExpressionTreeMaterializer.materializeAndCheckErrors(hashExpression, batch, context.getFunctionRegistry());
+
+      final JForLoop loop = cg.getEvalBlock()._for();
+      final JVar rowIdx = loop.init(cg.getModel().INT, "incomingRowIdx", JExpr.lit(0));
+      loop.test(rowIdx.lt(numRecords));
+      loop.update(rowIdx.incr());
+      cg.nestEvalBlock(loop.body());
+      if (seedExpr instanceof HoldingContainerExpression) {
+        cg.getEvalBlock().assign(seed.getValue(), hashCodes.component(rowIdx));
+      }
+      final HoldingContainer hash = cg.addExpr(materializedExpr, ClassGenerator.BlkCreateMode.FALSE);
+      cg.getEvalBlock().assign(hashCodes.component(rowIdx), hash.getValue());
+      cg.unNestEvalBlock();
+    }
+  }
 }
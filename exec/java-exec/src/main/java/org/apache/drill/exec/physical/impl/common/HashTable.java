@@ -29,6 +29,9 @@ public interface HashTable {
   public static TemplateClassDefinition<HashTable> TEMPLATE_DEFINITION =
       new TemplateClassDefinition<HashTable>(HashTable.class, HashTableTemplate.class);
 
+  public static TemplateClassDefinition<HashTable> OPEN_ADDRESSING_TEMPLATE_DEFINITION =
+      new TemplateClassDefinition<HashTable>(HashTable.class, OpenAddressingHashTableTemplate.class);
+
   /**
    * The initial default capacity of the hash table (in terms of number of buckets).
    */
@@ -58,10 +61,27 @@ public interface HashTable {
 
   public int getHashCode(int incomingRowIdx) throws SchemaChangeException;
 
+  public int getProbeHashCode(int incomingRowIdx) throws SchemaChangeException;
+
+  /**
+   * Compute the hash codes of the first numRecords rows of the incoming build (or probe) batch. The generated code
+   * hashes a key column at a time over all the rows, each column seeded with the hash codes of the previous ones, so
+   * the codes equal those of {@link #getHashCode(int)} (or {@link #getProbeHashCode(int)}).
+   */
+  public void computeHashCodes(int numRecords, int[] hashCodes, boolean isProbe) throws SchemaChangeException;
+
   public PutStatus put(int incomingRowIdx, IndexPointer htIdxHolder, int hashCode) throws SchemaChangeException;
 
   public int containsKey(int incomingRowIdx, boolean isProbe) throws SchemaChangeException;
 
+  public int containsKey(int incomingRowIdx, int hashCode, boolean isProbe) throws SchemaChangeException;
+
+  /**
+   * Look up the first numRecords rows of the incoming batch, given their hash codes; the result for
+   * each row is the index of its key in the hash table, or -1 if not found.
+   */
+  public void containsKeys(int numRecords, int[] hashCodes, int[] results, boolean isProbe) throws SchemaChangeException;
+
   public void getStats(HashTableStats stats);
 
   public int size();
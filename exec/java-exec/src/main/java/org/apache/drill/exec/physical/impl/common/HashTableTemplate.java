@@ -570,6 +570,23 @@ public abstract class HashTableTemplate implements HashTable {
     return getHashBuild(incomingRowIdx);
   }
 
+  // The probe side hash code; it matches the build side hash code of an equal key, so it
+  // can be used to route a probe row to the partition holding its matching build rows
+  @Override
+  public int getProbeHashCode(int incomingRowIdx) throws SchemaChangeException {
+    return getHashProbe(incomingRowIdx);
+  }
+
+  // Compute the hash codes of a whole incoming (build or probe) batch, a key column at a time
+  @Override
+  public void computeHashCodes(int numRecords, int[] hashCodes, boolean isProbe) throws SchemaChangeException {
+    if (isProbe) {
+      getHashBatchProbe(numRecords, hashCodes);
+    } else {
+      getHashBatchBuild(numRecords, hashCodes);
+    }
+  }
+
   /** put() uses the hash code (from gethashCode() above) to insert the key(s) from the incoming
    * row into the hash table. The code selects the bucket in the startIndices, then the keys are
    * placed into the chained list - by storing the key values into a batch, and updating its
@@ -647,7 +664,13 @@ public abstract class HashTableTemplate implements HashTable {
   @Override
   public int containsKey(int incomingRowIdx, boolean isProbe) throws SchemaChangeException {
     int hash = isProbe ? getHashProbe(incomingRowIdx) : getHashBuild(incomingRowIdx);
-    int bucketIndex = getBucketIndex(hash, numBuckets());
+    return containsKey(incomingRowIdx, hash, isProbe);
+  }
+
+  // Same as above, when the hash code of the incoming row was already computed
+  @Override
+  public int containsKey(int incomingRowIdx, int hashCode, boolean isProbe) throws SchemaChangeException {
+    int bucketIndex = getBucketIndex(hashCode, numBuckets());
 
     for ( currentIdxHolder.value = startIndices.getAccessor().get(bucketIndex);
           currentIdxHolder.value != EMPTY_SLOT; ) {
@@ -659,6 +682,28 @@ public abstract class HashTableTemplate implements HashTable {
     return -1;
   }
 
+  // Look up a whole incoming batch (given its hash codes): first find the start of the chain of every
+  // row's bucket, then follow the chains comparing the keys. The index of the matching key (or -1)
+  // is returned in the results.
+  @Override
+  public void containsKeys(int numRecords, int[] hashCodes, int[] results, boolean isProbe) throws SchemaChangeException {
+    final int bucketMask = numBuckets() - 1;
+    for (int i = 0; i < numRecords; i++) {
+      results[i] = startIndices.getAccessor().get(hashCodes[i] & bucketMask);
+    }
+    for (int i = 0; i < numRecords; i++) {
+      currentIdxHolder.value = results[i];
+      results[i] = -1;
+      while (currentIdxHolder.value != EMPTY_SLOT) {
+        BatchHolder bh = batchHolders.get((currentIdxHolder.value >>> 16) & BATCH_MASK);
+        if (bh.isKeyMatch(i, currentIdxHolder, isProbe)) {
+          results[i] = currentIdxHolder.value;
+          break;
+        }
+      }
+    }
+  }
+
   // Add a new BatchHolder to the list of batch holders if needed. This is based on the supplied
   // currentIdx; since each BatchHolder can hold up to BATCH_SIZE entries, if the currentIdx exceeds
   // the capacity, we will add a new BatchHolder. Return true if a new batch was added.
@@ -793,4 +838,8 @@ public abstract class HashTableTemplate implements HashTable {
 
   protected abstract int getHashProbe(@Named("incomingRowIdx") int incomingRowIdx) throws SchemaChangeException;
 
+  protected abstract void getHashBatchBuild(@Named("numRecords") int numRecords, @Named("hashCodes") int[] hashCodes) throws SchemaChangeException;
+
+  protected abstract void getHashBatchProbe(@Named("numRecords") int numRecords, @Named("hashCodes") int[] hashCodes) throws SchemaChangeException;
+
 }
@@ -0,0 +1,579 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import io.netty.buffer.DrillBuf;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+
+import javax.inject.Named;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.compile.sig.RuntimeOverridden;
+import org.apache.drill.exec.exception.SchemaChangeException;
+import org.apache.drill.exec.expr.TypeHelper;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.TransferPair;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorWrapper;
+import org.apache.drill.exec.vector.FixedWidthVector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VariableWidthVector;
+
+import com.google.common.base.Preconditions;
+
+/**
+ * A hash table using open addressing (linear probing, with "Robin Hood" insertion) instead of
+ * the hash chains of {@link HashTableTemplate}; selected by the exec.hashtable.open_addressing option.
+ * <p>
+ * The keys are still stored in {@link BatchHolder}s (in insertion order, so the index of a key never
+ * changes), but the table itself is a single direct buffer of 8 byte slots. Each slot holds the full
+ * hash code of its key (the "fingerprint") and the index of the key (plus one, so that an all-zero slot
+ * is empty). A lookup thus scans consecutive slots, and only compares keys when the fingerprint matches;
+ * the per-key links and hash values vectors of the chained table are not needed.
+ * <p>
+ * Robin Hood insertion keeps the keys of a slot run ordered by their distance from their home slot,
+ * which bounds the probe length and lets a lookup of a missing key stop early.
+ */
+public abstract class OpenAddressingHashTableTemplate implements HashTable {
+
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HashTable.class);
+  private static final boolean EXTRA_DEBUG = false;
+
+  private static final int SLOT_WIDTH = 8;
+
+  private static final int MINIMUM_SLOTS = 16;
+
+  // The slots buffer is limited to 1GB (a DrillBuf can not reach 2GB)
+  private static final int MAXIMUM_SLOTS = 1 << 27;
+
+  // The slots: hash code (high 32 bits) and key index + 1 (low 32 bits); 0 is an empty slot
+  private DrillBuf slots;
+
+  // Current number of slots (a power of 2)
+  private int tableSize = 0;
+
+  // Original size of the hash table (needed when re-initializing)
+  private int originalTableSize;
+
+  // Threshold after which we resize; It must be the tableSize * loadFactor
+  private int threshold;
+
+  // Actual number of entries in the hash table
+  private int numEntries = 0;
+
+  // Next free index globally across all batch holders
+  private int freeIndex = 0;
+
+  private ArrayList<BatchHolder> batchHolders;
+
+  private BufferAllocator allocator;
+
+  private RecordBatch incomingBuild;
+
+  private RecordBatch incomingProbe;
+
+  private RecordBatch outgoing;
+
+  private HashTableConfig htConfig;
+
+  private VectorContainer htContainerOrig;
+
+  private int numResizing = 0;
+
+  private int resizingTime = 0;
+
+  private int maxVarcharSize = 8; // for varchar allocation
+
+  // Holds the keys of up to BATCH_SIZE *unique* records (same as in HashTableTemplate, but without
+  // the links and hash values, which are kept in the slots)
+  public class BatchHolder {
+
+    private VectorContainer htContainer;
+
+    private int maxOccupiedIdx = -1;
+
+    private int batchIndex = 0;
+
+    public BatchHolder(int idx) {
+
+      this.batchIndex = idx;
+
+      htContainer = new VectorContainer();
+      boolean success = false;
+      try {
+        for (VectorWrapper<?> w : htContainerOrig) {
+          @SuppressWarnings("resource")
+          ValueVector vv = TypeHelper.getNewVector(w.getField(), allocator);
+
+          if (vv instanceof FixedWidthVector) {
+            ((FixedWidthVector) vv).allocateNew(BATCH_SIZE);
+          } else if (vv instanceof VariableWidthVector) {
+            ((VariableWidthVector) vv).allocateNew(maxVarcharSize * BATCH_SIZE, BATCH_SIZE);
+          } else {
+            vv.allocateNew();
+          }
+
+          htContainer.add(vv);
+        }
+        success = true;
+      } finally {
+        if (!success) {
+          htContainer.clear();
+        }
+      }
+    }
+
+    protected void setup() throws SchemaChangeException {
+      setupInterior(incomingBuild, incomingProbe, outgoing, htContainer);
+    }
+
+    private boolean isKeyMatch(int incomingRowIdx, int idxWithinBatch, boolean isProbe) throws SchemaChangeException {
+      return isProbe ? isKeyMatchInternalProbe(incomingRowIdx, idxWithinBatch)
+          : isKeyMatchInternalBuild(incomingRowIdx, idxWithinBatch);
+    }
+
+    private void insertEntry(int incomingRowIdx, int idxWithinBatch) throws SchemaChangeException {
+      setValue(incomingRowIdx, idxWithinBatch);
+      maxOccupiedIdx = Math.max(maxOccupiedIdx, idxWithinBatch);
+    }
+
+    private boolean outputKeys(VectorContainer outContainer, int outStartIndex, int numRecords, int numExpectedRecords) {
+
+      // set the value count for htContainer's value vectors before the transfer ..
+      setValueCount();
+
+      Iterator<VectorWrapper<?>> outgoingIter = outContainer.iterator();
+
+      for (VectorWrapper<?> sourceWrapper : htContainer) {
+        @SuppressWarnings("resource")
+        ValueVector sourceVV = sourceWrapper.getValueVector();
+        @SuppressWarnings("resource")
+        ValueVector targetVV = outgoingIter.next().getValueVector();
+        TransferPair tp = sourceVV.makeTransferPair(targetVV);
+        if ( outStartIndex == 0 && numRecords == numExpectedRecords ) {
+          tp.transfer();
+        } else {
+          logger.debug("Performing partial output of keys, from index {}, num {} (out of {})",
+              outStartIndex,numRecords,numExpectedRecords);
+          tp.splitAndTransfer(outStartIndex, numRecords);
+        }
+      }
+      return true;
+    }
+
+    private void setValueCount() {
+      for (VectorWrapper<?> vw : htContainer) {
+        @SuppressWarnings("resource")
+        ValueVector vv = vw.getValueVector();
+        vv.getMutator().setValueCount(maxOccupiedIdx + 1);
+      }
+    }
+
+    private void clear() {
+      htContainer.clear();
+    }
+
+    // These methods will be code-generated
+
+    @RuntimeOverridden
+    protected void setupInterior(
+        @Named("incomingBuild") RecordBatch incomingBuild,
+        @Named("incomingProbe") RecordBatch incomingProbe,
+        @Named("outgoing") RecordBatch outgoing,
+        @Named("htContainer") VectorContainer htContainer) throws SchemaChangeException {
+    }
+
+    @RuntimeOverridden
+    protected boolean isKeyMatchInternalBuild(
+        @Named("incomingRowIdx") int incomingRowIdx, @Named("htRowIdx") int htRowIdx) throws SchemaChangeException {
+      return false;
+    }
+
+    @RuntimeOverridden
+    protected boolean isKeyMatchInternalProbe(
+        @Named("incomingRowIdx") int incomingRowIdx, @Named("htRowIdx") int htRowIdx) throws SchemaChangeException {
+      return false;
+    }
+
+    @RuntimeOverridden
+    protected void setValue(@Named("incomingRowIdx") int incomingRowIdx, @Named("htRowIdx") int htRowIdx) throws SchemaChangeException {
+    }
+
+    @RuntimeOverridden
+    protected void outputRecordKeys(@Named("htRowIdx") int htRowIdx, @Named("outRowIdx") int outRowIdx) throws SchemaChangeException {
+    }
+
+  } // class BatchHolder
+
+
+  @Override
+  public void setup(HashTableConfig htConfig, FragmentContext context, BufferAllocator allocator, RecordBatch incomingBuild, RecordBatch incomingProbe, RecordBatch outgoing, VectorContainer htContainerOrig) {
+    float loadf = htConfig.getLoadFactor();
+    int initialCap = htConfig.getInitialCapacity();
+
+    if (loadf <= 0 || Float.isNaN(loadf)) {
+      throw new IllegalArgumentException("Load factor must be a valid number greater than 0");
+    }
+    if (initialCap <= 0) {
+      throw new IllegalArgumentException("The initial capacity must be greater than 0");
+    }
+    if (initialCap > MAXIMUM_CAPACITY) {
+      throw new IllegalArgumentException("The initial capacity must be less than maximum capacity allowed");
+    }
+
+    if (htConfig.getKeyExprsBuild() == null || htConfig.getKeyExprsBuild().size() == 0) {
+      throw new IllegalArgumentException("Hash table must have at least 1 key expression");
+    }
+
+    this.htConfig = htConfig;
+    this.allocator = allocator;
+    this.incomingBuild = incomingBuild;
+    this.incomingProbe = incomingProbe;
+    this.outgoing = outgoing;
+    this.htContainerOrig = htContainerOrig;
+
+    // round up the initial capacity to nearest highest power of 2
+    tableSize = Math.min(Math.max(Integer.highestOneBit(Math.max(initialCap - 1, 1)) << 1, MINIMUM_SLOTS), MAXIMUM_SLOTS);
+    originalTableSize = tableSize ; // retain original size
+    threshold = getThreshold(tableSize);
+
+    slots = allocSlots(tableSize);
+    batchHolders = new ArrayList<BatchHolder>();
+    // First BatchHolder is created when the first put request is received.
+
+    try {
+      doSetup(incomingBuild, incomingProbe);
+    } catch (SchemaChangeException e) {
+      throw new IllegalStateException("Unexpected schema change", e);
+    }
+  }
+
+  @Override
+  public void updateBatches() throws SchemaChangeException {
+    doSetup(incomingBuild, incomingProbe);
+    for (BatchHolder batchHolder : batchHolders) {
+      batchHolder.setup();
+    }
+  }
+
+  public int numBuckets() {
+    return tableSize;
+  }
+
+  public int numResizing() {
+    return numResizing;
+  }
+
+  @Override
+  public int size() {
+    return numEntries;
+  }
+
+  @Override
+  public void getStats(HashTableStats stats) {
+    assert stats != null;
+    stats.numBuckets = numBuckets();
+    stats.numEntries = numEntries;
+    stats.numResizing = numResizing;
+    stats.resizingTime = resizingTime;
+  }
+
+  @Override
+  public boolean isEmpty() {
+    return numEntries == 0;
+  }
+
+  @Override
+  public void clear() {
+    if (batchHolders != null) {
+      for (BatchHolder bh : batchHolders) {
+        bh.clear();
+      }
+      batchHolders.clear();
+      batchHolders = null;
+    }
+    if (slots != null) {
+      slots.release();
+      slots = null;
+    }
+    numEntries = 0;
+  }
+
+  @Override
+  public int getHashCode(int incomingRowIdx) throws SchemaChangeException {
+    return getHashBuild(incomingRowIdx);
+  }
+
+  @Override
+  public int getProbeHashCode(int incomingRowIdx) throws SchemaChangeException {
+    return getHashProbe(incomingRowIdx);
+  }
+
+  @Override
+  public void computeHashCodes(int numRecords, int[] hashCodes, boolean isProbe) throws SchemaChangeException {
+    if (isProbe) {
+      getHashBatchProbe(numRecords, hashCodes);
+    } else {
+      getHashBatchBuild(numRecords, hashCodes);
+    }
+  }
+
+  /**
+   * Scan the slots starting at the home slot of the hash code; a key is compared only when the slot
+   * holds the same hash code. The scan stops at an empty slot, or at a slot whose key is closer to
+   * its own home slot than the probed key would be (with Robin Hood insertion the key can not be further).
+   * A new key is inserted into that slot, shifting the following keys of the run.
+   *
+   * @param incomingRowIdx - position of the incoming row
+   * @param htIdxHolder - to return batch + batch-offset (for caller to manage a matching batch)
+   * @param hashCode - computed over the key(s) by calling getHashCode()
+   * @return Status - the key(s) was ADDED or was already PRESENT
+   */
+  @Override
+  public PutStatus put(int incomingRowIdx, IndexPointer htIdxHolder, int hashCode) throws SchemaChangeException {
+    final int mask = tableSize - 1;
+    int slot = hashCode & mask;
+    int distance = 0;
+
+    while (true) {
+      final long entry = slots.getLong(slot * SLOT_WIDTH);
+      if ((int) entry == 0) {
+        break; // empty slot
+      }
+      final int entryHash = (int) (entry >>> 32);
+      if (entryHash == hashCode) {
+        final int idx = (int) entry - 1;
+        if (batchHolders.get((idx >>> 16) & BATCH_MASK).isKeyMatch(incomingRowIdx, idx & BATCH_MASK, false)) {
+          htIdxHolder.value = idx;
+          return PutStatus.KEY_PRESENT;
+        }
+      }
+      if (((slot - (entryHash & mask)) & mask) < distance) {
+        break; // the key would have been placed before this (closer to home) entry
+      }
+      slot = (slot + 1) & mask;
+      distance++;
+    }
+
+    if (numEntries >= threshold && tableSize == MAXIMUM_SLOTS) {
+      // the table can not grow any more, and a full table would leave the scans no empty slot to stop at
+      throw UserException.resourceError()
+          .message("Hash table is full: it can not hold more than %d keys.", threshold)
+          .addContext("Slots", tableSize)
+          .build(logger);
+    }
+
+    // no match was found, so insert a new entry
+    int currentIdx = freeIndex++;
+    boolean addedBatch = addBatchIfNeeded(currentIdx);
+
+    if (EXTRA_DEBUG) {
+      logger.debug("No match was found for incomingRowIdx = {}; inserting new entry at currentIdx = {}.", incomingRowIdx, currentIdx);
+    }
+
+    batchHolders.get((currentIdx >>> 16) & BATCH_MASK).insertEntry(incomingRowIdx, currentIdx & BATCH_MASK);
+    placeEntry(slots, mask, slot, distance, hashCode, currentIdx);
+    numEntries++;
+
+    resizeIfNeeded();
+
+    htIdxHolder.value = currentIdx;
+    return  addedBatch ? PutStatus.NEW_BATCH_ADDED :
+        ( freeIndex + 1 > batchHolders.size() * BATCH_SIZE ) ?
+        PutStatus.KEY_ADDED_LAST : // the last key in the batch
+        PutStatus.KEY_ADDED;     // otherwise
+  }
+
+  // Store the entry at the given slot (its distance from the home slot is given); any displaced
+  // entry moves on to the next slot that is empty or holds an entry closer to its home slot
+  private static void placeEntry(DrillBuf slotsBuf, int mask, int slot, int distance, int hashCode, int idx) {
+    long entry = ((long) hashCode << 32) | ((idx + 1) & 0xFFFFFFFFL);
+    while (true) {
+      final long existing = slotsBuf.getLong(slot * SLOT_WIDTH);
+      if ((int) existing == 0) {
+        slotsBuf.setLong(slot * SLOT_WIDTH, entry);
+        return;
+      }
+      final int existingDistance = (slot - ((int) (existing >>> 32) & mask)) & mask;
+      if (existingDistance < distance) {
+        slotsBuf.setLong(slot * SLOT_WIDTH, entry);
+        entry = existing;
+        distance = existingDistance;
+      }
+      slot = (slot + 1) & mask;
+      distance++;
+    }
+  }
+
+  @Override
+  public int containsKey(int incomingRowIdx, boolean isProbe) throws SchemaChangeException {
+    int hash = isProbe ? getHashProbe(incomingRowIdx) : getHashBuild(incomingRowIdx);
+    return containsKey(incomingRowIdx, hash, isProbe);
+  }
+
+  // Return -1 if key is not found in the hash table. Otherwise, return the global index of the key
+  @Override
+  public int containsKey(int incomingRowIdx, int hashCode, boolean isProbe) throws SchemaChangeException {
+    final int mask = tableSize - 1;
+    int slot = hashCode & mask;
+    int distance = 0;
+
+    while (true) {
+      final long entry = slots.getLong(slot * SLOT_WIDTH);
+      if ((int) entry == 0) {
+        return -1;
+      }
+      final int entryHash = (int) (entry >>> 32);
+      if (entryHash == hashCode) {
+        final int idx = (int) entry - 1;
+        if (batchHolders.get((idx >>> 16) & BATCH_MASK).isKeyMatch(incomingRowIdx, idx & BATCH_MASK, isProbe)) {
+          return idx;
+        }
+      }
+      if (((slot - (entryHash & mask)) & mask) < distance) {
+        return -1;
+      }
+      slot = (slot + 1) & mask;
+      distance++;
+    }
+  }
+
+  @Override
+  public void containsKeys(int numRecords, int[] hashCodes, int[] results, boolean isProbe) throws SchemaChangeException {
+    for (int i = 0; i < numRecords; i++) {
+      results[i] = containsKey(i, hashCodes[i], isProbe);
+    }
+  }
+
+  // Add a new BatchHolder to the list of batch holders if needed. Return true if a new batch was added.
+  private boolean addBatchIfNeeded(int currentIdx) throws SchemaChangeException {
+    int totalBatchSize = batchHolders.size() * BATCH_SIZE;
+
+    if (currentIdx >= totalBatchSize) {
+      BatchHolder bh = newBatchHolder(batchHolders.size());
+      batchHolders.add(bh);
+      bh.setup();
+      if (EXTRA_DEBUG) {
+        logger.debug("HashTable: Added new batch. Num batches = {}.", batchHolders.size());
+      }
+      return true;
+    }
+    return false;
+  }
+
+  protected BatchHolder newBatchHolder(int index) { // special method to allow debugging of gen code
+    return new BatchHolder(index);
+  }
+
+  // Double the number of slots, and move every entry into the new slots (using the saved hash codes;
+  // the keys in the BatchHolders are not accessed)
+  private void resizeIfNeeded() {
+    if (numEntries < threshold || tableSize == MAXIMUM_SLOTS) {
+      return;
+    }
+
+    long t0 = System.currentTimeMillis();
+
+    final int newSize = tableSize * 2;
+    final int newMask = newSize - 1;
+    final DrillBuf newSlots = allocSlots(newSize);
+    for (int i = 0; i < tableSize; i++) {
+      final long entry = slots.getLong(i * SLOT_WIDTH);
+      if ((int) entry != 0) {
+        final int hash = (int) (entry >>> 32);
+        placeEntry(newSlots, newMask, hash & newMask, 0, hash, (int) entry - 1);
+      }
+    }
+    slots.release();
+    slots = newSlots;
+    tableSize = newSize;
+    threshold = getThreshold(tableSize);
+
+    if (EXTRA_DEBUG) {
+      logger.debug("Hash table resized to {} slots, number of entries = {}.", tableSize, numEntries);
+    }
+    resizingTime += System.currentTimeMillis() - t0;
+    numResizing++;
+  }
+
+  private int getThreshold(int size) {
+    // at least one slot is always kept empty, so that a scan terminates
+    return Math.min((int) Math.ceil(size * htConfig.getLoadFactor()), size - 1);
+  }
+
+  /**
+   * Reinit the hash table to its original size, and clear up all its prior batch holder
+   */
+  @Override
+  public void reset() {
+    this.clear(); // Clear all current batch holders and hash table (i.e. free their memory)
+
+    freeIndex = 0; // all batch holders are gone
+    // reallocate batch holders, and the hash table to the original size
+    batchHolders = new ArrayList<BatchHolder>();
+    tableSize = originalTableSize;
+    threshold = getThreshold(tableSize);
+    slots = allocSlots(tableSize);
+  }
+
+  @Override
+  public void reinit(RecordBatch newIncoming) {
+    incomingBuild = newIncoming;
+    reset();
+    try {
+      updateBatches();
+    } catch (SchemaChangeException e) {
+      throw new IllegalStateException("Unexpected schema change", e);
+    } catch(IndexOutOfBoundsException ioob) {
+      throw new IllegalStateException("reinit update batches", ioob);
+    }
+  }
+
+  @Override
+  public boolean outputKeys(int batchIdx, VectorContainer outContainer, int outStartIndex, int numRecords, int numExpectedRecords) {
+    assert batchIdx < batchHolders.size();
+    return batchHolders.get(batchIdx).outputKeys(outContainer, outStartIndex, numRecords, numExpectedRecords);
+  }
+
+  private DrillBuf allocSlots(int size) {
+    final long bytes = (long) size * SLOT_WIDTH;
+    Preconditions.checkArgument(bytes <= Integer.MAX_VALUE, "Too many hash table slots: %s", size);
+    final DrillBuf buf = allocator.buffer((int) bytes);
+    buf.setZero(0, (int) bytes);
+    return buf;
+  }
+
+  @Override
+  public void setMaxVarcharSize(int size) { maxVarcharSize = size; }
+
+  // These methods will be code-generated in the context of the outer class
+  protected abstract void doSetup(@Named("incomingBuild") RecordBatch incomingBuild, @Named("incomingProbe") RecordBatch incomingProbe) throws SchemaChangeException;
+
+  protected abstract int getHashBuild(@Named("incomingRowIdx") int incomingRowIdx) throws SchemaChangeException;
+
+  protected abstract int getHashProbe(@Named("incomingRowIdx") int incomingRowIdx) throws SchemaChangeException;
+
+  protected abstract void getHashBatchBuild(@Named("numRecords") int numRecords, @Named("hashCodes") int[] hashCodes) throws SchemaChangeException;
+
+  protected abstract void getHashBatchProbe(@Named("numRecords") int numRecords, @Named("hashCodes") int[] hashCodes) throws SchemaChangeException;
+
+}
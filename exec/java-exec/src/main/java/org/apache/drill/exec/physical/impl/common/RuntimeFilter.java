@@ -0,0 +1,243 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import io.netty.buffer.DrillBuf;
+
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MajorType;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.expr.fn.impl.XXHash;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.record.TypedFieldId;
+import org.apache.drill.exec.record.VectorAccessible;
+import org.apache.drill.exec.vector.IntVector;
+import org.apache.drill.exec.vector.NullableVector;
+import org.apache.drill.exec.vector.TimeVector;
+import org.apache.drill.exec.vector.UInt4Vector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VarBinaryVector;
+import org.apache.drill.exec.vector.VarCharVector;
+
+import com.google.common.base.Charsets;
+
+/**
+ * A Bloom filter over the values of a join key column of the build side of a hash join, applied to the
+ * matching column of its probe side before the rows reach the join: by the hash partition senders feeding
+ * the join, and by the Parquet scans below them (see {@link RuntimeFilterRegistry}). A probe row whose key
+ * is (certainly) not in the filter has no match, and is dropped when the join does not return the unmatched
+ * probe rows (inner and right outer joins).
+ * <p>
+ * Unlike the filter the join checks itself (over the hash codes of its hash table, which are computed by
+ * generated code from all its keys), the hash codes are computed here from the value of a single column, so
+ * that any fragment can evaluate the filter over its own vectors. The filters of the fragments of a join,
+ * each built over the keys of its own partition of the build side, are merged into one.
+ * <p>
+ * Only the columns whose values are equal when their bytes are (INT, BIGINT, DATE, TIME, TIMESTAMP, VARCHAR
+ * and VARBINARY) are filtered, and the type of the column must be the same on both sides. Nulls are hashed
+ * as a value, so that the filter never drops a row the join could match, whatever the comparator.
+ */
+public class RuntimeFilter implements AutoCloseable {
+
+  private static final int SEED = 0;
+  private static final int NULL_HASH = 0x5BD1E995;
+
+  private final int joinMajorFragmentId;
+  private final int joinOperatorId;
+  private final String field;
+  private final MinorType type;
+  private final BloomFilter bloomFilter;
+  // a filter sharing the bits of another one does not release them
+  private final boolean ownsBits;
+  // number of fragments of the join whose filters were merged into this one
+  private int parts = 1;
+
+  /**
+   * @param joinMajorFragmentId major fragment of the join building the filter
+   * @param joinOperatorId id of the join within its fragment
+   * @param field name of the probe side column the filter is applied to
+   * @param type type of the column (on both sides of the join)
+   * @param bloomFilter the bits of the filter; owned by the runtime filter
+   */
+  public RuntimeFilter(int joinMajorFragmentId, int joinOperatorId, String field, MinorType type,
+                       BloomFilter bloomFilter) {
+    this(joinMajorFragmentId, joinOperatorId, field, type, bloomFilter, true);
+  }
+
+  private RuntimeFilter(int joinMajorFragmentId, int joinOperatorId, String field, MinorType type,
+                        BloomFilter bloomFilter, boolean ownsBits) {
+    this.joinMajorFragmentId = joinMajorFragmentId;
+    this.joinOperatorId = joinOperatorId;
+    this.field = field;
+    this.type = type;
+    this.bloomFilter = bloomFilter;
+    this.ownsBits = ownsBits;
+  }
+
+  /**
+   * @return whether a join key column of the given type can be filtered
+   */
+  public static boolean isSupported(MajorType type) {
+    if (type.getMode() == DataMode.REPEATED) {
+      return false;
+    }
+    switch (type.getMinorType()) {
+      case INT:
+      case BIGINT:
+      case DATE:
+      case TIME:
+      case TIMESTAMP:
+      case VARCHAR:
+      case VARBINARY:
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  public long getJoinId() {
+    return ((long) joinMajorFragmentId << 32) | (joinOperatorId & 0xFFFFFFFFL);
+  }
+
+  public String getField() {
+    return field;
+  }
+
+  public MinorType getType() {
+    return type;
+  }
+
+  public int getParts() {
+    return parts;
+  }
+
+  /**
+   * @return the same filter, applied to a column of another name (e.g. below a project renaming it);
+   * it shares the bits of this filter, which must stay open as long as it is used
+   */
+  public RuntimeFilter withField(String field) {
+    return new RuntimeFilter(joinMajorFragmentId, joinOperatorId, field, type, bloomFilter, false);
+  }
+
+  /**
+   * Add the values of another filter of the same join (built by another of its fragments) to this one
+   */
+  public void merge(RuntimeFilter other) {
+    bloomFilter.merge(other.bloomFilter);
+    parts += other.parts;
+  }
+
+  public void insert(ValueVector column, int index) {
+    bloomFilter.insert(hash(column, index));
+  }
+
+  /**
+   * @return false if the value of the column at the given index was certainly not inserted
+   */
+  public boolean mightContain(ValueVector column, int index) {
+    return bloomFilter.mightContain(hash(column, index));
+  }
+
+  /**
+   * @return the column of the batch the filter applies to, or null if the batch has no such column, or
+   * if its type differs
+   */
+  public ValueVector getColumn(VectorAccessible batch) {
+    final TypedFieldId fieldId = batch.getValueVectorId(SchemaPath.getSimplePath(field));
+    if (fieldId == null || fieldId.isHyperReader() || fieldId.getFieldIds().length != 1) {
+      return null;
+    }
+    final ValueVector column = batch.getValueAccessorById(ValueVector.class, fieldId.getFieldIds()).getValueVector();
+    return accepts(column) ? column : null;
+  }
+
+  /**
+   * @return whether the filter can be evaluated over the given column
+   */
+  public boolean accepts(ValueVector column) {
+    final MajorType columnType = column.getField().getType();
+    return columnType.getMinorType() == type && columnType.getMode() != DataMode.REPEATED;
+  }
+
+  private static int hash(ValueVector column, int index) {
+    ValueVector values = column;
+    if (column instanceof NullableVector) {
+      if (column.getAccessor().isNull(index)) {
+        return NULL_HASH;
+      }
+      values = ((NullableVector) column).getValuesVector();
+    }
+    final DrillBuf data = values.getBuffer();
+    final UInt4Vector.Accessor offsets;
+    if (values instanceof VarCharVector) {
+      offsets = ((VarCharVector) values).getOffsetVector().getAccessor();
+    } else if (values instanceof VarBinaryVector) {
+      offsets = ((VarBinaryVector) values).getOffsetVector().getAccessor();
+    } else {
+      final int width = values instanceof IntVector || values instanceof TimeVector ? 4 : 8;
+      return XXHash.hash32(index * width, (index + 1) * width, data, SEED);
+    }
+    return XXHash.hash32(offsets.get(index), offsets.get(index + 1), data, SEED);
+  }
+
+  /**
+   * Serialize the filter, to send it to another fragment
+   *
+   * @return a buffer of the given allocator holding the filter
+   */
+  public DrillBuf serialize(BufferAllocator allocator) {
+    final byte[] fieldBytes = field.getBytes(Charsets.UTF_8);
+    final int headerSize = 5 * 4 + fieldBytes.length;
+    final DrillBuf out = allocator.buffer(headerSize + bloomFilter.getSizeInBytes());
+    out.writeInt(joinMajorFragmentId);
+    out.writeInt(joinOperatorId);
+    out.writeInt(type.getNumber());
+    out.writeInt(fieldBytes.length);
+    out.writeBytes(fieldBytes);
+    out.writeInt(bloomFilter.getSizeInBytes());
+    bloomFilter.writeTo(out, headerSize);
+    out.writerIndex(headerSize + bloomFilter.getSizeInBytes());
+    return out;
+  }
+
+  /**
+   * @param in a filter serialized by {@link #serialize(BufferAllocator)}
+   * @param allocator allocator of the bits of the filter
+   */
+  public static RuntimeFilter deserialize(DrillBuf in, BufferAllocator allocator) {
+    final int joinMajorFragmentId = in.readInt();
+    final int joinOperatorId = in.readInt();
+    final MinorType type = MinorType.valueOf(in.readInt());
+    final byte[] fieldBytes = new byte[in.readInt()];
+    in.readBytes(fieldBytes);
+    final int filterSize = in.readInt();
+    final DrillBuf bits = allocator.buffer(filterSize);
+    bits.setBytes(0, in, in.readerIndex(), filterSize);
+    in.skipBytes(filterSize);
+    return new RuntimeFilter(joinMajorFragmentId, joinOperatorId, new String(fieldBytes, Charsets.UTF_8), type,
+        new BloomFilter(bits));
+  }
+
+  @Override
+  public void close() {
+    if (ownsBits) {
+      bloomFilter.close();
+    }
+  }
+}
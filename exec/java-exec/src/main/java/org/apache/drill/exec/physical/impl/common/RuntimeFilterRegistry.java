@@ -0,0 +1,157 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import io.netty.buffer.DrillBuf;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import org.apache.drill.exec.memory.BufferAllocator;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The {@link RuntimeFilter}s of a fragment.
+ * <p>
+ * The filters built by the joins of other fragments are received over the control RPC, from each fragment
+ * of the join, and merged: a filter is only complete once the filters of all the receivers of the root
+ * sender of this fragment are in (as each holds the keys of its own partition of the build side). The
+ * complete filters are applied by the root sender, which also hands them to the scans below it.
+ * <p>
+ * A join may also hand its filter directly to a scan of its own fragment, on its probe side.
+ * <p>
+ * The filters are received by the RPC threads and used by the fragment thread. They are released when the
+ * fragment closes; those received after are dropped.
+ */
+public class RuntimeFilterRegistry implements AutoCloseable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(RuntimeFilterRegistry.class);
+
+  private final BufferAllocator allocator;
+  // number of filters to merge before a received filter is complete; 0 until known
+  private int expectedParts;
+  // filters being received, by join
+  private final Map<Long, RuntimeFilter> received = Maps.newHashMap();
+  private final List<RuntimeFilter> complete = new CopyOnWriteArrayList<>();
+  // filters of the scans, by operator id
+  private final ConcurrentMap<Integer, List<RuntimeFilter>> scanFilters = Maps.newConcurrentMap();
+  private final List<RuntimeFilter> owned = Lists.newArrayList();
+  private boolean closed;
+
+  /**
+   * @param allocator allocator of the filters received by the fragment
+   */
+  public RuntimeFilterRegistry(BufferAllocator allocator) {
+    this.allocator = allocator;
+  }
+
+  /**
+   * Set the number of filters of a join to receive (one per receiving fragment of the root sender)
+   */
+  public synchronized void setExpectedParts(int expectedParts) {
+    this.expectedParts = expectedParts;
+    for (RuntimeFilter filter : received.values()) {
+      checkComplete(filter);
+    }
+  }
+
+  /**
+   * Add the filter of a fragment of a join, as received from it
+   *
+   * @param body the serialized filter
+   */
+  public synchronized void receive(DrillBuf body) {
+    if (closed) {
+      logger.debug("Dropping a runtime filter received after the fragment closed");
+      return;
+    }
+    final RuntimeFilter part = RuntimeFilter.deserialize(body, allocator);
+    final RuntimeFilter filter = received.get(part.getJoinId());
+    if (filter == null) {
+      received.put(part.getJoinId(), part);
+      owned.add(part);
+      checkComplete(part);
+    } else {
+      try {
+        filter.merge(part);
+      } finally {
+        part.close();
+      }
+      checkComplete(filter);
+    }
+  }
+
+  private void checkComplete(RuntimeFilter filter) {
+    if (expectedParts > 0 && filter.getParts() == expectedParts && !complete.contains(filter)) {
+      logger.debug("Runtime filter on {} complete", filter.getField());
+      complete.add(filter);
+    }
+  }
+
+  /**
+   * @return the received filters that are complete, in the order they were completed
+   */
+  public List<RuntimeFilter> getComplete() {
+    return complete;
+  }
+
+  /**
+   * Add a filter of a scan of the fragment
+   *
+   * @param operatorId id of the scan
+   * @param filter the filter; owned by the registry unless it shares the bits of a registered filter
+   */
+  public synchronized void addScanFilter(int operatorId, RuntimeFilter filter) {
+    if (closed) {
+      filter.close();
+      return;
+    }
+    owned.add(filter);
+    getScanFilters(operatorId).add(filter);
+  }
+
+  /**
+   * @return the filters of a scan of the fragment; more may be added as the scan runs
+   */
+  public List<RuntimeFilter> getScanFilters(int operatorId) {
+    List<RuntimeFilter> filters = scanFilters.get(operatorId);
+    if (filters == null) {
+      final List<RuntimeFilter> newFilters = new CopyOnWriteArrayList<>();
+      filters = scanFilters.putIfAbsent(operatorId, newFilters);
+      if (filters == null) {
+        filters = newFilters;
+      }
+    }
+    return filters;
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    for (RuntimeFilter filter : owned) {
+      filter.close();
+    }
+    owned.clear();
+    received.clear();
+    complete.clear();
+    scanFilters.clear();
+  }
+}
@@ -0,0 +1,106 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.common.logical.data.NamedExpression;
+import org.apache.drill.exec.physical.base.AbstractReceiver;
+import org.apache.drill.exec.physical.base.PhysicalOperator;
+import org.apache.drill.exec.physical.base.SubScan;
+import org.apache.drill.exec.physical.config.Filter;
+import org.apache.drill.exec.physical.config.Project;
+import org.apache.drill.exec.physical.config.SelectionVectorRemover;
+import org.apache.drill.exec.planner.StarColumnHelper;
+
+/**
+ * The operator a {@link RuntimeFilter} on a column of the output of an operator can be applied below: the scan or
+ * the receiver the column comes from, through the operators of the fragment that pass the rows through as they are
+ * (filters and selection vector removers) and the projects that pass the column through, maybe renamed. Dropping
+ * a row there only drops it from the output of the operator.
+ */
+public class RuntimeFilterTarget {
+
+  private final PhysicalOperator operator;
+  private final String field;
+
+  private RuntimeFilterTarget(PhysicalOperator operator, String field) {
+    this.operator = operator;
+    this.field = field;
+  }
+
+  /**
+   * @param input the operator
+   * @param field a (top level) column of the output of the operator
+   * @return the scan ({@link SubScan}) or receiver the column comes from, or null if there is none
+   */
+  public static RuntimeFilterTarget find(PhysicalOperator input, String field) {
+    PhysicalOperator operator = input;
+    String name = field;
+    while (true) {
+      if (operator instanceof SubScan || operator instanceof AbstractReceiver) {
+        return new RuntimeFilterTarget(operator, name);
+      } else if (operator instanceof Filter) {
+        operator = ((Filter) operator).getChild();
+      } else if (operator instanceof SelectionVectorRemover) {
+        operator = ((SelectionVectorRemover) operator).getChild();
+      } else if (operator instanceof Project) {
+        name = getProjectedColumn((Project) operator, name);
+        if (name == null) {
+          return null;
+        }
+        operator = ((Project) operator).getChild();
+      } else {
+        return null;
+      }
+    }
+  }
+
+  /**
+   * @return the name of the input column a project outputs as is under the given name, or null if the output
+   * column is computed (or not listed)
+   */
+  private static String getProjectedColumn(Project project, String name) {
+    for (NamedExpression expr : project.getExprs()) {
+      if (!expr.getRef().getRootSegment().getPath().equalsIgnoreCase(name)) {
+        continue;
+      }
+      final LogicalExpression input = expr.getExpr();
+      if (input instanceof SchemaPath && ((SchemaPath) input).isSimplePath() &&
+          !((SchemaPath) input).getRootSegment().getPath().contains(StarColumnHelper.STAR_COLUMN)) {
+        return ((SchemaPath) input).getRootSegment().getPath();
+      }
+      return null;
+    }
+    return null;
+  }
+
+  /**
+   * @return a {@link SubScan} or an {@link AbstractReceiver}
+   */
+  public PhysicalOperator getOperator() {
+    return operator;
+  }
+
+  /**
+   * @return the name of the column in the output of the operator
+   */
+  public String getField() {
+    return field;
+  }
+}
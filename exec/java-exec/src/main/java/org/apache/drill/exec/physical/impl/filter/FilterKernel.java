@@ -0,0 +1,496 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.filter;
+
+import io.netty.buffer.DrillBuf;
+
+import java.util.Arrays;
+
+import org.apache.drill.exec.expr.fn.impl.ByteFunctionHelpers;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.vector.IntVector;
+import org.apache.drill.exec.vector.NullableVector;
+import org.apache.drill.exec.vector.UInt4Vector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VarCharVector;
+
+/**
+ * A prebuilt (not generated) filter predicate over a single column of the incoming batch.
+ * <p>
+ * A kernel works on a whole selection of rows at a time: it keeps (in place) only the selected
+ * rows that pass its predicate. A conjunction of kernels is evaluated by applying them one after
+ * the other, each over the rows left by the previous one. A null column value never passes
+ * (as in SQL, where a comparison with null is null, and the filter treats null as false), except
+ * for the IS NULL kernel, and the runtime filter kernel, which leaves nulls to the join.
+ */
+public abstract class FilterKernel {
+
+  public enum CompareOp {
+    EQ, NE, LT, LE, GT, GE;
+
+    /**
+     * @return the operator to use when the operands are swapped (e.g. 5 < a is a > 5)
+     */
+    public CompareOp swap() {
+      switch (this) {
+        case LT: return GT;
+        case LE: return GE;
+        case GT: return LT;
+        case GE: return LE;
+        default: return this;
+      }
+    }
+
+    /**
+     * @return the operator of the given comparison function (or operator) name, or null if it is not a comparison
+     */
+    public static CompareOp fromFunctionName(String name) {
+      switch (name) {
+        case "equal": case "==": case "=":
+          return EQ;
+        case "not_equal": case "<>": case "!=":
+          return NE;
+        case "less_than": case "<":
+          return LT;
+        case "less_than_or_equal_to": case "<=":
+          return LE;
+        case "greater_than": case ">":
+          return GT;
+        case "greater_than_or_equal_to": case ">=":
+          return GE;
+        default:
+          return null;
+      }
+    }
+
+    public boolean test(int cmp) {
+      switch (this) {
+        case EQ: return cmp == 0;
+        case NE: return cmp != 0;
+        case LT: return cmp < 0;
+        case LE: return cmp <= 0;
+        case GT: return cmp > 0;
+        default: return cmp >= 0;
+      }
+    }
+  }
+
+  protected final ValueVector column; // as read from the incoming batch (may be nullable)
+  protected final ValueVector values; // the vector holding the values
+  protected final boolean nullable;
+
+  protected FilterKernel(ValueVector column) {
+    this.column = column;
+    this.nullable = column instanceof NullableVector;
+    this.values = nullable ? ((NullableVector) column).getValuesVector() : column;
+  }
+
+  /**
+   * @return the column the predicate is evaluated over
+   */
+  public ValueVector getColumn() {
+    return column;
+  }
+
+  /**
+   * Filter the given selection of (incoming) row indexes
+   *
+   * @param selection the selected row indexes; the passing ones are moved to its start
+   * @param count number of selected rows
+   * @return number of selected rows that passed
+   */
+  public abstract int filter(int[] selection, int count);
+
+  /**
+   * Tell from the statistics of a set of values of the column (e.g. a page of a file) whether any of them
+   * may pass the predicate
+   *
+   * @param hasValues whether the set holds non null values
+   * @param hasNulls whether the set holds nulls
+   * @param min the min of the non null values (of an integral or date/time column; meaningless if !hasValues)
+   * @param max the max of the non null values
+   * @return false if none of the values can pass, true if some may (or the kernel can not tell)
+   */
+  public boolean mayMatch(boolean hasValues, boolean hasNulls, long min, long max) {
+    return true;
+  }
+
+  /**
+   * See {@link #mayMatch(boolean, boolean, long, long)}, for a FLOAT8 column
+   */
+  public boolean mayMatch(boolean hasValues, boolean hasNulls, double min, double max) {
+    return true;
+  }
+
+  /**
+   * IS NULL / IS NOT NULL
+   */
+  public static class NullKernel extends FilterKernel {
+    private final boolean isNull;
+
+    public NullKernel(ValueVector column, boolean isNull) {
+      super(column);
+      this.isNull = isNull;
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      if (!nullable) {
+        return isNull ? 0 : count;
+      }
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (accessor.isNull(row) == isNull) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, long min, long max) {
+      return isNull ? hasNulls : hasValues;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, double min, double max) {
+      return isNull ? hasNulls : hasValues;
+    }
+  }
+
+  /**
+   * Range (or its negation) over an INT, BIGINT, DATE or TIMESTAMP column; covers all the comparison operators
+   */
+  public static class LongRangeKernel extends FilterKernel {
+    private final boolean isInt; // 4 byte values; else 8 bytes
+    private final long low;
+    private final boolean lowInclusive;
+    private final long high;
+    private final boolean highInclusive;
+    private final boolean negate;
+
+    public LongRangeKernel(ValueVector column, long low, boolean lowInclusive, long high, boolean highInclusive,
+                           boolean negate) {
+      super(column);
+      this.isInt = values instanceof IntVector;
+      this.low = low;
+      this.lowInclusive = lowInclusive;
+      this.high = high;
+      this.highInclusive = highInclusive;
+      this.negate = negate;
+    }
+
+    public static LongRangeKernel create(ValueVector column, CompareOp op, long constant) {
+      switch (op) {
+        case EQ: return new LongRangeKernel(column, constant, true, constant, true, false);
+        case NE: return new LongRangeKernel(column, constant, true, constant, true, true);
+        case LT: return new LongRangeKernel(column, Long.MIN_VALUE, true, constant, false, false);
+        case LE: return new LongRangeKernel(column, Long.MIN_VALUE, true, constant, true, false);
+        case GT: return new LongRangeKernel(column, constant, false, Long.MAX_VALUE, true, false);
+        default: return new LongRangeKernel(column, constant, true, Long.MAX_VALUE, true, false);
+      }
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final long value = isInt ? data.getInt(row << 2) : data.getLong(row << 3);
+        final boolean inRange = (lowInclusive ? value >= low : value > low) &&
+            (highInclusive ? value <= high : value < high);
+        if (inRange != negate) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, long min, long max) {
+      if (!hasValues) {
+        return false;
+      }
+      if (negate) {
+        // unless all the values are in the range
+        return !((lowInclusive ? min >= low : min > low) && (highInclusive ? max <= high : max < high));
+      }
+      // unless the ranges do not overlap
+      return (lowInclusive ? max >= low : max > low) && (highInclusive ? min <= high : min < high);
+    }
+  }
+
+  /**
+   * Range (or its negation) over a FLOAT8 column; covers all the comparison operators
+   */
+  public static class DoubleRangeKernel extends FilterKernel {
+    private final double low;
+    private final boolean lowInclusive;
+    private final double high;
+    private final boolean highInclusive;
+    private final boolean negate;
+
+    public DoubleRangeKernel(ValueVector column, double low, boolean lowInclusive, double high, boolean highInclusive,
+                             boolean negate) {
+      super(column);
+      this.low = low;
+      this.lowInclusive = lowInclusive;
+      this.high = high;
+      this.highInclusive = highInclusive;
+      this.negate = negate;
+    }
+
+    public static DoubleRangeKernel create(ValueVector column, CompareOp op, double constant) {
+      switch (op) {
+        case EQ: return new DoubleRangeKernel(column, constant, true, constant, true, false);
+        case NE: return new DoubleRangeKernel(column, constant, true, constant, true, true);
+        case LT: return new DoubleRangeKernel(column, Double.NEGATIVE_INFINITY, true, constant, false, false);
+        case LE: return new DoubleRangeKernel(column, Double.NEGATIVE_INFINITY, true, constant, true, false);
+        case GT: return new DoubleRangeKernel(column, constant, false, Double.POSITIVE_INFINITY, true, false);
+        default: return new DoubleRangeKernel(column, constant, true, Double.POSITIVE_INFINITY, true, false);
+      }
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final double value = data.getDouble(row << 3);
+        // same (Java primitive) semantics as the generated comparison functions, e.g. NaN never compares
+        final boolean inRange = (lowInclusive ? value >= low : value > low) &&
+            (highInclusive ? value <= high : value < high);
+        if (inRange != negate) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, double min, double max) {
+      if (!hasValues) {
+        return false;
+      }
+      if (negate || Double.isNaN(min) || Double.isNaN(max)) {
+        // (NaN values, which pass a negated range, may be left out of the statistics)
+        return true;
+      }
+      return (lowInclusive ? max >= low : max > low) && (highInclusive ? min <= high : min < high);
+    }
+  }
+
+  /**
+   * Comparison of a VARCHAR column with a constant
+   */
+  public static class VarCharCompareKernel extends FilterKernel {
+    private final CompareOp op;
+    private final byte[] constant;
+
+    public VarCharCompareKernel(ValueVector column, CompareOp op, byte[] constant) {
+      super(column);
+      this.op = op;
+      this.constant = constant;
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final UInt4Vector.Accessor offsets = ((VarCharVector) values).getOffsetVector().getAccessor();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final int cmp = ByteFunctionHelpers.compare(data, offsets.get(row), offsets.get(row + 1),
+            constant, 0, constant.length);
+        if (op.test(cmp)) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+  }
+
+  /**
+   * IN list (a disjunction of equalities with constants) over an INT, BIGINT, DATE or TIMESTAMP column
+   */
+  public static class LongInListKernel extends FilterKernel {
+    private final boolean isInt;
+    private final long[] list; // sorted
+
+    public LongInListKernel(ValueVector column, long[] list) {
+      super(column);
+      this.isInt = values instanceof IntVector;
+      this.list = Arrays.copyOf(list, list.length);
+      Arrays.sort(this.list);
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final long value = isInt ? data.getInt(row << 2) : data.getLong(row << 3);
+        if (Arrays.binarySearch(list, value) >= 0) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, long min, long max) {
+      if (!hasValues) {
+        return false;
+      }
+      // the first constant not less than min
+      int index = Arrays.binarySearch(list, min);
+      if (index < 0) {
+        index = -index - 1;
+      }
+      return index < list.length && list[index] <= max;
+    }
+  }
+
+  /**
+   * IN list over a FLOAT8 column (the list is scanned, to keep the primitive == semantics)
+   */
+  public static class DoubleInListKernel extends FilterKernel {
+    private final double[] list;
+
+    public DoubleInListKernel(ValueVector column, double[] list) {
+      super(column);
+      this.list = list;
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final double value = data.getDouble(row << 3);
+        for (double constant : list) {
+          if (value == constant) {
+            selection[passed++] = row;
+            break;
+          }
+        }
+      }
+      return passed;
+    }
+
+    @Override
+    public boolean mayMatch(boolean hasValues, boolean hasNulls, double min, double max) {
+      if (!hasValues) {
+        return false;
+      }
+      for (double constant : list) {
+        if (constant >= min && constant <= max) {
+          return true;
+        }
+      }
+      return Double.isNaN(min) || Double.isNaN(max);
+    }
+  }
+
+  /**
+   * IN list over a VARCHAR column
+   */
+  public static class VarCharInListKernel extends FilterKernel {
+    private final byte[][] list;
+
+    public VarCharInListKernel(ValueVector column, byte[][] list) {
+      super(column);
+      this.list = list;
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      final DrillBuf data = values.getBuffer();
+      final UInt4Vector.Accessor offsets = ((VarCharVector) values).getOffsetVector().getAccessor();
+      final ValueVector.Accessor accessor = column.getAccessor();
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (nullable && accessor.isNull(row)) {
+          continue;
+        }
+        final int start = offsets.get(row);
+        final int end = offsets.get(row + 1);
+        for (byte[] constant : list) {
+          if (end - start == constant.length &&
+              ByteFunctionHelpers.compare(data, start, end, constant, 0, constant.length) == 0) {
+            selection[passed++] = row;
+            break;
+          }
+        }
+      }
+      return passed;
+    }
+  }
+
+  /**
+   * A {@link RuntimeFilter} of a hash join above, over the column of its probe side key: the rows whose key is
+   * certainly not among the build side keys are dropped
+   */
+  public static class RuntimeFilterKernel extends FilterKernel {
+    private final RuntimeFilter filter;
+
+    public RuntimeFilterKernel(ValueVector column, RuntimeFilter filter) {
+      super(column);
+      this.filter = filter;
+    }
+
+    @Override
+    public int filter(int[] selection, int count) {
+      int passed = 0;
+      for (int i = 0; i < count; i++) {
+        final int row = selection[i];
+        if (filter.mightContain(column, row)) {
+          selection[passed++] = row;
+        }
+      }
+      return passed;
+    }
+  }
+}
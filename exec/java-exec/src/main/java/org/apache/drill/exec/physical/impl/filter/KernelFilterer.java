@@ -0,0 +1,371 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.filter;
+
+import java.util.List;
+
+import org.apache.drill.common.expression.BooleanOperator;
+import org.apache.drill.common.expression.FunctionHolderExpression;
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.fn.CastFunctions;
+import org.apache.drill.common.expression.ValueExpressions.DateExpression;
+import org.apache.drill.common.expression.ValueExpressions.DoubleExpression;
+import org.apache.drill.common.expression.ValueExpressions.FloatExpression;
+import org.apache.drill.common.expression.ValueExpressions.IntExpression;
+import org.apache.drill.common.expression.ValueExpressions.LongExpression;
+import org.apache.drill.common.expression.ValueExpressions.QuotedString;
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.exception.OutOfMemoryException;
+import org.apache.drill.exec.exception.SchemaChangeException;
+import org.apache.drill.exec.expr.ValueVectorReadExpression;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.physical.impl.filter.FilterKernel.CompareOp;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.TransferPair;
+import org.apache.drill.exec.record.TypedFieldId;
+import org.apache.drill.exec.record.VectorWrapper;
+import org.apache.drill.exec.record.selection.SelectionVector2;
+import org.apache.drill.exec.vector.BigIntVector;
+import org.apache.drill.exec.vector.DateVector;
+import org.apache.drill.exec.vector.Float8Vector;
+import org.apache.drill.exec.vector.IntVector;
+import org.apache.drill.exec.vector.NullableVector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VarCharVector;
+
+import com.google.common.base.Charsets;
+import com.google.common.collect.Lists;
+
+/**
+ * A (SV2) filterer that evaluates the filter condition with prebuilt {@link FilterKernel}s, instead of
+ * generated code. Used for the common predicate shapes: a conjunction of comparisons of a column with a
+ * constant, IS [NOT] NULL, IN lists and BETWEEN, over INT, BIGINT, FLOAT8, VARCHAR and DATE columns.
+ * The numeric constants may be widened by an implicit cast (as in a DOUBLE column compared with an integer),
+ * and so may INT columns compared with a BIGINT constant. No code is generated (nor compiled) for such conditions, and each batch is filtered a column at a time.
+ */
+public class KernelFilterer implements Filterer {
+
+  private final List<FilterKernel> kernels;
+  private SelectionVector2 outgoingSelectionVector;
+  private SelectionVector2 incomingSelectionVector;
+  private SelectionVectorMode svMode;
+  private TransferPair[] transfers;
+  private int[] selection = new int[0];
+
+  private KernelFilterer(List<FilterKernel> kernels) {
+    this.kernels = kernels;
+  }
+
+  /**
+   * @param expr the materialized filter condition
+   * @param incoming the batch the condition was materialized against
+   * @return a filterer for the condition, or null if the condition has some unsupported shape
+   */
+  public static KernelFilterer create(LogicalExpression expr, RecordBatch incoming) {
+    final List<FilterKernel> kernels = Lists.newArrayList();
+    if (!addConjuncts(expr, incoming, kernels)) {
+      return null;
+    }
+    return new KernelFilterer(kernels);
+  }
+
+  @Override
+  public void setup(FragmentContext context, RecordBatch incoming, RecordBatch outgoing, TransferPair[] transfers) throws SchemaChangeException {
+    this.transfers = transfers;
+    this.outgoingSelectionVector = outgoing.getSelectionVector2();
+    this.svMode = incoming.getSchema().getSelectionVectorMode();
+
+    switch(svMode){
+    case NONE:
+      break;
+    case TWO_BYTE:
+      this.incomingSelectionVector = incoming.getSelectionVector2();
+      break;
+    default:
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  @Override
+  public void filterBatch(int recordCount) throws SchemaChangeException {
+    if (recordCount == 0) {
+      return;
+    }
+    if (! outgoingSelectionVector.allocateNewSafe(recordCount)) {
+      throw new OutOfMemoryException("Unable to allocate filter batch");
+    }
+    if (selection.length < recordCount) {
+      selection = new int[recordCount];
+    }
+    if (svMode == SelectionVectorMode.TWO_BYTE) {
+      for (int i = 0; i < recordCount; i++) {
+        selection[i] = incomingSelectionVector.getIndex(i);
+      }
+    } else {
+      for (int i = 0; i < recordCount; i++) {
+        selection[i] = i;
+      }
+    }
+
+    int count = recordCount;
+    for (FilterKernel kernel : kernels) {
+      if (count == 0) {
+        break;
+      }
+      count = kernel.filter(selection, count);
+    }
+
+    for (int i = 0; i < count; i++) {
+      outgoingSelectionVector.setIndex(i, (char) selection[i]);
+    }
+    outgoingSelectionVector.setRecordCount(count);
+
+    for (TransferPair t : transfers) {
+      t.transfer();
+    }
+  }
+
+  private static boolean addConjuncts(LogicalExpression expr, RecordBatch incoming, List<FilterKernel> kernels) {
+    if (expr instanceof BooleanOperator && ((BooleanOperator) expr).getName().equals("booleanAnd")) {
+      for (LogicalExpression arg : ((BooleanOperator) expr).args) {
+        if (!addConjuncts(arg, incoming, kernels)) {
+          return false;
+        }
+      }
+      return true;
+    }
+    final FilterKernel kernel = expr instanceof BooleanOperator ?
+        createInListKernel((BooleanOperator) expr, incoming) : createKernel(expr, incoming);
+    if (kernel == null) {
+      return false;
+    }
+    kernels.add(kernel);
+    return true;
+  }
+
+  private static FilterKernel createKernel(LogicalExpression expr, RecordBatch incoming) {
+    if (!(expr instanceof FunctionHolderExpression)) {
+      return null;
+    }
+    final FunctionHolderExpression func = (FunctionHolderExpression) expr;
+    final String name = func.getName();
+
+    if (func.args.size() == 1) {
+      final ValueVector column = getColumn(func.args.get(0), incoming);
+      if (column == null) {
+        return null;
+      }
+      switch (name) {
+        case "isnull":
+        case "is null":
+          return new FilterKernel.NullKernel(column, true);
+        case "isnotnull":
+        case "is not null":
+          return new FilterKernel.NullKernel(column, false);
+        default:
+          return null;
+      }
+    }
+
+    CompareOp op = CompareOp.fromFunctionName(name);
+    if (op == null || func.args.size() != 2) {
+      return null;
+    }
+    LogicalExpression columnArg = func.args.get(0);
+    LogicalExpression constantArg = func.args.get(1);
+    if (!isColumn(columnArg)) { // e.g. 5 < a
+      columnArg = func.args.get(1);
+      constantArg = func.args.get(0);
+      op = op.swap();
+    }
+    final ValueVector column = getColumn(columnArg, incoming);
+    if (column == null) {
+      return null;
+    }
+    final ValueVector values = column instanceof NullableVector ? ((NullableVector) column).getValuesVector() : column;
+
+    final Number number = getNumber(constantArg);
+    if ((values instanceof IntVector || values instanceof BigIntVector) && isIntegral(number)) {
+      return FilterKernel.LongRangeKernel.create(column, op, number.longValue());
+    } else if (values instanceof DateVector && constantArg instanceof DateExpression) {
+      return FilterKernel.LongRangeKernel.create(column, op, ((DateExpression) constantArg).getDate());
+    } else if (values instanceof Float8Vector && number != null) {
+      return FilterKernel.DoubleRangeKernel.create(column, op, number.doubleValue());
+    } else if (values instanceof VarCharVector && constantArg instanceof QuotedString) {
+      return new FilterKernel.VarCharCompareKernel(column, op, getBytes((QuotedString) constantArg));
+    }
+    return null;
+  }
+
+  /**
+   * A disjunction of equalities of the same column with constants, e.g. a IN (1, 2, 3)
+   */
+  private static FilterKernel createInListKernel(BooleanOperator or, RecordBatch incoming) {
+    if (!or.getName().equals("booleanOr")) {
+      return null;
+    }
+    final List<LogicalExpression> constants = Lists.newArrayList();
+    ValueVector column = null;
+    for (LogicalExpression disjunct : flattenOr(or)) {
+      if (!(disjunct instanceof FunctionHolderExpression)) {
+        return null;
+      }
+      final FunctionHolderExpression func = (FunctionHolderExpression) disjunct;
+      if (CompareOp.fromFunctionName(func.getName()) != CompareOp.EQ || func.args.size() != 2) {
+        return null;
+      }
+      final boolean columnFirst = isColumn(func.args.get(0));
+      final ValueVector disjunctColumn = getColumn(func.args.get(columnFirst ? 0 : 1), incoming);
+      if (disjunctColumn == null || (column != null && column != disjunctColumn)) {
+        return null;
+      }
+      column = disjunctColumn;
+      constants.add(func.args.get(columnFirst ? 1 : 0));
+    }
+    final ValueVector values = column instanceof NullableVector ? ((NullableVector) column).getValuesVector() : column;
+
+    final int size = constants.size();
+    if (values instanceof IntVector || values instanceof BigIntVector || values instanceof DateVector) {
+      final long[] list = new long[size];
+      for (int i = 0; i < size; i++) {
+        final LogicalExpression constant = constants.get(i);
+        final Number number = getNumber(constant);
+        if (!(values instanceof DateVector) && isIntegral(number)) {
+          list[i] = number.longValue();
+        } else if (values instanceof DateVector && constant instanceof DateExpression) {
+          list[i] = ((DateExpression) constant).getDate();
+        } else {
+          return null;
+        }
+      }
+      return new FilterKernel.LongInListKernel(column, list);
+    } else if (values instanceof Float8Vector) {
+      final double[] list = new double[size];
+      for (int i = 0; i < size; i++) {
+        final Number number = getNumber(constants.get(i));
+        if (number == null) {
+          return null;
+        }
+        list[i] = number.doubleValue();
+      }
+      return new FilterKernel.DoubleInListKernel(column, list);
+    } else if (values instanceof VarCharVector) {
+      final byte[][] list = new byte[size][];
+      for (int i = 0; i < size; i++) {
+        if (!(constants.get(i) instanceof QuotedString)) {
+          return null;
+        }
+        list[i] = getBytes((QuotedString) constants.get(i));
+      }
+      return new FilterKernel.VarCharInListKernel(column, list);
+    }
+    return null;
+  }
+
+  private static List<LogicalExpression> flattenOr(BooleanOperator or) {
+    final List<LogicalExpression> disjuncts = Lists.newArrayList();
+    for (LogicalExpression arg : or.args) {
+      if (arg instanceof BooleanOperator && ((BooleanOperator) arg).getName().equals("booleanOr")) {
+        disjuncts.addAll(flattenOr((BooleanOperator) arg));
+      } else {
+        disjuncts.add(arg);
+      }
+    }
+    return disjuncts;
+  }
+
+  /**
+   * @return the value of a numeric constant, maybe widened by a cast (e.g. castFLOAT8(10), when a DOUBLE column
+   * is compared with an integer), or null if the expression is not such a constant
+   */
+  private static Number getNumber(LogicalExpression expr) {
+    if (expr instanceof IntExpression) {
+      return ((IntExpression) expr).getInt();
+    } else if (expr instanceof LongExpression) {
+      return ((LongExpression) expr).getLong();
+    } else if (expr instanceof FloatExpression) {
+      return ((FloatExpression) expr).getFloat();
+    } else if (expr instanceof DoubleExpression) {
+      return ((DoubleExpression) expr).getDouble();
+    } else if (expr instanceof FunctionHolderExpression && ((FunctionHolderExpression) expr).args.size() == 1) {
+      final FunctionHolderExpression cast = (FunctionHolderExpression) expr;
+      final Number value = getNumber(cast.args.get(0));
+      if (value == null) {
+        return null;
+      } else if (cast.getName().equals(CastFunctions.getCastFunc(MinorType.FLOAT8))) {
+        return value.doubleValue();
+      } else if (cast.getName().equals(CastFunctions.getCastFunc(MinorType.BIGINT)) && isIntegral(value)) {
+        return value.longValue();
+      }
+    }
+    return null;
+  }
+
+  private static boolean isIntegral(Number number) {
+    return number instanceof Integer || number instanceof Long;
+  }
+
+  /**
+   * @return the column read by the given expression, seen through the cast to BIGINT of an INT column (as
+   * added when the column is compared with a BIGINT constant), or null if the expression is not a column read
+   */
+  private static ValueVectorReadExpression getColumnRead(LogicalExpression expr) {
+    if (expr instanceof ValueVectorReadExpression) {
+      return (ValueVectorReadExpression) expr;
+    } else if (expr instanceof FunctionHolderExpression) {
+      final FunctionHolderExpression cast = (FunctionHolderExpression) expr;
+      if (cast.getName().equals(CastFunctions.getCastFunc(MinorType.BIGINT)) && cast.args.size() == 1 &&
+          cast.args.get(0) instanceof ValueVectorReadExpression &&
+          cast.args.get(0).getMajorType().getMinorType() == MinorType.INT) {
+        return (ValueVectorReadExpression) cast.args.get(0);
+      }
+    }
+    return null;
+  }
+
+  private static boolean isColumn(LogicalExpression expr) {
+    return getColumnRead(expr) != null;
+  }
+
+  /**
+   * @return the (top level, single) vector read by the given expression, or null if the expression is not
+   * such a plain column read
+   */
+  private static ValueVector getColumn(LogicalExpression expr, RecordBatch incoming) {
+    final ValueVectorReadExpression read = getColumnRead(expr);
+    if (read == null) {
+      return null;
+    }
+    final TypedFieldId fieldId = read.getFieldId();
+    if (fieldId.hasRemainder() || fieldId.isHyperReader() || fieldId.getFieldIds().length != 1) {
+      return null;
+    }
+    final DataMode mode = fieldId.getFinalType().getMode();
+    if (mode != DataMode.REQUIRED && mode != DataMode.OPTIONAL) {
+      return null;
+    }
+    final VectorWrapper<?> wrapper = incoming.getValueAccessorById(ValueVector.class, fieldId.getFieldIds());
+    return wrapper == null ? null : wrapper.getValueVector();
+  }
+
+  private static byte[] getBytes(QuotedString constant) {
+    return constant.getString().getBytes(Charsets.UTF_8);
+  }
+}
@@ -19,10 +19,16 @@ package org.apache.drill.exec.physical.impl.join;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.LinkedList;
 import java.util.List;
 
 import com.google.common.collect.Lists;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.common.exceptions.UserException;
 import org.apache.drill.common.expression.FieldReference;
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.SchemaPath;
 import org.apache.drill.common.logical.data.JoinCondition;
 import org.apache.drill.common.logical.data.NamedExpression;
 import org.apache.drill.common.types.TypeProtos;
@@ -37,25 +43,42 @@ import org.apache.drill.exec.exception.OutOfMemoryException;
 import org.apache.drill.exec.exception.SchemaChangeException;
 import org.apache.drill.exec.expr.ClassGenerator;
 import org.apache.drill.exec.expr.CodeGenerator;
+import org.apache.drill.exec.memory.BaseAllocator;
 import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.ops.MetricDef;
+import org.apache.drill.exec.physical.MinorFragmentEndpoint;
+import org.apache.drill.exec.physical.base.AbstractReceiver;
+import org.apache.drill.exec.physical.base.SubScan;
 import org.apache.drill.exec.physical.config.HashJoinPOP;
+import org.apache.drill.exec.physical.impl.aggregate.SpilledRecordbatch;
+import org.apache.drill.exec.physical.impl.common.BloomFilter;
 import org.apache.drill.exec.physical.impl.common.ChainedHashTable;
 import org.apache.drill.exec.physical.impl.common.HashTable;
 import org.apache.drill.exec.physical.impl.common.HashTableConfig;
 import org.apache.drill.exec.physical.impl.common.HashTableStats;
 import org.apache.drill.exec.physical.impl.common.IndexPointer;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilterTarget;
 import org.apache.drill.exec.physical.impl.common.Comparator;
 import org.apache.drill.exec.physical.impl.sort.RecordBatchData;
+import org.apache.drill.exec.physical.impl.spill.RecordBatchSizer;
+import org.apache.drill.exec.physical.impl.spill.SpillSet;
+import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
+import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
 import org.apache.drill.exec.record.AbstractRecordBatch;
 import org.apache.drill.exec.record.BatchSchema;
 import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
 import org.apache.drill.exec.record.ExpandableHyperContainer;
 import org.apache.drill.exec.record.MaterializedField;
 import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.SimpleRecordBatch;
 import org.apache.drill.exec.record.TypedFieldId;
 import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorInitializer;
+import org.apache.drill.exec.record.VectorAccessible;
 import org.apache.drill.exec.record.VectorWrapper;
+import org.apache.drill.exec.rpc.RpcException;
+import org.apache.drill.exec.rpc.RpcOutcomeListener;
 import org.apache.drill.exec.vector.ValueVector;
 import org.apache.drill.exec.vector.complex.AbstractContainerVector;
 import org.apache.calcite.rel.core.JoinRelType;
@@ -65,9 +88,21 @@ import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JVar;
 
 public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HashJoinBatch.class);
+
   public static final long ALLOCATOR_INITIAL_RESERVATION = 1 * 1024 * 1024;
   public static final long ALLOCATOR_MAX_RESERVATION = 20L * 1000 * 1000 * 1000;
 
+  // Number of rows in each batch held by a partition of the hybrid hash join
+  private static final int PARTITION_BATCH_SIZE = 1024;
+
+  // Estimated hash table and helper memory per build row (links, hash values, buckets and
+  // the SV4 start indices / links of the helper), not including the copies of the keys
+  private static final int HASH_TABLE_ROW_OVERHEAD = 32;
+
+  // Estimated number of rows in an outgoing batch (see HashJoinProbeTemplate)
+  private static final int OUTPUT_BATCH_SIZE = 4000;
+
   // Probe side record batch
   private final RecordBatch left;
 
@@ -150,12 +185,69 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
 
   private final HashTableStats htStats = new HashTableStats();
 
+  // Runtime filter over the hash codes of all the build side keys (when enabled)
+  private BloomFilter runtimeFilter;
+
+  // Runtime filter over the values of a key column of the build side, handed to the scan or the senders the
+  // matching probe side column comes from (when the probe rows without a match are not returned), as the same
+  // filter with the name of the column there and on the build side
+  private RuntimeFilter keyFilter;
+  private RuntimeFilter buildKeyFilter;
+  private RuntimeFilterTarget keyFilterTarget;
+
+  // Hash codes of the rows of the current build batch (computed for the whole batch at once)
+  private int[] buildHashCodes = new int[0];
+
+  /* Hybrid hash join: when more than one partition is configured, the build side rows are
+   * hashed into partitions. Partitions that do not fit in the memory budget are spilled
+   * (with their matching probe rows), and each is joined later in its own cycle - where it
+   * is partitioned again using other bits of the hash code.
+   */
+  private boolean spillEnabled;
+  private int numPartitions;
+  private int partitionMask; // numPartitions - 1
+  private int bitsInMask; // number of bits in the mask
+  private long memoryLimit;
+  private int cycleNum; // 0 - joining the incoming batches, 1 - the first spilled partitions, etc.
+  private int maxCycleNum;
+  private SpillSet spillSet;
+  private HashJoinPartition[] partitions;
+  private boolean currentCycleSpilled;
+  private final LinkedList<HashJoinPartition> spilledPartitions = new LinkedList<>();
+  private int numSpilledPartitions;
+  private BatchSchema leftSchema;
+  private int buildRowWidth;
+  private int probeRowWidth;
+  // column widths observed in the first incoming batches, to pre-allocate the batches of the partitions
+  private VectorInitializer buildInitializer = new VectorInitializer();
+  private VectorInitializer probeInitializer = new VectorInitializer();
+
+  // Every build batch is transferred into this container (the build side "incoming" of the hash table)
+  private VectorContainer buildStaging;
+  private RecordBatch buildStagingBatch;
+  private ValueVector[] buildStagingVectors;
+
+  // The probe side of the current cycle (the left incoming in cycle 0), and its vectors
+  private RecordBatch probeSource;
+  private ValueVector[] probeVectors;
+
+  // Readers of the spilled partition joined in the current cycle
+  private HashJoinPartition currentSpilledPartition;
+  private SpilledRecordbatch spilledBuildBatch;
+  private SpilledRecordbatch spilledProbeBatch;
+
   public enum Metric implements MetricDef {
 
     NUM_BUCKETS,
     NUM_ENTRIES,
     NUM_RESIZING,
-    RESIZING_TIME_MS;
+    RESIZING_TIME_MS,
+    NUM_PARTITIONS,
+    SPILLED_PARTITIONS, // number of partitions spilled to disk (in any cycle)
+    SPILL_MB,         // Number of MB of data spilled to disk
+    SPILL_CYCLE,       // 0 - no spill, 1 - spill, 2 - SECONDARY, 3 - TERTIARY
+    RUNTIME_FILTERED_ROWS // probe rows rejected by the runtime filter
+    ;
 
     // duplicate for hash ag
 
@@ -198,7 +290,18 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
       hyperContainer = new ExpandableHyperContainer(vectors);
       hjHelper.addNewBatch(0);
       buildBatchIndex++;
-      setupHashTable();
+      spillEnabled = context.getOptions().getOption(ExecConstants.HASHJOIN_NUM_PARTITIONS_VALIDATOR) > 1;
+      if (spillEnabled) {
+        setupSpilling();
+        setupHashTable(buildStagingBatch, left);
+      } else {
+        setupHashTable();
+      }
+      if (context.getOptions().getOption(ExecConstants.HASHJOIN_ENABLE_RUNTIME_FILTER_VALIDATOR)) {
+        runtimeFilter = new BloomFilter(oContext.getAllocator(),
+            (int) context.getOptions().getOption(ExecConstants.HASHJOIN_RUNTIME_FILTER_SIZE_VALIDATOR));
+        setupKeyFilter();
+      }
       hashJoinProbe = setupHashJoinProbe();
       // Build the container schema and set the counts
       for (final VectorWrapper<?> w : container) {
@@ -220,7 +323,12 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
       if (state == BatchState.FIRST) {
         // Build the hash table, using the build side record batches.
         executeBuildPhase();
+        sendKeyFilter();
         //                IterOutcome next = next(HashJoinHelper.LEFT_INPUT, left);
+        if (spillEnabled) {
+          probeSource = left;
+          probeVectors = getVectors(left);
+        }
         hashJoinProbe.setupHashJoinProbe(context, hyperContainer, left, left.getRecordCount(), this, hashTable,
             hjHelper, joinType);
 
@@ -229,13 +337,21 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
       }
 
       // Store the number of records projected
-      if (!hashTable.isEmpty() || joinType != JoinRelType.INNER) {
+      if (!hashTable.isEmpty() || joinType != JoinRelType.INNER || hasSpilledPartitions()) {
 
         // Allocate the memory for the vectors in the output container
         allocateVectors();
 
         outputRecords = hashJoinProbe.probeAndProject();
 
+        // Done with the current cycle; continue with the next spilled partition (if any)
+        while (outputRecords == 0 && startNextSpilledPartition()) {
+          outputRecords = hashJoinProbe.probeAndProject();
+        }
+        if (runtimeFilter != null) {
+          stats.setLongStat(Metric.RUNTIME_FILTERED_ROWS, hashJoinProbe.getRuntimeFilteredRecords());
+        }
+
         /* We are here because of one the following
          * 1. Completed processing of all the records and we are done
          * 2. We've filled up the outgoing batch to the maximum and we need to return upstream
@@ -283,6 +399,10 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
   }
 
   public void setupHashTable() throws IOException, SchemaChangeException, ClassTransformationException {
+    setupHashTable(this.right, this.left);
+  }
+
+  private void setupHashTable(RecordBatch build, RecordBatch probe) throws IOException, SchemaChangeException, ClassTransformationException {
     // Setup the hash table configuration object
     int conditionsSize = conditions.size();
     final List<NamedExpression> rightExpr = new ArrayList<>(conditionsSize);
@@ -298,11 +418,11 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
     if (leftUpstream != IterOutcome.OK_NEW_SCHEMA && leftUpstream != IterOutcome.OK) {
       leftExpr = null;
     } else {
-      if (left.getSchema().getSelectionVectorMode() != BatchSchema.SelectionVectorMode.NONE) {
+      if (probe.getSchema().getSelectionVectorMode() != BatchSchema.SelectionVectorMode.NONE) {
         final String errorMsg = new StringBuilder()
             .append("Hash join does not support probe batch with selection vectors. ")
             .append("Probe batch has selection mode = ")
-            .append(left.getSchema().getSelectionVectorMode())
+            .append(probe.getSchema().getSelectionVectorMode())
             .toString();
         throw new SchemaChangeException(errorMsg);
       }
@@ -314,7 +434,7 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
 
     // Create the chained hash table
     final ChainedHashTable ht =
-        new ChainedHashTable(htConfig, context, oContext.getAllocator(), this.right, this.left, null);
+        new ChainedHashTable(htConfig, context, oContext.getAllocator(), build, probe, null);
     hashTable = ht.createAndSetupHashTable(null, 1);
   }
 
@@ -329,6 +449,11 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
       rightUpstream = next(right);
     }
 
+    if (spillEnabled) {
+      executeSpillableBuildPhase();
+      return;
+    }
+
     boolean moreData = true;
 
     while (moreData) {
@@ -373,8 +498,16 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
         final IndexPointer htIndex = new IndexPointer();
 
         // For every record in the build batch , hash the key columns
+        final int[] hashCodes = computeBuildHashCodes(currentRecordCount);
+        final ValueVector keyColumn = getBuildKeyColumn(right);
         for (int i = 0; i < currentRecordCount; i++) {
-          int hashCode = hashTable.getHashCode(i);
+          int hashCode = hashCodes[i];
+          if (runtimeFilter != null) {
+            runtimeFilter.insert(hashCode);
+          }
+          if (keyColumn != null) {
+            buildKeyFilter.insert(keyColumn, i);
+          }
           hashTable.put(i, htIndex, hashCode);
 
                         /* Use the global index returned by the hash table, to store
@@ -412,6 +545,577 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
     }
   }
 
+  /**
+   * Set up the filter over the values of a build key column, if it can be applied below the join: to an inner
+   * or right outer join, over a key column of the same type on both sides, which comes from a scan or a receiver
+   * (see {@link RuntimeFilterTarget}).
+   */
+  private void setupKeyFilter() {
+    if (joinType != JoinRelType.INNER && joinType != JoinRelType.RIGHT) {
+      return;
+    }
+    for (final JoinCondition condition : conditions) {
+      final MajorType probeType = getKeyType(left, condition.getLeft());
+      final MajorType buildType = getKeyType(right, condition.getRight());
+      if (probeType == null || buildType == null || probeType.getMinorType() != buildType.getMinorType() ||
+          !RuntimeFilter.isSupported(probeType) || !RuntimeFilter.isSupported(buildType)) {
+        continue;
+      }
+      final RuntimeFilterTarget target = RuntimeFilterTarget.find(popConfig.getLeft(),
+          ((SchemaPath) condition.getLeft()).getRootSegment().getPath());
+      if (target == null) {
+        continue;
+      }
+      final BloomFilter bits = new BloomFilter(oContext.getAllocator(),
+          (int) context.getOptions().getOption(ExecConstants.HASHJOIN_RUNTIME_FILTER_SIZE_VALIDATOR));
+      keyFilter = new RuntimeFilter(context.getHandle().getMajorFragmentId(), popConfig.getOperatorId(),
+          target.getField(), probeType.getMinorType(), bits);
+      buildKeyFilter = keyFilter.withField(((SchemaPath) condition.getRight()).getRootSegment().getPath());
+      keyFilterTarget = target;
+      return;
+    }
+  }
+
+  /**
+   * @return the type of the column of the batch a join key refers to, or null if the key is not a top level
+   * column of the batch
+   */
+  private static MajorType getKeyType(RecordBatch batch, LogicalExpression key) {
+    if (!(key instanceof SchemaPath) || !((SchemaPath) key).isSimplePath()) {
+      return null;
+    }
+    final TypedFieldId fieldId = batch.getValueVectorId((SchemaPath) key);
+    if (fieldId == null || fieldId.getFieldIds().length != 1) {
+      return null;
+    }
+    return fieldId.getFinalType();
+  }
+
+  /**
+   * @return the build key column of the given build batch the key filter is built over, or null if there is
+   * no key filter (it is dropped if the column is not found)
+   */
+  private ValueVector getBuildKeyColumn(VectorAccessible build) {
+    if (buildKeyFilter == null || cycleNum > 0) {
+      return null;
+    }
+    final ValueVector column = buildKeyFilter.getColumn(build);
+    if (column == null) {
+      logger.debug("HashJoin: build key {} not found, the runtime filter is not sent", buildKeyFilter.getField());
+      closeKeyFilter();
+    }
+    return column;
+  }
+
+  /**
+   * Hand the key filter, now that it holds all the build keys, to the scan it applies to, or send it to the
+   * senders of the receiver it applies to.
+   */
+  private void sendKeyFilter() {
+    if (keyFilter == null) {
+      return;
+    }
+    if (keyFilterTarget.getOperator() instanceof SubScan) {
+      // a scan of this fragment; the registry owns the filter from now on
+      context.getRuntimeFilters().addScanFilter(keyFilterTarget.getOperator().getOperatorId(), keyFilter);
+      keyFilter = null;
+      buildKeyFilter = null;
+      return;
+    }
+    final AbstractReceiver receiver = (AbstractReceiver) keyFilterTarget.getOperator();
+    // not charged to the operator, as the sends may complete after it closes
+    final DrillBuf body = keyFilter.serialize(context.getDrillbitContext().getAllocator());
+    try {
+      final FragmentHandle handlePrototype = FragmentHandle.newBuilder()
+          .setMajorFragmentId(receiver.getOppositeMajorFragmentId())
+          .setQueryId(context.getHandle().getQueryId())
+          .build();
+      for (final MinorFragmentEndpoint providingEndpoint : receiver.getProvidingEndpoints()) {
+        final FragmentHandle sender = FragmentHandle.newBuilder(handlePrototype)
+            .setMinorFragmentId(providingEndpoint.getId())
+            .build();
+        body.retain();
+        context.getControlTunnel(providingEndpoint.getEndpoint())
+            .sendRuntimeFilter(new RuntimeFilterListener(), sender, body);
+      }
+    } finally {
+      body.release();
+      closeKeyFilter();
+    }
+  }
+
+  private void closeKeyFilter() {
+    if (keyFilter != null) {
+      keyFilter.close();
+      keyFilter = null;
+      buildKeyFilter = null;
+    }
+  }
+
+  /**
+   * The runtime filter only saves work: a failure to send it is not an error.
+   */
+  private static class RuntimeFilterListener implements RpcOutcomeListener<Ack> {
+
+    @Override
+    public void failed(final RpcException ex) {
+      logger.warn("Failed to send the runtime filter of the hash join", ex);
+    }
+
+    @Override
+    public void success(final Ack value, final ByteBuf buffer) {
+      // Do nothing
+    }
+
+    @Override
+    public void interrupted(final InterruptedException e) {
+      logger.debug("Interrupted while sending the runtime filter of the hash join", e);
+    }
+  }
+
+  /**
+   * Compute the hash codes of all the rows of the current build batch.
+   */
+  private int[] computeBuildHashCodes(int recordCount) throws SchemaChangeException {
+    if (buildHashCodes.length < recordCount) {
+      buildHashCodes = new int[recordCount];
+    }
+    hashTable.computeHashCodes(recordCount, buildHashCodes, false);
+    return buildHashCodes;
+  }
+
+  /**
+   * Setup of the hybrid hash join: the number of partitions, the memory limit, and the staging
+   * container through which all the build batches pass (bound as the hash table's build side).
+   */
+  private void setupSpilling() {
+    numPartitions = BaseAllocator.nextPowerOfTwo(
+        (int) context.getOptions().getOption(ExecConstants.HASHJOIN_NUM_PARTITIONS_VALIDATOR)); // in case not a power of 2
+    final long configLimit = context.getOptions().getOption(ExecConstants.HASHJOIN_MAX_MEMORY_VALIDATOR);
+    memoryLimit = oContext.getAllocator().getLimit();
+    if (configLimit > 0) {
+      memoryLimit = Math.min(memoryLimit, configLimit);
+    }
+    spillSet = new SpillSet(context, popConfig);
+
+    if (leftUpstream == IterOutcome.OK_NEW_SCHEMA || leftUpstream == IterOutcome.OK) {
+      leftSchema = left.getSchema();
+    }
+    buildStaging = new VectorContainer(oContext);
+    for (final VectorWrapper<?> w : right) {
+      buildStaging.addOrGet(w.getField());
+    }
+    buildStaging.buildSchema(SelectionVectorMode.NONE);
+    buildStaging.setRecordCount(0);
+    buildStagingBatch = new SimpleRecordBatch(buildStaging, null, context);
+    buildStagingVectors = getVectors(buildStagingBatch);
+  }
+
+  /**
+   * Estimate the row widths from the first incoming batches, and reduce the number of partitions
+   * if their batches would take too much of the memory limit.
+   */
+  private void setupPartitions() {
+    if (right.getRecordCount() > 0) {
+      final RecordBatchSizer sizer = new RecordBatchSizer(right);
+      buildRowWidth = sizer.netRowWidth();
+      buildInitializer = sizer.buildVectorInitializer();
+    }
+    if (leftSchema != null && left.getRecordCount() > 0) {
+      final RecordBatchSizer sizer = new RecordBatchSizer(left);
+      probeRowWidth = sizer.netRowWidth();
+      probeInitializer = sizer.buildVectorInitializer();
+    }
+    while (numPartitions > 2 &&
+        (long) numPartitions * PARTITION_BATCH_SIZE * (buildRowWidth + probeRowWidth) > memoryLimit / 2) {
+      numPartitions /= 2;
+    }
+    partitionMask = numPartitions - 1; // e.g. 32 --> 0x1F
+    bitsInMask = Integer.bitCount(partitionMask); // e.g. 0x1F -> 5
+    logger.debug("HashJoin: {} partitions, memory limit {}, est. build row width {}, est. probe row width {}",
+        numPartitions, memoryLimit, buildRowWidth, probeRowWidth);
+    stats.setLongStat(Metric.NUM_PARTITIONS, numPartitions);
+  }
+
+  private HashJoinPartition[] createPartitions() {
+    final HashJoinPartition[] newPartitions = new HashJoinPartition[numPartitions];
+    for (int i = 0; i < numPartitions; i++) {
+      newPartitions[i] = new HashJoinPartition(i, cycleNum, PARTITION_BATCH_SIZE, oContext.getAllocator(), spillSet,
+          rightSchema, leftSchema, buildInitializer, probeInitializer);
+    }
+    return newPartitions;
+  }
+
+  /**
+   * The partition of a row; taken from the high bits of the hash code (the low bits select the
+   * bucket in the hash table), using the next group of bits in every spill cycle.
+   */
+  private int getPartition(int hashCode) {
+    return (hashCode >>> (Integer.SIZE - bitsInMask * (cycleNum + 1))) & partitionMask;
+  }
+
+  private void executeSpillableBuildPhase() throws SchemaChangeException {
+    setupPartitions();
+    partitions = createPartitions();
+
+    boolean moreData = true;
+    while (moreData) {
+      switch (rightUpstream) {
+      case OUT_OF_MEMORY:
+      case NONE:
+      case NOT_YET:
+      case STOP:
+        moreData = false;
+        continue;
+
+      case OK_NEW_SCHEMA:
+        if (!rightSchema.equals(right.getSchema())) {
+          throw SchemaChangeException.schemaChanged("Hash join does not support schema changes in build side.", rightSchema, right.getSchema());
+        }
+        // Fall through
+      case OK:
+        partitionBuildBatch(right);
+        break;
+      }
+      // Get the next record batch
+      rightUpstream = next(HashJoinHelper.RIGHT_INPUT, right);
+    }
+    finishBuildPhase();
+  }
+
+  /**
+   * Copy every row of the given build batch into its partition, then spill partitions
+   * if the memory limit is exceeded.
+   */
+  private void partitionBuildBatch(RecordBatch build) throws SchemaChangeException {
+    final int currentRecordCount = build.getRecordCount();
+    int fieldId = 0;
+    for (final VectorWrapper<?> w : build) {
+      w.transfer(buildStaging.getValueVector(fieldId++));
+    }
+    buildStaging.setRecordCount(currentRecordCount);
+    hashTable.updateBatches();
+
+    // The runtime filter is built (and used) in the first cycle only, over all the build rows
+    final boolean updateFilter = runtimeFilter != null && cycleNum == 0;
+    final int[] hashCodes = computeBuildHashCodes(currentRecordCount);
+    final ValueVector keyColumn = getBuildKeyColumn(buildStaging);
+    for (int i = 0; i < currentRecordCount; i++) {
+      final int hashCode = hashCodes[i];
+      if (updateFilter) {
+        runtimeFilter.insert(hashCode);
+      }
+      if (keyColumn != null) {
+        buildKeyFilter.insert(keyColumn, i);
+      }
+      partitions[getPartition(hashCode)].appendBuildRow(buildStagingVectors, i);
+    }
+    buildStaging.zeroVectors();
+    spillIfNeeded();
+  }
+
+  /**
+   * Spill the largest in-memory partitions until the memory in use, together with the estimated
+   * memory needed for the hash table and the probe phase, fits within the memory limit.
+   */
+  private void spillIfNeeded() {
+    while (oContext.getAllocator().getAllocatedMemory() + estimateMemoryNeeded() > memoryLimit) {
+      HashJoinPartition victim = null;
+      for (final HashJoinPartition partition : partitions) {
+        if (partition.getInMemoryBuildRows() > 0 &&
+            (victim == null || partition.getInMemoryBuildRows() > victim.getInMemoryBuildRows())) {
+          victim = partition;
+        }
+      }
+      if (victim == null) {
+        break; // nothing left in memory to spill
+      }
+      if (!victim.isSpilled()) {
+        numSpilledPartitions++;
+        stats.setLongStat(Metric.SPILLED_PARTITIONS, numSpilledPartitions);
+      }
+      logger.debug("HashJoin: Spilling partition {} (cycle {}) with {} rows", victim.getPartitionNum(), cycleNum,
+          victim.getInMemoryBuildRows());
+      victim.spill();
+    }
+  }
+
+  private long estimateMemoryNeeded() {
+    long inMemoryRows = 0;
+    for (final HashJoinPartition partition : partitions) {
+      inMemoryRows += partition.getInMemoryBuildRows();
+    }
+    // The hash table (including its copy of the keys) is built from the in-memory rows ...
+    final long hashTableSize = inMemoryRows * (HASH_TABLE_ROW_OVERHEAD + buildRowWidth);
+    // ... and while probing, an outgoing batch and a probe batch per (spilled) partition are allocated
+    final long probeSize = (long) OUTPUT_BATCH_SIZE * (buildRowWidth + probeRowWidth) +
+        (long) numPartitions * PARTITION_BATCH_SIZE * probeRowWidth;
+    return hashTableSize + probeSize;
+  }
+
+  /**
+   * Insert the rows of the partitions left in memory into the hash table (and the hyper container),
+   * and queue the spilled partitions for the later cycles.
+   */
+  private void finishBuildPhase() throws SchemaChangeException {
+    final IndexPointer htIndex = new IndexPointer();
+    currentCycleSpilled = false;
+
+    for (final HashJoinPartition partition : partitions) {
+      partition.completeBuild();
+      if (partition.isSpilled()) {
+        currentCycleSpilled = true;
+        spilledPartitions.addFirst(partition); // depth first, to keep the spilled data small
+        continue;
+      }
+      for (final VectorContainer batch : partition.takeBuildBatches()) {
+        final int currentRecordCount = batch.getRecordCount();
+        buildStaging.transferIn(batch);
+        buildStaging.setRecordCount(currentRecordCount);
+        batch.clear();
+        hashTable.updateBatches();
+
+        hjHelper.addNewBatch(currentRecordCount);
+        final int[] hashCodes = computeBuildHashCodes(currentRecordCount);
+        for (int i = 0; i < currentRecordCount; i++) {
+          final int hashCode = hashCodes[i];
+          hashTable.put(i, htIndex, hashCode);
+          hjHelper.setCurrentIndex(htIndex.value, buildBatchIndex, i);
+        }
+
+        final RecordBatchData nextBatch = new RecordBatchData(buildStaging, oContext.getAllocator());
+        boolean success = false;
+        try {
+          hyperContainer.addBatch(nextBatch.getContainer());
+          buildBatchIndex++;
+          success = true;
+        } finally {
+          if (!success) {
+            nextBatch.clear();
+          }
+        }
+      }
+      partition.close();
+    }
+  }
+
+  /**
+   * @return true if some partitions of the current cycle were spilled; the probe rows
+   * of those partitions are then spilled too (see {@link #spillProbeRowIfNeeded(int, int)})
+   */
+  public boolean hasSpilledPartitions() {
+    return currentCycleSpilled;
+  }
+
+  /**
+   * If the given probe row belongs to a spilled partition, copy it into that partition.
+   * @return true if the row was spilled (i.e., it would be joined in a later cycle)
+   */
+  public boolean spillProbeRowIfNeeded(int probeIndex, int hashCode) {
+    final HashJoinPartition partition = partitions[getPartition(hashCode)];
+    if (!partition.isSpilled()) {
+      return false;
+    }
+    partition.appendProbeRow(probeVectors, probeIndex);
+    return true;
+  }
+
+  /**
+   * @return the runtime filter to check the probe rows against, or null if there is none
+   * (the filter covers the incoming probe side, not the probe rows read back from spill files)
+   */
+  public BloomFilter getRuntimeFilter() {
+    return cycleNum == 0 ? runtimeFilter : null;
+  }
+
+  /**
+   * Called by the probe when a new probe schema was received (the probe vectors may have been replaced).
+   */
+  public void updateProbeVectors() {
+    if (spillEnabled) {
+      probeVectors = getVectors(probeSource);
+    }
+  }
+
+  /**
+   * Complete the current cycle, then start joining the next spilled partition (if any): its build
+   * side is read back and partitioned again, and its probe side is then probed like the incoming one.
+   * @return false if there are no more spilled partitions
+   */
+  private boolean startNextSpilledPartition() throws SchemaChangeException, ClassTransformationException, IOException {
+    if (!spillEnabled) {
+      return false;
+    }
+    if (currentCycleSpilled) {
+      for (final HashJoinPartition partition : partitions) {
+        partition.completeProbe();
+      }
+      currentCycleSpilled = false;
+    }
+    stats.setLongStat(Metric.SPILL_MB, // update stats - total MB spilled
+        (int) Math.round(spillSet.getWriteBytes() / 1024.0D / 1024.0));
+
+    while (!spilledPartitions.isEmpty()) {
+      final HashJoinPartition partition = spilledPartitions.removeFirst();
+      // Without probe rows, only the outer build rows (RIGHT and FULL joins) need to be returned
+      if (partition.getProbeRows() == 0 && (joinType == JoinRelType.INNER || joinType == JoinRelType.LEFT)) {
+        partition.close();
+        continue;
+      }
+      startSpilledCycle(partition);
+      return true;
+    }
+    return false;
+  }
+
+  private void startSpilledCycle(HashJoinPartition partition) throws SchemaChangeException, ClassTransformationException, IOException {
+    // Release the hash table, the build batches and the spill readers of the previous cycle
+    clearCycle();
+
+    cycleNum = partition.getCycleNum() + 1;
+    if (bitsInMask * (cycleNum + 1) > Integer.SIZE) {
+      partition.close();
+      throw UserException.resourceError()
+          .message("Hash Join ran out of memory: a spilled partition could not be split any further.")
+          .addContext("Partitions", numPartitions)
+          .addContext("Spill cycle", cycleNum)
+          .addContext("Memory limit", memoryLimit)
+          .build(logger);
+    }
+    if (cycleNum > maxCycleNum) {
+      maxCycleNum = cycleNum;
+      stats.setLongStat(Metric.SPILL_CYCLE, maxCycleNum);
+    }
+    logger.debug("HashJoin: Starting spill cycle {} for partition {} ({} build rows, {} probe rows)", cycleNum,
+        partition.getPartitionNum(), partition.getBuildRows(), partition.getProbeRows());
+
+    spilledBuildBatch = new SpilledRecordbatch(partition.getBuildSpillFile(), partition.getBuildSpilledBatches(),
+        context, rightSchema, oContext, spillSet);
+    if (partition.getProbeSpilledBatches() > 0) {
+      spilledProbeBatch = new SpilledRecordbatch(partition.getProbeSpillFile(), partition.getProbeSpilledBatches(),
+          context, leftSchema, oContext, spillSet);
+      probeSource = spilledProbeBatch;
+    } else {
+      probeSource = new EmptyProbeBatch(newContainer(leftSchema), context);
+    }
+    // the readers delete their files once read; the partition removes whatever is left
+    currentSpilledPartition = partition;
+
+    hjHelper = new HashJoinHelper(context, oContext.getAllocator());
+    hyperContainer = new ExpandableHyperContainer(newContainer(rightSchema));
+    hjHelper.addNewBatch(0);
+    buildBatchIndex = 1;
+    setupHashTable(buildStagingBatch, probeSource);
+
+    // Partition the spilled build side again (the reader has already loaded its first batch)
+    partitions = createPartitions();
+    IterOutcome outcome = IterOutcome.OK;
+    while (outcome == IterOutcome.OK) {
+      partitionBuildBatch(spilledBuildBatch);
+      outcome = spilledBuildBatch.next();
+    }
+    finishBuildPhase();
+
+    probeVectors = getVectors(probeSource);
+    hashJoinProbe.setupHashJoinProbe(context, hyperContainer, probeSource, probeSource.getRecordCount(), this,
+        hashTable, hjHelper, joinType);
+    updateStats(hashTable);
+  }
+
+  private void clearCycle() {
+    if (hashTable != null) {
+      hashTable.clear();
+      hashTable = null;
+    }
+    if (hjHelper != null) {
+      hjHelper.clear();
+      hjHelper = null;
+    }
+    if (hyperContainer != null) {
+      hyperContainer.clear();
+      hyperContainer = null;
+    }
+    if (spilledBuildBatch != null) {
+      spilledBuildBatch.close();
+      spilledBuildBatch = null;
+    }
+    if (spilledProbeBatch != null) {
+      spilledProbeBatch.close();
+      spilledProbeBatch = null;
+    }
+    if (probeSource instanceof EmptyProbeBatch) {
+      ((EmptyProbeBatch) probeSource).clear();
+    }
+    probeSource = null;
+    probeVectors = null;
+    if (currentSpilledPartition != null) {
+      currentSpilledPartition.close();
+      currentSpilledPartition = null;
+    }
+  }
+
+  private void closeSpilling() {
+    clearCycle();
+    if (partitions != null) {
+      for (final HashJoinPartition partition : partitions) {
+        partition.close();
+      }
+      partitions = null;
+    }
+    for (final HashJoinPartition partition : spilledPartitions) {
+      partition.close();
+    }
+    spilledPartitions.clear();
+    if (buildStaging != null) {
+      buildStaging.clear();
+    }
+    if (spillSet != null) {
+      stats.setLongStat(Metric.SPILL_MB, (int) Math.round(spillSet.getWriteBytes() / 1024.0D / 1024.0));
+      spillSet.close(); // delete the spill directories
+    }
+  }
+
+  private VectorContainer newContainer(BatchSchema schema) {
+    final VectorContainer vectors = new VectorContainer(oContext);
+    if (schema != null) {
+      for (final MaterializedField field : schema) {
+        vectors.addOrGet(field);
+      }
+    }
+    vectors.buildSchema(SelectionVectorMode.NONE);
+    vectors.setRecordCount(0);
+    return vectors;
+  }
+
+  private static ValueVector[] getVectors(RecordBatch batch) {
+    final List<ValueVector> vectors = new ArrayList<>();
+    for (final VectorWrapper<?> w : batch) {
+      vectors.add(w.getValueVector());
+    }
+    return vectors.toArray(new ValueVector[vectors.size()]);
+  }
+
+  /**
+   * The probe side of a spilled partition that has no probe rows (needed by RIGHT and FULL joins).
+   */
+  private static class EmptyProbeBatch extends SimpleRecordBatch {
+    private final VectorContainer container;
+
+    public EmptyProbeBatch(VectorContainer container, FragmentContext context) {
+      super(container, null, context);
+      this.container = container;
+    }
+
+    @Override
+    public IterOutcome next() {
+      return IterOutcome.NONE;
+    }
+
+    public void clear() {
+      container.clear();
+    }
+  }
+
   public HashJoinProbe setupHashJoinProbe() throws ClassTransformationException, IOException {
     final CodeGenerator<HashJoinProbe> cg = CodeGenerator.get(HashJoinProbe.TEMPLATE_DEFINITION, context.getFunctionRegistry(), context.getOptions());
     cg.plainJavaCapable(true);
@@ -537,6 +1241,14 @@ public class HashJoinBatch extends AbstractRecordBatch<HashJoinPOP> {
 
   @Override
   public void close() {
+    if (spillEnabled) {
+      closeSpilling();
+    }
+    if (runtimeFilter != null) {
+      runtimeFilter.close();
+      runtimeFilter = null;
+    }
+    closeKeyFilter();
     if (hjHelper != null) {
       hjHelper.clear();
     }
@@ -0,0 +1,347 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.join;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.cache.VectorAccessibleSerializable;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.physical.impl.spill.SpillSet;
+import org.apache.drill.exec.record.BatchSchema;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
+import org.apache.drill.exec.record.MaterializedField;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorInitializer;
+import org.apache.drill.exec.record.WritableBatch;
+import org.apache.drill.exec.vector.ValueVector;
+
+import com.google.common.base.Stopwatch;
+
+/**
+ * One partition of the hybrid hash join. Build (and, once spilled, probe) rows whose
+ * hash value maps to this partition are copied into small batches owned by the partition.
+ * <p>
+ * While the partition is in memory its build batches are kept in a list, and are later
+ * inserted into the hash table of the current join cycle. Once the partition is spilled,
+ * every completed build or probe batch is written to the partition's spill files; both
+ * files are read back (and partitioned again, using other hash bits) in a later cycle.
+ */
+public class HashJoinPartition {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(HashJoinPartition.class);
+
+  private final int partitionNum;
+  private final int cycleNum;
+  private final int batchRows;
+  private final BufferAllocator allocator;
+  private final SpillSet spillSet;
+  private final BatchSchema buildSchema;
+  private final BatchSchema probeSchema;
+  // column widths observed in the incoming batches, to pre-allocate the partition batches
+  private final VectorInitializer buildInitializer;
+  private final VectorInitializer probeInitializer;
+
+  // Completed in-memory build batches (only while this partition is not spilled)
+  private final List<VectorContainer> buildBatches = new ArrayList<>();
+  private VectorContainer currentBuild;
+  private ValueVector[] currentBuildVectors;
+  private VectorContainer currentProbe;
+  private ValueVector[] currentProbeVectors;
+
+  private long buildRows;
+  private long inMemoryBuildRows;
+  private long probeRows;
+
+  private boolean spilled;
+  private String buildSpillFile;
+  private OutputStream buildStream;
+  private int buildSpilledBatches;
+  private String probeSpillFile;
+  private OutputStream probeStream;
+  private int probeSpilledBatches;
+
+  public HashJoinPartition(int partitionNum, int cycleNum, int batchRows, BufferAllocator allocator, SpillSet spillSet,
+                           BatchSchema buildSchema, BatchSchema probeSchema,
+                           VectorInitializer buildInitializer, VectorInitializer probeInitializer) {
+    this.partitionNum = partitionNum;
+    this.cycleNum = cycleNum;
+    this.batchRows = batchRows;
+    this.allocator = allocator;
+    this.spillSet = spillSet;
+    this.buildSchema = buildSchema;
+    this.probeSchema = probeSchema;
+    this.buildInitializer = buildInitializer;
+    this.probeInitializer = probeInitializer;
+  }
+
+  public int getPartitionNum() { return partitionNum; }
+
+  public int getCycleNum() { return cycleNum; }
+
+  public boolean isSpilled() { return spilled; }
+
+  public long getBuildRows() { return buildRows; }
+
+  public long getInMemoryBuildRows() { return inMemoryBuildRows; }
+
+  public long getProbeRows() { return probeRows; }
+
+  public String getBuildSpillFile() { return buildSpillFile; }
+
+  public int getBuildSpilledBatches() { return buildSpilledBatches; }
+
+  public String getProbeSpillFile() { return probeSpillFile; }
+
+  public int getProbeSpilledBatches() { return probeSpilledBatches; }
+
+  /**
+   * Copy one build row into this partition; the source vectors must be in build schema order.
+   */
+  public void appendBuildRow(ValueVector[] from, int fromIndex) {
+    if (currentBuild == null) {
+      currentBuild = allocateBatch(buildSchema, buildInitializer);
+      currentBuildVectors = getVectors(currentBuild);
+    }
+    final int toIndex = currentBuild.getRecordCount();
+    for (int i = 0; i < from.length; i++) {
+      currentBuildVectors[i].copyEntry(toIndex, from[i], fromIndex);
+    }
+    currentBuild.setRecordCount(toIndex + 1);
+    buildRows++;
+    if (!spilled) {
+      inMemoryBuildRows++;
+    }
+    if (toIndex + 1 == batchRows) {
+      completeBuildBatch();
+    }
+  }
+
+  /**
+   * Copy one probe row into this (spilled) partition; the source vectors must be in probe schema order.
+   */
+  public void appendProbeRow(ValueVector[] from, int fromIndex) {
+    assert spilled;
+    if (currentProbe == null) {
+      currentProbe = allocateBatch(probeSchema, probeInitializer);
+      currentProbeVectors = getVectors(currentProbe);
+    }
+    final int toIndex = currentProbe.getRecordCount();
+    for (int i = 0; i < from.length; i++) {
+      currentProbeVectors[i].copyEntry(toIndex, from[i], fromIndex);
+    }
+    currentProbe.setRecordCount(toIndex + 1);
+    probeRows++;
+    if (toIndex + 1 == batchRows) {
+      probeSpilledBatches += writeBatch(currentProbe, probeStream, probeSpillFile);
+      currentProbe = null;
+    }
+  }
+
+  /**
+   * Write all the build rows held in memory to a spill file, and free their memory.
+   * From now on every completed build or probe batch of this partition goes to disk.
+   */
+  public void spill() {
+    if (!spilled) {
+      buildSpillFile = spillSet.getNextSpillFile(spillFileName("build"));
+      probeSpillFile = spillSet.getNextSpillFile(spillFileName("probe"));
+      buildStream = openForOutput(buildSpillFile);
+      probeStream = openForOutput(probeSpillFile);
+      spilled = true;
+    }
+    for (VectorContainer batch : buildBatches) {
+      buildSpilledBatches += writeBatch(batch, buildStream, buildSpillFile);
+    }
+    buildBatches.clear();
+    if (currentBuild != null) {
+      buildSpilledBatches += writeBatch(currentBuild, buildStream, buildSpillFile);
+      currentBuild = null;
+    }
+    inMemoryBuildRows = 0;
+    logger.trace("HASH JOIN: Spilled partition {} (cycle {}), {} build batches so far", partitionNum, cycleNum,
+        buildSpilledBatches);
+  }
+
+  /**
+   * Called once all the build rows were appended: completes the last build batch.
+   */
+  public void completeBuild() {
+    if (currentBuild != null) {
+      completeBuildBatch();
+    }
+    if (spilled) {
+      buildStream = closeStream(buildStream);
+    }
+  }
+
+  /**
+   * Called once all the probe rows were appended: completes the last probe batch.
+   */
+  public void completeProbe() {
+    if (!spilled) {
+      return;
+    }
+    if (currentProbe != null) {
+      probeSpilledBatches += writeBatch(currentProbe, probeStream, probeSpillFile);
+      currentProbe = null;
+    }
+    probeStream = closeStream(probeStream);
+  }
+
+  /**
+   * Hand over the in-memory build batches (e.g. to be inserted into a hash table); the caller
+   * owns the returned containers.
+   */
+  public List<VectorContainer> takeBuildBatches() {
+    final List<VectorContainer> batches = new ArrayList<>(buildBatches);
+    buildBatches.clear();
+    inMemoryBuildRows = 0;
+    return batches;
+  }
+
+  /**
+   * Free any memory held, and delete the spill files (if any).
+   */
+  public void close() {
+    for (VectorContainer batch : buildBatches) {
+      batch.clear();
+    }
+    buildBatches.clear();
+    if (currentBuild != null) {
+      currentBuild.clear();
+      currentBuild = null;
+    }
+    if (currentProbe != null) {
+      currentProbe.clear();
+      currentProbe = null;
+    }
+    buildStream = closeStream(buildStream);
+    probeStream = closeStream(probeStream);
+    deleteFile(buildSpillFile);
+    deleteFile(probeSpillFile);
+    buildSpillFile = null;
+    probeSpillFile = null;
+  }
+
+  private void completeBuildBatch() {
+    if (spilled) {
+      buildSpilledBatches += writeBatch(currentBuild, buildStream, buildSpillFile);
+    } else {
+      setValueCount(currentBuild);
+      buildBatches.add(currentBuild);
+    }
+    currentBuild = null;
+  }
+
+  private String spillFileName(String side) {
+    return String.format("%s_%d_%d", side, cycleNum, partitionNum);
+  }
+
+  private VectorContainer allocateBatch(BatchSchema schema, VectorInitializer initializer) {
+    final VectorContainer container = new VectorContainer(allocator);
+    for (MaterializedField field : schema) {
+      container.addOrGet(field);
+    }
+    container.buildSchema(SelectionVectorMode.NONE);
+    initializer.allocateBatch(container, batchRows);
+    container.setRecordCount(0);
+    return container;
+  }
+
+  private static ValueVector[] getVectors(VectorContainer container) {
+    final ValueVector[] vectors = new ValueVector[container.getNumberOfColumns()];
+    for (int i = 0; i < vectors.length; i++) {
+      vectors[i] = container.getValueVector(i).getValueVector();
+    }
+    return vectors;
+  }
+
+  private static void setValueCount(VectorContainer container) {
+    final int recordCount = container.getRecordCount();
+    for (int i = 0; i < container.getNumberOfColumns(); i++) {
+      container.getValueVector(i).getValueVector().getMutator().setValueCount(recordCount);
+    }
+  }
+
+  /**
+   * Serialize the given batch into the output stream; the batch memory is released.
+   * @return the number of batches written (0 or 1)
+   */
+  private int writeBatch(VectorContainer batch, OutputStream outputStream, String fileName) {
+    final int recordCount = batch.getRecordCount();
+    if (recordCount == 0) {
+      batch.clear();
+      return 0;
+    }
+    setValueCount(batch);
+    final WritableBatch writableBatch = WritableBatch.getBatchNoHVWrap(recordCount, batch, false);
+    final VectorAccessibleSerializable outputBatch = new VectorAccessibleSerializable(writableBatch, allocator);
+    final Stopwatch watch = Stopwatch.createStarted();
+    try {
+      outputBatch.writeToStream(outputStream);
+    } catch (IOException ioe) {
+      throw UserException.dataWriteError(ioe)
+          .message("Hash Join failed to write to spill file: " + fileName)
+          .build(logger);
+    } finally {
+      batch.clear();
+    }
+    logger.trace("HASH JOIN: Took {} us to spill {} records", watch.elapsed(TimeUnit.MICROSECONDS), recordCount);
+    return 1;
+  }
+
+  private OutputStream openForOutput(String fileName) {
+    try {
+      return spillSet.openForOutput(fileName);
+    } catch (IOException ioe) {
+      throw UserException.resourceError(ioe)
+          .message("Hash Join failed to open spill file: " + fileName)
+          .build(logger);
+    }
+  }
+
+  private OutputStream closeStream(OutputStream outputStream) {
+    if (outputStream == null) {
+      return null;
+    }
+    spillSet.tallyWriteBytes(spillSet.getPosition(outputStream)); // for the IO stats
+    try {
+      outputStream.close();
+    } catch (IOException ioe) {
+      throw UserException.resourceError(ioe)
+          .message("IO Error while closing a Hash Join spill file")
+          .build(logger);
+    }
+    return null;
+  }
+
+  private void deleteFile(String fileName) {
+    if (fileName == null) {
+      return;
+    }
+    try {
+      spillSet.delete(fileName);
+    } catch (IOException e) {
+      logger.warn("Cleanup: Failed to delete spill file {}", fileName);
+    }
+  }
+}
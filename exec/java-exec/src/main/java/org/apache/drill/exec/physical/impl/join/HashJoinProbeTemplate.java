@@ -25,6 +25,7 @@ import javax.inject.Named;
 import org.apache.drill.exec.exception.ClassTransformationException;
 import org.apache.drill.exec.exception.SchemaChangeException;
 import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.physical.impl.common.BloomFilter;
 import org.apache.drill.exec.physical.impl.common.HashTable;
 import org.apache.drill.exec.record.BatchSchema;
 import org.apache.drill.exec.record.RecordBatch;
@@ -80,6 +81,23 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
   // For outer or right joins, this is a list of unmatched records that needs to be projected
   private List<Integer> unmatchedBuildIndexes = null;
 
+  // Hybrid hash join: probe rows of spilled partitions are spilled, to be joined in a later cycle
+  private boolean spilledPartitions = false;
+
+  // Filter over the build side keys; probe rows it rejects have no match in the build side
+  private BloomFilter runtimeFilter = null;
+
+  // Number of probe records rejected by the runtime filter
+  private long runtimeFilteredRecords = 0;
+
+  // Hash codes of the records of the current probe batch (computed for the whole batch at once)
+  private int[] probeHashCodes = new int[0];
+
+  // Hash table indexes of the keys matching the current probe batch records (or -1); looked up for
+  // the whole batch when every record is probed (no runtime filter and no spilled partitions)
+  private int[] probeMatches = new int[0];
+  private boolean batchLookup = false;
+
   @Override
   public void setupHashJoinProbe(FragmentContext context, VectorContainer buildBatch, RecordBatch probeBatch,
                                  int probeRecordCount, HashJoinBatch outgoing, HashTable hashTable,
@@ -93,8 +111,41 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
     this.hashTable = hashTable;
     this.hjHelper = hjHelper;
     this.outgoingJoinBatch = outgoing;
+    this.spilledPartitions = outgoing.hasSpilledPartitions();
+    this.runtimeFilter = outgoing.getRuntimeFilter();
+
+    // Reset the probe state (the hybrid hash join probes once per spill cycle)
+    this.recordsProcessed = 0;
+    this.getNextRecord = true;
+    this.currentCompositeIdx = -1;
+    this.probeState = ProbeState.PROBE_PROJECT;
+    this.unmatchedBuildIndexes = null;
 
     doSetup(context, buildBatch, probeBatch, outgoing);
+    prepareProbeBatch();
+  }
+
+  /**
+   * Compute the hash codes of all the records of a new probe batch and, when all the records
+   * are probed, look them all up in the hash table.
+   */
+  private void prepareProbeBatch() {
+    if (hashTable == null || recordsToProcess == 0) {
+      return;
+    }
+    if (probeHashCodes.length < recordsToProcess) {
+      probeHashCodes = new int[recordsToProcess];
+      probeMatches = new int[recordsToProcess];
+    }
+    batchLookup = runtimeFilter == null && !spilledPartitions;
+    try {
+      hashTable.computeHashCodes(recordsToProcess, probeHashCodes, true);
+      if (batchLookup) {
+        hashTable.containsKeys(recordsToProcess, probeHashCodes, probeMatches, true);
+      }
+    } catch (SchemaChangeException e) {
+      throw new UnsupportedOperationException("Unexpected schema change", e);
+    }
   }
 
   public void executeProjectRightPhase() {
@@ -137,6 +188,7 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
             if (probeBatch.getSchema().equals(probeSchema)) {
               doSetup(outgoingJoinBatch.getContext(), buildBatch, probeBatch, outgoingJoinBatch);
               hashTable.updateBatches();
+              outgoingJoinBatch.updateProbeVectors();
             } else {
               throw SchemaChangeException.schemaChanged("Hash join does not support schema changes in probe side.",
                   probeSchema,
@@ -149,6 +201,7 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
             if (recordsToProcess == 0) {
               continue;
             }
+            prepareProbeBatch();
         }
       }
       int probeIndex = -1;
@@ -156,7 +209,26 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
       // Check if we need to drain the next row in the probe side
       if (getNextRecord) {
         if (hashTable != null) {
-          probeIndex = hashTable.containsKey(recordsProcessed, true);
+          final int hashCode = probeHashCodes[recordsProcessed];
+
+          if (runtimeFilter != null && !runtimeFilter.mightContain(hashCode)) {
+            // No build row has this key; only a left outer join projects the row
+            if (joinType == JoinRelType.LEFT || joinType == JoinRelType.FULL) {
+              projectProbeRecord(recordsProcessed, outputRecords);
+              outputRecords++;
+            }
+            runtimeFilteredRecords++;
+            recordsProcessed++;
+            continue;
+          }
+
+          if (spilledPartitions && outgoingJoinBatch.spillProbeRowIfNeeded(recordsProcessed, hashCode)) {
+            // This row belongs to a spilled partition, it would be joined in a later cycle
+            recordsProcessed++;
+            continue;
+          }
+
+          probeIndex = batchLookup ? probeMatches[recordsProcessed] : hashTable.containsKey(recordsProcessed, hashCode, true);
         }
 
           if (probeIndex != -1) {
@@ -217,6 +289,11 @@ public abstract class HashJoinProbeTemplate implements HashJoinProbe {
     }
   }
 
+  @Override
+  public long getRuntimeFilteredRecords() {
+    return runtimeFilteredRecords;
+  }
+
   public int probeAndProject() throws SchemaChangeException, ClassTransformationException, IOException {
 
     outputRecords = 0;
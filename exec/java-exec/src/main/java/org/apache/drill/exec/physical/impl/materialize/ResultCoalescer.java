@@ -0,0 +1,41 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.materialize;
+
+import org.apache.drill.exec.compile.TemplateClassDefinition;
+import org.apache.drill.exec.exception.SchemaChangeException;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.VectorContainer;
+
+/**
+ * Appends the records of small batches of results to a batch sent to the client once large enough. The coalescing
+ * is done by the screen alone: the clients read the coalesced batches as they read any other batch.
+ */
+public interface ResultCoalescer {
+  public static TemplateClassDefinition<ResultCoalescer> TEMPLATE_DEFINITION =
+      new TemplateClassDefinition<>(ResultCoalescer.class, ResultCoalescerTemplate.class);
+
+  public void setup(FragmentContext context, RecordBatch incoming, VectorContainer outgoing) throws SchemaChangeException;
+
+  /**
+   * Appends the records of the incoming batch to the outgoing vectors, reallocated as needed.
+   * @param outIndex index of the first appended record in the outgoing vectors
+   */
+  public void append(int outIndex) throws SchemaChangeException;
+}
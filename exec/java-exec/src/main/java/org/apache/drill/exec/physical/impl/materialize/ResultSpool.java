@@ -0,0 +1,203 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.materialize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.cache.VectorSerializer;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.physical.base.PhysicalOperator;
+import org.apache.drill.exec.physical.impl.spill.SpillSet;
+import org.apache.drill.exec.proto.UserBitShared.QueryData;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.WritableBatch;
+
+/**
+ * Spool of the results of a query on the local disk of the drillbit of the screen, in the spill format. The batches
+ * of results are written to the spool as they come, so that the operators of the query complete (and release their
+ * resources) whatever the pace of the client, and are then read back one at a time as the client takes them. The
+ * screen, and so the root fragment with its allocator, stays until the client took them all.
+ * <p>
+ * If the client disconnects before, the spool is detached from the screen and kept by the {@link ResultSpools} of
+ * the drillbit, for the client to resume the delivery of the results from the first batch it did not acknowledge.
+ */
+public class ResultSpool implements AutoCloseable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ResultSpool.class);
+
+  private final SpillSet spillSet;
+  private BufferAllocator allocator;
+  // the allocator of the drillbit the spool reads with once detached from the screen, closed with the spool
+  private BufferAllocator detachedAllocator;
+  private final String fileName;
+  private OutputStream outputStream;
+  private VectorSerializer.Writer writer;
+  private InputStream inputStream;
+  private VectorSerializer.Reader reader;
+  private int writtenBatches;
+  private int readBatches;
+  // batches acknowledged by the client
+  private final AtomicInteger deliveredBatches = new AtomicInteger();
+
+  public ResultSpool(FragmentContext context, PhysicalOperator popConfig, BufferAllocator allocator) {
+    this.spillSet = new SpillSet(context, popConfig);
+    this.allocator = allocator;
+    this.fileName = spillSet.getNextSpillFile("results");
+  }
+
+  /**
+   * Writes a batch of results to the spool; the buffers of the batch are released.
+   */
+  public void write(WritableBatch batch) {
+    try {
+      if (writer == null) {
+        outputStream = spillSet.openForOutput(fileName);
+        writer = VectorSerializer.writer(allocator, outputStream);
+      }
+      writer.write(batch, null);
+      writtenBatches++;
+    } catch (IOException e) {
+      batch.clear();
+      throw UserException.dataWriteError(e)
+          .message("Failed to write the results to the spool file: " + fileName)
+          .build(logger);
+    }
+  }
+
+  /**
+   * @return whether batches of results remain to be read from the spool
+   */
+  public boolean hasNext() {
+    return readBatches < writtenBatches;
+  }
+
+  /**
+   * Reads the next batch of results from the spool, once all the results were written.
+   */
+  public QueryWritableBatch next(QueryId queryId) {
+    try {
+      if (reader == null) {
+        closeOutput();
+        inputStream = spillSet.openForInput(fileName);
+        reader = VectorSerializer.reader(allocator, inputStream);
+        // skip the batches already delivered, when resumed
+        for (int i = 0; i < readBatches; i++) {
+          reader.read().clear();
+        }
+      }
+      final VectorContainer container = reader.read();
+      readBatches++;
+      final WritableBatch batch = WritableBatch.getBatchNoHVWrap(container.getRecordCount(), container, false);
+      final QueryData header = QueryData.newBuilder()
+          .setQueryId(queryId)
+          .setRowCount(container.getRecordCount())
+          .setDef(batch.getDef())
+          .build();
+      return new QueryWritableBatch(header, batch.getBuffers());
+    } catch (IOException e) {
+      throw UserException.dataReadError(e)
+          .message("Failed to read the results from the spool file: " + fileName)
+          .build(logger);
+    }
+  }
+
+  /**
+   * Counts a batch read from the spool as acknowledged by the client.
+   */
+  public void delivered() {
+    deliveredBatches.incrementAndGet();
+  }
+
+  /**
+   * @return whether the client did not acknowledge all the batches of results
+   */
+  public boolean isUndelivered() {
+    return deliveredBatches.get() < writtenBatches;
+  }
+
+  /**
+   * Detaches the spool from the screen, whose allocator closes with its fragment: the remaining results are read with
+   * the given allocator, which the spool then closes.
+   */
+  void detach(BufferAllocator allocator) {
+    this.allocator = allocator;
+    detachedAllocator = allocator;
+    rewind();
+  }
+
+  boolean isDetached() {
+    return detachedAllocator != null;
+  }
+
+  /**
+   * Rewinds the spool to the first batch the client did not acknowledge, read again on the next call to
+   * {@link #next}.
+   */
+  void rewind() {
+    try {
+      closeOutput();
+      closeInput();
+    } catch (IOException e) {
+      logger.warn("Failed to close the spool file {}", fileName, e);
+    }
+    reader = null;
+    readBatches = deliveredBatches.get();
+  }
+
+  public long getWriteBytes() {
+    return spillSet.getWriteBytes();
+  }
+
+  public int getWrittenBatches() {
+    return writtenBatches;
+  }
+
+  private void closeOutput() throws IOException {
+    if (outputStream != null) {
+      spillSet.tallyWriteBytes(spillSet.getPosition(outputStream));
+      outputStream.close();
+      outputStream = null;
+    }
+  }
+
+  private void closeInput() throws IOException {
+    if (inputStream != null) {
+      inputStream.close();
+      inputStream = null;
+    }
+  }
+
+  @Override
+  public void close() {
+    try {
+      closeOutput();
+      closeInput();
+    } catch (IOException e) {
+      logger.warn("Failed to close the spool file {}", fileName, e);
+    }
+    spillSet.close();
+    if (detachedAllocator != null) {
+      detachedAllocator.close();
+    }
+  }
+}
@@ -0,0 +1,154 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.materialize;
+
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.proto.helper.QueryIdHelper;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The spooled results of the queries whose client disconnected before it took them all, kept by the drillbit of the
+ * screen for the client to resume their delivery after a reconnect, until their time to live expires. The expired
+ * spools are dropped as spools are added or taken, and the remaining ones when the drillbit closes.
+ */
+public class ResultSpools implements AutoCloseable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ResultSpools.class);
+
+  private final BufferAllocator allocator;
+  private final Map<QueryId, Entry> spools = Maps.newHashMap();
+
+  private static class Entry {
+    private final ResultSpool spool;
+    private final String userName;
+    private final long expiryMillis;
+
+    private Entry(ResultSpool spool, String userName, long expiryMillis) {
+      this.spool = spool;
+      this.userName = userName;
+      this.expiryMillis = expiryMillis;
+    }
+  }
+
+  /**
+   * @param allocator allocator of the drillbit, parent of those the kept spools read with
+   */
+  public ResultSpools(BufferAllocator allocator) {
+    this.allocator = allocator;
+  }
+
+  /**
+   * Keeps the spool of a query, rewound to the first batch the client did not acknowledge; the spool is closed once
+   * taken and delivered, or once expired.
+   *
+   * @param queryId query of the results
+   * @param userName user of the query, the only one who may resume the delivery
+   * @param spool spool of the results
+   * @param ttlMillis time the spool is kept
+   */
+  public void add(QueryId queryId, String userName, ResultSpool spool, long ttlMillis) {
+    if (spool.isDetached()) {
+      spool.rewind();
+    } else {
+      spool.detach(allocator.newChildAllocator("result-spool:" + QueryIdHelper.getQueryId(queryId), 0,
+          Long.MAX_VALUE));
+    }
+    final long now = System.currentTimeMillis();
+    final List<ResultSpool> expired;
+    final Entry previous;
+    synchronized (this) {
+      expired = removeExpired(now);
+      previous = spools.put(queryId, new Entry(spool, userName, now + ttlMillis));
+    }
+    if (previous != null) {
+      expired.add(previous.spool);
+    }
+    close(expired);
+    logger.debug("Kept the spooled results of query {} for {} ms", QueryIdHelper.getQueryId(queryId), ttlMillis);
+  }
+
+  /**
+   * Takes the spool of a query, for the delivery of its remaining results.
+   *
+   * @param queryId query of the results
+   * @param userName user resuming the delivery
+   * @return the spool
+   * @throws UserException if no results of the query are kept, or they are kept for another user
+   */
+  public ResultSpool take(QueryId queryId, String userName) {
+    final List<ResultSpool> expired;
+    final Entry entry;
+    synchronized (this) {
+      expired = removeExpired(System.currentTimeMillis());
+      entry = spools.get(queryId);
+      if (entry != null && entry.userName.equals(userName)) {
+        spools.remove(queryId);
+      }
+    }
+    close(expired);
+    if (entry == null) {
+      throw UserException.validationError()
+          .message("No spooled results are kept for query %s on this drillbit.", QueryIdHelper.getQueryId(queryId))
+          .build(logger);
+    }
+    if (!entry.userName.equals(userName)) {
+      throw UserException.permissionError()
+          .message("The spooled results of query %s belong to another user.", QueryIdHelper.getQueryId(queryId))
+          .build(logger);
+    }
+    return entry.spool;
+  }
+
+  private List<ResultSpool> removeExpired(long now) {
+    final List<ResultSpool> expired = Lists.newArrayList();
+    for (Iterator<Entry> iterator = spools.values().iterator(); iterator.hasNext(); ) {
+      final Entry entry = iterator.next();
+      if (entry.expiryMillis <= now) {
+        expired.add(entry.spool);
+        iterator.remove();
+      }
+    }
+    return expired;
+  }
+
+  private static void close(List<ResultSpool> spools) {
+    for (ResultSpool spool : spools) {
+      spool.close();
+    }
+  }
+
+  @Override
+  public void close() {
+    final List<ResultSpool> remaining;
+    synchronized (this) {
+      remaining = Lists.newArrayList();
+      for (Entry entry : spools.values()) {
+        remaining.add(entry.spool);
+      }
+      spools.clear();
+    }
+    close(remaining);
+  }
+}
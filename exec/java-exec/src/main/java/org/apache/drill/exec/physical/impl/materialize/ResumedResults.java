@@ -0,0 +1,145 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.materialize;
+
+import io.netty.buffer.ByteBuf;
+
+import java.util.concurrent.Executor;
+
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.proto.UserBitShared.QueryResult;
+import org.apache.drill.exec.proto.UserBitShared.QueryResult.QueryState;
+import org.apache.drill.exec.proto.helper.QueryIdHelper;
+import org.apache.drill.exec.rpc.RpcException;
+import org.apache.drill.exec.rpc.RpcOutcomeListener;
+import org.apache.drill.exec.rpc.UserClientConnection;
+
+/**
+ * Sends the remaining results of a kept spool to the client which resumed their delivery: one batch at a time, as the
+ * client acknowledges the previous one, then the completion of the query. If the connection fails again, the spool is
+ * kept again for the client to resume once more.
+ */
+public class ResumedResults implements Runnable {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ResumedResults.class);
+
+  private final UserClientConnection connection;
+  private final QueryId queryId;
+  private final ResultSpool spool;
+  private final ResultSpools spools;
+  private final long ttlMillis;
+  private final Executor executor;
+
+  /**
+   * @param connection connection of the client
+   * @param queryId query of the results
+   * @param spool spool taken from the kept ones
+   * @param spools the kept spools of the drillbit
+   * @param ttlMillis time the spool is kept again if the connection fails
+   * @param executor executor the batches are read and sent on
+   */
+  public ResumedResults(UserClientConnection connection, QueryId queryId, ResultSpool spool, ResultSpools spools,
+                        long ttlMillis, Executor executor) {
+    this.connection = connection;
+    this.queryId = queryId;
+    this.spool = spool;
+    this.spools = spools;
+    this.ttlMillis = ttlMillis;
+    this.executor = executor;
+  }
+
+  @Override
+  public void run() {
+    final QueryWritableBatch batch;
+    try {
+      if (!spool.hasNext()) {
+        sendResult(QueryResult.newBuilder()
+            .setQueryId(queryId)
+            .setQueryState(QueryState.COMPLETED)
+            .build());
+        return;
+      }
+      batch = spool.next(queryId);
+    } catch (UserException e) {
+      sendResult(QueryResult.newBuilder()
+          .setQueryId(queryId)
+          .setQueryState(QueryState.FAILED)
+          .addError(e.getOrCreatePBError(false))
+          .build());
+      return;
+    }
+
+    connection.sendData(new RpcOutcomeListener<Ack>() {
+      @Override
+      public void failed(RpcException ex) {
+        suspend(ex);
+      }
+
+      @Override
+      public void success(Ack value, ByteBuf buffer) {
+        spool.delivered();
+        executor.execute(ResumedResults.this);
+      }
+
+      @Override
+      public void interrupted(InterruptedException e) {
+        suspend(e);
+      }
+    }, batch);
+  }
+
+  /**
+   * Sends the final state of the query, then closes the spool.
+   */
+  private void sendResult(final QueryResult result) {
+    connection.sendResult(new RpcOutcomeListener<Ack>() {
+      @Override
+      public void failed(RpcException ex) {
+        if (result.getQueryState() == QueryState.COMPLETED) {
+          suspend(ex);
+        } else {
+          spool.close();
+        }
+      }
+
+      @Override
+      public void success(Ack value, ByteBuf buffer) {
+        spool.close();
+      }
+
+      @Override
+      public void interrupted(InterruptedException e) {
+        spool.close();
+      }
+    }, result);
+  }
+
+  /**
+   * Keeps the spool again, from the first batch the client did not acknowledge.
+   */
+  private void suspend(Exception e) {
+    logger.info("The delivery of the spooled results of query {} was interrupted", QueryIdHelper.getQueryId(queryId),
+        e);
+    if (ttlMillis > 0) {
+      spools.add(queryId, connection.getSession().getCredentials().getUserName(), spool, ttlMillis);
+    } else {
+      spool.close();
+    }
+  }
+}
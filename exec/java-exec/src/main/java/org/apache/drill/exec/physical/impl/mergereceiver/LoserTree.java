@@ -0,0 +1,181 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.mergereceiver;
+
+/**
+ * Tournament (loser) tree over the heads of a fixed number of sorted streams, identified by their index. The tree only
+ * holds the indexes of the streams: comparing the heads of two streams is left to {@link #compare(int, int)}.
+ * <p>
+ * Each internal node holds the loser of the match played at that node, the overall winner is held apart. Once the
+ * head of the winning stream changed (it advanced, or the stream ended), {@link #replay(int)} replays the matches on
+ * the path from its leaf to the root only: log(n) comparisons, no allocation. An ended stream loses all its matches.
+ * <p>
+ * A stream that wins twice in a row likely holds a run of records: {@link #takeRun(int, int, int)} finds the records
+ * of the winner that can be taken at once, before its matches are replayed.
+ */
+abstract class LoserTree {
+
+  private final int size;
+  // tree[0] holds the winner, tree[1..size - 1] the losers of the internal nodes. The leaf of stream i is size + i.
+  private final int[] tree;
+  private final boolean[] ended;
+  // the winner of the last call to takeRun()
+  private int previousWinner = -1;
+
+  LoserTree(int size) {
+    this.size = size;
+    this.tree = new int[Math.max(size, 1)];
+    this.ended = new boolean[size];
+    this.tree[0] = -1;
+  }
+
+  /**
+   * Compares the heads of two streams that did not end.
+   *
+   * @return a negative integer, zero or a positive integer as the head of the left stream is less than, equal to or
+   *         greater than the head of the right stream
+   */
+  protected abstract int compare(int left, int right);
+
+  /**
+   * Compares a record of a stream, past its head, with the head of another stream that did not end.
+   *
+   * @param stream the stream of the record
+   * @param index index of the record in the stream
+   * @param other the other stream
+   * @return a negative integer, zero or a positive integer as the record is less than, equal to or greater than the
+   *         head of the other stream
+   */
+  protected abstract int compareToHead(int stream, int index, int other);
+
+  /**
+   * Marks a stream as ended before the tree is built.
+   */
+  void end(int stream) {
+    ended[stream] = true;
+  }
+
+  /**
+   * Plays all the matches, once the first head of every stream is known.
+   */
+  void build() {
+    tree[0] = size == 0 ? -1 : play(1);
+  }
+
+  /**
+   * @return the stream holding the least head, or -1 if all the streams ended
+   */
+  int winner() {
+    final int winner = tree[0];
+    return winner == -1 || ended[winner] ? -1 : winner;
+  }
+
+  /**
+   * Finds the stream holding the least head but the one of the winner. That stream lost its match against the winner,
+   * so it is one of the losers on the path of the winner.
+   *
+   * @return the runner up, or -1 if the winner is the only stream that did not end
+   */
+  int runnerUp() {
+    int runnerUp = -1;
+    for (int node = (size + tree[0]) >>> 1; node > 0; node >>>= 1) {
+      final int loser = tree[node];
+      if (runnerUp == -1 ? !ended[loser] : less(loser, runnerUp)) {
+        runnerUp = loser;
+      }
+    }
+    return runnerUp;
+  }
+
+  /**
+   * Finds the records of the winning stream to take, starting with its head. A single record unless the stream won the
+   * previous match too: then its records up to the first one greater than the head of the runner up (or all of them,
+   * if the runner up ended), rather than replaying its matches after each record.
+   *
+   * @param winner the winning stream
+   * @param head index of the head of the winner
+   * @param limit index past the last record of the winner that may be taken
+   * @return the index past the last record to take
+   */
+  int takeRun(int winner, int head, int limit) {
+    int end = head + 1;
+    if (winner == previousWinner) {
+      final int runnerUp = runnerUp();
+      if (runnerUp == -1) {
+        end = limit;
+      } else {
+        while (end < limit && compareToHead(winner, end, runnerUp) <= 0) {
+          end++;
+        }
+      }
+    }
+    previousWinner = winner;
+    return end;
+  }
+
+  /**
+   * Replays the matches of the winning stream, after its head advanced.
+   */
+  void replay(int stream) {
+    int winner = stream;
+    for (int node = (size + stream) >>> 1; node > 0; node >>>= 1) {
+      if (less(tree[node], winner)) {
+        final int loser = winner;
+        winner = tree[node];
+        tree[node] = loser;
+      }
+    }
+    tree[0] = winner;
+  }
+
+  /**
+   * Ends the winning stream, its head lost all its matches.
+   */
+  void remove(int stream) {
+    ended[stream] = true;
+    replay(stream);
+  }
+
+  private int play(int node) {
+    if (node >= size) {
+      return node - size;
+    }
+    final int left = play(node << 1);
+    final int right = play((node << 1) + 1);
+    if (less(right, left)) {
+      tree[node] = left;
+      return right;
+    }
+    tree[node] = right;
+    return left;
+  }
+
+  /**
+   * Ties are broken by the index of the streams, so that the merge is deterministic.
+   */
+  private boolean less(int left, int right) {
+    if (ended[left]) {
+      return false;
+    }
+    if (ended[right]) {
+      return true;
+    }
+    final int result = compare(left, right);
+    return result < 0 || (result == 0 && left < right);
+  }
+}
@@ -36,6 +36,15 @@ public interface MergingReceiverGeneratorBase {
 
   public abstract void doCopy(int inIndex, int outIndex) throws SchemaChangeException;
 
+  /**
+   * Copies consecutive records of an incoming batch to consecutive positions of the outgoing batch.
+   *
+   * @param inIndex (batch index << 16) + index of the first record in the batch
+   * @param outIndex position of the first record in the outgoing batch
+   * @param count number of records
+   */
+  public abstract void doCopyRange(int inIndex, int outIndex, int count) throws SchemaChangeException;
+
   public static TemplateClassDefinition<MergingReceiverGeneratorBase> TEMPLATE_DEFINITION =
       new TemplateClassDefinition<>(MergingReceiverGeneratorBase.class, MergingReceiverTemplate.class);
 
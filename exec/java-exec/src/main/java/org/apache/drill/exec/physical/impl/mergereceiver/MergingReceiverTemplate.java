@@ -38,4 +38,9 @@ public abstract class MergingReceiverTemplate implements MergingReceiverGenerato
   @Override
   public abstract void doCopy(@Named("inIndex") int inIndex,
                               @Named("outIndex") int outIndex) throws SchemaChangeException;
+
+  @Override
+  public abstract void doCopyRange(@Named("inIndex") int inIndex,
+                                   @Named("outIndex") int outIndex,
+                                   @Named("count") int count) throws SchemaChangeException;
 }
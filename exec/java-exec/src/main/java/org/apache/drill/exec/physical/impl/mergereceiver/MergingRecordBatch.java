@@ -18,10 +18,8 @@
 package org.apache.drill.exec.physical.impl.mergereceiver;
 
 import java.io.IOException;
-import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.PriorityQueue;
 
 import org.apache.calcite.rel.RelFieldCollation.Direction;
 import org.apache.drill.common.exceptions.DrillRuntimeException;
@@ -106,7 +104,9 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
   private int senderCount = 0;
   private RawFragmentBatch[] incomingBatches;
   private int[] batchOffsets;
-  private PriorityQueue <Node> pqueue;
+  // the senders merged by the index of their current record, that is, the next record to copy from their batch
+  private LoserTree tree;
+  private int[] recordIndexes;
   private RawFragmentBatch emptyBatch = null;
   private RawFragmentBatch[] tempBatchHolder;
   private long[] inputCounts;
@@ -311,21 +311,21 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
         return IterOutcome.STOP;
       }
 
-      // allocate the priority queue with the generated comparator
-      this.pqueue = new PriorityQueue<>(fragProviders.length, new Comparator<Node>() {
+      // allocate the loser tree with the generated comparator
+      recordIndexes = new int[senderCount];
+      tree = new LoserTree(senderCount) {
         @Override
-        public int compare(final Node node1, final Node node2) {
-          final int leftIndex = (node1.batchId << 16) + node1.valueIndex;
-          final int rightIndex = (node2.batchId << 16) + node2.valueIndex;
-          try {
-            return merger.doEval(leftIndex, rightIndex);
-          } catch (SchemaChangeException e) {
-            throw new UnsupportedOperationException(e);
-          }
+        protected int compare(final int left, final int right) {
+          return compareRecords((left << 16) + recordIndexes[left], (right << 16) + recordIndexes[right]);
         }
-      });
 
-      // populate the priority queue with initial values
+        @Override
+        protected int compareToHead(final int stream, final int index, final int other) {
+          return compareRecords((stream << 16) + index, (other << 16) + recordIndexes[other]);
+        }
+      };
+
+      // skip the empty batches, the senders that only sent empty batches do not take part to the merge
       for (int b = 0; b < senderCount; ++b) {
         while (batchLoaders[b] != null && batchLoaders[b].getRecordCount() == 0) {
           try {
@@ -345,36 +345,39 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
             return IterOutcome.STOP;
           }
         }
-        if (batchLoaders[b] != null) {
-          pqueue.add(new Node(b, 0));
+        if (batchLoaders[b] == null) {
+          tree.end(b);
         }
       }
+      tree.build();
 
       hasRun = true;
       // finished lazy initialization
     }
 
-    while (!pqueue.isEmpty()) {
-      // pop next value from pq and copy to outgoing batch
-      final Node node = pqueue.peek();
-      if (!copyRecordToOutgoingBatch(node)) {
+    int sender;
+    while ((sender = tree.winner()) != -1) {
+      final int recordCount = batchLoaders[sender].getRecordCount();
+      final int start = recordIndexes[sender];
+      // a sender that wins twice in a row likely sent a run of records, copied at once
+      final int end = tree.takeRun(sender, start, Math.min(recordCount, start + OUTGOING_BATCH_SIZE - outgoingPosition));
+      if (!copyRecordsToOutgoingBatch(sender, start, end)) {
         logger.debug("Outgoing vectors space is full; breaking");
         prevBatchWasFull = true;
       }
-      pqueue.poll();
 
-      if (node.valueIndex == batchLoaders[node.batchId].getRecordCount() - 1) {
+      if (end == recordCount) {
         // reached the end of an incoming record batch
         RawFragmentBatch nextBatch;
         try {
-          nextBatch = getNext(node.batchId);
+          nextBatch = getNext(sender);
 
           while (nextBatch != null && nextBatch.getHeader().getDef().getRecordCount() == 0) {
-            nextBatch = getNext(node.batchId);
+            nextBatch = getNext(sender);
           }
 
-          assert nextBatch != null || inputCounts[node.batchId] == outputCounts[node.batchId]
-              : String.format("Stream %d input count: %d output count %d", node.batchId, inputCounts[node.batchId], outputCounts[node.batchId]);
+          assert nextBatch != null || inputCounts[sender] == outputCounts[sender]
+              : String.format("Stream %d input count: %d output count %d", sender, inputCounts[sender], outputCounts[sender]);
           if (nextBatch == null && !context.shouldContinue()) {
             return IterOutcome.STOP;
           }
@@ -383,10 +386,11 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
           return IterOutcome.STOP;
         }
 
-        incomingBatches[node.batchId] = nextBatch;
+        incomingBatches[sender] = nextBatch;
 
         if (nextBatch == null) {
-          // batch is empty
+          // batch is empty; the sender no longer takes part to the merge
+          tree.remove(sender);
           boolean allBatchesEmpty = true;
 
           for (final RawFragmentBatch batch : incomingBatches) {
@@ -402,8 +406,6 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
             break;
           }
 
-          // this batch is empty; since the pqueue no longer references this batch, it will be
-          // ignored in subsequent iterations.
           if (prevBatchWasFull) {
             break;
           } else {
@@ -411,26 +413,23 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
           }
         }
 
-        final UserBitShared.RecordBatchDef rbd = incomingBatches[node.batchId].getHeader().getDef();
+        final UserBitShared.RecordBatchDef rbd = incomingBatches[sender].getHeader().getDef();
         try {
-          batchLoaders[node.batchId].load(rbd, incomingBatches[node.batchId].getBody());
+          batchLoaders[sender].load(rbd, incomingBatches[sender].getBody());
           // TODO:  Clean:  DRILL-2933:  That load(...) no longer throws
           // SchemaChangeException, so check/clean catch clause below.
         } catch(final SchemaChangeException ex) {
           context.fail(ex);
           return IterOutcome.STOP;
         }
-        incomingBatches[node.batchId].release();
-        batchOffsets[node.batchId] = 0;
-
-        // add front value from batch[x] to priority queue
-        if (batchLoaders[node.batchId].getRecordCount() != 0) {
-          pqueue.add(new Node(node.batchId, 0));
-        }
-
+        incomingBatches[sender].release();
+        batchOffsets[sender] = 0;
+        recordIndexes[sender] = 0;
       } else {
-        pqueue.add(new Node(node.batchId, node.valueIndex + 1));
+        recordIndexes[sender] = end;
       }
+      // replay the matches of the sender with its next record
+      tree.replay(sender);
 
       if (prevBatchWasFull) {
         break;
@@ -442,7 +441,7 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
       vw.getValueVector().getMutator().setValueCount(outgoingPosition);
     }
 
-    if (pqueue.isEmpty()) {
+    if (tree.winner() == -1) {
       state = BatchState.DONE;
     }
 
@@ -658,6 +657,8 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
 
       g.setMappingSet(COPIER_MAPPING_SET);
       CopyUtil.generateCopies(g, batch, true);
+      g.setMappingSet(RANGE_COPIER_MAPPING_SET);
+      CopyUtil.generateRangeCopies(g, batch, true);
       g.setMappingSet(MAIN_MAPPING);
       final MergingReceiverGeneratorBase merger = context.getImplementationClass(cg);
 
@@ -673,6 +674,8 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
   public final MappingSet RIGHT_MAPPING = new MappingSet("rightIndex", null, ClassGenerator.DEFAULT_SCALAR_MAP, ClassGenerator.DEFAULT_SCALAR_MAP);
   GeneratorMapping COPIER_MAPPING = new GeneratorMapping("doSetup", "doCopy", null, null);
   public final MappingSet COPIER_MAPPING_SET = new MappingSet(COPIER_MAPPING, COPIER_MAPPING);
+  GeneratorMapping RANGE_COPIER_MAPPING = new GeneratorMapping("doSetup", "doCopyRange", null, null);
+  public final MappingSet RANGE_COPIER_MAPPING_SET = new MappingSet(RANGE_COPIER_MAPPING, RANGE_COPIER_MAPPING);
 
   private void generateComparisons(final ClassGenerator<?> g, final VectorAccessible batch) throws SchemaChangeException {
     g.setMappingSet(MAIN_MAPPING);
@@ -708,38 +711,36 @@ public class MergingRecordBatch extends AbstractRecordBatch<MergingReceiverPOP>
   }
 
   /**
-   * Copy the record referenced by the supplied node to the next output position.
-   * Side Effect: increments outgoing position if successful
+   * Compares two records of the incoming batches, with the generated comparator.
    *
-   * @param node Reference to the next record to copy from the incoming batches
+   * @param leftIndex (sender << 16) + index of the left record in the batch of its sender
+   * @param rightIndex (sender << 16) + index of the right record in the batch of its sender
+   * @return a negative integer, zero or a positive integer as the left record sorts before, with or after the right one
    */
-  private boolean copyRecordToOutgoingBatch(final Node node) {
-    assert ++outputCounts[node.batchId] <= inputCounts[node.batchId]
-        : String.format("Stream %d input count: %d output count %d", node.batchId, inputCounts[node.batchId], outputCounts[node.batchId]);
-    final int inIndex = (node.batchId << 16) + node.valueIndex;
+  private int compareRecords(final int leftIndex, final int rightIndex) {
     try {
-      merger.doCopy(inIndex, outgoingPosition);
+      return merger.doEval(leftIndex, rightIndex);
     } catch (SchemaChangeException e) {
       throw new UnsupportedOperationException(e);
     }
-    outgoingPosition++;
-    if (outgoingPosition == OUTGOING_BATCH_SIZE) {
-      return false;
-    }
-    return true;
   }
 
   /**
-   * A Node contains a reference to a single value in a specific incoming batch.  It is used
-   * as a wrapper for the priority queue.
+   * Copies the records [start, end) of the batch of a sender to the outgoing batch.
+   *
+   * @return false if the outgoing batch is full
    */
-  public class Node {
-    public int batchId;      // incoming batch
-    public int valueIndex;   // value within the batch
-    Node(final int batchId, final int valueIndex) {
-      this.batchId = batchId;
-      this.valueIndex = valueIndex;
+  private boolean copyRecordsToOutgoingBatch(final int batchId, final int start, final int end) {
+    final int count = end - start;
+    assert (outputCounts[batchId] += count) <= inputCounts[batchId]
+        : String.format("Stream %d input count: %d output count %d", batchId, inputCounts[batchId], outputCounts[batchId]);
+    try {
+      merger.doCopyRange((batchId << 16) + start, outgoingPosition, count);
+    } catch (SchemaChangeException e) {
+      throw new UnsupportedOperationException(e);
     }
+    outgoingPosition += count;
+    return outgoingPosition != OUTGOING_BATCH_SIZE;
   }
 
   @Override
@@ -19,6 +19,7 @@ package org.apache.drill.exec.physical.impl.partitionsender;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicIntegerArray;
 
@@ -37,8 +38,11 @@ import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.ops.MetricDef;
 import org.apache.drill.exec.ops.OperatorStats;
 import org.apache.drill.exec.physical.MinorFragmentEndpoint;
+import org.apache.drill.exec.physical.base.SubScan;
 import org.apache.drill.exec.physical.config.HashPartitionSender;
 import org.apache.drill.exec.physical.impl.BaseRootExec;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilterTarget;
 import org.apache.drill.exec.planner.physical.PlannerSettings;
 import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
 import org.apache.drill.exec.record.BatchSchema;
@@ -52,6 +56,8 @@ import org.apache.drill.exec.vector.CopyUtil;
 
 import com.carrotsearch.hppc.IntArrayList;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 import com.sun.codemodel.JExpr;
 import com.sun.codemodel.JExpression;
 import com.sun.codemodel.JType;
@@ -79,6 +85,8 @@ public class PartitionSenderRootExec extends BaseRootExec {
   protected final int actualPartitions;
 
   private IntArrayList terminations = new IntArrayList();
+  // complete runtime filters of the joins the records are sent to
+  private final List<RuntimeFilter> runtimeFilters = Lists.newArrayList();
 
   public enum Metric implements MetricDef {
     BATCHES_SENT,
@@ -88,7 +96,13 @@ public class PartitionSenderRootExec extends BaseRootExec {
     N_RECEIVERS,
     BYTES_SENT,
     SENDING_THREADS_COUNT,
-    COST;
+    COST,
+    CREDIT_WAIT_NANOS,
+    PARTITION_NANOS,
+    MAX_BATCH_PARTITION_NANOS,
+    RUNTIME_FILTERED_ROWS,
+    UNCOMPRESSED_BYTES,
+    COMPRESSED_BYTES;
 
     @Override
     public int metricId() {
@@ -108,6 +122,8 @@ public class PartitionSenderRootExec extends BaseRootExec {
     remainingReceivers = new AtomicIntegerArray(outGoingBatchCount);
     remaingReceiverCount = new AtomicInteger(outGoingBatchCount);
     stats.setLongStat(Metric.N_RECEIVERS, outGoingBatchCount);
+    // a runtime filter of a join holds the build side keys of all its fragments once all their filters are in
+    context.getRuntimeFilters().setExpectedParts(outGoingBatchCount);
     // Algorithm to figure out number of threads to parallelize output
     // numberOfRows/sliceTarget/numReceivers/threadfactor
     this.cost = operator.getChild().getCost();
@@ -203,7 +219,8 @@ public class PartitionSenderRootExec extends BaseRootExec {
         }
       case OK:
         try {
-          partitioner.partitionBatch(incoming);
+          checkRuntimeFilters();
+          partitioner.partitionBatch(incoming, runtimeFilters);
         } catch (IOException e) {
           context.fail(e);
           incoming.kill(false);
@@ -298,6 +315,23 @@ public class PartitionSenderRootExec extends BaseRootExec {
     }
   }
 
+  /**
+   * Pick up the runtime filters completed since the last batch, and hand them on to the scans the filtered
+   * columns come from, if any, so that they read fewer rows.
+   */
+  private void checkRuntimeFilters() {
+    final List<RuntimeFilter> complete = context.getRuntimeFilters().getComplete();
+    for (int i = runtimeFilters.size(); i < complete.size(); i++) {
+      final RuntimeFilter filter = complete.get(i);
+      runtimeFilters.add(filter);
+      final RuntimeFilterTarget target = RuntimeFilterTarget.find(popConfig.getChild(), filter.getField());
+      if (target != null && target.getOperator() instanceof SubScan) {
+        context.getRuntimeFilters().addScanFilter(target.getOperator().getOperatorId(),
+            filter.withField(target.getField()));
+      }
+    }
+  }
+
   /**
    * Find min and max record count seen across the outgoing batches and put them in stats.
    */
@@ -311,6 +345,23 @@ public class PartitionSenderRootExec extends BaseRootExec {
     }
     stats.setLongStat(Metric.MIN_RECORDS, minReceiverRecordCount);
     stats.setLongStat(Metric.MAX_RECORDS, maxReceiverRecordCount);
+
+    // the tunnels are shared by the receivers on the same drillbit
+    final Set<AccountingDataTunnel> tunnels = Sets.newIdentityHashSet();
+    long creditWaitNanos = 0;
+    long uncompressedBytes = 0;
+    long compressedBytes = 0;
+    for (MinorFragmentEndpoint destination : popConfig.getDestinations()) {
+      final AccountingDataTunnel tunnel = context.getDataTunnel(destination.getEndpoint());
+      if (tunnels.add(tunnel)) {
+        creditWaitNanos += tunnel.getCreditWaitNanos();
+        uncompressedBytes += tunnel.getUncompressedBytes();
+        compressedBytes += tunnel.getCompressedBytes();
+      }
+    }
+    stats.setLongStat(Metric.CREDIT_WAIT_NANOS, creditWaitNanos);
+    stats.setLongStat(Metric.UNCOMPRESSED_BYTES, uncompressedBytes);
+    stats.setLongStat(Metric.COMPRESSED_BYTES, compressedBytes);
   }
 
   @Override
@@ -0,0 +1,254 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.partitionsender;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.selection.SelectionVector2;
+import org.apache.drill.exec.vector.ValueVector;
+
+/**
+ * The records of an incoming batch grouped by destination, in the order of the batch within each destination.
+ * <p>
+ * The batch is split into chunks of rows, evaluated by tasks of a fork-join pool: each task evaluates the destination
+ * of the records of its chunk and counts them by destination, then, once the counts are laid out, places the records
+ * of its chunk at their position. The chunks are split in halves down to a single chunk per task, so that idle workers
+ * steal the halves left over by the busy ones. Small batches are partitioned by the calling thread.
+ * <p>
+ * The generated code evaluating the destinations keeps state (e.g. the buffers of its functions), so no two chunks are
+ * evaluated by the same partitioner: there are at most as many chunks as partitioners, and each chunk is evaluated by
+ * its own partitioner.
+ * <p>
+ * The partitioners then copy the records of their destinations, without evaluating the destinations of the whole
+ * batch each.
+ * <p>
+ * The records rejected by a {@link RuntimeFilter} of the join the records are sent to are grouped under an extra
+ * destination, which no partitioner copies.
+ */
+public class PartitionedRecords {
+
+  // records of a chunk, below which a batch is not split
+  static final int CHUNK_RECORDS = 1024;
+
+  private final ForkJoinPool pool;
+  private final int destinations;
+  private final int maxChunks;
+  // position of the first record of each destination (and of the filtered records) in records, and the number of
+  // records at the end
+  private final int[] offsets;
+  // destination of each record
+  private int[] buckets = new int[0];
+  // indexes of the records, grouped by destination
+  private int[] records = new int[0];
+  // count of the records of each chunk by destination, then position of the next record of the chunk
+  private int[][] counts = new int[0][];
+  private List<? extends Partitioner> evaluators;
+  // filters applied to the batch, and their columns
+  private RuntimeFilter[] filters = new RuntimeFilter[0];
+  private ValueVector[] columns = new ValueVector[0];
+  private SelectionVector2 sv2;
+  private int filterCount;
+  private int recordCount;
+  private int chunks;
+  private int chunkRecords;
+
+  PartitionedRecords(ForkJoinPool pool, int destinations) {
+    this.pool = pool;
+    this.destinations = destinations;
+    this.maxChunks = pool.getParallelism() * 4;
+    this.offsets = new int[destinations + 2];
+  }
+
+  /**
+   * Groups the records of an incoming batch by destination.
+   *
+   * @param evaluators partitioners evaluating the destinations of the records, one per chunk at most
+   * @param incoming batch
+   */
+  void partition(List<? extends Partitioner> evaluators, RecordBatch incoming) {
+    partition(evaluators, incoming, Collections.<RuntimeFilter>emptyList());
+  }
+
+  /**
+   * Groups the records of an incoming batch by destination, leaving out those rejected by a filter.
+   *
+   * @param evaluators partitioners evaluating the destinations of the records, one per chunk at most
+   * @param incoming batch
+   * @param runtimeFilters filters to apply; those whose column is not found in the batch (or is in a hyper batch)
+   * are ignored
+   */
+  void partition(List<? extends Partitioner> evaluators, RecordBatch incoming, List<RuntimeFilter> runtimeFilters) {
+    this.evaluators = evaluators;
+    bindFilters(incoming, runtimeFilters);
+    recordCount = incoming.getRecordCount();
+    if (buckets.length < recordCount) {
+      buckets = new int[recordCount];
+      records = new int[recordCount];
+    }
+    chunks = Math.max(1, Math.min(Math.min((recordCount + CHUNK_RECORDS - 1) / CHUNK_RECORDS, maxChunks),
+        evaluators.size()));
+    chunkRecords = (recordCount + chunks - 1) / chunks;
+    if (counts.length < chunks) {
+      counts = new int[chunks][destinations + 1];
+    } else {
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        Arrays.fill(counts[chunk], 0);
+      }
+    }
+
+    run(false);
+
+    // the records of a chunk follow those of the former chunks within their destination
+    int position = 0;
+    for (int destination = 0; destination <= destinations; destination++) {
+      offsets[destination] = position;
+      for (int chunk = 0; chunk < chunks; chunk++) {
+        final int count = counts[chunk][destination];
+        counts[chunk][destination] = position;
+        position += count;
+      }
+    }
+    offsets[destinations + 1] = position;
+
+    run(true);
+    this.evaluators = null;
+    Arrays.fill(columns, null);
+    sv2 = null;
+  }
+
+  private void bindFilters(RecordBatch incoming, List<RuntimeFilter> runtimeFilters) {
+    int bound = 0;
+    if (!runtimeFilters.isEmpty()) {
+      final SelectionVectorMode svMode = incoming.getSchema().getSelectionVectorMode();
+      if (svMode != SelectionVectorMode.FOUR_BYTE) {
+        sv2 = svMode == SelectionVectorMode.TWO_BYTE ? incoming.getSelectionVector2() : null;
+        if (filters.length < runtimeFilters.size()) {
+          filters = new RuntimeFilter[runtimeFilters.size()];
+          columns = new ValueVector[runtimeFilters.size()];
+        }
+        for (RuntimeFilter filter : runtimeFilters) {
+          final ValueVector column = filter.getColumn(incoming);
+          if (column != null) {
+            filters[bound] = filter;
+            columns[bound++] = column;
+          }
+        }
+      }
+    }
+    filterCount = bound;
+  }
+
+  /**
+   * @return position of the first record of a destination
+   */
+  public int start(int destination) {
+    return offsets[destination];
+  }
+
+  /**
+   * @return position following the last record of a destination
+   */
+  public int end(int destination) {
+    return offsets[destination + 1];
+  }
+
+  /**
+   * @return number of records rejected by the filters
+   */
+  public int filtered() {
+    return offsets[destinations + 1] - offsets[destinations];
+  }
+
+  /**
+   * @return index in the incoming batch of the record at a position
+   */
+  public int record(int position) {
+    return records[position];
+  }
+
+  private void run(boolean place) {
+    if (chunks == 1) {
+      runChunk(0, place);
+    } else {
+      pool.invoke(new ChunkTask(0, chunks, place));
+    }
+  }
+
+  private void runChunk(int chunk, boolean place) {
+    final int first = Math.min(chunk * chunkRecords, recordCount);
+    final int last = Math.min(first + chunkRecords, recordCount);
+    final int[] chunkCounts = counts[chunk];
+    if (place) {
+      for (int recordId = first; recordId < last; recordId++) {
+        records[chunkCounts[buckets[recordId]]++] = recordId;
+      }
+    } else {
+      evaluators.get(chunk).evaluateDestinations(first, last, buckets);
+      if (filterCount > 0) {
+        filterChunk(first, last);
+      }
+      for (int recordId = first; recordId < last; recordId++) {
+        chunkCounts[buckets[recordId]]++;
+      }
+    }
+  }
+
+  private void filterChunk(int first, int last) {
+    for (int recordId = first; recordId < last; recordId++) {
+      final int index = sv2 == null ? recordId : sv2.getIndex(recordId);
+      for (int i = 0; i < filterCount; i++) {
+        if (!filters[i].mightContain(columns[i], index)) {
+          buckets[recordId] = destinations;
+          break;
+        }
+      }
+    }
+  }
+
+  /**
+   * Evaluates, or places, the records of a range of chunks.
+   */
+  private class ChunkTask extends RecursiveAction {
+    private final int from;
+    private final int to;
+    private final boolean place;
+
+    ChunkTask(int from, int to, boolean place) {
+      this.from = from;
+      this.to = to;
+      this.place = place;
+    }
+
+    @Override
+    protected void compute() {
+      if (to - from == 1) {
+        runChunk(from, place);
+      } else {
+        final int middle = (from + to) >>> 1;
+        invokeAll(new ChunkTask(from, middle, place), new ChunkTask(middle, to, place));
+      }
+    }
+  }
+}
@@ -37,7 +37,21 @@ public interface Partitioner {
                           OperatorContext oContext,
                           int start, int count) throws SchemaChangeException;
 
-  public abstract void partitionBatch(RecordBatch incoming) throws IOException;
+  /**
+   * Copies the records of the incoming batch sent to the destinations of this partitioner.
+   * @param incoming
+   * @param records records of the incoming batch grouped by destination
+   * @throws IOException
+   */
+  public abstract void partitionBatch(RecordBatch incoming, PartitionedRecords records) throws IOException;
+  /**
+   * Evaluates the destinations of a range of records of the incoming batch, whatever the partitioner they belong to.
+   * Not thread safe: several ranges may be evaluated at once by distinct partitioners only.
+   * @param start index of the first record
+   * @param end index following the last record
+   * @param destinations destination of each record, by record index
+   */
+  public abstract void evaluateDestinations(int start, int end, int[] destinations);
   public abstract void flushOutgoingBatches(boolean isLastBatch, boolean schemaChanged) throws IOException;
   public abstract void initialize();
   public abstract void clear();
@@ -18,6 +18,7 @@
 package org.apache.drill.exec.physical.impl.partitionsender;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
@@ -25,6 +26,8 @@ import java.util.concurrent.Future;
 
 import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.ops.OperatorStats;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.physical.impl.partitionsender.PartitionSenderRootExec.Metric;
 import org.apache.drill.exec.record.RecordBatch;
 import org.apache.drill.exec.testing.ControlsInjector;
 import org.apache.drill.exec.testing.ControlsInjectorFactory;
@@ -40,6 +43,12 @@ import com.google.common.collect.Lists;
  * since stats are not suitable for use in multithreaded environment
  * The algorithm to figure out processing versus wait time is based on following formula:
  * totalWaitTime = totalAllPartitionersProcessingTime - max(sum(processingTime) by partitioner)
+ * Only the evaluation of the destinations is parallel by rows: the destinations of the records of an incoming batch
+ * are evaluated once for all the partitioners, split by rows across the partitioner pool of the drillbit, each range by
+ * its own partitioner (see {@link PartitionedRecords}). The copies are still done one task per partitioner, behind the
+ * latch of {@link #executeMethodLogic(GeneralExecuteIface)}: each partitioner copies only the records of its
+ * destinations, straight into its outgoing batches (there are no per-thread buffers merged on flush). The copies send
+ * the outgoing batches as they fill up, and may block on the receivers, so they run on the executor, as does the flush.
  */
 public class PartitionerDecorator {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(PartitionerDecorator.class);
@@ -51,13 +60,19 @@ public class PartitionerDecorator {
   private final String childThreadPrefix;
   private final ExecutorService executor;
   private final FragmentContext context;
-
+  private final PartitionedRecords records;
+  private long maxBatchPartitionNanos;
 
   public PartitionerDecorator(List<Partitioner> partitioners, OperatorStats stats, FragmentContext context) {
     this.partitioners = partitioners;
     this.stats = stats;
     this.context = context;
     this.executor = context.getDrillbitContext().getExecutor();
+    int destinations = 0;
+    for (Partitioner part : partitioners) {
+      destinations += part.getOutgoingBatches().size();
+    }
+    this.records = new PartitionedRecords(context.getDrillbitContext().getPartitionerPool(), destinations);
     this.tName = Thread.currentThread().getName();
     this.childThreadPrefix = "Partitioner-" + tName + "-";
   }
@@ -69,7 +84,32 @@ public class PartitionerDecorator {
    * @throws IOException
    */
   public void partitionBatch(final RecordBatch incoming) throws IOException {
-    executeMethodLogic(new PartitionBatchHandlingClass(incoming));
+    partitionBatch(incoming, Collections.<RuntimeFilter>emptyList());
+  }
+
+  /**
+   * partitionBatch - decorator method to call real Partitioner(s) to process incoming batch, dropping the records
+   * rejected by the runtime filters of the joins they are sent to
+   * @param incoming
+   * @param runtimeFilters
+   * @throws IOException
+   */
+  public void partitionBatch(final RecordBatch incoming, final List<RuntimeFilter> runtimeFilters) throws IOException {
+    final long startNanos = System.nanoTime();
+    try {
+      records.partition(partitioners, incoming, runtimeFilters);
+      if (records.filtered() > 0) {
+        stats.addLongStat(Metric.RUNTIME_FILTERED_ROWS, records.filtered());
+      }
+      executeMethodLogic(new PartitionBatchHandlingClass(incoming, records));
+    } finally {
+      final long partitionNanos = System.nanoTime() - startNanos;
+      stats.addLongStat(Metric.PARTITION_NANOS, partitionNanos);
+      if (partitionNanos > maxBatchPartitionNanos) {
+        maxBatchPartitionNanos = partitionNanos;
+        stats.setLongStat(Metric.MAX_BATCH_PARTITION_NANOS, partitionNanos);
+      }
+    }
   }
 
   /**
@@ -236,14 +276,16 @@ public class PartitionerDecorator {
   private static class PartitionBatchHandlingClass implements GeneralExecuteIface {
 
     private final RecordBatch incoming;
+    private final PartitionedRecords records;
 
-    public PartitionBatchHandlingClass(RecordBatch incoming) {
+    public PartitionBatchHandlingClass(RecordBatch incoming, PartitionedRecords records) {
       this.incoming = incoming;
+      this.records = records;
     }
 
     @Override
     public void execute(Partitioner part) throws IOException {
-      part.partitionBatch(incoming);
+      part.partitionBatch(incoming, records);
     }
   }
 
@@ -24,6 +24,7 @@ import java.util.List;
 import javax.inject.Named;
 
 import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.compile.sig.RuntimeOverridden;
 import org.apache.drill.exec.exception.SchemaChangeException;
 import org.apache.drill.exec.expr.TypeHelper;
@@ -35,6 +36,7 @@ import org.apache.drill.exec.ops.OperatorStats;
 import org.apache.drill.exec.physical.MinorFragmentEndpoint;
 import org.apache.drill.exec.physical.config.HashPartitionSender;
 import org.apache.drill.exec.physical.impl.partitionsender.PartitionSenderRootExec.Metric;
+import org.apache.drill.exec.physical.impl.spill.RecordBatchSizer;
 import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
 import org.apache.drill.exec.record.BatchSchema;
 import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
@@ -43,10 +45,12 @@ import org.apache.drill.exec.record.RecordBatch;
 import org.apache.drill.exec.record.TypedFieldId;
 import org.apache.drill.exec.record.VectorAccessible;
 import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorInitializer;
 import org.apache.drill.exec.record.VectorWrapper;
 import org.apache.drill.exec.record.WritableBatch;
 import org.apache.drill.exec.record.selection.SelectionVector2;
 import org.apache.drill.exec.record.selection.SelectionVector4;
+import org.apache.drill.exec.server.options.OptionManager;
 import org.apache.drill.exec.vector.ValueVector;
 
 import com.google.common.collect.Lists;
@@ -56,6 +60,7 @@ public abstract class PartitionerTemplate implements Partitioner {
 
   // Always keep the recordCount as (2^x) - 1 to better utilize the memory allocation in ValueVectors
   private static final int DEFAULT_RECORD_BATCH_SIZE = (1 << 10) - 1;
+  private static final int MAX_RECORD_BATCH_SIZE = (1 << 16) - 1;
 
   private SelectionVector2 sv2;
   private SelectionVector4 sv4;
@@ -66,6 +71,9 @@ public abstract class PartitionerTemplate implements Partitioner {
   private List<OutgoingRecordBatch> outgoingBatches = Lists.newArrayList();
 
   private int outgoingRecordBatchSize = DEFAULT_RECORD_BATCH_SIZE;
+  // byte budget of an outgoing batch, and allocation of its vectors from the width of the incoming columns
+  private long outgoingBatchBytes;
+  private VectorInitializer allocHelper;
 
   @Override
   public List<? extends PartitionOutgoingBatch> getOutgoingBatches() {
@@ -95,12 +103,19 @@ public abstract class PartitionerTemplate implements Partitioner {
     doSetup(context, incoming, null);
 
     // Half the outgoing record batch size if the number of senders exceeds 1000 to reduce the total amount of memory
-    // allocated.
+    // allocated. This is the size until the width of the incoming rows is known.
     if (popConfig.getDestinations().size() > 1000) {
       // Always keep the recordCount as (2^x) - 1 to better utilize the memory allocation in ValueVectors
       outgoingRecordBatchSize = (DEFAULT_RECORD_BATCH_SIZE + 1)/2 - 1;
     }
 
+    // Each receiver gets an equal share of the memory budget of the sender, up to the target batch size: with many
+    // receivers the outgoing batches get smaller, and with narrow rows they get more rows.
+    final OptionManager options = context.getOptions();
+    outgoingBatchBytes = getOutgoingBatchBytes(options.getOption(ExecConstants.PARTITIONER_BATCH_SIZE_VALIDATOR),
+        options.getOption(ExecConstants.PARTITIONER_MEMORY_BUDGET_VALIDATOR), popConfig.getDestinations().size());
+    sizeOutgoingBatches(incoming);
+
     int fieldId = 0;
     for (MinorFragmentEndpoint destination : popConfig.getDestinations()) {
       // create outgoingBatches only for subset of Destination Points
@@ -174,53 +189,106 @@ public abstract class PartitionerTemplate implements Partitioner {
     }
   }
 
-  @Override
-  public void partitionBatch(RecordBatch incoming) throws IOException {
-    SelectionVectorMode svMode = incoming.getSchema().getSelectionVectorMode();
+  /**
+   * Sizes the outgoing batches from the width of the rows of an incoming batch: as many rows as fit in the byte
+   * budget of a batch. The new size applies to the outgoing batches as they are flushed.
+   */
+  private void sizeOutgoingBatches(RecordBatch incoming) {
+    // the width is not measured on hyper batches, nor on empty batches
+    if (incoming.getRecordCount() == 0 ||
+        incoming.getSchema().getSelectionVectorMode() == SelectionVectorMode.FOUR_BYTE) {
+      return;
+    }
+    final RecordBatchSizer sizer = new RecordBatchSizer(incoming);
+    outgoingRecordBatchSize = getOutgoingBatchRows(outgoingBatchBytes, sizer.netRowWidth());
+    allocHelper = sizer.buildVectorInitializer();
+  }
 
-    // Keeping the for loop inside the case to avoid case evaluation for each record.
-    switch(svMode) {
-      case NONE:
-        for (int recordId = 0; recordId < incoming.getRecordCount(); ++recordId) {
-          doCopy(recordId);
-        }
-        break;
+  /**
+   * @param batchSize target size (bytes) of the outgoing batches
+   * @param memoryBudget memory budget (bytes) of the outgoing batches of the sender
+   * @param destinations number of receivers
+   * @return the size (bytes) of the outgoing batches: the target size, capped by an equal share of the budget
+   */
+  static long getOutgoingBatchBytes(long batchSize, long memoryBudget, int destinations) {
+    return Math.min(batchSize, memoryBudget / Math.max(destinations, 1));
+  }
 
-      case TWO_BYTE:
-        for (int recordId = 0; recordId < incoming.getRecordCount(); ++recordId) {
-          int svIndex = sv2.getIndex(recordId);
-          doCopy(svIndex);
-        }
-        break;
+  /**
+   * @param batchBytes size (bytes) of the outgoing batches
+   * @param rowWidth width (bytes) of the rows
+   * @return the number of rows of the outgoing batches: as many rows of the given width as fit in the size, at
+   * least one and at most the 64K rows of a batch
+   */
+  static int getOutgoingBatchRows(long batchBytes, int rowWidth) {
+    final long rows = Math.min(Math.max(batchBytes / Math.max(rowWidth, 1), 1), MAX_RECORD_BATCH_SIZE);
+    // Always keep the recordCount as (2^x) - 1 to better utilize the memory allocation in ValueVectors
+    return Integer.highestOneBit((int) rows + 1) - 1;
+  }
 
-      case FOUR_BYTE:
-        for (int recordId = 0; recordId < incoming.getRecordCount(); ++recordId) {
-          int svIndex = sv4.get(recordId);
-          doCopy(svIndex);
-        }
-        break;
+  @Override
+  public void partitionBatch(RecordBatch incoming, PartitionedRecords records) throws IOException {
+    sizeOutgoingBatches(incoming);
+    SelectionVectorMode svMode = incoming.getSchema().getSelectionVectorMode();
 
-      default:
-        throw new UnsupportedOperationException("Unknown selection vector mode: " + svMode.toString());
+    // The records of each destination are copied in a row, in the order of the incoming batch.
+    for (int index = start; index < end; index++) {
+      final OutgoingRecordBatch outgoingBatch = outgoingBatches.get(index - start);
+      final int last = records.end(index);
+      switch(svMode) {
+        case NONE:
+          for (int position = records.start(index); position < last; ++position) {
+            outgoingBatch.copy(records.record(position));
+          }
+          break;
+
+        case TWO_BYTE:
+          for (int position = records.start(index); position < last; ++position) {
+            outgoingBatch.copy(sv2.getIndex(records.record(position)));
+          }
+          break;
+
+        case FOUR_BYTE:
+          for (int position = records.start(index); position < last; ++position) {
+            outgoingBatch.copy(sv4.get(records.record(position)));
+          }
+          break;
+
+        default:
+          throw new UnsupportedOperationException("Unknown selection vector mode: " + svMode.toString());
+      }
     }
   }
 
-  /**
-   * Helper method to copy data based on partition
-   * @param svIndex
-   * @throws IOException
-   */
-  private void doCopy(int svIndex) throws IOException {
-    int index;
+  @Override
+  public void evaluateDestinations(int start, int end, int[] destinations) {
+    SelectionVectorMode svMode = incoming.getSchema().getSelectionVectorMode();
     try {
-      index = doEval(svIndex);
+      switch(svMode) {
+        case NONE:
+          for (int recordId = start; recordId < end; ++recordId) {
+            destinations[recordId] = doEval(recordId);
+          }
+          break;
+
+        case TWO_BYTE:
+          for (int recordId = start; recordId < end; ++recordId) {
+            destinations[recordId] = doEval(sv2.getIndex(recordId));
+          }
+          break;
+
+        case FOUR_BYTE:
+          for (int recordId = start; recordId < end; ++recordId) {
+            destinations[recordId] = doEval(sv4.get(recordId));
+          }
+          break;
+
+        default:
+          throw new UnsupportedOperationException("Unknown selection vector mode: " + svMode.toString());
+      }
     } catch (SchemaChangeException e) {
       throw new UnsupportedOperationException(e);
     }
-    if ( index >= start && index < end) {
-      OutgoingRecordBatch outgoingBatch = outgoingBatches.get(index - start);
-      outgoingBatch.copy(svIndex);
-    }
   }
 
   @Override
@@ -251,6 +319,8 @@ public abstract class PartitionerTemplate implements Partitioner {
 
     private boolean isLast = false;
     private boolean dropAll = false;
+    // number of rows the vectors were allocated for, the partitioner size when the batch was allocated
+    private int batchSize;
     private int recordCount;
     private int totalRecords;
 
@@ -272,7 +342,7 @@ public abstract class PartitionerTemplate implements Partitioner {
       }
       recordCount++;
       totalRecords++;
-      if (recordCount == outgoingRecordBatchSize) {
+      if (recordCount == batchSize) {
         flush(false);
       }
     }
@@ -359,7 +429,13 @@ public abstract class PartitionerTemplate implements Partitioner {
     }
 
     private void allocateOutgoingRecordBatch() {
+      batchSize = outgoingRecordBatchSize;
+      if (allocHelper != null) {
+        allocHelper.allocateBatch(vectorContainer, batchSize);
+        return;
+      }
       for (VectorWrapper<?> v : vectorContainer) {
+        v.getValueVector().setInitialCapacity(batchSize);
         v.getValueVector().allocateNew();
       }
     }
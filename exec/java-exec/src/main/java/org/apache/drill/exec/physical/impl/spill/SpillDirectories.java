@@ -0,0 +1,57 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * The {@link SpillDirectory}s of a drillbit, registered as the spill sets of its operators first use them.
+ */
+public class SpillDirectories {
+
+  private final ConcurrentMap<String, SpillDirectory> directories = new ConcurrentHashMap<>();
+
+  /**
+   * @param fsName file system of the directory
+   * @param dir directory
+   * @return the directory, registered on first use
+   */
+  public SpillDirectory get(String fsName, String dir) {
+    final String path = fsName.endsWith("/") && dir.startsWith("/") ? fsName + dir.substring(1) :
+        fsName.endsWith("/") || dir.startsWith("/") ? fsName + dir : fsName + "/" + dir;
+    SpillDirectory directory = directories.get(path);
+    if (directory == null) {
+      final SpillDirectory created = new SpillDirectory(path);
+      directory = directories.putIfAbsent(path, created);
+      if (directory == null) {
+        directory = created;
+      }
+    }
+    return directory;
+  }
+
+  /**
+   * @return the spill directories used on the drillbit
+   */
+  public Collection<SpillDirectory> getAll() {
+    return new ArrayList<>(directories.values());
+  }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Spill directory of the drillbit, shared by the spill sets of all the operators which spill to it: the load of the
+ * directory (files being written and their bytes), its free space and the throughput of the writes to it, which the
+ * spill sets use to place their files. The directories of a drillbit are registered in its {@link SpillDirectories}.
+ * <p>
+ * A directory is full when its free space is below the configured minimum, and slow when the throughput of the writes
+ * to it is below the configured ratio of the throughput of the fastest directory of the spill set.
+ * <p>
+ * The throughput is measured over the recent writes: the files report the bytes they wrote and the time it took, up to
+ * their flush to the file system, as they are flushed and closed; the former reports weigh less and less with time.
+ * A slow directory thus gets files again once its measure is too old to tell, and is measured anew.
+ */
+public class SpillDirectory {
+
+  /**
+   * Bytes written to a directory recently (as decayed) before its throughput is compared with the others.
+   */
+  static final long MIN_THROUGHPUT_SAMPLE = 64L * 1024 * 1024;
+
+  /**
+   * Time over which the weight of the writes to a directory in its throughput decays by a factor of e.
+   */
+  static final long THROUGHPUT_WINDOW_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+  /**
+   * Age of the free space of a directory before it is read again.
+   */
+  private static final long FREE_SPACE_REFRESH_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+  private final String path;
+  private final AtomicInteger openFiles = new AtomicInteger();
+  private final AtomicLong inFlightBytes = new AtomicLong();
+  private final AtomicLong totalFiles = new AtomicLong();
+  private final AtomicLong writtenBytes = new AtomicLong();
+  private final AtomicLong writeNanos = new AtomicLong();
+  // bytes and time of the writes reported, decayed with time, and when they were last reported
+  private double recentBytes;
+  private double recentNanos;
+  private long recentTime;
+  // free bytes as last read, -1 if unknown, and when they were read
+  private volatile long freeSpace = -1;
+  private volatile long freeSpaceTime;
+  private volatile boolean full;
+  private volatile boolean slow;
+
+  SpillDirectory(String path) {
+    this.path = path;
+  }
+
+  /**
+   * Chooses the directory of the next spill file among the directories of a spill set: the directories which are
+   * neither full nor slow (all of them if none is), then those with the fewest files being written, and the fewest
+   * bytes in flight, then the first of those from the given position.
+   *
+   * @param directories directories of the spill set
+   * @param start position in the directories of the next one of the rotation
+   * @param minFreeSpace free bytes under which a directory is full
+   * @param slowRatio ratio of the best throughput under which a directory is slow
+   * @param now current time (nanoseconds)
+   * @return the position of the chosen directory
+   */
+  static int choose(List<SpillDirectory> directories, int start, long minFreeSpace, double slowRatio, long now) {
+    double bestThroughput = 0;
+    for (SpillDirectory directory : directories) {
+      bestThroughput = Math.max(bestThroughput, directory.getThroughput(now));
+    }
+    boolean anyHealthy = false;
+    for (SpillDirectory directory : directories) {
+      directory.full = directory.freeSpace >= 0 && directory.freeSpace < minFreeSpace;
+      final double throughput = directory.getThroughput(now);
+      directory.slow = throughput > 0 && throughput < bestThroughput * slowRatio;
+      anyHealthy |= directory.isHealthy();
+    }
+
+    int chosen = -1;
+    final int count = directories.size();
+    for (int i = 0; i < count; i++) {
+      final int position = (start + i) % count;
+      final SpillDirectory directory = directories.get(position);
+      if (anyHealthy && !directory.isHealthy()) {
+        continue;
+      }
+      if (chosen == -1 || directory.isLessLoaded(directories.get(chosen))) {
+        chosen = position;
+      }
+    }
+    return chosen;
+  }
+
+  private boolean isLessLoaded(SpillDirectory other) {
+    final int files = openFiles.get();
+    final int otherFiles = other.openFiles.get();
+    return files < otherFiles || files == otherFiles && inFlightBytes.get() < other.inFlightBytes.get();
+  }
+
+  boolean needsFreeSpace(long now) {
+    return freeSpace < 0 || now - freeSpaceTime > FREE_SPACE_REFRESH_NANOS;
+  }
+
+  void setFreeSpace(long freeSpace, long now) {
+    this.freeSpace = freeSpace;
+    this.freeSpaceTime = now;
+  }
+
+  void fileOpened() {
+    openFiles.incrementAndGet();
+    totalFiles.incrementAndGet();
+  }
+
+  void written(long bytes) {
+    inFlightBytes.addAndGet(bytes);
+    writtenBytes.addAndGet(bytes);
+  }
+
+  /**
+   * Reports writes to the directory, as a file is flushed or closed.
+   *
+   * @param bytes bytes written by the file since its last report
+   * @param nanos time taken to write and flush them
+   * @param now current time (nanoseconds)
+   */
+  synchronized void flushed(long bytes, long nanos, long now) {
+    writeNanos.addAndGet(nanos);
+    final double decay = decay(now);
+    recentBytes = recentBytes * decay + bytes;
+    recentNanos = recentNanos * decay + nanos;
+    recentTime = now;
+  }
+
+  private double decay(long now) {
+    return Math.exp(-(double) Math.max(now - recentTime, 0) / THROUGHPUT_WINDOW_NANOS);
+  }
+
+  void fileClosed(long bytes) {
+    openFiles.decrementAndGet();
+    inFlightBytes.addAndGet(-bytes);
+  }
+
+  public String getPath() { return path; }
+  public long getFreeSpace() { return freeSpace; }
+  public int getOpenFiles() { return openFiles.get(); }
+  public long getInFlightBytes() { return inFlightBytes.get(); }
+  public long getTotalFiles() { return totalFiles.get(); }
+  public long getWrittenBytes() { return writtenBytes.get(); }
+  public long getWriteNanos() { return writeNanos.get(); }
+  public boolean isFull() { return full; }
+  public boolean isSlow() { return slow; }
+  public boolean isHealthy() { return !full && !slow; }
+
+  /**
+   * @param now current time (nanoseconds)
+   * @return the bytes written per second recently, 0 unless enough bytes were written recently to tell
+   */
+  public synchronized double getThroughput(long now) {
+    if (recentBytes * decay(now) < MIN_THROUGHPUT_SAMPLE || recentNanos == 0) {
+      return 0;
+    }
+    return recentBytes * 1e9 / recentNanos;
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Input stream of a spill file written by a {@link SpillOutputStream}, read by blocks.
+ * <p>
+ * With a reader, the stream reads (and decompresses) the next block on the reader while the current one is consumed.
+ * A read returns as many bytes as asked for, unless the end of the file is reached.
+ */
+public class SpillInputStream extends InputStream {
+
+  /**
+   * Block of data read from the file.
+   */
+  private static class Block {
+    private final byte[] data = new byte[SpillOutputStream.BLOCK_SIZE];
+    // bytes of data in the block, 0 at the end of the file
+    private int length;
+    // bytes of the file read for the block
+    private int storedLength;
+  }
+
+  private final InputStream in;
+  private final boolean compress;
+  private final ExecutorService reader;
+  private final byte[] frame;
+
+  private Block current = new Block();
+  private Block spare;
+  private Future<Block> pendingRead;
+  private int position;
+  private boolean eof;
+  private long storedBytes;
+
+  /**
+   * @param in stream of the file
+   * @param compress whether the blocks of the file are compressed
+   * @param reader executor of the reads of the blocks ahead, or null to read them on the calling thread
+   */
+  SpillInputStream(InputStream in, boolean compress, ExecutorService reader) {
+    this.in = in;
+    this.compress = compress;
+    this.reader = reader;
+    this.frame = compress ? new byte[Snappy.maxCompressedLength(SpillOutputStream.BLOCK_SIZE)] : null;
+    if (reader != null) {
+      spare = new Block();
+    }
+  }
+
+  @Override
+  public int read() throws IOException {
+    if (position == current.length && !nextBlock()) {
+      return -1;
+    }
+    return current.data[position++] & 0xFF;
+  }
+
+  @Override
+  public int read(byte[] b, int off, int len) throws IOException {
+    if (len == 0) {
+      return 0;
+    }
+    int read = 0;
+    while (read < len) {
+      if (position == current.length && !nextBlock()) {
+        return read == 0 ? -1 : read;
+      }
+      final int count = Math.min(len - read, current.length - position);
+      System.arraycopy(current.data, position, b, off + read, count);
+      position += count;
+      read += count;
+    }
+    return read;
+  }
+
+  /**
+   * @return the bytes of the file consumed so far
+   */
+  public long getPosition() {
+    return storedBytes;
+  }
+
+  @Override
+  public void close() throws IOException {
+    try {
+      // the reader must be done with the file before it is closed
+      if (pendingRead != null) {
+        pendingRead.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } catch (ExecutionException e) {
+      // the block is not needed any more
+    } finally {
+      pendingRead = null;
+      in.close();
+    }
+  }
+
+  private boolean nextBlock() throws IOException {
+    if (eof) {
+      return false;
+    }
+    if (reader == null) {
+      readBlock(current);
+    } else {
+      if (pendingRead == null) {
+        pendingRead = submitRead(spare);
+      }
+      final Block next = awaitRead();
+      spare = current;
+      current = next;
+      if (current.length > 0) {
+        pendingRead = submitRead(spare);
+      }
+    }
+    position = 0;
+    storedBytes += current.storedLength;
+    eof = current.length == 0;
+    return !eof;
+  }
+
+  private Future<Block> submitRead(final Block block) {
+    return reader.submit(new Callable<Block>() {
+      @Override
+      public Block call() throws IOException {
+        readBlock(block);
+        return block;
+      }
+    });
+  }
+
+  private Block awaitRead() throws IOException {
+    try {
+      return pendingRead.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while reading a spill file");
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      }
+      throw new IOException("Failed to read a spill file", e.getCause());
+    } finally {
+      pendingRead = null;
+    }
+  }
+
+  private void readBlock(Block block) throws IOException {
+    if (!compress) {
+      block.length = readFully(block.data, block.data.length);
+      block.storedLength = block.length;
+      return;
+    }
+    final int headerLength = readFully(frame, SpillOutputStream.FRAME_HEADER);
+    if (headerLength == 0) {
+      block.length = 0;
+      block.storedLength = 0;
+      return;
+    }
+    if (headerLength < SpillOutputStream.FRAME_HEADER) {
+      throw new IOException("Truncated spill file");
+    }
+    final int rawLength = SpillOutputStream.getInt(frame, 0);
+    final int storedLength = SpillOutputStream.getInt(frame, 4);
+    if (rawLength <= 0 || rawLength > block.data.length || storedLength <= 0 || storedLength > rawLength ||
+        storedLength > frame.length) {
+      throw new IOException("Corrupt spill file");
+    }
+    if (storedLength == rawLength) {
+      if (readFully(block.data, rawLength) < rawLength) {
+        throw new IOException("Truncated spill file");
+      }
+    } else {
+      if (readFully(frame, storedLength) < storedLength) {
+        throw new IOException("Truncated spill file");
+      }
+      if (Snappy.uncompress(frame, 0, storedLength, block.data, 0) != rawLength) {
+        throw new IOException("Corrupt spill file");
+      }
+    }
+    block.length = rawLength;
+    block.storedLength = SpillOutputStream.FRAME_HEADER + storedLength;
+  }
+
+  /**
+   * @return the bytes read, less than asked for only at the end of the file
+   */
+  private int readFully(byte[] b, int len) throws IOException {
+    int read = 0;
+    while (read < len) {
+      final int n = in.read(b, read, len - read);
+      if (n == -1) {
+        break;
+      }
+      read += n;
+    }
+    return read;
+  }
+}
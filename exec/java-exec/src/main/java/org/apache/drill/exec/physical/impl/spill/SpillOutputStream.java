@@ -0,0 +1,281 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import org.xerial.snappy.Snappy;
+
+/**
+ * Output stream of a spill file, written by blocks.
+ * <p>
+ * With compression, each block is compressed with Snappy and written as a frame: the raw length of the block, the
+ * length of the stored bytes, then the stored bytes. A block which does not compress is stored raw, with both lengths
+ * equal. Without compression, the blocks are written as they are.
+ * <p>
+ * With a writer, the blocks are double-buffered: a full block is handed to the writer, and the stream fills the
+ * other one (compressing it on the thread of the operator) while the first is written to disk. The stream only waits
+ * for the write of a block when the next one is full; the time waited is the write stall of the stream.
+ */
+public class SpillOutputStream extends OutputStream {
+
+  /**
+   * Bytes of data in a block.
+   */
+  static final int BLOCK_SIZE = 64 * 1024;
+
+  /**
+   * Bytes of the header of a compressed frame: the raw length, then the stored length.
+   */
+  static final int FRAME_HEADER = 8;
+
+  private final SpillSet spillSet;
+  private final OutputStream out;
+  private final boolean compress;
+  private final ExecutorService writer;
+
+  private byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength;
+  // buffer handed to the writer along with the one being written, when double-buffering
+  private byte[] spareBlock;
+  private byte[] frame;
+  private byte[] spareFrame;
+  private Future<Void> pendingWrite;
+  // failure of an asynchronous write, thrown again by the following ones
+  private IOException writeFailure;
+
+  private long rawBytes;
+  private long storedBytes;
+  private long stallNanos;
+  private boolean closed;
+
+  /**
+   * @param spillSet spill set of the file, which tallies the raw bytes and write stall of the stream when it closes
+   * @param out stream of the file
+   * @param compress whether the blocks are compressed
+   * @param writer executor of the writes of the blocks, or null to write them on the calling thread
+   */
+  SpillOutputStream(SpillSet spillSet, OutputStream out, boolean compress, ExecutorService writer) {
+    this.spillSet = spillSet;
+    this.out = out;
+    this.compress = compress;
+    this.writer = writer;
+    if (compress) {
+      frame = new byte[FRAME_HEADER + Snappy.maxCompressedLength(BLOCK_SIZE)];
+    }
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    block[blockLength++] = (byte) b;
+    if (blockLength == BLOCK_SIZE) {
+      emitBlock();
+    }
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    while (len > 0) {
+      final int count = Math.min(len, BLOCK_SIZE - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength += count;
+      off += count;
+      len -= count;
+      if (blockLength == BLOCK_SIZE) {
+        emitBlock();
+      }
+    }
+  }
+
+  @Override
+  public void flush() throws IOException {
+    emitBlock();
+    awaitWrite();
+    out.flush();
+  }
+
+  /**
+   * Writes the partial block, waiting for the writes in flight.
+   *
+   * @return the bytes written to the file so far
+   */
+  public long getPosition() throws IOException {
+    emitBlock();
+    awaitWrite();
+    return storedBytes;
+  }
+
+  /**
+   * @param compress whether the blocks are compressed
+   * @param async whether the blocks are written by a writer
+   * @return the heap bytes taken by the buffers of a stream: the block, and the frame it is compressed into, or the
+   * spare ones as well when double-buffering
+   */
+  static long getBufferBytes(boolean compress, boolean async) {
+    if (compress) {
+      return BLOCK_SIZE + (async ? 2L : 1L) * (FRAME_HEADER + Snappy.maxCompressedLength(BLOCK_SIZE));
+    }
+    return (async ? 2L : 1L) * BLOCK_SIZE;
+  }
+
+  public long getRawBytes() { return rawBytes; }
+  public long getStallNanos() { return stallNanos; }
+
+  @Override
+  public void close() throws IOException {
+    if (closed) {
+      return;
+    }
+    closed = true;
+    try {
+      emitBlock();
+      awaitWrite();
+    } finally {
+      // the file is not closed under a write in flight, whatever failed above
+      cancelOrAwaitWrite();
+      out.close();
+      spillSet.tallyRawWriteBytes(rawBytes);
+      spillSet.tallyWriteStall(stallNanos);
+    }
+  }
+
+  private void emitBlock() throws IOException {
+    if (blockLength == 0) {
+      return;
+    }
+    rawBytes += blockLength;
+    if (compress) {
+      int stored = Snappy.compress(block, 0, blockLength, frame, FRAME_HEADER);
+      if (stored >= blockLength) {
+        System.arraycopy(block, 0, frame, FRAME_HEADER, blockLength);
+        stored = blockLength;
+      }
+      putInt(frame, 0, blockLength);
+      putInt(frame, 4, stored);
+      writeBuffer(frame, FRAME_HEADER + stored);
+      if (writer != null) {
+        // the frame is being written: compress the next block into the other one
+        if (spareFrame == null) {
+          spareFrame = new byte[frame.length];
+        }
+        final byte[] written = frame;
+        frame = spareFrame;
+        spareFrame = written;
+      }
+    } else {
+      writeBuffer(block, blockLength);
+      if (writer != null) {
+        if (spareBlock == null) {
+          spareBlock = new byte[BLOCK_SIZE];
+        }
+        final byte[] written = block;
+        block = spareBlock;
+        spareBlock = written;
+      }
+    }
+    blockLength = 0;
+  }
+
+  /**
+   * Writes a buffer to the file, on the writer once the write of the previous buffer is done.
+   */
+  private void writeBuffer(final byte[] buffer, final int length) throws IOException {
+    storedBytes += length;
+    if (writer == null) {
+      out.write(buffer, 0, length);
+      return;
+    }
+    awaitWrite();
+    pendingWrite = writer.submit(new Callable<Void>() {
+      @Override
+      public Void call() throws IOException {
+        out.write(buffer, 0, length);
+        return null;
+      }
+    });
+  }
+
+  private void awaitWrite() throws IOException {
+    if (writeFailure != null) {
+      throw writeFailure;
+    }
+    if (pendingWrite == null) {
+      return;
+    }
+    final long start = System.nanoTime();
+    try {
+      pendingWrite.get();
+      pendingWrite = null;
+    } catch (InterruptedException e) {
+      // the write is still in flight, close() waits for it
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while writing a spill file");
+    } catch (ExecutionException e) {
+      pendingWrite = null;
+      writeFailure = e.getCause() instanceof IOException ? (IOException) e.getCause() :
+          new IOException("Failed to write a spill file", e.getCause());
+      throw writeFailure;
+    } finally {
+      stallNanos += System.nanoTime() - start;
+    }
+  }
+
+  /**
+   * Drops the write in flight if the writer did not start it yet (e.g. it was shut down), otherwise waits for it to
+   * end, even if interrupted. Its failure, if any, is not thrown: the file is discarded on failure.
+   */
+  private void cancelOrAwaitWrite() {
+    if (pendingWrite == null || pendingWrite.cancel(false)) {
+      pendingWrite = null;
+      return;
+    }
+    boolean interrupted = false;
+    while (true) {
+      try {
+        pendingWrite.get();
+        break;
+      } catch (InterruptedException e) {
+        interrupted = true;
+      } catch (ExecutionException e) {
+        break;
+      }
+    }
+    pendingWrite = null;
+    if (interrupted) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  static void putInt(byte[] buffer, int index, int value) {
+    buffer[index] = (byte) (value >>> 24);
+    buffer[index + 1] = (byte) (value >>> 16);
+    buffer[index + 2] = (byte) (value >>> 8);
+    buffer[index + 3] = (byte) value;
+  }
+
+  static int getInt(byte[] buffer, int index) {
+    return ((buffer[index] & 0xFF) << 24) | ((buffer[index + 1] & 0xFF) << 16) |
+        ((buffer[index + 2] & 0xFF) << 8) | (buffer[index + 3] & 0xFF);
+  }
+}
@@ -25,9 +25,12 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
-import java.util.Iterator;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutorService;
 
 import org.apache.directory.api.util.Strings;
 import org.apache.drill.common.config.DrillConfig;
@@ -36,18 +39,23 @@ import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.physical.base.PhysicalOperator;
 import org.apache.drill.exec.physical.config.HashAggregate;
+import org.apache.drill.exec.physical.config.HashJoinPOP;
+import org.apache.drill.exec.physical.config.Screen;
 import org.apache.drill.exec.physical.config.Sort;
 import org.apache.drill.exec.proto.CoordinationProtos.DrillbitEndpoint;
 import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
 import org.apache.drill.exec.proto.helper.QueryIdHelper;
+import org.apache.drill.exec.server.options.OptionSet;
 import org.apache.hadoop.conf.Configuration;
 import org.apache.hadoop.fs.FSDataInputStream;
 import org.apache.hadoop.fs.FSDataOutputStream;
 import org.apache.hadoop.fs.FileSystem;
+import org.apache.hadoop.fs.LocalFileSystem;
 import org.apache.hadoop.fs.Path;
 
 import com.google.common.base.Joiner;
-import com.google.common.collect.Iterators;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 import com.google.common.collect.Sets;
 
 /**
@@ -92,6 +100,23 @@ public class SpillSet {
      * @return
      */
     long getReadBytes(InputStream inputStream);
+
+    /**
+     * Given a spill directory, return the bytes available to write to it.
+     *
+     * @param dir spill directory
+     * @return the free bytes of the directory, or -1 if unknown
+     */
+    long getFreeSpace(String dir);
+
+    /**
+     * Given a spill file, return the file on the local file system, to map
+     * it in memory.
+     *
+     * @param fileName spill file
+     * @return the local file, or null if the file is not on the local file system
+     */
+    File getLocalFile(String fileName);
   }
 
   /**
@@ -172,6 +197,24 @@ public class SpillSet {
         return 0;
       }
     }
+
+    @Override
+    public long getFreeSpace(String dir) {
+      try {
+        return fs.getStatus(new Path(dir)).getRemaining();
+      } catch (IOException e) {
+        // Just used for placing the files, not worth dealing with the exception.
+        return -1;
+      }
+    }
+
+    @Override
+    public File getLocalFile(String fileName) {
+      if (fs instanceof LocalFileSystem) {
+        return ((LocalFileSystem) fs).pathToFile(new Path(fileName));
+      }
+      return null;
+    }
   }
 
   /**
@@ -330,16 +373,143 @@ public class SpillSet {
     public long getReadBytes(InputStream inputStream) {
       return ((CountingInputStream) inputStream).getCount();
     }
+
+    @Override
+    public long getFreeSpace(String dir) {
+      // the directory is created with the first spill file
+      File file = new File(baseDir, dir).getAbsoluteFile();
+      while (file != null && ! file.exists()) {
+        file = file.getParentFile();
+      }
+      return file == null ? -1 : file.getUsableSpace();
+    }
+
+    @Override
+    public File getLocalFile(String fileName) {
+      return new File(baseDir, fileName);
+    }
   }
 
-  private final Iterator<String> dirs;
+  /**
+   * Wrapper around the output stream of a spill file to collect the
+   * bytes written to its directory, and the time taken to write them
+   * through to the file system (reported as the file is flushed and
+   * closed), for use in placing the spill files.
+   */
+
+  private class DirectoryOutputStream extends OutputStream {
+
+    private final OutputStream out;
+    private final SpillDirectory directory;
+    private long count;
+    // bytes written, and time taken, since the last report to the directory
+    private long reportBytes;
+    private long reportNanos;
+    private boolean closed;
+
+    public DirectoryOutputStream(OutputStream out, SpillDirectory directory) {
+      this.out = out;
+      this.directory = directory;
+      directory.fileOpened();
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+      long start = System.nanoTime();
+      out.write(b);
+      written(1, start);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+      long start = System.nanoTime();
+      out.write(b, off, len);
+      written(len, start);
+    }
+
+    private void written(long bytes, long start) {
+      count += bytes;
+      reportBytes += bytes;
+      reportNanos += System.nanoTime() - start;
+      directory.written(bytes);
+    }
+
+    /**
+     * Reports the writes to the directory once they reach the file system:
+     * the writes may only fill the buffers of the stream.
+     */
+
+    private void report(long start) {
+      long now = System.nanoTime();
+      directory.flushed(reportBytes, reportNanos + now - start, now);
+      reportBytes = 0;
+      reportNanos = 0;
+    }
+
+    @Override
+    public void flush() throws IOException {
+      long start = System.nanoTime();
+      out.flush();
+      report(start);
+    }
+
+    @Override
+    public void close() throws IOException {
+      if (closed) {
+        return;
+      }
+      closed = true;
+      long start = System.nanoTime();
+      try {
+        out.close();
+        report(start);
+      } finally {
+        directory.fileClosed(count);
+      }
+    }
+
+    public long getWriteBytes() {
+      return fileManager.getWriteBytes(out);
+    }
+  }
 
   /**
-   * Set of directories to which this operator should write spill files in a round-robin
-   * fashion. The operator requires at least one spill directory, but can
-   * support any number. The admin must ensure that sufficient space exists
-   * on all directories as this operator does not check space availability
-   * before writing to the directories.
+   * Directories of the spill file system to which this operator should
+   * write spill files, by the base path given in the configuration.
+   */
+
+  private final List<String> dirList;
+
+  private final List<SpillDirectory> directories = Lists.newArrayList();
+
+  /**
+   * Position in the directories of the next one of the rotation.
+   */
+
+  private int nextDir;
+
+  /**
+   * Free bytes under which a directory is full, and ratio of the best
+   * throughput under which a directory is slow.
+   */
+
+  private final long minFreeSpace;
+
+  private final double slowDiskRatio;
+
+  /**
+   * Directories of the spill files returned but not opened yet.
+   */
+
+  private final Map<String, SpillDirectory> fileDirs = Maps.newHashMap();
+
+  /**
+   * Set of directories to which this operator wrote spill files. The operator
+   * requires at least one spill directory, but can support any number. The
+   * runs of the operator are striped across them: each file goes to the
+   * directory with the fewest files being written, by drillbit, skipping
+   * the directories short of space or slower than the others, in a
+   * round-robin fashion among the equally loaded ones.
    */
 
   private Set<String> currSpillDirs = Sets.newTreeSet();
@@ -359,18 +529,67 @@ public class SpillSet {
 
   private long writeBytes;
 
+  /**
+   * Bytes written to the spill streams before compression, and time the
+   * operator waited for the asynchronous writes of their blocks.
+   */
+
+  private long rawWriteBytes;
+
+  private long writeStallNanos;
+
+  /**
+   * Whether the blocks of the spill files are compressed, and whether
+   * they are written and read ahead asynchronously.
+   */
+
+  private final boolean compress;
+
+  private final boolean asyncIo;
+
+  /**
+   * Threads of the drillbit writing and reading the blocks of the spill
+   * files ahead of the operators, when asynchronous spill I/O is enabled.
+   */
+
+  private final ExecutorService ioExecutor;
+
+  /**
+   * Whether the spill files are mapped in memory when read back, when they
+   * are neither compressed nor on a distributed file system.
+   */
+
+  private final boolean mmapReads;
+
   public SpillSet(FragmentContext context, PhysicalOperator popConfig) {
-    this(context.getConfig(), context.getHandle(), popConfig,
+    this(context, popConfig,
          // Endpoint appears to be null in some tests.
          context.getDrillbitContext() == null ? null :
          context.getDrillbitContext().getEndpoint());
   }
 
   public SpillSet(FragmentContext context, PhysicalOperator popConfig, DrillbitEndpoint ep) {
-    this(context.getConfig(), context.getHandle(), popConfig, ep);
+    this(context.getConfig(), context.getHandle(), popConfig, ep, context.getOptions(),
+         context.getDrillbitContext() == null ? null :
+         context.getDrillbitContext().getSpillIoExecutor(),
+         context.getDrillbitContext() == null ? new SpillDirectories() :
+         context.getDrillbitContext().getSpillDirectories());
   }
 
   public SpillSet(DrillConfig config, FragmentHandle handle, PhysicalOperator popConfig, DrillbitEndpoint ep) {
+    this(config, handle, popConfig, ep, null, null, new SpillDirectories());
+  }
+
+  /**
+   * @param options options of the fragment, which enable the compression and asynchronous I/O
+   * of the spill files; null to spill without
+   * @param ioExecutor spill I/O threads of the drillbit; null to write and read the spill
+   * files on the thread of the operator
+   * @param spillDirectories spill directories of the drillbit, shared with the other spill sets
+   */
+
+  public SpillSet(DrillConfig config, FragmentHandle handle, PhysicalOperator popConfig, DrillbitEndpoint ep,
+                  OptionSet options, ExecutorService ioExecutor, SpillDirectories spillDirectories) {
     String operName;
 
     // Set the spill options from the configuration
@@ -388,6 +607,15 @@ public class SpillSet {
         operName = "HashAgg";
         spillFs = config.getString(ExecConstants.HASHAGG_SPILL_FILESYSTEM);
         dirList = config.getStringList(ExecConstants.HASHAGG_SPILL_DIRS);
+    } else if (popConfig instanceof HashJoinPOP) {
+        operName = "HashJoin";
+        spillFs = config.getString(ExecConstants.HASHJOIN_SPILL_FILESYSTEM);
+        dirList = config.getStringList(ExecConstants.HASHJOIN_SPILL_DIRS);
+    } else if (popConfig instanceof Screen) {
+        // the spool of the results uses the common ones
+        operName = "Screen";
+        spillFs = config.getString(ExecConstants.SPILL_FILESYSTEM);
+        dirList = config.getStringList(ExecConstants.SPILL_DIRS);
     } else {
         // just use the common ones
         operName = "Unknown";
@@ -395,7 +623,12 @@ public class SpillSet {
         dirList = config.getStringList(ExecConstants.SPILL_DIRS);
     }
 
-    dirs = Iterators.cycle(dirList);
+    this.dirList = dirList;
+    for (String dir : dirList) {
+      directories.add(spillDirectories.get(spillFs, dir));
+    }
+    minFreeSpace = config.getBytes(ExecConstants.SPILL_MIN_FREE_SPACE);
+    slowDiskRatio = config.getDouble(ExecConstants.SPILL_SLOW_DISK_RATIO);
 
     // If more than one directory, semi-randomly choose an offset into
     // the list to avoid overloading the first directory in the list.
@@ -405,10 +638,7 @@ public class SpillSet {
                  handle.getMajorFragmentId() +
                  handle.getMinorFragmentId() +
                  popConfig.getOperatorId();
-      int offset = hash % dirList.size();
-      for (int i = 0; i < offset; i++) {
-        dirs.next();
-      }
+      nextDir = Math.abs(hash % dirList.size());
     }
 
     // Use the high-performance local file system if the local file
@@ -433,6 +663,11 @@ public class SpillSet {
         nodeDir,
         QueryIdHelper.getQueryId(handle.getQueryId()),
         operName, handle.getMajorFragmentId(), popConfig.getOperatorId(), handle.getMinorFragmentId());
+
+    compress = options != null && options.getOption(ExecConstants.SPILL_COMPRESS_VALIDATOR);
+    asyncIo = options != null && ioExecutor != null && options.getOption(ExecConstants.SPILL_ASYNC_IO_VALIDATOR);
+    this.ioExecutor = ioExecutor;
+    mmapReads = options != null && options.getOption(ExecConstants.SPILL_MMAP_READS_VALIDATOR);
   }
 
   public String getNextSpillFile() {
@@ -441,11 +676,20 @@ public class SpillSet {
 
   public String getNextSpillFile(String extraName) {
 
-    // Identify the next directory from the round-robin list to
-    // the file created from this round of spilling. The directory must
-    // must have sufficient space for the output file.
+    // Identify the directory of the file created from this round of
+    // spilling: the least loaded one, with sufficient space for the
+    // output file, from the round-robin list.
 
-    String spillDir = dirs.next();
+    long now = System.nanoTime();
+    for (int i = 0; i < directories.size(); i++) {
+      SpillDirectory directory = directories.get(i);
+      if (directory.needsFreeSpace(now)) {
+        directory.setFreeSpace(fileManager.getFreeSpace(dirList.get(i)), now);
+      }
+    }
+    int chosen = SpillDirectory.choose(directories, nextDir, minFreeSpace, slowDiskRatio, now);
+    nextDir = (chosen + 1) % directories.size();
+    String spillDir = dirList.get(chosen);
     String currSpillPath = Joiner.on("/").join(spillDir, spillDirName);
     currSpillDirs.add(currSpillPath);
 
@@ -460,6 +704,7 @@ public class SpillSet {
         // since this is meant to be used in a batches's spilling, we don't propagate the exception
         logger.warn("Unable to mark spill directory " + currSpillPath + " for deleting on exit", e);
     }
+    fileDirs.put(outputFile, directories.get(chosen));
     return outputFile;
   }
 
@@ -469,22 +714,78 @@ public class SpillSet {
 
   public int getFileCount() { return fileCount; }
 
+  @SuppressWarnings("resource")
   public InputStream openForInput(String fileName) throws IOException {
-    return fileManager.openForInput(fileName);
+    InputStream in = fileManager.openForInput(fileName);
+    if (compress || asyncIo) {
+      return new SpillInputStream(in, compress, asyncIo ? ioExecutor : null);
+    }
+    return in;
+  }
+
+  /**
+   * Opens a spill file to map its regions in memory, when the spill files are
+   * mapped when read back, and this one can be: it is on the local file
+   * system, and not compressed.
+   *
+   * @param fileName spill file
+   * @return the channel of the file, open for reading and writing as private
+   * mappings require; null to read the file through
+   * {@link #openForInput(String)}
+   */
+
+  @SuppressWarnings("resource")
+  public FileChannel openForMapping(String fileName) throws IOException {
+    if (! mmapReads || compress) {
+      return null;
+    }
+    File file = fileManager.getLocalFile(fileName);
+    if (file == null) {
+      return null;
+    }
+    return new RandomAccessFile(file, "rw").getChannel();
   }
 
+  @SuppressWarnings("resource")
   public OutputStream openForOutput(String fileName) throws IOException {
-    return fileManager.createForWrite(fileName);
+    OutputStream out = fileManager.createForWrite(fileName);
+    SpillDirectory directory = fileDirs.remove(fileName);
+    if (directory != null) {
+      out = new DirectoryOutputStream(out, directory);
+    }
+    if (compress || asyncIo) {
+      return new SpillOutputStream(this, out, compress, asyncIo ? ioExecutor : null);
+    }
+    return out;
   }
 
   public void delete(String fileName) throws IOException {
+    fileDirs.remove(fileName);
     fileManager.deleteFile(fileName);
   }
 
   public long getWriteBytes() { return writeBytes; }
   public long getReadBytes() { return readBytes; }
 
+  /**
+   * @return the bytes spilled before compression; the bytes written when
+   * the spill files are not compressed
+   */
+
+  public long getRawWriteBytes() { return compress ? rawWriteBytes : writeBytes; }
+  public long getWriteStallNanos() { return writeStallNanos; }
+
+  /**
+   * @return the heap bytes taken by the buffers of each spill file open
+   * for output, when compressed or written asynchronously; 0 otherwise
+   */
+
+  public long getOutputBufferBytes() {
+    return compress || asyncIo ? SpillOutputStream.getBufferBytes(compress, asyncIo) : 0;
+  }
+
   public void close() {
+    fileDirs.clear();
     for (String path : currSpillDirs) {
       try {
         fileManager.deleteDir(path);
@@ -496,10 +797,25 @@ public class SpillSet {
   }
 
   public long getPosition(InputStream inputStream) {
+    if (inputStream instanceof SpillInputStream) {
+      return ((SpillInputStream) inputStream).getPosition();
+    }
     return fileManager.getReadBytes(inputStream);
   }
 
   public long getPosition(OutputStream outputStream) {
+    if (outputStream instanceof SpillOutputStream) {
+      try {
+        return ((SpillOutputStream) outputStream).getPosition();
+      } catch (IOException e) {
+        // Just used for logging, not worth dealing with the exception.
+        // The stream throws it again when closed.
+        return 0;
+      }
+    }
+    if (outputStream instanceof DirectoryOutputStream) {
+      return ((DirectoryOutputStream) outputStream).getWriteBytes();
+    }
     return fileManager.getWriteBytes(outputStream);
   }
 
@@ -510,4 +826,12 @@ public class SpillSet {
   public void tallyWriteBytes(long writeLength) {
     writeBytes += writeLength;
   }
+
+  void tallyRawWriteBytes(long rawLength) {
+    rawWriteBytes += rawLength;
+  }
+
+  void tallyWriteStall(long stallNanos) {
+    writeStallNanos += stallNanos;
+  }
 }
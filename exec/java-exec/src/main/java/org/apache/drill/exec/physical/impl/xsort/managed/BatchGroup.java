@@ -20,6 +20,7 @@ package org.apache.drill.exec.physical.impl.xsort.managed;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 import java.util.Collection;
 import java.util.Iterator;
 import java.util.concurrent.TimeUnit;
@@ -147,6 +148,9 @@ public abstract class BatchGroup implements VectorAccessible, AutoCloseable {
     private long batchSize;
     private VectorSerializer.Writer writer;
     private VectorSerializer.Reader reader;
+    // spill file mapped in memory when read back, rather than read through the input stream
+    private FileChannel channel;
+    private VectorSerializer.ChannelReader channelReader;
 
     public SpilledRun(SpillSet spillSet, String path, BufferAllocator allocator) throws IOException {
       super(null, allocator);
@@ -207,13 +211,18 @@ public abstract class BatchGroup implements VectorAccessible, AutoCloseable {
     }
 
     private VectorContainer getBatch() throws IOException {
-      if (inputStream == null) {
-        inputStream = spillSet.openForInput(path);
-        reader = VectorSerializer.reader(allocator, inputStream);
+      if (inputStream == null && channel == null) {
+        channel = spillSet.openForMapping(path);
+        if (channel != null) {
+          channelReader = VectorSerializer.reader(allocator, channel);
+        } else {
+          inputStream = spillSet.openForInput(path);
+          reader = VectorSerializer.reader(allocator, inputStream);
+        }
       }
       Stopwatch watch = Stopwatch.createStarted();
       long start = allocator.getAllocatedMemory();
-      VectorContainer c =  reader.read();
+      VectorContainer c = channelReader != null ? channelReader.read() : reader.read();
       long end = allocator.getAllocatedMemory();
       logger.trace("Read {} records in {} us; size = {}, memory = {}",
                    c.getRecordCount(),
@@ -269,6 +278,16 @@ public abstract class BatchGroup implements VectorAccessible, AutoCloseable {
     }
 
     private void closeInputStream() throws IOException {
+      if (channel != null) {
+        long readLength = channelReader.position();
+        spillSet.tallyReadBytes(readLength);
+        // the regions mapped from the file stay mapped until their vectors are released
+        channel.close();
+        channel = null;
+        channelReader = null;
+        logger.trace("Summary: Read {} bytes from {}", readLength, path);
+        return;
+      }
       if (inputStream == null) {
         return;
       }
@@ -202,9 +202,11 @@ public class ExternalSortBatch extends AbstractRecordBatch<ExternalSort> {
     PEAK_BATCHES_IN_MEMORY, // maximum number of batches kept in memory
     MERGE_COUNT,            // Number of second+ generation merges
     MIN_BUFFER,             // Minimum memory level observed in operation.
-    SPILL_MB;               // Number of MB of data spilled to disk. This
+    SPILL_MB,               // Number of MB of data spilled to disk. This
                             // amount is first written, then later re-read.
                             // So, disk I/O is twice this amount.
+    SPILL_RAW_MB,           // Number of MB of data spilled, before compression
+    SPILL_WRITE_STALL_MS;   // Time waited for the asynchronous writes of spill blocks
 
     @Override
     public int metricId() {
@@ -217,8 +219,7 @@ public class ExternalSortBatch extends AbstractRecordBatch<ExternalSort> {
     this.incoming = incoming;
 
     SortConfig sortConfig = new SortConfig(context.getConfig());
-    SpillSet spillSet = new SpillSet(context.getConfig(), context.getHandle(),
-                                     popConfig, context.getIdentity());
+    SpillSet spillSet = new SpillSet(context, popConfig, context.getIdentity());
     OperExecContext opContext = new OperExecContextImpl(context, oContext, popConfig, injector);
     PriorityQueueCopierWrapper copierHolder = new PriorityQueueCopierWrapper(opContext);
     SpilledRuns spilledRuns = new SpilledRuns(opContext, spillSet, copierHolder);
@@ -17,6 +17,7 @@
  */
 package org.apache.drill.exec.physical.impl.xsort.managed;
 
+import java.util.Arrays;
 import java.util.Queue;
 
 import javax.inject.Named;
@@ -29,6 +30,7 @@ import org.apache.drill.exec.record.RecordBatch;
 import org.apache.drill.exec.record.VectorContainer;
 import org.apache.drill.exec.record.selection.SelectionVector4;
 import org.apache.hadoop.util.IndexedSortable;
+import org.apache.hadoop.util.QuickSort;
 
 import com.google.common.base.Preconditions;
 import com.google.common.collect.Queues;
@@ -50,6 +52,7 @@ public abstract class MSortTemplate implements MSorter, IndexedSortable {
 
   private Queue<Integer> runStarts = Queues.newLinkedBlockingQueue();
   private FragmentExecContext context;
+  private BufferAllocator allocator;
 
   /**
    * Controls the maximum size of batches exposed to downstream
@@ -63,6 +66,7 @@ public abstract class MSortTemplate implements MSorter, IndexedSortable {
     Preconditions.checkNotNull(vector4);
     this.vector4 = vector4.createNewWrapperCurrent();
     this.context = context;
+    this.allocator = allocator;
     vector4.clear();
     doSetup(context, hyperBatch, null);
 
@@ -196,6 +200,78 @@ public abstract class MSortTemplate implements MSorter, IndexedSortable {
     aux.clear();
   }
 
+  /**
+   * Sort the records by the normalized key of their leading sort key,
+   * rather than by merging the pre-sorted runs. The entries (normalized key
+   * and SV4 entry) are laid out in a direct memory buffer, and sorted by an
+   * LSD radix sort over the bytes of the keys, skipping the bytes that are
+   * the same for all the keys. The records whose normalized keys are equal
+   * are then sorted with the generated comparator.
+   */
+
+  @Override
+  public void sort(NormalizedKeys keys) {
+    final int totalCount = vector4.getTotalCount();
+    final int width = NormalizedKeys.ENTRY_WIDTH;
+    DrillBuf from = allocator.buffer(totalCount * width);
+    DrillBuf to = allocator.buffer(totalCount * width);
+    try {
+      for (int i = 0; i < totalCount; i++) {
+        final int sv = vector4.get(i);
+        from.setLong(i * width, keys.key(sv));
+        from.setInt(i * width + 8, sv);
+      }
+
+      // Start of the entries of each value of the byte in the output
+      // of a pass, counted at index value + 1 first.
+
+      final int[] starts = new int[257];
+      for (int shift = 0; shift < 64 && totalCount > 0; shift += 8) {
+
+        // check if we're cancelled/failed recently
+        if (!context.shouldContinue()) {
+          return; }
+
+        Arrays.fill(starts, 0);
+        for (int i = 0; i < totalCount; i++) {
+          starts[(int) (from.getLong(i * width) >>> shift & 0xFF) + 1]++;
+        }
+        if (starts[(int) (from.getLong(0) >>> shift & 0xFF) + 1] == totalCount) {
+          continue;
+        }
+        for (int value = 1; value < starts.length; value++) {
+          starts[value] += starts[value - 1];
+        }
+        for (int i = 0; i < totalCount; i++) {
+          final long key = from.getLong(i * width);
+          final int position = starts[(int) (key >>> shift & 0xFF)]++;
+          to.setLong(position * width, key);
+          to.setInt(position * width + 8, from.getInt(i * width + 8));
+        }
+        final DrillBuf tmp = from;
+        from = to;
+        to = tmp;
+      }
+
+      // Back to the SV4, then sort the runs of equal keys.
+
+      final QuickSort quickSort = new QuickSort();
+      int runStart = 0;
+      for (int i = 0; i < totalCount; i++) {
+        vector4.set(i, from.getInt(i * width + 8));
+        if (i + 1 == totalCount || from.getLong((i + 1) * width) != from.getLong(runStart * width)) {
+          if (i > runStart) {
+            quickSort.sort(this, runStart, i + 1);
+          }
+          runStart = i + 1;
+        }
+      }
+    } finally {
+      from.release();
+      to.release();
+    }
+  }
+
   private void copyRun(final int start, final int end) {
     for (int i = start; i < end; i++) {
       aux.set(i, vector4.get(i));
@@ -25,6 +25,7 @@ import org.apache.drill.common.expression.ErrorCollector;
 import org.apache.drill.common.expression.ErrorCollectorImpl;
 import org.apache.drill.common.expression.LogicalExpression;
 import org.apache.drill.common.logical.data.Order.Ordering;
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.compile.sig.MappingSet;
 import org.apache.drill.exec.exception.SchemaChangeException;
 import org.apache.drill.exec.expr.ClassGenerator;
@@ -66,7 +67,9 @@ import com.sun.codemodel.JExpr;
  * continues until all records from all batches have an entry in the SV4.
  * <p>
  * The actual implementation uses an iterative merge to perform the above
- * efficiently.
+ * efficiently. Optionally, the records are instead sorted by a normalized
+ * key of their leading sort key (see {@link NormalizedKeys}), with the
+ * generated comparator only sorting the records of equal normalized keys.
  * <p>
  * A sort can only do a single merge. So, we do not attempt to share the
  * generated class; we just generate it internally and discard it at
@@ -84,6 +87,7 @@ public class MergeSortWrapper extends BaseSortWrapper implements SortResults {
   private SortRecordBatchBuilder builder;
   private MSorter mSorter;
   private SelectionVector4 sv4;
+  private NormalizedKeys keys;
   private int batchCount;
   private State state = State.FIRST;
   private final VectorContainer destContainer;
@@ -125,6 +129,9 @@ public class MergeSortWrapper extends BaseSortWrapper implements SortResults {
       Sort popConfig = context.getOperatorDefn();
       mSorter = createNewMSorter(popConfig.getOrderings(), MAIN_MAPPING, LEFT_MAPPING, RIGHT_MAPPING);
       mSorter.setup(context, context.getAllocator(), sv4, destContainer, sv4.getCount(), outputBatchSize);
+      if (context.getOptionSet().getOption(ExecConstants.EXTERNAL_SORT_NORMALIZED_KEYS_VALIDATOR)) {
+        keys = createNormalizedKeys(popConfig.getOrderings().get(0));
+      }
     } catch (SchemaChangeException e) {
       throw UserException.unsupportedError(e)
             .message("Unexpected schema change - likely code error.")
@@ -133,7 +140,11 @@ public class MergeSortWrapper extends BaseSortWrapper implements SortResults {
 
     // For testing memory-leaks, inject exception after mSorter finishes setup
     context.injectUnchecked(ExternalSortBatch.INTERRUPTION_AFTER_SETUP);
-    mSorter.sort();
+    if (keys != null) {
+      mSorter.sort(keys);
+    } else {
+      mSorter.sort();
+    }
 
     // For testing memory-leak purpose, inject exception after mSorter finishes sorting
     context.injectUnchecked(ExternalSortBatch.INTERRUPTION_AFTER_SORT);
@@ -142,6 +153,24 @@ public class MergeSortWrapper extends BaseSortWrapper implements SortResults {
 //    destContainer.buildSchema(SelectionVectorMode.FOUR_BYTE);
   }
 
+  /**
+   * Normalized keys of the leading sort key, or null if it cannot be
+   * normalized, in which case the runs are merged.
+   */
+
+  private NormalizedKeys createNormalizedKeys(Ordering od) {
+    ErrorCollector collector = new ErrorCollectorImpl();
+    final LogicalExpression expr = ExpressionTreeMaterializer.materialize(od.getExpr(), destContainer, collector, context.getFunctionRegistry());
+    if (collector.hasErrors()) {
+      return null;
+    }
+    NormalizedKeys normalizedKeys = NormalizedKeys.create(expr, od, destContainer);
+    if (normalizedKeys == null) {
+      logger.debug("Merging the sorted runs, the sort key {} has no normalized key.", od.getExpr());
+    }
+    return normalizedKeys;
+  }
+
   private MSorter createNewMSorter(List<Ordering> orderings, MappingSet mainMapping, MappingSet leftMapping, MappingSet rightMapping) {
     CodeGenerator<MSorter> cg = CodeGenerator.get(MSorter.TEMPLATE_DEFINITION, context.getFunctionRegistry(), context.getOptionSet());
     cg.plainJavaCapable(true);
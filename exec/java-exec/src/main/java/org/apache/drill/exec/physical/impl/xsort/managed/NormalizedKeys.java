@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.xsort.managed;
+
+import org.apache.calcite.rel.RelFieldCollation.Direction;
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.logical.data.Order.Ordering;
+import org.apache.drill.common.types.TypeProtos.DataMode;
+import org.apache.drill.common.types.TypeProtos.MajorType;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.expr.ValueVectorReadExpression;
+import org.apache.drill.exec.memory.BaseAllocator;
+import org.apache.drill.exec.record.TypedFieldId;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.record.VectorWrapper;
+import org.apache.drill.exec.vector.BaseDataValueVector;
+import org.apache.drill.exec.vector.NullableVector;
+import org.apache.drill.exec.vector.UInt4Vector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VarBinaryVector;
+import org.apache.drill.exec.vector.VarCharVector;
+
+import io.netty.buffer.DrillBuf;
+
+/**
+ * Normalized keys of the leading sort key of the records of a hyper-batch. The normalized key of a record is a 64-bit
+ * prefix of its sort key, encoded so that comparing the normalized keys of two records as unsigned longs orders them
+ * as the generated comparator does, unless the keys are equal: records of equal normalized keys may differ by the
+ * rest of their sort key (the bytes of a string beyond the prefix, the following sort keys) and must be compared with
+ * the generated comparator.
+ * <p>
+ * The normalized keys are read from the vectors of a column, for the sort keys that are a column of a fixed width
+ * numeric, date or time type, or of a string type.
+ */
+public class NormalizedKeys {
+
+  /**
+   * Width of an entry sorted by normalized key: the key (8 bytes), then the SV4 entry of the record (4 bytes).
+   */
+  static final int ENTRY_WIDTH = 12;
+
+  // bytes of a string in its normalized key
+  private static final int PREFIX_BYTES = 8;
+
+  private final MinorType type;
+  private final boolean nullable;
+  private final boolean descending;
+  private final boolean nullsHigh;
+  // by batch of the hyper-batch, the values of the column, their offsets for a string and the vector for the nulls
+  private final DrillBuf[] data;
+  private final UInt4Vector.Accessor[] offsets;
+  private final ValueVector.Accessor[] nulls;
+
+  private NormalizedKeys(MinorType type, boolean nullable, Ordering ordering, ValueVector[] vectors) {
+    this.type = type;
+    this.nullable = nullable;
+    this.descending = ordering.getDirection() == Direction.DESCENDING;
+    this.nullsHigh = ordering.nullsSortHigh();
+    this.data = new DrillBuf[vectors.length];
+    this.offsets = new UInt4Vector.Accessor[vectors.length];
+    this.nulls = new ValueVector.Accessor[vectors.length];
+    for (int batch = 0; batch < vectors.length; batch++) {
+      final ValueVector values = nullable ? ((NullableVector) vectors[batch]).getValuesVector() : vectors[batch];
+      nulls[batch] = vectors[batch].getAccessor();
+      if (values instanceof VarCharVector) {
+        offsets[batch] = ((VarCharVector) values).getOffsetVector().getAccessor();
+      } else if (values instanceof VarBinaryVector) {
+        offsets[batch] = ((VarBinaryVector) values).getOffsetVector().getAccessor();
+      }
+      data[batch] = ((BaseDataValueVector) values).getBuffer();
+    }
+  }
+
+  /**
+   * Normalized keys of the leading sort key of a hyper-batch.
+   *
+   * @param expr leading sort key, materialized against the hyper-batch
+   * @param ordering ordering of the leading sort key
+   * @param hyperBatch batches to sort
+   * @return the normalized keys, or null if the sort key is not a column of a supported type
+   */
+  public static NormalizedKeys create(LogicalExpression expr, Ordering ordering, VectorContainer hyperBatch) {
+    if (!(expr instanceof ValueVectorReadExpression) || ((ValueVectorReadExpression) expr).hasReadPath()) {
+      return null;
+    }
+    final TypedFieldId fieldId = ((ValueVectorReadExpression) expr).getFieldId();
+    if (fieldId.getFieldIds().length != 1 || fieldId.hasRemainder()) {
+      return null;
+    }
+    final MajorType majorType = expr.getMajorType();
+    if (majorType.getMode() == DataMode.REPEATED) {
+      return null;
+    }
+    switch (majorType.getMinorType()) {
+    case INT:
+    case TIME:
+    case BIGINT:
+    case DATE:
+    case TIMESTAMP:
+    case FLOAT4:
+    case FLOAT8:
+    case VARCHAR:
+    case VARBINARY:
+      break;
+    default:
+      return null;
+    }
+    final VectorWrapper<?> wrapper = hyperBatch.getValueAccessorById(ValueVector.class, fieldId.getFieldIds());
+    if (wrapper == null || !wrapper.isHyper()) {
+      return null;
+    }
+    return new NormalizedKeys(majorType.getMinorType(), majorType.getMode() == DataMode.OPTIONAL, ordering,
+        wrapper.getValueVectors());
+  }
+
+  /**
+   * For given recordCount how much more memory the MSorter needs to sort by normalized keys: the entries to sort and
+   * the entries they are distributed into at each pass.
+   */
+  public static long memoryNeeded(int recordCount) {
+    return 2 * BaseAllocator.nextPowerOfTwo(recordCount * ENTRY_WIDTH);
+  }
+
+  /**
+   * @param sv4Entry entry of a record in the SV4 of the hyper-batch: batch in the upper two bytes, offset in the lower
+   * @return the normalized key of the record
+   */
+  public long key(int sv4Entry) {
+    final int batch = sv4Entry >>> 16;
+    final int index = sv4Entry & 65535;
+    long key;
+    if (nullable) {
+      if (nulls[batch].isNull(index)) {
+        // nulls above or below all the values, whose lowest bit is dropped to make room for it
+        key = nullsHigh ? Long.MIN_VALUE : 0;
+      } else {
+        key = (value(batch, index) >>> 1) | (nullsHigh ? 0 : Long.MIN_VALUE);
+      }
+    } else {
+      key = value(batch, index);
+    }
+    return descending ? ~key : key;
+  }
+
+  /**
+   * @return the value of a record, mapped to a long in the same order when compared unsigned
+   */
+  private long value(int batch, int index) {
+    final DrillBuf buffer = data[batch];
+    switch (type) {
+    case INT:
+    case TIME:
+      return ((buffer.getInt(index * 4) ^ Integer.MIN_VALUE) & 0xFFFFFFFFL) << 32;
+    case BIGINT:
+    case DATE:
+    case TIMESTAMP:
+      return buffer.getLong(index * 8) ^ Long.MIN_VALUE;
+    case FLOAT4: {
+      final int bits = Float.floatToIntBits(buffer.getFloat(index * 4));
+      return ((bits < 0 ? ~bits : bits ^ Integer.MIN_VALUE) & 0xFFFFFFFFL) << 32;
+    }
+    case FLOAT8: {
+      final long bits = Double.doubleToLongBits(buffer.getDouble(index * 8));
+      return bits < 0 ? ~bits : bits ^ Long.MIN_VALUE;
+    }
+    default: {
+      // the first bytes of the string, big endian and padded with zeros
+      final int start = offsets[batch].get(index);
+      final int length = Math.min(offsets[batch].get(index + 1) - start, PREFIX_BYTES);
+      long prefix = 0;
+      for (int i = 0; i < length; i++) {
+        prefix = (prefix << 8) | (buffer.getByte(start + i) & 0xFF);
+      }
+      return prefix << (8 * (PREFIX_BYTES - length));
+    }
+    }
+  }
+}
@@ -20,6 +20,7 @@ package org.apache.drill.exec.physical.impl.xsort.managed;
 import java.io.IOException;
 import java.util.List;
 
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.ops.OperExecContext;
 import org.apache.drill.exec.physical.impl.spill.RecordBatchSizer;
@@ -427,7 +428,11 @@ public class SortImpl {
 
     // Do we have enough memory for MSorter (the in-memory sorter)?
 
-    if (! memManager.hasMemoryMergeCapacity(allocator.getAllocatedMemory(), MSortTemplate.memoryNeeded(metrics.getInputRowCount()))) {
+    long neededForMSort = MSortTemplate.memoryNeeded(metrics.getInputRowCount());
+    if (context.getOptionSet().getOption(ExecConstants.EXTERNAL_SORT_NORMALIZED_KEYS_VALIDATOR)) {
+      neededForMSort += NormalizedKeys.memoryNeeded(metrics.getInputRowCount());
+    }
+    if (! memManager.hasMemoryMergeCapacity(allocator.getAllocatedMemory(), neededForMSort)) {
       return false; }
 
     // Make sure we don't exceed the maximum number of batches SV4 can address.
@@ -524,6 +529,7 @@ public class SortImpl {
 
   public void close() {
     metrics.updateWriteBytes(spilledRuns.getWriteBytes());
+    metrics.updateSpillStreams(spilledRuns.getRawWriteBytes(), spilledRuns.getWriteStallNanos());
     RuntimeException ex = null;
     try {
       spilledRuns.close();
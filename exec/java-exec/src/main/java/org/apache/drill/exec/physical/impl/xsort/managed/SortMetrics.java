@@ -17,6 +17,8 @@
  */
 package org.apache.drill.exec.physical.impl.xsort.managed;
 
+import java.util.concurrent.TimeUnit;
+
 import org.apache.drill.exec.ops.OperatorStatReceiver;
 
 public class SortMetrics {
@@ -90,6 +92,13 @@ public class SortMetrics {
     this.writeBytes = writeBytes;
   }
 
+  public void updateSpillStreams(long rawWriteBytes, long writeStallNanos) {
+    stats.setDoubleStat(ExternalSortBatch.Metric.SPILL_RAW_MB,
+        rawWriteBytes / 1024.0D / 1024.0);
+    stats.setLongStat(ExternalSortBatch.Metric.SPILL_WRITE_STALL_MS,
+        TimeUnit.NANOSECONDS.toMillis(writeStallNanos));
+  }
+
   public int getSpillCount() { return spillCount; }
   public int getMergeCount() { return mergeCount; }
   public long getWriteBytes() { return writeBytes; }
@@ -76,6 +76,8 @@ public class SpilledRuns {
   public int size() { return spilledRuns.size(); }
   public boolean hasSpilled() { return spillSet.hasSpilled(); }
   public long getWriteBytes() { return spillSet.getWriteBytes(); }
+  public long getRawWriteBytes() { return spillSet.getRawWriteBytes(); }
+  public long getWriteStallNanos() { return spillSet.getWriteStallNanos(); }
 
   public static List<BatchGroup> prepareSpillBatches(LinkedList<? extends BatchGroup> source, int spillCount) {
     List<BatchGroup> batchesToSpill = Lists.newArrayList();
@@ -31,6 +31,8 @@ public abstract class AbstractRpcMetrics implements RpcMetrics {
 
   public static final String ALLOCATOR_METRICS_PREFIX = PooledByteBufAllocatorL.METRIC_PREFIX + "rpc.";
 
+  public static final String COMPRESSION_COUNTER_PREFIX = "drill.compression.rpc.";
+
   protected void registerAllocatorMetrics(final BufferAllocator allocator, final String metricPrefix) {
     DrillMetrics.register(metricPrefix + "used", new Gauge<Long>() {
       @Override
@@ -49,4 +51,14 @@ public abstract class AbstractRpcMetrics implements RpcMetrics {
 
   public abstract void initialize(boolean useEncryptedCounter, BufferAllocator allocator);
 
+  /**
+   * Accounts for a message body compressed before being sent. Nothing to do for the rpc layers that do not
+   * compress.
+   *
+   * @param uncompressedBytes size of the body
+   * @param compressedBytes size of the body once compressed
+   */
+  public void addCompressedBytes(long uncompressedBytes, long compressedBytes) {
+  }
+
 }
\ No newline at end of file
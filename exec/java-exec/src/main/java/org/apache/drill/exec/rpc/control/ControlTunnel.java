@@ -87,6 +87,17 @@ public class ControlTunnel {
     manager.runCommand(b);
   }
 
+  /**
+   * Send a runtime filter to a fragment
+   * @param outcomeListener
+   * @param handle the fragment
+   * @param filter the serialized filter; released once sent
+   */
+  public void sendRuntimeFilter(RpcOutcomeListener<Ack> outcomeListener, FragmentHandle handle, ByteBuf filter) {
+    final SendRuntimeFilter b = new SendRuntimeFilter(outcomeListener, handle, filter);
+    manager.runCommand(b);
+  }
+
   public DrillRpcFuture<Ack> sendFragmentStatus(FragmentStatus status){
     SendFragmentStatus b = new SendFragmentStatus(status);
     manager.runCommand(b);
@@ -130,6 +141,22 @@ public class ControlTunnel {
     }
   }
 
+  public static class SendRuntimeFilter extends ListeningCommand<Ack, ControlConnection> {
+    final FragmentHandle handle;
+    final ByteBuf filter;
+
+    public SendRuntimeFilter(RpcOutcomeListener<Ack> listener, FragmentHandle handle, ByteBuf filter) {
+      super(listener);
+      this.handle = handle;
+      this.filter = filter;
+    }
+
+    @Override
+    public void doRpcCall(RpcOutcomeListener<Ack> outcomeListener, ControlConnection connection) {
+      connection.send(outcomeListener, RpcType.REQ_RUNTIME_FILTER, handle, Ack.class, filter);
+    }
+  }
+
   public static class SignalFragment extends ListeningCommand<Ack, ControlConnection> {
     final FragmentHandle handle;
     final RpcType type;
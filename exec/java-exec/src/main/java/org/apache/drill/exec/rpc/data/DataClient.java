@@ -52,9 +52,10 @@ public class DataClient extends BasicClient<RpcType, DataClientConnection, BitCl
   private volatile DataClientConnection connection;
   private final DataConnectionManager.CloseHandlerCreator closeHandlerFactory;
   private final DataConnectionConfig config;
+  private final FairSendScheduler scheduler;
 
   public DataClient(DrillbitEndpoint remoteEndpoint, DataConnectionConfig config,
-                    DataConnectionManager.CloseHandlerCreator closeHandlerFactory) {
+                    DataConnectionManager.CloseHandlerCreator closeHandlerFactory, FairSendScheduler scheduler) {
     super(
         DataRpcConfig.getMapping(config.getBootstrapContext().getConfig(),
             config.getBootstrapContext().getExecutor()),
@@ -67,12 +68,14 @@ public class DataClient extends BasicClient<RpcType, DataClientConnection, BitCl
     this.remoteEndpoint = remoteEndpoint;
     this.config = config;
     this.closeHandlerFactory = closeHandlerFactory;
+    this.scheduler = scheduler;
   }
 
   @Override
   protected DataClientConnection initRemoteConnection(SocketChannel channel) {
     super.initRemoteConnection(channel);
     this.connection = new DataClientConnection(channel, this, config.getEncryptionCtxt());
+    scheduler.setChannel(channel);
     return connection;
   }
 
@@ -127,10 +130,19 @@ public class DataClient extends BasicClient<RpcType, DataClientConnection, BitCl
             remoteEndpoint.getAddress()));
       }
     }
+
+    if (handshake.hasCompressionCodec() &&
+        DataCompressionCodec.fromName(handshake.getCompressionCodec()) != config.getCompressionCodec()) {
+      throw new RpcException(String.format("Drillbit (%s) chose compression codec %s, but %s was proposed.",
+          remoteEndpoint.getAddress(), handshake.getCompressionCodec(), config.getCompressionCodec()));
+    }
   }
 
   @Override
   protected void finalizeConnection(BitServerHandshake handshake, DataClientConnection connection) {
+    if (handshake.hasCompressionCodec()) {
+      connection.setCompressionCodec(config.getCompressionCodec());
+    }
     // Increment the Data Connection counter.
     connection.incConnectionCounter();
   }
@@ -18,14 +18,17 @@
 package org.apache.drill.exec.rpc.data;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DrillBuf;
 import io.netty.channel.socket.SocketChannel;
 
+import java.io.IOException;
 import java.util.UUID;
 
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.proto.BitData.RpcType;
 import org.apache.drill.exec.rpc.AbstractClientConnection;
 import org.apache.drill.exec.rpc.EncryptionContext;
+import org.apache.drill.exec.rpc.RpcException;
 import org.apache.drill.exec.rpc.RpcOutcomeListener;
 
 import com.google.protobuf.MessageLite;
@@ -37,6 +40,7 @@ public class DataClientConnection extends AbstractClientConnection {
 
   private final DataClient client;
   private final UUID id;
+  private volatile DataCompressionCodec compressionCodec = DataCompressionCodec.NONE;
 
   public DataClientConnection(SocketChannel channel, DataClient client,
                               EncryptionContext encryptionContextImpl) {
@@ -53,9 +57,63 @@ public class DataClientConnection extends AbstractClientConnection {
   public <SEND extends MessageLite, RECEIVE extends MessageLite>
   void send(RpcOutcomeListener<RECEIVE> outcomeListener, RpcType rpcType, SEND protobufBody,
             Class<RECEIVE> clazz, ByteBuf... dataBodies) {
+    send(outcomeListener, rpcType, protobufBody, clazz, null, dataBodies);
+  }
+
+  /**
+   * @param tunnel tunnel of the fragment sending the message, which counts the bytes of the compressed record batches
+   *               (may be null)
+   */
+  <SEND extends MessageLite, RECEIVE extends MessageLite>
+  void send(RpcOutcomeListener<RECEIVE> outcomeListener, RpcType rpcType, SEND protobufBody,
+            Class<RECEIVE> clazz, DataTunnel tunnel, ByteBuf... dataBodies) {
+    if (rpcType == RpcType.REQ_RECORD_BATCH && compressionCodec != DataCompressionCodec.NONE) {
+      final DrillBuf compressedBody;
+      try {
+        compressedBody = compress(dataBodies, tunnel);
+      } catch (IOException | RuntimeException e) {
+        for (ByteBuf buffer : dataBodies) {
+          buffer.release();
+        }
+        outcomeListener.failed(new RpcException("Failure while compressing record batch.", e));
+        return;
+      }
+      if (compressedBody != null) {
+        dataBodies = new ByteBuf[] { compressedBody };
+      }
+    }
     client.send(outcomeListener, this, rpcType, protobufBody, clazz, dataBodies);
   }
 
+  /**
+   * Compresses the body of a record batch into a single buffer, and releases the buffers of the body.
+   *
+   * @return the compressed body, null if the batch has no body (it is sent as is)
+   */
+  private DrillBuf compress(ByteBuf[] dataBodies, DataTunnel tunnel) throws IOException {
+    long length = 0;
+    for (ByteBuf buffer : dataBodies) {
+      length += buffer.readableBytes();
+    }
+    if (length == 0) {
+      return null;
+    }
+    final DrillBuf compressedBody = compressionCodec.compress(dataBodies, getAllocator());
+    for (ByteBuf buffer : dataBodies) {
+      buffer.release();
+    }
+    ((DataRpcMetrics) DataRpcMetrics.getInstance()).addCompressedBytes(length, compressedBody.readableBytes());
+    if (tunnel != null) {
+      tunnel.addCompressedBytes(length, compressedBody.readableBytes());
+    }
+    return compressedBody;
+  }
+
+  // set once the handshake settled the codec of the connection
+  void setCompressionCodec(DataCompressionCodec compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
   @Override
   public int hashCode() {
     final int prime = 31;
@@ -0,0 +1,203 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc.data;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.xerial.snappy.Snappy;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Codecs the body (the buffers of the value vectors) of the record batches sent over a data connection may be
+ * compressed with. The codec of a connection is negotiated in the handshake: the client proposes the codec it is
+ * configured with, and the server accepts it if compression is enabled on its side too.
+ * <p>
+ * A compressed body starts with its uncompressed length (int), followed by a chunk per (non empty) buffer of the
+ * batch: the length of the compressed chunk (int) and its bytes. A buffer that does not compress is stored as is,
+ * the length of its chunk is then negated.
+ * <p>
+ * {@link #NONE} passes the buffers through: it never compresses a buffer, so that each is stored as is. The
+ * connections without compression do not use a codec at all, and send the buffers of the batches themselves.
+ */
+public enum DataCompressionCodec {
+
+  NONE {
+    @Override
+    protected int maxCompressedLength(int length) {
+      return 0;
+    }
+
+    @Override
+    protected int compress(ByteBuffer input, ByteBuffer output) {
+      // does not shrink: the buffer is stored as is
+      return input.remaining();
+    }
+
+    @Override
+    protected int uncompressedLength(ByteBuffer input) {
+      return input.remaining();
+    }
+
+    @Override
+    protected int decompress(ByteBuffer input, ByteBuffer output) {
+      final int length = input.remaining();
+      output.put(input);
+      return length;
+    }
+  },
+
+  SNAPPY {
+    @Override
+    protected int maxCompressedLength(int length) {
+      return Snappy.maxCompressedLength(length);
+    }
+
+    @Override
+    protected int compress(ByteBuffer input, ByteBuffer output) throws IOException {
+      return Snappy.compress(input, output);
+    }
+
+    @Override
+    protected int uncompressedLength(ByteBuffer input) throws IOException {
+      return Snappy.uncompressedLength(input);
+    }
+
+    @Override
+    protected int decompress(ByteBuffer input, ByteBuffer output) throws IOException {
+      return Snappy.uncompress(input, output);
+    }
+  };
+
+  protected abstract int maxCompressedLength(int length);
+
+  protected abstract int compress(ByteBuffer input, ByteBuffer output) throws IOException;
+
+  protected abstract int uncompressedLength(ByteBuffer input) throws IOException;
+
+  protected abstract int decompress(ByteBuffer input, ByteBuffer output) throws IOException;
+
+  /**
+   * @param name name of a codec, as configured or exchanged in the handshake; null for none
+   * @return the codec, or null if there is no codec of that name
+   */
+  public static DataCompressionCodec fromName(String name) {
+    if (name == null || name.isEmpty()) {
+      return NONE;
+    }
+    for (DataCompressionCodec codec : values()) {
+      if (codec.name().equalsIgnoreCase(name)) {
+        return codec;
+      }
+    }
+    return null;
+  }
+
+  /**
+   * Compresses the buffers of a record batch into a single buffer. The buffers are not released.
+   *
+   * @param buffers the buffers of the batch
+   * @param allocator allocator of the compressed buffer
+   * @return the compressed body
+   * @throws IOException
+   */
+  public DrillBuf compress(ByteBuf[] buffers, BufferAllocator allocator) throws IOException {
+    int uncompressedLength = 0;
+    int maxLength = 4;
+    for (ByteBuf buffer : buffers) {
+      final int length = buffer.readableBytes();
+      uncompressedLength += length;
+      maxLength += 4 + Math.max(length, maxCompressedLength(length));
+    }
+
+    final DrillBuf body = allocator.buffer(maxLength);
+    boolean success = false;
+    try {
+      body.writeInt(uncompressedLength);
+      for (ByteBuf buffer : buffers) {
+        final int length = buffer.readableBytes();
+        if (length == 0) {
+          continue;
+        }
+        final int chunkStart = body.writerIndex() + 4;
+        final int compressedLength = compress(buffer.nioBuffer(),
+            body.nioBuffer(chunkStart, maxCompressedLength(length)));
+        if (compressedLength < length) {
+          body.writeInt(compressedLength);
+          body.writerIndex(chunkStart + compressedLength);
+        } else {
+          body.writeInt(-length);
+          body.writeBytes(buffer, buffer.readerIndex(), length);
+        }
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        body.release();
+      }
+    }
+    return body;
+  }
+
+  /**
+   * Decompresses the body of a record batch, compressed by {@link #compress(ByteBuf[], BufferAllocator)}. The
+   * compressed body is not released.
+   *
+   * @param body the compressed body
+   * @param allocator allocator of the decompressed buffer
+   * @return the body of the batch
+   * @throws IOException if the body is corrupt
+   */
+  public DrillBuf decompress(ByteBuf body, BufferAllocator allocator) throws IOException {
+    final int uncompressedLength = body.readInt();
+    final DrillBuf data = allocator.buffer(uncompressedLength);
+    boolean success = false;
+    try {
+      while (body.isReadable()) {
+        final int chunkLength = body.readInt();
+        if (chunkLength < 0) {
+          if (-chunkLength > data.writableBytes()) {
+            throw new IOException("Chunk overflows the decompressed record batch");
+          }
+          data.writeBytes(body, -chunkLength);
+        } else {
+          final ByteBuffer input = body.nioBuffer(body.readerIndex(), chunkLength);
+          final int length = uncompressedLength(input);
+          if (length > data.writableBytes()) {
+            throw new IOException("Chunk overflows the decompressed record batch");
+          }
+          decompress(input, data.nioBuffer(data.writerIndex(), length));
+          data.writerIndex(data.writerIndex() + length);
+          body.skipBytes(chunkLength);
+        }
+      }
+      if (data.writerIndex() != uncompressedLength) {
+        throw new IOException(String.format("Decompressed record batch of %d bytes, expected %d bytes",
+            data.writerIndex(), uncompressedLength));
+      }
+      success = true;
+    } finally {
+      if (!success) {
+        data.release();
+      }
+    }
+    return data;
+  }
+}
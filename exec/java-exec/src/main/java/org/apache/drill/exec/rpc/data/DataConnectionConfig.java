@@ -17,22 +17,47 @@
  */
 package org.apache.drill.exec.rpc.data;
 
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.exception.DrillbitStartupException;
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.rpc.BitConnectionConfig;
 import org.apache.drill.exec.server.BootStrapContext;
 
+import java.util.Arrays;
+
 // config for bit to bit data connection
 // package private
 class DataConnectionConfig extends BitConnectionConfig {
 //  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataConnectionConfig.class);
 
   private final DataServerRequestHandler handler;
+  private final DataCompressionCodec compressionCodec;
+  private final int creditsPerReceiver;
+  private final int connectionsPerPeer;
 
   DataConnectionConfig(BufferAllocator allocator, BootStrapContext context, DataServerRequestHandler handler)
       throws DrillbitStartupException {
     super(allocator, context);
     this.handler = handler;
+
+    final String codecName = context.getConfig().getString(ExecConstants.BIT_DATA_COMPRESSION_CODEC);
+    compressionCodec = DataCompressionCodec.fromName(codecName);
+    if (compressionCodec == null) {
+      throw new DrillbitStartupException(String.format("Invalid value configured for %s: '%s'. Must be one of %s.",
+          ExecConstants.BIT_DATA_COMPRESSION_CODEC, codecName, Arrays.toString(DataCompressionCodec.values())));
+    }
+
+    creditsPerReceiver = context.getConfig().getInt(ExecConstants.INCOMING_BUFFER_SIZE);
+    if (creditsPerReceiver < 1) {
+      throw new DrillbitStartupException(String.format("Invalid value configured for %s: %d. Must be at least 1.",
+          ExecConstants.INCOMING_BUFFER_SIZE, creditsPerReceiver));
+    }
+
+    connectionsPerPeer = context.getConfig().getInt(ExecConstants.BIT_DATA_CONNECTIONS_PER_PEER);
+    if (connectionsPerPeer < 1) {
+      throw new DrillbitStartupException(String.format("Invalid value configured for %s: %d. Must be at least 1.",
+          ExecConstants.BIT_DATA_CONNECTIONS_PER_PEER, connectionsPerPeer));
+    }
   }
 
   @Override
@@ -43,4 +68,20 @@ class DataConnectionConfig extends BitConnectionConfig {
   DataServerRequestHandler getMessageHandler() {
     return handler;
   }
+
+  // codec this drillbit compresses the record batches it sends with, NONE if compression is disabled
+  DataCompressionCodec getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  // number of batches a sending fragment may have unacknowledged per receiving fragment, which is the number of
+  // batches the receivers buffer per sender
+  int getCreditsPerReceiver() {
+    return creditsPerReceiver;
+  }
+
+  // number of connections to each drillbit the record batches are sent over
+  int getConnectionsPerPeer() {
+    return connectionsPerPeer;
+  }
 }
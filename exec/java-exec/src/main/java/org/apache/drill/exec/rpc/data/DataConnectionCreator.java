@@ -24,6 +24,7 @@ import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.exception.DrillbitStartupException;
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.proto.CoordinationProtos.DrillbitEndpoint;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
 import org.apache.drill.exec.rpc.control.WorkEventBus;
 import org.apache.drill.exec.server.BootStrapContext;
 import org.apache.drill.exec.work.WorkManager.WorkerBee;
@@ -31,13 +32,14 @@ import org.apache.drill.exec.work.WorkManager.WorkerBee;
 import com.google.common.collect.Maps;
 
 /**
- * Manages a connection for each endpoint.
+ * Manages a pool of connections for each endpoint. The fragments of a query send over the same connection of the pool,
+ * the queries are spread over the connections of the pool.
  */
 public class DataConnectionCreator implements AutoCloseable {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataConnectionCreator.class);
 
   private volatile DataServer server;
-  private final ConcurrentMap<DrillbitEndpoint, DataConnectionManager> connectionManager = Maps.newConcurrentMap();
+  private final ConcurrentMap<DrillbitEndpoint, DataConnectionManager[]> connectionManagers = Maps.newConcurrentMap();
 
   private final DataConnectionConfig config;
 
@@ -59,13 +61,31 @@ public class DataConnectionCreator implements AutoCloseable {
     return partialEndpoint.toBuilder().setDataPort(port).build();
   }
 
-  public DataTunnel getTunnel(DrillbitEndpoint endpoint) {
-    DataConnectionManager newManager = new DataConnectionManager(endpoint, config);
-    DataConnectionManager oldManager = connectionManager.putIfAbsent(endpoint, newManager);
-    if (oldManager != null) {
-      newManager = oldManager;
+  /**
+   * @param endpoint drillbit the batches are sent to
+   * @param queryId query sending the batches
+   * @param weight weight of the query in the sharing of the connection
+   * @return a tunnel over the connection of the query to the drillbit
+   */
+  public DataTunnel getTunnel(DrillbitEndpoint endpoint, QueryId queryId, int weight) {
+    final DataConnectionManager[] managers = getConnectionManagers(endpoint);
+    final int index = (int) ((queryId.getPart1() ^ queryId.getPart2()) & Integer.MAX_VALUE) % managers.length;
+    return new DataTunnel(managers[index], weight);
+  }
+
+  private DataConnectionManager[] getConnectionManagers(DrillbitEndpoint endpoint) {
+    DataConnectionManager[] managers = connectionManagers.get(endpoint);
+    if (managers == null) {
+      final DataConnectionManager[] newManagers = new DataConnectionManager[config.getConnectionsPerPeer()];
+      for (int i = 0; i < newManagers.length; i++) {
+        newManagers[i] = new DataConnectionManager(endpoint, config);
+      }
+      managers = connectionManagers.putIfAbsent(endpoint, newManagers);
+      if (managers == null) {
+        managers = newManagers;
+      }
     }
-    return new DataTunnel(newManager);
+    return managers;
   }
 
   @Override
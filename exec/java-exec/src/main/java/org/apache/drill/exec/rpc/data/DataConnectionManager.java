@@ -27,22 +27,36 @@ public class DataConnectionManager extends ReconnectingConnection<DataClientConn
 
   private final DrillbitEndpoint remoteEndpoint;
   private final DataConnectionConfig config;
-
-  private final static BitClientHandshake HANDSHAKE = BitClientHandshake //
-      .newBuilder() //
-      .setRpcVersion(DataRpcConfig.RPC_VERSION) //
-      .setChannel(RpcChannel.BIT_DATA) //
-      .build();
+  private final FairSendScheduler scheduler = new FairSendScheduler();
 
   public DataConnectionManager(DrillbitEndpoint remoteEndpoint, DataConnectionConfig config) {
-    super(HANDSHAKE, remoteEndpoint.getAddress(), remoteEndpoint.getDataPort());
+    super(getHandshake(config), remoteEndpoint.getAddress(), remoteEndpoint.getDataPort());
     this.remoteEndpoint = remoteEndpoint;
     this.config = config;
   }
 
+  int getCreditsPerReceiver() {
+    return config.getCreditsPerReceiver();
+  }
+
+  FairSendScheduler getScheduler() {
+    return scheduler;
+  }
+
   @Override
   protected DataClient getNewClient() {
-    return new DataClient(remoteEndpoint, config, new CloseHandlerCreator());
+    return new DataClient(remoteEndpoint, config, new CloseHandlerCreator(), scheduler);
+  }
+
+  private static BitClientHandshake getHandshake(DataConnectionConfig config) {
+    final BitClientHandshake.Builder builder = BitClientHandshake //
+        .newBuilder() //
+        .setRpcVersion(DataRpcConfig.RPC_VERSION) //
+        .setChannel(RpcChannel.BIT_DATA);
+    if (config.getCompressionCodec() != DataCompressionCodec.NONE) {
+      builder.setCompressionCodec(config.getCompressionCodec().name());
+    }
+    return builder.build();
   }
 
 }
\ No newline at end of file
@@ -37,6 +37,13 @@ class DataRpcMetrics extends AbstractRpcMetrics {
   private static final Counter unencryptedConnection = DrillMetrics.getRegistry()
       .counter(CONNECTION_COUNTER_PREFIX + "data.unencrypted");
 
+  // Total size of the record batches sent compressed, before and after their compression.
+  private static final Counter uncompressedBytes = DrillMetrics.getRegistry()
+      .counter(COMPRESSION_COUNTER_PREFIX + "data.uncompressed_bytes");
+
+  private static final Counter compressedBytes = DrillMetrics.getRegistry()
+      .counter(COMPRESSION_COUNTER_PREFIX + "data.compressed_bytes");
+
   private static final RpcMetrics INSTANCE = new DataRpcMetrics();
 
   // prevent instantiation
@@ -79,6 +86,12 @@ class DataRpcMetrics extends AbstractRpcMetrics {
     }
   }
 
+  @Override
+  public void addCompressedBytes(long uncompressedBytes, long compressedBytes) {
+    DataRpcMetrics.uncompressedBytes.inc(uncompressedBytes);
+    DataRpcMetrics.compressedBytes.inc(compressedBytes);
+  }
+
   private void registerAllocatorMetrics(final BufferAllocator allocator) {
     registerAllocatorMetrics(allocator, ALLOCATOR_METRICS_PREFIX + "bit.data.");
   }
@@ -83,6 +83,16 @@ public class DataServer extends BasicServer<RpcType, DataServerConnection> {
           builder.addAllAuthenticationMechanisms(config.getAuthProvider().getAllFactoryNames());
         }
 
+        // the record batches are compressed if the client proposes a codec known here, and compression is
+        // enabled on this side too
+        if (inbound.hasCompressionCodec() && config.getCompressionCodec() != DataCompressionCodec.NONE) {
+          final DataCompressionCodec codec = DataCompressionCodec.fromName(inbound.getCompressionCodec());
+          if (codec != null && codec != DataCompressionCodec.NONE) {
+            connection.setCompressionCodec(codec);
+            builder.setCompressionCodec(codec.name());
+          }
+        }
+
         // Increase the Data Connection counter on server side.
         connection.incConnectionCounter();
 
@@ -27,6 +27,8 @@ import org.slf4j.Logger;
 public class DataServerConnection extends AbstractServerConnection<DataServerConnection> {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataServerConnection.class);
 
+  private volatile DataCompressionCodec compressionCodec = DataCompressionCodec.NONE;
+
   DataServerConnection(SocketChannel channel, DataConnectionConfig config) {
     super(channel, config, config.getAuthMechanismToUse() == null
         ? config.getMessageHandler()
@@ -34,6 +36,15 @@ public class DataServerConnection extends AbstractServerConnection<DataServerCon
         RpcType.SASL_MESSAGE_VALUE, RpcType.SASL_MESSAGE));
   }
 
+  // codec the record batches received are compressed with, settled in the handshake
+  DataCompressionCodec getCompressionCodec() {
+    return compressionCodec;
+  }
+
+  void setCompressionCodec(DataCompressionCodec compressionCodec) {
+    this.compressionCodec = compressionCodec;
+  }
+
   @Override
   protected Logger getLogger() {
     return logger;
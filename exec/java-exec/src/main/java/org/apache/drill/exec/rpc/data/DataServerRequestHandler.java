@@ -55,13 +55,33 @@ class DataServerRequestHandler implements RequestHandler<DataServerConnection> {
     assert rpcType == BitData.RpcType.REQ_RECORD_BATCH_VALUE;
 
     final FragmentRecordBatch fragmentBatch = RpcBus.get(pBody, FragmentRecordBatch.PARSER);
+
+    // the body of the batch is compressed when the connection negotiated a codec, the decompressed body is
+    // released once the batch is handed over (the fragments took their own references)
+    final DrillBuf body;
+    final DataCompressionCodec codec = connection.getCompressionCodec();
+    if (codec != DataCompressionCodec.NONE && dBody != null && dBody.isReadable()) {
+      try {
+        body = codec.decompress(dBody, connection.getAllocator());
+      } catch (IOException e) {
+        logger.error("Failure while decompressing record batch. {}",
+            QueryIdHelper.getQueryIdentifiers(fragmentBatch.getQueryId(),
+                fragmentBatch.getReceivingMajorFragmentId(),
+                fragmentBatch.getReceivingMinorFragmentIdList()), e);
+        sender.send(new Response(BitData.RpcType.ACK, Acks.FAIL));
+        return;
+      }
+    } else {
+      body = (DrillBuf) dBody;
+    }
+
     final AckSender ack = new AckSender(sender);
 
     // increment so we don't get false returns.
     ack.increment();
 
     try {
-      final IncomingDataBatch batch = new IncomingDataBatch(fragmentBatch, (DrillBuf) dBody, ack);
+      final IncomingDataBatch batch = new IncomingDataBatch(fragmentBatch, body, ack);
       final int targetCount = fragmentBatch.getReceivingMinorFragmentIdCount();
 
       // randomize who gets first transfer (and thus ownership) so memory usage is balanced when we're sharing amongst
@@ -81,6 +101,10 @@ class DataServerRequestHandler implements RequestHandler<DataServerConnection> {
 
       // decrement the extra reference we grabbed at the top.
       ack.sendOk();
+
+      if (body != dBody) {
+        body.release();
+      }
     }
   }
 
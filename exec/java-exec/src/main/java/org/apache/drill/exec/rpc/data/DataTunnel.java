@@ -19,27 +19,50 @@ package org.apache.drill.exec.rpc.data;
 
 import io.netty.buffer.ByteBuf;
 
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.proto.BitData.FragmentRecordBatch;
 import org.apache.drill.exec.proto.BitData.RpcType;
 import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
 import org.apache.drill.exec.record.FragmentWritableBatch;
 import org.apache.drill.exec.rpc.DrillRpcFuture;
 import org.apache.drill.exec.rpc.FutureBitCommand;
 import org.apache.drill.exec.rpc.ListeningCommand;
+import org.apache.drill.exec.rpc.RpcCommand;
 import org.apache.drill.exec.rpc.RpcConnectionHandler.FailureType;
 import org.apache.drill.exec.rpc.RpcException;
 import org.apache.drill.exec.rpc.RpcOutcomeListener;
 import org.apache.drill.exec.testing.ControlsInjector;
 import org.apache.drill.exec.testing.ExecutionControls;
 
+import com.google.common.collect.Maps;
 
+/**
+ * Sends the record batches of a fragment to the fragments of a drillbit. The sending is flow controlled with credits:
+ * each receiving fragment buffers a fixed number of batches per sender (drill.exec.buffer.size), the sender holds as
+ * many credits per receiving fragment, spends one per batch sent, and gets it back with the ack the receiver sends
+ * once it consumed the batch. A sender out of credits for a receiver blocks until the receiver catches up, so the
+ * memory buffered by a receiver is bounded whatever the speed of its senders.
+ * <p>
+ * The batches then wait for their turn on the connection, shared with the other queries fairly according to the
+ * weight of the query (see {@link FairSendScheduler}).
+ */
 public class DataTunnel {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(DataTunnel.class);
 
   private final DataConnectionManager manager;
-  private final Semaphore sendingSemaphore = new Semaphore(3);
+  private final int creditsPerReceiver;
+  private final int weight;
+  // credits left per receiving fragment, keyed by major and minor fragment id
+  private final ConcurrentMap<Long, Semaphore> credits = Maps.newConcurrentMap();
+  private final AtomicLong creditWaitNanos = new AtomicLong();
+  // bytes of the bodies of the compressed batches, before and after compression
+  private final AtomicLong uncompressedBytes = new AtomicLong();
+  private final AtomicLong compressedBytes = new AtomicLong();
 
   // Needed for injecting a test pause
   private boolean isInjectionControlSet;
@@ -49,7 +72,43 @@ public class DataTunnel {
 
 
   public DataTunnel(DataConnectionManager manager) {
+    this(manager, 1);
+  }
+
+  /**
+   * @param manager connection the batches are sent over
+   * @param weight weight of the query in the sharing of the connection
+   */
+  public DataTunnel(DataConnectionManager manager, int weight) {
     this.manager = manager;
+    this.creditsPerReceiver = manager.getCreditsPerReceiver();
+    this.weight = weight;
+  }
+
+  /**
+   * @return the total time the senders of this tunnel waited for credits, in nanoseconds
+   */
+  public long getCreditWaitNanos() {
+    return creditWaitNanos.get();
+  }
+
+  /**
+   * @return the total size of the bodies of the batches compressed by the connection, before compression
+   */
+  public long getUncompressedBytes() {
+    return uncompressedBytes.get();
+  }
+
+  /**
+   * @return the total size of the bodies of the batches compressed by the connection, after compression
+   */
+  public long getCompressedBytes() {
+    return compressedBytes.get();
+  }
+
+  void addCompressedBytes(long uncompressed, long compressed) {
+    uncompressedBytes.addAndGet(uncompressed);
+    compressedBytes.addAndGet(compressed);
   }
 
   /**
@@ -57,7 +116,7 @@ public class DataTunnel {
    * pre-defined places. Currently following injection sites are available.
    *
    * 1. In method {@link #sendRecordBatch(RpcOutcomeListener, FragmentWritableBatch)}, an interruptible pause injection
-   *    is available before acquiring the sending slot. Site name is: "data-tunnel-send-batch-wait-for-interrupt"
+   *    is available before acquiring the credits. Site name is: "data-tunnel-send-batch-wait-for-interrupt"
    *
    * @param testInjector
    * @param testControls
@@ -72,7 +131,8 @@ public class DataTunnel {
   }
 
   public void sendRecordBatch(RpcOutcomeListener<Ack> outcomeListener, FragmentWritableBatch batch) {
-    SendBatchAsyncListen b = new SendBatchAsyncListen(outcomeListener, batch);
+    final Semaphore[] batchCredits = getCredits(batch.getHeader());
+    SendBatchAsyncListen b = new SendBatchAsyncListen(outcomeListener, batch, batchCredits);
     try{
       if (isInjectionControlSet) {
         // Wait for interruption if set. Used to simulate the fragment interruption while the fragment is waiting for
@@ -80,8 +140,8 @@ public class DataTunnel {
         testInjector.injectInterruptiblePause(testControls, "data-tunnel-send-batch-wait-for-interrupt", testLogger);
       }
 
-      sendingSemaphore.acquire();
-      manager.runCommand(b);
+      acquire(batchCredits);
+      send(b, batch, batchCredits);
     }catch(final InterruptedException e){
       // Release the buffers first before informing the listener about the interrupt.
       for(ByteBuf buffer : batch.getBuffers()) {
@@ -98,12 +158,13 @@ public class DataTunnel {
 
   // TODO: This is not used anywhere. Can we remove this method and SendBatchAsyncFuture?
   public DrillRpcFuture<Ack> sendRecordBatch(FragmentContext context, FragmentWritableBatch batch) {
-    SendBatchAsyncFuture b = new SendBatchAsyncFuture(batch, context);
+    final Semaphore[] batchCredits = getCredits(batch.getHeader());
+    SendBatchAsyncFuture b = new SendBatchAsyncFuture(batch, context, batchCredits);
     try{
-      sendingSemaphore.acquire();
-      manager.runCommand(b);
+      acquire(batchCredits);
+      send(b, batch, batchCredits);
     }catch(final InterruptedException e){
-      b.connectionFailed(FailureType.CONNECTION, new RpcException("Interrupted while trying to get sending semaphore.", e));
+      b.connectionFailed(FailureType.CONNECTION, new RpcException("Interrupted while trying to get sending credits.", e));
 
       // Preserve evidence that the interruption occurred so that code higher up on the call stack can learn of the
       // interruption and respond to it if it wants to.
@@ -113,44 +174,124 @@ public class DataTunnel {
   }
 
 
+  /**
+   * @return the credits of the fragments a batch is sent to, in the order of their minor fragment ids so that
+   * concurrent senders acquire them in the same order
+   */
+  private Semaphore[] getCredits(FragmentRecordBatch header) {
+    final int[] minorFragmentIds = new int[header.getReceivingMinorFragmentIdCount()];
+    for (int i = 0; i < minorFragmentIds.length; i++) {
+      minorFragmentIds[i] = header.getReceivingMinorFragmentId(i);
+    }
+    Arrays.sort(minorFragmentIds);
+
+    final Semaphore[] batchCredits = new Semaphore[minorFragmentIds.length];
+    for (int i = 0; i < minorFragmentIds.length; i++) {
+      final Long key = ((long) header.getReceivingMajorFragmentId() << 32) | minorFragmentIds[i];
+      Semaphore receiverCredits = credits.get(key);
+      if (receiverCredits == null) {
+        final Semaphore newCredits = new Semaphore(creditsPerReceiver);
+        receiverCredits = credits.putIfAbsent(key, newCredits);
+        if (receiverCredits == null) {
+          receiverCredits = newCredits;
+        }
+      }
+      batchCredits[i] = receiverCredits;
+    }
+    return batchCredits;
+  }
+
+  private void acquire(Semaphore[] batchCredits) throws InterruptedException {
+    int acquired = 0;
+    try {
+      for (Semaphore receiverCredits : batchCredits) {
+        if (!receiverCredits.tryAcquire()) {
+          final long start = System.nanoTime();
+          try {
+            receiverCredits.acquire();
+          } finally {
+            creditWaitNanos.addAndGet(System.nanoTime() - start);
+          }
+        }
+        acquired++;
+      }
+    } finally {
+      if (acquired < batchCredits.length) {
+        release(Arrays.copyOf(batchCredits, acquired));
+      }
+    }
+  }
+
+  /**
+   * Waits for the turn of a batch on the connection and sends it. The credits of the batch come back if interrupted
+   * while waiting.
+   */
+  private void send(RpcCommand<Ack, DataClientConnection> command, FragmentWritableBatch batch,
+                    Semaphore[] batchCredits) throws InterruptedException {
+    final FairSendScheduler scheduler = manager.getScheduler();
+    try {
+      scheduler.acquire(batch.getHeader().getQueryId(), weight, batch.getByteCount());
+    } catch (final InterruptedException e) {
+      release(batchCredits);
+      throw e;
+    }
+    try {
+      manager.runCommand(command);
+    } finally {
+      scheduler.sent();
+    }
+  }
+
+  private static void release(Semaphore[] batchCredits) {
+    for (Semaphore receiverCredits : batchCredits) {
+      receiverCredits.release();
+    }
+  }
+
   private class ThrottlingOutcomeListener implements RpcOutcomeListener<Ack>{
     RpcOutcomeListener<Ack> inner;
+    final Semaphore[] batchCredits;
 
-    public ThrottlingOutcomeListener(RpcOutcomeListener<Ack> inner) {
+    public ThrottlingOutcomeListener(RpcOutcomeListener<Ack> inner, Semaphore[] batchCredits) {
       super();
       this.inner = inner;
+      this.batchCredits = batchCredits;
     }
 
     @Override
     public void failed(RpcException ex) {
-      sendingSemaphore.release();
+      release(batchCredits);
       inner.failed(ex);
     }
 
     @Override
     public void success(Ack value, ByteBuf buffer) {
-      sendingSemaphore.release();
+      release(batchCredits);
       inner.success(value, buffer);
     }
 
     @Override
     public void interrupted(InterruptedException e) {
-      sendingSemaphore.release();
+      release(batchCredits);
       inner.interrupted(e);
     }
   }
 
   private class SendBatchAsyncListen extends ListeningCommand<Ack, DataClientConnection> {
     final FragmentWritableBatch batch;
+    final Semaphore[] batchCredits;
 
-    public SendBatchAsyncListen(RpcOutcomeListener<Ack> listener, FragmentWritableBatch batch) {
+    public SendBatchAsyncListen(RpcOutcomeListener<Ack> listener, FragmentWritableBatch batch,
+                                Semaphore[] batchCredits) {
       super(listener);
       this.batch = batch;
+      this.batchCredits = batchCredits;
     }
 
     @Override
     public void doRpcCall(RpcOutcomeListener<Ack> outcomeListener, DataClientConnection connection) {
-      connection.send(new ThrottlingOutcomeListener(outcomeListener), RpcType.REQ_RECORD_BATCH, batch.getHeader(), Ack.class, batch.getBuffers());
+      connection.send(new ThrottlingOutcomeListener(outcomeListener, batchCredits), RpcType.REQ_RECORD_BATCH,
+          batch.getHeader(), Ack.class, DataTunnel.this, batch.getBuffers());
     }
 
     @Override
@@ -163,6 +304,8 @@ public class DataTunnel {
       for(ByteBuf buffer : batch.getBuffers()) {
         buffer.release();
       }
+      // the batch was never sent, so its credits come back
+      release(batchCredits);
       super.connectionFailed(type, t);
     }
   }
@@ -170,16 +313,19 @@ public class DataTunnel {
   private class SendBatchAsyncFuture extends FutureBitCommand<Ack, DataClientConnection> {
     final FragmentWritableBatch batch;
     final FragmentContext context;
+    final Semaphore[] batchCredits;
 
-    public SendBatchAsyncFuture(FragmentWritableBatch batch, FragmentContext context) {
+    public SendBatchAsyncFuture(FragmentWritableBatch batch, FragmentContext context, Semaphore[] batchCredits) {
       super();
       this.batch = batch;
       this.context = context;
+      this.batchCredits = batchCredits;
     }
 
     @Override
     public void doRpcCall(RpcOutcomeListener<Ack> outcomeListener, DataClientConnection connection) {
-      connection.send(new ThrottlingOutcomeListener(outcomeListener), RpcType.REQ_RECORD_BATCH, batch.getHeader(), Ack.class, batch.getBuffers());
+      connection.send(new ThrottlingOutcomeListener(outcomeListener, batchCredits), RpcType.REQ_RECORD_BATCH,
+          batch.getHeader(), Ack.class, DataTunnel.this, batch.getBuffers());
     }
 
     @Override
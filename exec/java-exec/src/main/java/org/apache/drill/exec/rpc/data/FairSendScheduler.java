@@ -0,0 +1,201 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc.data;
+
+import io.netty.channel.Channel;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+
+import com.google.common.collect.Maps;
+
+/**
+ * Schedules the record batches sent over a data connection across the queries sending them, with start-time fair
+ * queuing. While the connection keeps up, the batches are sent as they come. Once it is congested (its outbound
+ * buffer is over the high water mark), the senders wait here rather than on the connection, and are let through in
+ * the order of the start tags of their batches as the connection drains. Each query then gets a share of the
+ * connection proportional to its weight (exec.send.weight): the batches of a small query wait behind the fair share of
+ * a large shuffle, not behind its whole backlog.
+ * <p>
+ * The start tag of a batch is the virtual time, or the finish tag of the previous batch of its query if later. Its
+ * finish tag adds its size divided by the weight of its query. The virtual time is the start tag of the batch sent
+ * last.
+ */
+class FairSendScheduler {
+  static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(FairSendScheduler.class);
+
+  // scale of the cost (size / weight) of the batches, so that the tags keep the precision of the weights
+  private static final long WEIGHT_SCALE = 100;
+  // the finish tags are pruned once that many queries sent over the connection
+  private static final int MAX_QUERIES = 64;
+
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition changed = lock.newCondition();
+  private final PriorityQueue<Ticket> waiting = new PriorityQueue<>();
+  // finish tag of the last batch of each query
+  private final Map<QueryId, Long> finishTags = Maps.newHashMap();
+  private long virtualTime;
+  private long sequence;
+  // whether a sender was let through and did not hand its batch to the connection yet
+  private boolean sending;
+  private volatile Channel channel;
+
+  /**
+   * Waits for the turn of a batch. Once it returns, the batch must be handed to the connection, and {@link #sent()}
+   * called.
+   *
+   * @param queryId query of the batch
+   * @param weight weight of the query
+   * @param bytes size of the batch
+   * @throws InterruptedException if interrupted while waiting, the batch must not be sent then (and the query is not
+   * charged for it)
+   */
+  void acquire(QueryId queryId, int weight, long bytes) throws InterruptedException {
+    lock.lock();
+    try {
+      final Long previousFinishTag = finishTags.get(queryId);
+      final long startTag = previousFinishTag == null ? virtualTime : Math.max(virtualTime, previousFinishTag);
+      final long finishTag = startTag + Math.max(bytes, 1) * WEIGHT_SCALE / weight;
+      finishTags.put(queryId, finishTag);
+
+      if (!sending && waiting.isEmpty() && isWritable()) {
+        start(startTag);
+        return;
+      }
+
+      final Ticket ticket = new Ticket(startTag, sequence++);
+      waiting.add(ticket);
+      boolean turn = false;
+      try {
+        while (sending || waiting.peek() != ticket || !isWritable()) {
+          changed.await();
+        }
+        turn = true;
+      } finally {
+        if (!turn) {
+          // let the next sender take the turn of this one, and the next batch of the query start where this one did
+          waiting.remove(ticket);
+          final Long currentFinishTag = finishTags.get(queryId);
+          if (currentFinishTag != null && currentFinishTag == finishTag) {
+            if (previousFinishTag == null) {
+              finishTags.remove(queryId);
+            } else {
+              finishTags.put(queryId, previousFinishTag);
+            }
+          }
+          changed.signalAll();
+        }
+      }
+      waiting.poll();
+      start(startTag);
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Lets the next sender through, once the batch of the current one was handed to the connection.
+   */
+  void sent() {
+    lock.lock();
+    try {
+      sending = false;
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Follows the writability of a new connection, once the former (if any) closed. The senders waiting for the
+   * connection to drain are woken up by its changes of writability.
+   */
+  void setChannel(Channel channel) {
+    // the handler is added first, so that no change of writability goes unnoticed once the senders wait on it
+    channel.pipeline().addLast(new WritabilityHandler());
+    this.channel = channel;
+    signal();
+  }
+
+  private boolean isWritable() {
+    final Channel channel = this.channel;
+    // the sender sets the connection up, or fails to, when there is none
+    return channel == null || !channel.isActive() || channel.isWritable();
+  }
+
+  private void start(long startTag) {
+    sending = true;
+    virtualTime = Math.max(virtualTime, startTag);
+    if (finishTags.size() > MAX_QUERIES) {
+      // a finish tag behind the virtual time no longer makes a difference
+      final Iterator<Long> iterator = finishTags.values().iterator();
+      while (iterator.hasNext()) {
+        if (iterator.next() <= virtualTime) {
+          iterator.remove();
+        }
+      }
+    }
+  }
+
+  private void signal() {
+    lock.lock();
+    try {
+      changed.signalAll();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private static class Ticket implements Comparable<Ticket> {
+    final long startTag;
+    final long sequence;
+
+    Ticket(long startTag, long sequence) {
+      this.startTag = startTag;
+      this.sequence = sequence;
+    }
+
+    @Override
+    public int compareTo(Ticket other) {
+      final int result = Long.compare(startTag, other.startTag);
+      return result != 0 ? result : Long.compare(sequence, other.sequence);
+    }
+  }
+
+  private class WritabilityHandler extends ChannelInboundHandlerAdapter {
+
+    @Override
+    public void channelWritabilityChanged(ChannelHandlerContext ctx) throws Exception {
+      signal();
+      ctx.fireChannelWritabilityChanged();
+    }
+
+    @Override
+    public void channelInactive(ChannelHandlerContext ctx) throws Exception {
+      signal();
+      ctx.fireChannelInactive();
+    }
+  }
+}
@@ -129,6 +129,10 @@ public class UserClient extends BasicClient<RpcType, UserClient.UserToBitConnect
     send(queryResultHandler.getWrappedListener(resultsListener), RpcType.RUN_QUERY, query, QueryId.class);
   }
 
+  public void resumeResults(UserResultsListener resultsListener, QueryId queryId) {
+    send(queryResultHandler.getWrappedListener(resultsListener), RpcType.RESUME_RESULTS, queryId, QueryId.class);
+  }
+
   /**
    * Connects, and if required, authenticates. This method blocks until both operations are complete.
    *
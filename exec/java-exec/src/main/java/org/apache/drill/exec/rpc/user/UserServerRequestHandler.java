@@ -89,6 +89,16 @@ class UserServerRequestHandler implements RequestHandler<BitToUserConnection> {
       } catch (final InvalidProtocolBufferException e) {
         throw new RpcException("Failure while decoding QueryId body.", e);
       }
+    case RpcType.RESUME_RESULTS_VALUE:
+      try {
+        final QueryId queryId = QueryId.PARSER.parseFrom(new ByteBufInputStream(pBody));
+        responseSender.send(new Response(RpcType.QUERY_HANDLE, queryId));
+        worker.resumeResults(connection, queryId);
+        break;
+      } catch (final InvalidProtocolBufferException e) {
+        throw new RpcException("Failure while decoding QueryId body.", e);
+      }
+
     case RpcType.GET_QUERY_PLAN_FRAGMENTS_VALUE:
       try {
         final GetQueryPlanFragments req = GetQueryPlanFragments.PARSER.parseFrom(new ByteBufInputStream(pBody));
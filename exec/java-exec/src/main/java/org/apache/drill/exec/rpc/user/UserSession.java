@@ -34,6 +34,7 @@ import org.apache.calcite.schema.Table;
 import org.apache.calcite.tools.ValidationException;
 import org.apache.drill.common.config.DrillConfig;
 import org.apache.drill.common.config.DrillProperties;
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.planner.physical.PlannerSettings;
 import org.apache.drill.exec.planner.sql.SchemaUtilites;
 import org.apache.drill.exec.planner.sql.handlers.SqlHandlerUtil;
@@ -123,18 +124,22 @@ public class UserSession implements AutoCloseable {
     }
 
     public UserSession build() {
-      if (userSession.properties.containsKey(DrillProperties.QUOTING_IDENTIFIERS)) {
+      installSessionOption(DrillProperties.QUOTING_IDENTIFIERS, PlannerSettings.QUOTING_IDENTIFIERS_KEY);
+      installSessionOption(DrillProperties.COALESCE_RESULT_BYTES, ExecConstants.RESULT_COALESCE_BYTES_KEY);
+      UserSession session = userSession;
+      userSession = null;
+      return session;
+    }
+
+    private void installSessionOption(String property, String option) {
+      if (userSession.properties.containsKey(property)) {
         if (userSession.sessionOptions != null) {
-          userSession.setSessionOption(PlannerSettings.QUOTING_IDENTIFIERS_KEY,
-              userSession.properties.getProperty(DrillProperties.QUOTING_IDENTIFIERS));
+          userSession.setSessionOption(option, userSession.properties.getProperty(property));
         } else {
           logger.warn("User property {} can't be installed as a server option without the session option manager",
-              DrillProperties.QUOTING_IDENTIFIERS);
+              property);
         }
       }
-      UserSession session = userSession;
-      userSession = null;
-      return session;
     }
 
     Builder() {
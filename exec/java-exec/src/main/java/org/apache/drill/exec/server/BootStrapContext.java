@@ -25,6 +25,8 @@ import java.net.InetAddress;
 import java.net.UnknownHostException;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.SynchronousQueue;
@@ -73,6 +75,8 @@ public class BootStrapContext implements AutoCloseable {
   private final ExecutorService executor;
   private final ExecutorService scanExecutor;
   private final ExecutorService scanDecodeExecutor;
+  private final ExecutorService spillIoExecutor;
+  private final ForkJoinPool partitionerPool;
   private final String hostName;
 
   public BootStrapContext(DrillConfig config, ScanResult classpathScan) throws DrillbitStartupException {
@@ -112,6 +116,19 @@ public class BootStrapContext implements AutoCloseable {
     this.scanExecutor = Executors.newFixedThreadPool(scanThreadPoolSize, new NamedThreadFactory("scan-"));
     this.scanDecodeExecutor =
         Executors.newFixedThreadPool(scanDecodeThreadPoolSize, new NamedThreadFactory("scan-decode-"));
+    // A pool to write and read ahead the blocks of the spill files, when done asynchronously. Like the scan pool, a
+    // multiple of the number of disks.
+    final int spillIoThreadPoolSize = Math.max(1, config.getInt(ExecConstants.SPILL_IO_THREADPOOL_SIZE));
+    this.spillIoExecutor = Executors.newFixedThreadPool(spillIoThreadPoolSize, new NamedThreadFactory("spill-io-"));
+    // A pool to split the partitioning of the incoming batches of the partition senders by rows, one thread per core.
+    this.partitionerPool = new ForkJoinPool(numCores, new ForkJoinPool.ForkJoinWorkerThreadFactory() {
+      @Override
+      public ForkJoinWorkerThread newThread(ForkJoinPool pool) {
+        final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        thread.setName("partitioner-" + thread.getPoolIndex());
+        return thread;
+      }
+    }, null, false);
   }
 
   private void login(final DrillConfig config) throws DrillbitStartupException {
@@ -186,6 +203,14 @@ public class BootStrapContext implements AutoCloseable {
     return scanDecodeExecutor;
   }
 
+  public ExecutorService getSpillIoExecutor() {
+    return spillIoExecutor;
+  }
+
+  public ForkJoinPool getPartitionerPool() {
+    return partitionerPool;
+  }
+
   public DrillConfig getConfig() {
     return config;
   }
@@ -243,6 +268,10 @@ public class BootStrapContext implements AutoCloseable {
       }
     }
 
+    partitionerPool.shutdownNow();
+    // the spill streams wait for their writes in flight as they close, with their fragments
+    spillIoExecutor.shutdownNow();
+
     try {
       AutoCloseables.close(allocator, authProvider);
     } catch (final Exception e) {
@@ -28,6 +28,8 @@ import org.apache.drill.exec.expr.fn.FunctionImplementationRegistry;
 import org.apache.drill.exec.expr.fn.registry.RemoteFunctionRegistry;
 import org.apache.drill.exec.memory.BufferAllocator;
 import org.apache.drill.exec.physical.impl.OperatorCreatorRegistry;
+import org.apache.drill.exec.physical.impl.materialize.ResultSpools;
+import org.apache.drill.exec.physical.impl.spill.SpillDirectories;
 import org.apache.drill.exec.planner.PhysicalPlanReader;
 import org.apache.drill.exec.planner.sql.DrillOperatorTable;
 import org.apache.drill.exec.proto.CoordinationProtos.DrillbitEndpoint;
@@ -42,6 +44,7 @@ import org.apache.drill.exec.store.sys.PersistentStoreProvider;
 
 import java.util.Collection;
 import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 
@@ -66,6 +69,8 @@ public class DrillbitContext implements AutoCloseable {
   // operator table for standard SQL operators and functions, Drill built-in UDFs
   private final DrillOperatorTable table;
   private final QueryProfileStoreContext profileStoreContext;
+  private final SpillDirectories spillDirectories = new SpillDirectories();
+  private final ResultSpools resultSpools;
 
   public DrillbitContext(
       DrillbitEndpoint endpoint,
@@ -97,6 +102,7 @@ public class DrillbitContext implements AutoCloseable {
     this.endpoint = checkNotNull(endpoint);
     this.provider = provider;
     this.lpPersistence = new LogicalPlanPersistence(context.getConfig(), classpathScan);
+    this.resultSpools = new ResultSpools(context.getAllocator());
 
     // TODO remove escaping "this".
     this.storagePlugins = context.getConfig()
@@ -204,6 +210,27 @@ public class DrillbitContext implements AutoCloseable {
   public ExecutorService getScanDecodeExecutor() {
     return context.getScanDecodeExecutor();
   }
+  public ForkJoinPool getPartitionerPool() {
+    return context.getPartitionerPool();
+  }
+
+  public ExecutorService getSpillIoExecutor() {
+    return context.getSpillIoExecutor();
+  }
+
+  /**
+   * @return the spill directories of the drillbit, with their load and throughput
+   */
+  public SpillDirectories getSpillDirectories() {
+    return spillDirectories;
+  }
+
+  /**
+   * @return the spooled results kept for the clients which disconnected before they took them
+   */
+  public ResultSpools getResultSpools() {
+    return resultSpools;
+  }
 
   public LogicalPlanPersistence getLpPersistence() {
     return lpPersistence;
@@ -238,6 +265,7 @@ public class DrillbitContext implements AutoCloseable {
 
   @Override
   public void close() throws Exception {
+    resultSpools.close();
     getOptionManager().close();
     getFunctionImplementationRegistry().close();
     getRemoteFunctionRegistry().close();
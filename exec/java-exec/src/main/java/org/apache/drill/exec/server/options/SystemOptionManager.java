@@ -94,9 +94,27 @@ public class SystemOptionManager extends BaseOptionManager implements OptionMana
       PlannerSettings.QUOTING_IDENTIFIERS,
       PlannerSettings.JOIN_OPTIMIZATION,
       PlannerSettings.FORCE_2PHASE_AGGR, // for testing
+      ExecConstants.TOPN_MAX_MEMORY_VALIDATOR,
       ExecConstants.HASHAGG_NUM_PARTITIONS_VALIDATOR,
       ExecConstants.HASHAGG_MAX_MEMORY_VALIDATOR,
       ExecConstants.HASHAGG_MIN_BATCHES_PER_PARTITION_VALIDATOR, // for tuning
+      ExecConstants.HASHAGG_ADAPTIVE_BYPASS_VALIDATOR,
+      ExecConstants.HASHAGG_BYPASS_GROUP_RATIO_VALIDATOR,
+      ExecConstants.HASHJOIN_NUM_PARTITIONS_VALIDATOR,
+      ExecConstants.HASHJOIN_MAX_MEMORY_VALIDATOR,
+      ExecConstants.HASHJOIN_ENABLE_RUNTIME_FILTER_VALIDATOR,
+      ExecConstants.HASHJOIN_RUNTIME_FILTER_SIZE_VALIDATOR,
+      ExecConstants.HASHTABLE_OPEN_ADDRESSING_VALIDATOR,
+      ExecConstants.FILTER_KERNELS_VALIDATOR,
+      ExecConstants.PARTITIONER_BATCH_SIZE_VALIDATOR,
+      ExecConstants.PARTITIONER_MEMORY_BUDGET_VALIDATOR,
+      ExecConstants.SEND_WEIGHT_VALIDATOR,
+      ExecConstants.RESULT_COALESCE_BYTES_VALIDATOR,
+      ExecConstants.RESULT_SPOOL_VALIDATOR,
+      ExecConstants.RESULT_SPOOL_TTL_VALIDATOR,
+      ExecConstants.SPILL_COMPRESS_VALIDATOR,
+      ExecConstants.SPILL_ASYNC_IO_VALIDATOR,
+      ExecConstants.SPILL_MMAP_READS_VALIDATOR,
       ExecConstants.CAST_TO_NULLABLE_NUMERIC_OPTION,
       ExecConstants.OUTPUT_FORMAT_VALIDATOR,
       ExecConstants.PARQUET_BLOCK_SIZE_VALIDATOR,
@@ -111,10 +129,12 @@ public class SystemOptionManager extends BaseOptionManager implements OptionMana
       ExecConstants.PARQUET_PAGEREADER_ASYNC_VALIDATOR,
       ExecConstants.PARQUET_PAGEREADER_QUEUE_SIZE_VALIDATOR,
       ExecConstants.PARQUET_PAGEREADER_ENFORCETOTALSIZE_VALIDATOR,
+      ExecConstants.PARQUET_PAGEREADER_ASYNC_DECOMPRESS_VALIDATOR,
       ExecConstants.PARQUET_COLUMNREADER_ASYNC_VALIDATOR,
       ExecConstants.PARQUET_PAGEREADER_USE_BUFFERED_READ_VALIDATOR,
       ExecConstants.PARQUET_PAGEREADER_BUFFER_SIZE_VALIDATOR,
       ExecConstants.PARQUET_PAGEREADER_USE_FADVISE_VALIDATOR,
+      ExecConstants.PARQUET_LATE_MATERIALIZATION_VALIDATOR,
       ExecConstants.PARQUET_READER_INT96_AS_TIMESTAMP_VALIDATOR,
       ExecConstants.JSON_READER_ALL_TEXT_MODE_VALIDATOR,
       ExecConstants.ENABLE_UNION_TYPE,
@@ -172,6 +192,7 @@ public class SystemOptionManager extends BaseOptionManager implements OptionMana
       ExecConstants.CREATE_PREPARE_STATEMENT_TIMEOUT_MILLIS_VALIDATOR,
       ExecConstants.DYNAMIC_UDF_SUPPORT_ENABLED_VALIDATOR,
       ExecConstants.EXTERNAL_SORT_DISABLE_MANAGED_OPTION,
+      ExecConstants.EXTERNAL_SORT_NORMALIZED_KEYS_VALIDATOR,
       ExecConstants.ENABLE_QUERY_PROFILE_VALIDATOR,
       ExecConstants.QUERY_PROFILE_DEBUG_VALIDATOR,
       ExecConstants.USE_DYNAMIC_UDFS,
@@ -27,6 +27,7 @@ import org.apache.calcite.rex.RexNode;
 import org.apache.calcite.rex.RexUtil;
 import org.apache.drill.common.expression.LogicalExpression;
 import org.apache.drill.common.expression.ValueExpressions;
+import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.ops.OptimizerRulesContext;
 import org.apache.drill.exec.physical.base.GroupScan;
 import org.apache.drill.exec.planner.common.DrillRelOptUtil;
@@ -146,11 +147,21 @@ public abstract class ParquetPushDownFilter extends StoragePluginOptimizerRule {
         optimizerContext.getFunctionRegistry(), optimizerContext.getPlannerSettings().getOptions());
     logger.info("Took {} ms to apply filter on parquet row groups. ", timer.elapsed(TimeUnit.MILLISECONDS));
 
-    if (newGroupScan == null ) {
+    // with late materialization, the reader evaluates the pushed filter as well (to avoid decoding the other
+    // columns of the rows that do not match), whether or not any row group was pruned; the filter stays above
+    // the scan, as the pushed filter may cover only part of the condition
+    final boolean lateMaterialization = optimizerContext.getPlannerSettings().getOptions()
+        .getOption(ExecConstants.PARQUET_LATE_MATERIALIZATION).bool_val;
+    if (newGroupScan == null && !lateMaterialization) {
       return;
     }
+    final ParquetGroupScan filteredGroupScan = newGroupScan == null ?
+        (ParquetGroupScan) groupScan.clone(groupScan.getColumns()) : (ParquetGroupScan) newGroupScan;
+    if (lateMaterialization) {
+      filteredGroupScan.setFilter(conditionExp);
+    }
 
-    final ScanPrel newScanRel = ScanPrel.create(scan, scan.getTraitSet(), newGroupScan, scan.getRowType());
+    final ScanPrel newScanRel = ScanPrel.create(scan, scan.getTraitSet(), filteredGroupScan, scan.getRowType());
 
     RelNode inputRel = newScanRel;
 
@@ -49,6 +49,11 @@ public class ParquetReaderStats {
   public AtomicLong timeVarColumnRead = new AtomicLong();
   public AtomicLong timeProcess = new AtomicLong();
 
+  public AtomicLong numRecordsFiltered = new AtomicLong();
+  public AtomicLong numDataPagesSkipped = new AtomicLong();
+  public AtomicLong numDataPagesPruned = new AtomicLong();
+  public AtomicLong numRecordsRuntimeFiltered = new AtomicLong();
+
   public ParquetReaderStats() {
   }
 
@@ -113,5 +118,9 @@ public class ParquetReaderStats {
     stats.addLongStat(Metric.TIME_FIXEDCOLUMN_READ, timeFixedColumnRead.longValue());
     stats.addLongStat(Metric.TIME_VARCOLUMN_READ, timeVarColumnRead.longValue());
     stats.addLongStat(Metric.TIME_PROCESS, timeProcess.longValue());
+    stats.addLongStat(Metric.NUM_RECORDS_FILTERED, numRecordsFiltered.longValue());
+    stats.addLongStat(Metric.NUM_DATA_PAGES_SKIPPED, numDataPagesSkipped.longValue());
+    stats.addLongStat(Metric.NUM_DATA_PAGES_PRUNED, numDataPagesPruned.longValue());
+    stats.addLongStat(Metric.NUM_RECORDS_RUNTIME_FILTERED, numRecordsRuntimeFiltered.longValue());
   }
 }
@@ -120,7 +120,7 @@ public class ParquetScanBatchCreator implements BatchCreator<ParquetRowGroupScan
           logger.debug(containsCorruptDates.toString());
         }
         if (!context.getOptions().getOption(ExecConstants.PARQUET_NEW_RECORD_READER).bool_val && !isComplex(footers.get(e.getPath()))) {
-          readers.add(
+          ParquetRecordReader reader =
               new ParquetRecordReader(
                   context, e.getPath(), e.getRowGroupIndex(), e.getNumRecordsToRead(), fs,
                   CodecFactory.createDirectCodecFactory(
@@ -129,8 +129,10 @@ public class ParquetScanBatchCreator implements BatchCreator<ParquetRowGroupScan
                   footers.get(e.getPath()),
                   rowGroupScan.getColumns(),
                   containsCorruptDates
-              )
-          );
+              );
+          reader.setFilter(rowGroupScan.getFilter());
+          reader.setRuntimeFilters(context.getRuntimeFilters().getScanFilters(rowGroupScan.getOperatorId()));
+          readers.add(reader);
         } else {
           ParquetMetadata footer = footers.get(e.getPath());
           readers.add(new DrillParquetReader(context, footer, e, columnExplorer.getTableColumns(), fs, containsCorruptDates));
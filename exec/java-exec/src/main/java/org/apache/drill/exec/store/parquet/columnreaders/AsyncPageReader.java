@@ -18,6 +18,7 @@
 package org.apache.drill.exec.store.parquet.columnreaders;
 
 import com.google.common.base.Stopwatch;
+import com.google.common.util.concurrent.Uninterruptibles;
 import io.netty.buffer.DrillBuf;
 import org.apache.drill.common.exceptions.DrillRuntimeException;
 import org.apache.drill.common.exceptions.ExecutionSetupException;
@@ -41,9 +42,11 @@ import org.xerial.snappy.Snappy;
 
 import java.io.EOFException;
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.nio.ByteBuffer;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.LinkedBlockingQueue;
@@ -77,16 +80,24 @@ import static org.apache.parquet.column.Encoding.valueOf;
  * The Future tasks created are kept in a non blocking queue and the Future object is checked for any
  * exceptions that might have occurred during the execution. The queue of Futures is also used to cancel
  * any pending Futures at close (this may happen as a result of a cancel).
+ * If asynchronous decompression is enabled, the AsyncPageReaderTask also submits the decompression of each
+ * (compressed) data page it reads to the scan decode thread pool. The pages of all the columns of a row
+ * group are then decompressed in parallel, ahead of the scan thread, which just waits for the result.
+ * The decompressed page is allocated by the operator allocator, like the pages decompressed by the scan
+ * thread itself.
  *
  */
 class AsyncPageReader extends PageReader {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AsyncPageReader.class);
 
   private ExecutorService threadPool;
+  private ExecutorService decodeThreadPool;
+  private boolean decompressAhead;
   private long queueSize;
   private LinkedBlockingQueue<ReadStatus> pageQueue;
   private ConcurrentLinkedQueue<Future<Void>> asyncPageRead;
   private long totalPageValuesRead = 0;
+  private ReadStatus nextReadStatus = null; // the next data page, read ahead by peekDataPageHeader()
   private Object pageQueueSyncronize = new Object(); // Object to use to synchronize access to the page Queue.
                                                      // FindBugs complains if we synchronize on a Concurrent Queue
 
@@ -95,6 +106,9 @@ class AsyncPageReader extends PageReader {
     super(parentStatus, fs, path, columnChunkMetaData);
     threadPool = parentColumnReader.parentReader.getOperatorContext().getScanExecutor();
     queueSize = parentColumnReader.parentReader.readQueueSize;
+    decodeThreadPool = parentColumnReader.parentReader.getOperatorContext().getScanDecodeExecutor();
+    decompressAhead = parentColumnReader.parentReader.useAsyncDecompression &&
+        columnChunkMetaData.getCodec() != CompressionCodecName.UNCOMPRESSED;
     pageQueue = new LinkedBlockingQueue<>((int) queueSize);
     asyncPageRead = new ConcurrentLinkedQueue<>();
   }
@@ -137,6 +151,10 @@ class AsyncPageReader extends PageReader {
   }
 
   private DrillBuf getDecompressedPageData(ReadStatus readStatus) {
+    final Future<DrillBuf> decompressedData = readStatus.getDecompressedData();
+    if (decompressedData != null) {
+      return getDecompressedPageData(readStatus, decompressedData);
+    }
     DrillBuf data;
     boolean isDictionary = false;
     synchronized (this) {
@@ -161,6 +179,56 @@ class AsyncPageReader extends PageReader {
     return data;
   }
 
+  // Wait for the decompression of the page on the decode thread pool, or decompress the page here if that
+  // has not started yet (the scan thread may itself be a thread of the pool, with the column readers
+  // running asynchronously). The compressed data is released only once the decompression task is done with it
+  private DrillBuf getDecompressedPageData(ReadStatus readStatus, Future<DrillBuf> decompressedData) {
+    DrillBuf data = null;
+    try {
+      if (decompressedData.cancel(false)) {
+        data = decompress(readStatus.getPageHeader(), readStatus.getPageData());
+      } else {
+        data = Uninterruptibles.getUninterruptibly(decompressedData);
+      }
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof UserException) {
+        throw (UserException) e.getCause();
+      }
+      handleAndThrowException(e, "Error decompressing data.");
+    } finally {
+      final DrillBuf compressedData;
+      synchronized (this) {
+        compressedData = readStatus.getPageData();
+        readStatus.setPageData(null);
+      }
+      if (compressedData != null) {
+        compressedData.release();
+      }
+    }
+    return data;
+  }
+
+  // Release the data of a page that is not used. A decompression of the page under way is waited for, the
+  // decompressed data is released too
+  private void releasePageData(ReadStatus readStatus) {
+    final Future<DrillBuf> decompressedData = readStatus.getDecompressedData();
+    if (decompressedData != null && !decompressedData.cancel(false)) {
+      try {
+        Uninterruptibles.getUninterruptibly(decompressedData).release();
+      } catch (ExecutionException e) {
+        // Do nothing.
+      }
+    }
+    final DrillBuf data;
+    synchronized (this) {
+      data = readStatus.getPageData();
+      readStatus.setPageData(null);
+    }
+    if (data != null) {
+      data.release();
+    }
+  }
+
   // Read and decode the dictionary data
   private void readDictionaryPageData(final ReadStatus readStatus, final ColumnReader<?> parentStatus)
       throws UserException {
@@ -214,59 +282,12 @@ class AsyncPageReader extends PageReader {
 
   @Override
   protected void nextInternal() throws IOException {
-    ReadStatus readStatus = null;
     try {
-      Stopwatch timer = Stopwatch.createStarted();
-      parentColumnReader.parentReader.getOperatorContext().getStats().startWait();
-      asyncPageRead.poll().get(); // get the result of execution
-      synchronized (pageQueueSyncronize) {
-        boolean pageQueueFull = pageQueue.remainingCapacity() == 0;
-        readStatus = pageQueue.take(); // get the data if no exception has been thrown
-        if (readStatus.pageData == null || readStatus == ReadStatus.EMPTY) {
-          throw new DrillRuntimeException("Unexpected end of data");
-        }
-        //if the queue was full before we took a page out, then there would
-        // have been no new read tasks scheduled. In that case, schedule a new read.
-        if (!parentColumnReader.isShuttingDown && pageQueueFull) {
-          asyncPageRead.offer(threadPool.submit(new AsyncPageReaderTask(debugName, pageQueue)));
-        }
-      }
-      long timeBlocked = timer.elapsed(TimeUnit.NANOSECONDS);
-      parentColumnReader.parentReader.getOperatorContext().getStats().stopWait();
-      stats.timeDiskScanWait.addAndGet(timeBlocked);
-      stats.timeDiskScan.addAndGet(readStatus.getDiskScanTime());
-      if (readStatus.isDictionaryPage) {
-        stats.numDictPageLoads.incrementAndGet();
-        stats.timeDictPageLoads.addAndGet(timeBlocked + readStatus.getDiskScanTime());
-      } else {
-        stats.numDataPageLoads.incrementAndGet();
-        stats.timeDataPageLoads.addAndGet(timeBlocked + readStatus.getDiskScanTime());
+      ReadStatus readStatus = nextReadStatus;
+      nextReadStatus = null;
+      if (readStatus == null) {
+        readStatus = takeDataPage();
       }
-      pageHeader = readStatus.getPageHeader();
-
-      // TODO - figure out if we need multiple dictionary pages, I believe it may be limited to one
-      // I think we are clobbering parts of the dictionary if there can be multiple pages of dictionary
-
-      do {
-        if (pageHeader.getType() == PageType.DICTIONARY_PAGE) {
-          readDictionaryPageData(readStatus, parentColumnReader);
-          asyncPageRead.poll().get(); // get the result of execution
-          synchronized (pageQueueSyncronize) {
-            boolean pageQueueFull = pageQueue.remainingCapacity() == 0;
-            readStatus = pageQueue.take(); // get the data if no exception has been thrown
-            if (readStatus.pageData == null || readStatus == ReadStatus.EMPTY) {
-              break;
-            }
-            //if the queue was full before we took a page out, then there would
-            // have been no new read tasks scheduled. In that case, schedule a new read.
-            if (!parentColumnReader.isShuttingDown && pageQueueFull) {
-              asyncPageRead.offer(threadPool.submit(new AsyncPageReaderTask(debugName, pageQueue)));
-            }
-          }
-          pageHeader = readStatus.getPageHeader();
-        }
-      } while (pageHeader.getType() == PageType.DICTIONARY_PAGE);
-
       pageHeader = readStatus.getPageHeader();
       pageData = getDecompressedPageData(readStatus);
       assert (pageData != null);
@@ -280,6 +301,102 @@ class AsyncPageReader extends PageReader {
 
   }
 
+  @Override
+  PageHeader peekDataPageHeader() throws IOException {
+    if (nextReadStatus == null) {
+      if (parentColumnReader.totalValuesRead >= parentColumnReader.columnChunkMetaData.getValueCount()) {
+        return null;
+      }
+      try {
+        nextReadStatus = takeDataPage();
+      } catch (InterruptedException e) {
+        // not the end of the column chunk: the caller must not take it for one
+        Thread.currentThread().interrupt();
+        final InterruptedIOException ex = new InterruptedIOException("Interrupted while reading the next page of " +
+            parentColumnReader.schemaElement.getName());
+        ex.initCause(e);
+        throw ex;
+      } catch (RuntimeException e) { // Catch this explicitly to satisfy findbugs
+        handleAndThrowException(e, "Error reading page data");
+      } catch (Exception e) {
+        handleAndThrowException(e, "Error reading page data");
+      }
+    }
+    return nextReadStatus.getPageHeader();
+  }
+
+  /**
+   * The data of the page was read (ahead) already; it is released without being decompressed.
+   */
+  @Override
+  int skipDataPage() {
+    assert nextReadStatus != null;
+    final ReadStatus readStatus = nextReadStatus;
+    nextReadStatus = null;
+    releasePageData(readStatus);
+    return readStatus.getPageHeader().data_page_header.num_values;
+  }
+
+  /**
+   * Take the next data page out of the queue (the pages are read by the AsyncPageReaderTasks), loading
+   * the dictionary page(s) met on the way
+   */
+  private ReadStatus takeDataPage() throws Exception {
+    ReadStatus readStatus = null;
+    Stopwatch timer = Stopwatch.createStarted();
+    parentColumnReader.parentReader.getOperatorContext().getStats().startWait();
+    asyncPageRead.poll().get(); // get the result of execution
+    synchronized (pageQueueSyncronize) {
+      boolean pageQueueFull = pageQueue.remainingCapacity() == 0;
+      readStatus = pageQueue.take(); // get the data if no exception has been thrown
+      if (readStatus.pageData == null || readStatus == ReadStatus.EMPTY) {
+        throw new DrillRuntimeException("Unexpected end of data");
+      }
+      //if the queue was full before we took a page out, then there would
+      // have been no new read tasks scheduled. In that case, schedule a new read.
+      if (!parentColumnReader.isShuttingDown && pageQueueFull) {
+        asyncPageRead.offer(threadPool.submit(new AsyncPageReaderTask(debugName, pageQueue)));
+      }
+    }
+    long timeBlocked = timer.elapsed(TimeUnit.NANOSECONDS);
+    parentColumnReader.parentReader.getOperatorContext().getStats().stopWait();
+    stats.timeDiskScanWait.addAndGet(timeBlocked);
+    stats.timeDiskScan.addAndGet(readStatus.getDiskScanTime());
+    if (readStatus.isDictionaryPage) {
+      stats.numDictPageLoads.incrementAndGet();
+      stats.timeDictPageLoads.addAndGet(timeBlocked + readStatus.getDiskScanTime());
+    } else {
+      stats.numDataPageLoads.incrementAndGet();
+      stats.timeDataPageLoads.addAndGet(timeBlocked + readStatus.getDiskScanTime());
+    }
+    pageHeader = readStatus.getPageHeader();
+
+    // TODO - figure out if we need multiple dictionary pages, I believe it may be limited to one
+    // I think we are clobbering parts of the dictionary if there can be multiple pages of dictionary
+
+    do {
+      if (pageHeader.getType() == PageType.DICTIONARY_PAGE) {
+        readDictionaryPageData(readStatus, parentColumnReader);
+        asyncPageRead.poll().get(); // get the result of execution
+        synchronized (pageQueueSyncronize) {
+          boolean pageQueueFull = pageQueue.remainingCapacity() == 0;
+          readStatus = pageQueue.take(); // get the data if no exception has been thrown
+          if (readStatus.pageData == null || readStatus == ReadStatus.EMPTY) {
+            break;
+          }
+          //if the queue was full before we took a page out, then there would
+          // have been no new read tasks scheduled. In that case, schedule a new read.
+          if (!parentColumnReader.isShuttingDown && pageQueueFull) {
+            asyncPageRead.offer(threadPool.submit(new AsyncPageReaderTask(debugName, pageQueue)));
+          }
+        }
+        pageHeader = readStatus.getPageHeader();
+      }
+    } while (pageHeader.getType() == PageType.DICTIONARY_PAGE);
+
+    return readStatus;
+  }
+
   @Override public void clear() {
     //Cancelling all existing AsyncPageReaderTasks
     while (asyncPageRead != null && !asyncPageRead.isEmpty()) {
@@ -297,6 +414,11 @@ class AsyncPageReader extends PageReader {
       }
     }
 
+    if (nextReadStatus != null) {
+      releasePageData(nextReadStatus);
+      nextReadStatus = null;
+    }
+
     //Empty the page queue
     ReadStatus r;
     while (!pageQueue.isEmpty()) {
@@ -310,8 +432,8 @@ class AsyncPageReader extends PageReader {
         //Reporting because we shouldn't get this
         logger.error(e.getMessage());
       } finally {
-        if (r != null && r.pageData != null) {
-          r.pageData.release();
+        if (r != null && r != ReadStatus.EMPTY) {
+          releasePageData(r);
         }
       }
     }
@@ -325,6 +447,7 @@ class AsyncPageReader extends PageReader {
     private long bytesRead = 0;
     private long valuesRead = 0;
     private long diskScanTime = 0;
+    private Future<DrillBuf> decompressedData;
 
     public static final ReadStatus EMPTY = new ReadStatus();
 
@@ -376,6 +499,14 @@ class AsyncPageReader extends PageReader {
       this.diskScanTime = diskScanTime;
     }
 
+    public synchronized Future<DrillBuf> getDecompressedData() {
+      return decompressedData;
+    }
+
+    public synchronized void setDecompressedData(Future<DrillBuf> decompressedData) {
+      this.decompressedData = decompressedData;
+    }
+
   }
 
   private class AsyncPageReaderTask implements Callable<Void> {
@@ -437,6 +568,10 @@ class AsyncPageReader extends PageReader {
           readStatus.setDiskScanTime(timeToRead);
           assert (totalValuesRead <= totalValuesCount);
         }
+        if (parent.decompressAhead && !readStatus.isDictionaryPage() && !parentColumnReader.isShuttingDown) {
+          readStatus.setDecompressedData(
+              parent.decodeThreadPool.submit(new DecompressionTask(pageHeader, pageData)));
+        }
         // You do need the synchronized block
         // because you want the check to see if there is remaining capacity in the queue, to be
         // synchronized
@@ -450,14 +585,10 @@ class AsyncPageReader extends PageReader {
         }
         // Do nothing.
       } catch (InterruptedException e) {
-        if (pageData != null) {
-          pageData.release();
-        }
+        release(readStatus, pageData);
         Thread.currentThread().interrupt();
       } catch (Exception e) {
-        if (pageData != null) {
-          pageData.release();
-        }
+        release(readStatus, pageData);
         parent.handleAndThrowException(e, "Exception occurred while reading from disk.");
       } finally {
         //Nothing to do if isShuttingDown.
@@ -465,6 +596,33 @@ class AsyncPageReader extends PageReader {
       return null;
     }
 
+    // the decompression of the page, once submitted, may still be using the data
+    private void release(ReadStatus readStatus, DrillBuf pageData) {
+      if (readStatus.getDecompressedData() != null) {
+        parent.releasePageData(readStatus);
+      } else if (pageData != null) {
+        pageData.release();
+      }
+    }
+
+  }
+
+  private class DecompressionTask implements Callable<DrillBuf> {
+
+    private final PageHeader pageHeader;
+    private final DrillBuf compressedData;
+
+    public DecompressionTask(PageHeader pageHeader, DrillBuf compressedData) {
+      this.pageHeader = pageHeader;
+      this.compressedData = compressedData;
+    }
+
+    @Override
+    public DrillBuf call() {
+      // the compressed data is released by the consumer of the page
+      return decompress(pageHeader, compressedData);
+    }
+
   }
 
   private class DecompressionHelper {
@@ -508,8 +666,12 @@ class AsyncPageReader extends PageReader {
         int size = Snappy.uncompress(input, output);
         output.limit(size);
       } else {
-        CodecFactory.BytesDecompressor decompressor = codecFactory.getDecompressor(parentColumnReader.columnChunkMetaData.getCodec());
-        decompressor.decompress(input, compressedSize, output, uncompressedSize);
+        // The decompressors of the codec factory are shared (by the columns of the scan) and are not
+        // thread safe
+        synchronized (codecFactory) {
+          CodecFactory.BytesDecompressor decompressor = codecFactory.getDecompressor(parentColumnReader.columnChunkMetaData.getCodec());
+          decompressor.decompress(input, compressedSize, output, uncompressedSize);
+        }
       }
     }
 
@@ -26,10 +26,12 @@ import java.util.concurrent.Future;
 
 import org.apache.drill.common.exceptions.ExecutionSetupException;
 import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.vector.AllocationHelper;
 import org.apache.drill.exec.vector.BaseDataValueVector;
 import org.apache.drill.exec.vector.ValueVector;
 
 import org.apache.parquet.column.ColumnDescriptor;
+import org.apache.parquet.format.PageHeader;
 import org.apache.parquet.format.SchemaElement;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.apache.parquet.schema.PrimitiveType;
@@ -255,6 +257,79 @@ public abstract class ColumnReader<V extends ValueVector> {
     return false;
   }
 
+  /**
+   * @return the number of values of the current page not read yet (0 if there is no current page)
+   */
+  protected int valuesLeftInPage() {
+    return pageReader.hasPage() ? pageReader.currentPageCount - pageReader.valuesRead : 0;
+  }
+
+  /**
+   * Leave the current page, once all its values were read, accounting for them as moving to the next
+   * page does.
+   */
+  protected void endPage() {
+    if (pageReader.hasPage()) {
+      totalValuesRead += pageReader.currentPageCount;
+      pageReader.currentPageCount = -1;
+      pageReader.valuesReadyToRead = 0;
+    }
+  }
+
+  /**
+   * Skip the next values of the column, e.g. those of the rows of a page pruned with the statistics of
+   * a filter column. The pages holding only skipped values are passed over without being decompressed
+   * (nor, when the pages are not read ahead, read); the skipped values of the others are read and
+   * dropped. To be called between batches, as the vector is overwritten.
+   *
+   * @param valuesToSkip number of values to skip
+   * @return number of pages passed over
+   * @throws IOException
+   */
+  int skipValues(long valuesToSkip) throws IOException {
+    int pagesSkipped = 0;
+    while (valuesToSkip > 0) {
+      final int valuesLeft = valuesLeftInPage();
+      if (valuesLeft <= 0) {
+        endPage();
+        final PageHeader header = pageReader.peekDataPageHeader();
+        if (header == null) {
+          break; // end of the column chunk
+        }
+        if (header.data_page_header.num_values <= valuesToSkip) {
+          final int pageValues = pageReader.skipDataPage();
+          totalValuesRead += pageValues;
+          valuesToSkip -= pageValues;
+          pagesSkipped++;
+          continue;
+        }
+      }
+      // the values of the current page, or a part of those of the next one
+      final long count = Math.min(valuesLeft > 0 ? Math.min(valuesToSkip, valuesLeft) : valuesToSkip,
+          ParquetRecordReader.DEFAULT_RECORDS_TO_READ_IF_VARIABLE_WIDTH);
+      AllocationHelper.allocate(valueVec, (int) count, 50, 10);
+      final long dropped = dropValues(count);
+      if (dropped == 0) {
+        break;
+      }
+      valuesToSkip -= dropped;
+    }
+    return pagesSkipped;
+  }
+
+  /**
+   * Read the given number of values into the (freshly allocated) vector, to be dropped
+   *
+   * @return the number of values read
+   */
+  protected long dropValues(long count) throws IOException {
+    valuesReadInCurrentPass = 0;
+    processPages(count);
+    final long dropped = valuesReadInCurrentPass;
+    valuesReadInCurrentPass = 0;
+    return dropped;
+  }
+
   protected int totalValuesReadAndReadyToReadInPage() {
     return pageReader.valuesRead + pageReader.valuesReadyToRead;
   }
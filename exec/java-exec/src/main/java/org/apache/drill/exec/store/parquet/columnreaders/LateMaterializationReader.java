@@ -0,0 +1,670 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.store.parquet.columnreaders;
+
+import static org.apache.parquet.format.converter.ParquetMetadataConverter.fromParquetStatistics;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.drill.common.expression.BooleanOperator;
+import org.apache.drill.common.expression.CastExpression;
+import org.apache.drill.common.expression.FunctionCall;
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.common.expression.ValueExpressions.DateExpression;
+import org.apache.drill.common.expression.ValueExpressions.DoubleExpression;
+import org.apache.drill.common.expression.ValueExpressions.IntExpression;
+import org.apache.drill.common.expression.ValueExpressions.LongExpression;
+import org.apache.drill.common.expression.ValueExpressions.QuotedString;
+import org.apache.drill.common.expression.ValueExpressions.TimeStampExpression;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.exec.expr.BasicTypeHelper;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
+import org.apache.drill.exec.physical.impl.filter.FilterKernel;
+import org.apache.drill.exec.physical.impl.filter.FilterKernel.CompareOp;
+import org.apache.drill.exec.store.parquet.ParquetReaderStats;
+import org.apache.drill.exec.store.parquet.ParquetReaderUtility;
+import org.apache.drill.exec.vector.AllocationHelper;
+import org.apache.drill.exec.vector.BigIntVector;
+import org.apache.drill.exec.vector.DateVector;
+import org.apache.drill.exec.vector.Float8Vector;
+import org.apache.drill.exec.vector.IntVector;
+import org.apache.drill.exec.vector.NullableVarBinaryVector;
+import org.apache.drill.exec.vector.NullableVarCharVector;
+import org.apache.drill.exec.vector.NullableVector;
+import org.apache.drill.exec.vector.TimeStampVector;
+import org.apache.drill.exec.vector.ValueVector;
+import org.apache.drill.exec.vector.VarCharVector;
+import org.apache.parquet.column.statistics.DoubleStatistics;
+import org.apache.parquet.column.statistics.IntStatistics;
+import org.apache.parquet.column.statistics.LongStatistics;
+import org.apache.parquet.column.statistics.Statistics;
+import org.apache.parquet.format.DataPageHeader;
+import org.apache.parquet.format.PageHeader;
+import org.apache.parquet.format.PageType;
+import org.apache.parquet.schema.PrimitiveType.PrimitiveTypeName;
+import org.joda.time.DateTimeConstants;
+
+import com.google.common.base.Charsets;
+import com.google.common.base.Stopwatch;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Strategy for reading a record batch with late materialization: the columns of the filter pushed
+ * down into the scan are read first, the filter is evaluated over them (with {@link FilterKernel}s),
+ * and only then are the other variable width columns read, copying just the values of the matching
+ * rows (and skipping the pages without any). The other columns read up front are compacted to the
+ * matching rows.
+ * <p>
+ * Only the conjuncts of the pushed filter that compare a column with a constant (or test it for null)
+ * are evaluated, over INT, BIGINT, FLOAT8, DATE, TIMESTAMP and VARCHAR columns; the filter is still applied
+ * (in full) above the scan, so dropping the rows that fail any of its conjuncts early does not change the
+ * result.
+ * <p>
+ * The conjuncts over the (fixed width, numeric) columns are also evaluated over the statistics in the
+ * headers of their data pages: the rows of a page none of whose values can match are skipped in all the
+ * columns, passing over the pages that hold only such rows without decompressing them (and, when the
+ * pages are not read ahead, without reading them). The batches are cut at the ends of the pages of these
+ * columns, so that each of their pages is checked before it is read. (The Parquet files do not carry
+ * column or offset indexes in this version of the format, only the page header statistics.)
+ * <p>
+ * The {@link RuntimeFilter}s of the hash joins above the scan are evaluated as kernels too, after those of the
+ * pushed filter (but not over the page statistics).
+ */
+public class LateMaterializationReader extends BatchReader {
+  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(LateMaterializationReader.class);
+
+  private final ParquetRecordReader parentReader;
+  private final List<FilterKernel> kernels;
+  // the kernels of the runtime filters, at the end of kernels
+  private final int runtimeKernels;
+  // the filter columns, and the variable width columns that can not be read selectively
+  private final VarLenBinaryReader eagerVarLengthReader;
+  private final List<VarLengthValuesColumn<?>> lazyColumns;
+  // the kernels also evaluated over the statistics of the pages of their columns
+  private final List<PageFilter> pageFilters;
+  private int[] selection = new int[0];
+  private int readCount; // records read from the file by the last readRecords()
+
+  private LateMaterializationReader(ParquetRecordReader parentReader, ReadState readState, List<FilterKernel> kernels,
+                                    int runtimeKernels, List<VarLengthColumn<? extends ValueVector>> eagerColumns,
+                                    List<VarLengthValuesColumn<?>> lazyColumns, List<PageFilter> pageFilters) {
+    super(readState);
+    this.parentReader = parentReader;
+    this.kernels = kernels;
+    this.runtimeKernels = runtimeKernels;
+    this.eagerVarLengthReader = new VarLenBinaryReader(parentReader, eagerColumns);
+    this.lazyColumns = lazyColumns;
+    this.pageFilters = pageFilters;
+  }
+
+  /**
+   * @param parentReader the reader of the row group
+   * @param readState the state of the read, with the column readers built
+   * @param filter the (non materialized) filter pushed down into the scan; may be null
+   * @param runtimeFilters the runtime filters of the scan
+   * @return a late materializing batch reader, or null if no conjunct of the filter nor runtime filter can be
+   * evaluated by the reader, or if there is neither a runtime filter, a variable width column left to read late
+   * nor a page to prune
+   */
+  static LateMaterializationReader create(ParquetRecordReader parentReader, ReadState readState,
+                                          LogicalExpression filter, List<RuntimeFilter> runtimeFilters) {
+    final Map<String, ColumnReader<?>> columns = Maps.newHashMap();
+    for (ColumnReader<?> column : readState.getColumnReaders()) {
+      columns.put(column.valueVec.getField().getName().toLowerCase(), column);
+    }
+    for (VarLengthColumn<?> column : readState.varLengthReader().columns) {
+      if (!(column instanceof VarLengthValuesColumn)) {
+        return null; // repeated columns
+      }
+      columns.put(column.valueVec.getField().getName().toLowerCase(), column);
+    }
+
+    final List<FilterKernel> kernels = Lists.newArrayList();
+    if (filter != null) {
+      addConjuncts(filter, columns, kernels);
+    }
+    final int filterKernels = kernels.size();
+    for (RuntimeFilter runtimeFilter : runtimeFilters) {
+      final ColumnReader<?> column = columns.get(runtimeFilter.getField().toLowerCase());
+      if (column != null && runtimeFilter.accepts(column.valueVec)) {
+        kernels.add(new FilterKernel.RuntimeFilterKernel(column.valueVec, runtimeFilter));
+      }
+    }
+    final int runtimeKernels = kernels.size() - filterKernels;
+    if (kernels.isEmpty()) {
+      return null;
+    }
+
+    final List<VarLengthColumn<? extends ValueVector>> eagerColumns = new ArrayList<>();
+    final List<VarLengthValuesColumn<?>> lazyColumns = new ArrayList<>();
+    for (VarLengthColumn<? extends ValueVector> column : readState.varLengthReader().columns) {
+      if (!isFilterColumn(column, kernels)) {
+        lazyColumns.add((VarLengthValuesColumn<?>) column);
+      } else {
+        eagerColumns.add(column);
+      }
+    }
+    final List<PageFilter> pageFilters = new ArrayList<>();
+    for (FilterKernel kernel : kernels.subList(0, filterKernels)) {
+      for (ColumnReader<?> column : readState.getColumnReaders()) {
+        if (kernel.getColumn() == column.valueVec) {
+          final PageFilter pageFilter = PageFilter.create(kernel, column);
+          if (pageFilter != null) {
+            pageFilters.add(pageFilter);
+          }
+        }
+      }
+    }
+    if (lazyColumns.isEmpty() && pageFilters.isEmpty() && runtimeKernels == 0) {
+      return null;
+    }
+    logger.debug("Late materialization of {} column(s), with {} filter kernel(s), {} over page statistics, " +
+        "{} of runtime filters", lazyColumns.size(), kernels.size(), pageFilters.size(), runtimeKernels);
+    return new LateMaterializationReader(parentReader, readState, kernels, runtimeKernels, eagerColumns, lazyColumns,
+        pageFilters);
+  }
+
+  @Override
+  public int readBatch() throws Exception {
+    final ColumnReader<?> firstColumnStatus = readState.getFirstColumnReader();
+    boolean vectorsWritten = false; // the scan allocates the vectors before each batch
+    int selectedCount;
+    do {
+      if (skipPrunedPages() || vectorsWritten) {
+        // allocate the vectors again, as the scan does before each batch
+        allocateVectors();
+        readState.resetBatch();
+      }
+      final long recordsToRead = Math.min(Math.min(getReadCount(firstColumnStatus), readState.getRecordsToRead()),
+          valuesLeftInFilterPages());
+      selectedCount = readRecords(firstColumnStatus, recordsToRead);
+      vectorsWritten = true;
+      // if none of the records matched, as an empty batch ends the read, go on with the next records
+    } while (selectedCount == 0 && readCount > 0);
+    readState.fillNullVectors(selectedCount);
+    return selectedCount;
+  }
+
+  @Override
+  protected long getReadCount(ColumnReader<?> firstColumnStatus) {
+    return readState.schema().getRecordsPerBatch();
+  }
+
+  /**
+   * Skip the rows of the next pages of the filter columns whose statistics show that none of their values
+   * match, as long as there are some
+   *
+   * @return true if rows were skipped (reading some of the values, into the vectors)
+   */
+  private boolean skipPrunedPages() throws IOException {
+    boolean skipped = false;
+    boolean pruned;
+    do {
+      pruned = false;
+      for (PageFilter pageFilter : pageFilters) {
+        final ColumnReader<?> column = pageFilter.column;
+        if (column.valuesLeftInPage() > 0) {
+          continue;
+        }
+        column.endPage();
+        final PageHeader header = column.pageReader.peekDataPageHeader();
+        if (header != null && !pageFilter.mayMatch(header)) {
+          readState.parquetReaderStats().numDataPagesPruned.incrementAndGet();
+          skipRows(header.data_page_header.num_values);
+          pruned = true;
+          skipped = true;
+        }
+      }
+    } while (pruned);
+    return skipped;
+  }
+
+  /**
+   * Skip the given number of rows in all the columns
+   */
+  private void skipRows(int rows) throws IOException {
+    final ParquetReaderStats stats = readState.parquetReaderStats();
+    long pagesSkipped = 0;
+    for (ColumnReader<?> column : readState.getColumnReaders()) {
+      pagesSkipped += column.skipValues(rows);
+    }
+    for (VarLengthColumn<?> column : eagerVarLengthReader.columns) {
+      pagesSkipped += column.skipValues(rows);
+    }
+    for (VarLengthValuesColumn<?> column : lazyColumns) {
+      pagesSkipped += column.readSelectedValues(rows, selection, 0);
+    }
+    stats.numDataPagesSkipped.addAndGet(pagesSkipped);
+    stats.numRecordsFiltered.addAndGet(rows);
+  }
+
+  /**
+   * @return the number of values left in the current (or else the next) pages of the filter columns
+   * evaluated over the page statistics, so that the batch ends with the first of these pages
+   */
+  private long valuesLeftInFilterPages() throws IOException {
+    long valuesLeft = Long.MAX_VALUE;
+    for (PageFilter pageFilter : pageFilters) {
+      int pageValues = pageFilter.column.valuesLeftInPage();
+      if (pageValues <= 0) {
+        // read ahead (and kept) by skipPrunedPages()
+        final PageHeader header = pageFilter.column.pageReader.peekDataPageHeader();
+        pageValues = header == null ? 0 : header.data_page_header.num_values;
+      }
+      if (pageValues > 0) {
+        valuesLeft = Math.min(valuesLeft, pageValues);
+      }
+    }
+    return valuesLeft;
+  }
+
+  @Override
+  protected int readRecords(ColumnReader<?> firstColumnStatus, long recordsToRead) throws Exception {
+    final ParquetReaderStats stats = readState.parquetReaderStats();
+
+    // first the filter (and other eager) columns
+    if (eagerVarLengthReader.columns.isEmpty()) {
+      readAllFixedFields(recordsToRead);
+      readCount = readState.getColumnReaders().get(0).getRecordsReadInCurrentPass();
+    } else {
+      readCount = (int) eagerVarLengthReader.readFields(recordsToRead);
+      readAllFixedFields(readCount);
+    }
+
+    // then the selection of the records that match the filter
+    if (selection.length < readCount) {
+      selection = new int[readCount];
+    }
+    for (int i = 0; i < readCount; i++) {
+      selection[i] = i;
+    }
+    int selectedCount = readCount;
+    final int firstRuntimeKernel = kernels.size() - runtimeKernels;
+    for (int i = 0; i < kernels.size() && selectedCount > 0; i++) {
+      final int count = kernels.get(i).filter(selection, selectedCount);
+      if (i >= firstRuntimeKernel) {
+        stats.numRecordsRuntimeFiltered.addAndGet(selectedCount - count);
+      }
+      selectedCount = count;
+    }
+
+    // then only the selected values of the other columns
+    final Stopwatch timer = Stopwatch.createStarted();
+    for (VarLengthValuesColumn<?> column : lazyColumns) {
+      stats.numDataPagesSkipped.addAndGet(column.readSelectedValues(readCount, selection, selectedCount));
+    }
+    stats.timeVarColumnRead.addAndGet(timer.elapsed(TimeUnit.NANOSECONDS));
+
+    if (selectedCount < readCount) {
+      stats.numRecordsFiltered.addAndGet(readCount - selectedCount);
+      if (selectedCount > 0) {
+        for (ColumnReader<?> column : readState.getColumnReaders()) {
+          compact(column.valueVec, selectedCount);
+        }
+        for (VarLengthColumn<?> column : eagerVarLengthReader.columns) {
+          compact(column.valueVec, selectedCount);
+        }
+      }
+    }
+    return selectedCount;
+  }
+
+  /**
+   * Keep only the selected values of the vector
+   */
+  private void compact(ValueVector vector, int selectedCount) {
+    final BufferAllocator allocator = parentReader.getOperatorContext().getAllocator();
+    final ValueVector compacted = BasicTypeHelper.getNewVector(vector.getField(), allocator);
+    try {
+      AllocationHelper.allocate(compacted, selectedCount, 50, 10);
+      // (the generic copyEntry() of the nullable variable width vectors does not fill their offsets)
+      if (vector instanceof NullableVarCharVector) {
+        for (int i = 0; i < selectedCount; i++) {
+          ((NullableVarCharVector) compacted).copyFromSafe(selection[i], i, (NullableVarCharVector) vector);
+        }
+      } else if (vector instanceof NullableVarBinaryVector) {
+        for (int i = 0; i < selectedCount; i++) {
+          ((NullableVarBinaryVector) compacted).copyFromSafe(selection[i], i, (NullableVarBinaryVector) vector);
+        }
+      } else {
+        for (int i = 0; i < selectedCount; i++) {
+          compacted.copyEntry(i, vector, selection[i]);
+        }
+      }
+      compacted.getMutator().setValueCount(selectedCount);
+      vector.exchange(compacted);
+    } finally {
+      compacted.clear();
+    }
+  }
+
+  /**
+   * Allocate the vectors (again) for the next records, as the scan does before each batch
+   */
+  private void allocateVectors() {
+    final int recordsPerBatch = readState.schema().getRecordsPerBatch();
+    for (ColumnReader<?> column : readState.getColumnReaders()) {
+      AllocationHelper.allocate(column.valueVec, recordsPerBatch, 50, 10);
+    }
+    for (VarLengthColumn<?> column : readState.varLengthReader().columns) {
+      AllocationHelper.allocate(column.valueVec, recordsPerBatch, 50, 10);
+    }
+  }
+
+  private static boolean isFilterColumn(ColumnReader<?> column, List<FilterKernel> kernels) {
+    for (FilterKernel kernel : kernels) {
+      if (kernel.getColumn() == column.valueVec) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * Add the kernels of the conjuncts of the filter that can be evaluated; the others are left to the
+   * filter above the scan.
+   */
+  private static void addConjuncts(LogicalExpression expr, Map<String, ColumnReader<?>> columns,
+                                   List<FilterKernel> kernels) {
+    if (!(expr instanceof FunctionCall)) {
+      return;
+    }
+    final FunctionCall func = (FunctionCall) expr;
+    if (func instanceof BooleanOperator && func.getName().equals("booleanAnd")) {
+      for (LogicalExpression arg : func.args) {
+        addConjuncts(arg, columns, kernels);
+      }
+      return;
+    }
+    final FilterKernel kernel = func instanceof BooleanOperator ?
+        createInListKernel((BooleanOperator) func, columns) : createKernel(func, columns);
+    if (kernel != null) {
+      kernels.add(kernel);
+    }
+  }
+
+  private static FilterKernel createKernel(FunctionCall func, Map<String, ColumnReader<?>> columns) {
+    final String name = func.getName();
+    if (func.args.size() == 1) {
+      final ValueVector column = getColumn(func.args.get(0), columns);
+      if (column == null) {
+        return null;
+      }
+      switch (name) {
+        case "isnull":
+        case "is null":
+          return new FilterKernel.NullKernel(column, true);
+        case "isnotnull":
+        case "is not null":
+          return new FilterKernel.NullKernel(column, false);
+        default:
+          return null;
+      }
+    }
+
+    CompareOp op = CompareOp.fromFunctionName(name);
+    if (op == null || func.args.size() != 2) {
+      return null;
+    }
+    LogicalExpression columnArg = func.args.get(0);
+    LogicalExpression constantArg = func.args.get(1);
+    if (!(columnArg instanceof SchemaPath)) { // e.g. 5 < a
+      columnArg = func.args.get(1);
+      constantArg = func.args.get(0);
+      op = op.swap();
+    }
+    final ValueVector column = getColumn(columnArg, columns);
+    if (column == null) {
+      return null;
+    }
+    final ValueVector values = getValues(column);
+
+    if (values instanceof IntVector || values instanceof BigIntVector) {
+      final Long constant = getLong(constantArg);
+      return constant == null ? null : FilterKernel.LongRangeKernel.create(column, op, constant);
+    } else if (values instanceof DateVector) {
+      final Long constant = getDate(constantArg);
+      return constant == null ? null : FilterKernel.LongRangeKernel.create(column, op, constant);
+    } else if (values instanceof TimeStampVector) {
+      final Long constant = getTimeStamp(constantArg);
+      return constant == null ? null : FilterKernel.LongRangeKernel.create(column, op, constant);
+    } else if (values instanceof Float8Vector) {
+      final Double constant = getDouble(constantArg);
+      return constant == null ? null : FilterKernel.DoubleRangeKernel.create(column, op, constant);
+    } else if (values instanceof VarCharVector && constantArg instanceof QuotedString) {
+      return new FilterKernel.VarCharCompareKernel(column, op, getBytes((QuotedString) constantArg));
+    }
+    return null;
+  }
+
+  /**
+   * A disjunction of equalities of the same column with constants, e.g. a IN (1, 2, 3)
+   */
+  private static FilterKernel createInListKernel(BooleanOperator or, Map<String, ColumnReader<?>> columns) {
+    if (!or.getName().equals("booleanOr")) {
+      return null;
+    }
+    final List<LogicalExpression> constants = Lists.newArrayList();
+    ValueVector column = null;
+    for (LogicalExpression disjunct : flattenOr(or)) {
+      if (!(disjunct instanceof FunctionCall) || disjunct instanceof BooleanOperator) {
+        return null;
+      }
+      final FunctionCall func = (FunctionCall) disjunct;
+      if (CompareOp.fromFunctionName(func.getName()) != CompareOp.EQ || func.args.size() != 2) {
+        return null;
+      }
+      final boolean columnFirst = func.args.get(0) instanceof SchemaPath;
+      final ValueVector disjunctColumn = getColumn(func.args.get(columnFirst ? 0 : 1), columns);
+      if (disjunctColumn == null || (column != null && column != disjunctColumn)) {
+        return null;
+      }
+      column = disjunctColumn;
+      constants.add(func.args.get(columnFirst ? 1 : 0));
+    }
+    final ValueVector values = getValues(column);
+
+    final int size = constants.size();
+    if (values instanceof IntVector || values instanceof BigIntVector || values instanceof DateVector ||
+        values instanceof TimeStampVector) {
+      final long[] list = new long[size];
+      for (int i = 0; i < size; i++) {
+        final Long constant = values instanceof DateVector ? getDate(constants.get(i)) :
+            values instanceof TimeStampVector ? getTimeStamp(constants.get(i)) : getLong(constants.get(i));
+        if (constant == null) {
+          return null;
+        }
+        list[i] = constant;
+      }
+      return new FilterKernel.LongInListKernel(column, list);
+    } else if (values instanceof Float8Vector) {
+      final double[] list = new double[size];
+      for (int i = 0; i < size; i++) {
+        final Double constant = getDouble(constants.get(i));
+        if (constant == null) {
+          return null;
+        }
+        list[i] = constant;
+      }
+      return new FilterKernel.DoubleInListKernel(column, list);
+    } else if (values instanceof VarCharVector) {
+      final byte[][] list = new byte[size][];
+      for (int i = 0; i < size; i++) {
+        if (!(constants.get(i) instanceof QuotedString)) {
+          return null;
+        }
+        list[i] = getBytes((QuotedString) constants.get(i));
+      }
+      return new FilterKernel.VarCharInListKernel(column, list);
+    }
+    return null;
+  }
+
+  private static List<LogicalExpression> flattenOr(BooleanOperator or) {
+    final List<LogicalExpression> disjuncts = Lists.newArrayList();
+    for (LogicalExpression arg : or.args) {
+      if (arg instanceof BooleanOperator && ((BooleanOperator) arg).getName().equals("booleanOr")) {
+        disjuncts.addAll(flattenOr((BooleanOperator) arg));
+      } else {
+        disjuncts.add(arg);
+      }
+    }
+    return disjuncts;
+  }
+
+  /**
+   * @return the vector of the (top level) column referenced by the expression, or null if the expression
+   * is not such a column reference, or the column is not read
+   */
+  private static ValueVector getColumn(LogicalExpression expr, Map<String, ColumnReader<?>> columns) {
+    if (!(expr instanceof SchemaPath) || ((SchemaPath) expr).getRootSegment().getChild() != null) {
+      return null;
+    }
+    final ColumnReader<?> column = columns.get(((SchemaPath) expr).getRootSegment().getPath().toLowerCase());
+    return column == null ? null : column.valueVec;
+  }
+
+  private static ValueVector getValues(ValueVector column) {
+    return column instanceof NullableVector ? ((NullableVector) column).getValuesVector() : column;
+  }
+
+  // The constants of the filter are not materialized: their type follows from the literal (once the plan
+  // is deserialized, an integer is an INT if it fits), and the comparisons with numeric columns are numeric.
+
+  private static Long getLong(LogicalExpression constant) {
+    if (constant instanceof IntExpression) {
+      return (long) ((IntExpression) constant).getInt();
+    } else if (constant instanceof LongExpression) {
+      return ((LongExpression) constant).getLong();
+    }
+    return null;
+  }
+
+  private static Double getDouble(LogicalExpression constant) {
+    if (constant instanceof DoubleExpression) {
+      return ((DoubleExpression) constant).getDouble();
+    }
+    final Long value = getLong(constant);
+    return value == null ? null : value.doubleValue();
+  }
+
+  private static Long getDate(LogicalExpression constant) {
+    if (constant instanceof DateExpression) {
+      return ((DateExpression) constant).getDate();
+    } else if (constant instanceof CastExpression &&
+        ((CastExpression) constant).getMajorType().getMinorType() == MinorType.DATE) {
+      // a date literal, as serialized in the plan
+      return getLong(((CastExpression) constant).getInput());
+    }
+    return null;
+  }
+
+  private static Long getTimeStamp(LogicalExpression constant) {
+    if (constant instanceof TimeStampExpression) {
+      return ((TimeStampExpression) constant).getTimeStamp();
+    } else if (constant instanceof CastExpression &&
+        ((CastExpression) constant).getMajorType().getMinorType() == MinorType.TIMESTAMP) {
+      return getLong(((CastExpression) constant).getInput());
+    }
+    return null;
+  }
+
+  private static byte[] getBytes(QuotedString constant) {
+    return constant.getString().getBytes(Charsets.UTF_8);
+  }
+
+  /**
+   * A kernel over a fixed width column, evaluated over the statistics in the headers of the data pages
+   * of the column
+   */
+  private static class PageFilter {
+    private final FilterKernel kernel;
+    private final ColumnReader<?> column;
+    private final PrimitiveTypeName type;
+    private final long scale; // of the statistics to the values of the vector (days to millis for a date)
+
+    private PageFilter(FilterKernel kernel, ColumnReader<?> column, PrimitiveTypeName type, long scale) {
+      this.kernel = kernel;
+      this.column = column;
+      this.type = type;
+      this.scale = scale;
+    }
+
+    /**
+     * @return the page filter of the kernel, or null if the statistics of its column can not be compared
+     * with its constants
+     */
+    static PageFilter create(FilterKernel kernel, ColumnReader<?> column) {
+      final PrimitiveTypeName type = column.columnDescriptor.getType();
+      final ValueVector values = getValues(kernel.getColumn());
+      if (kernel instanceof FilterKernel.NullKernel ||
+          values instanceof IntVector && type == PrimitiveTypeName.INT32 ||
+          (values instanceof BigIntVector || values instanceof TimeStampVector) && type == PrimitiveTypeName.INT64 ||
+          values instanceof Float8Vector && type == PrimitiveTypeName.DOUBLE) {
+        return new PageFilter(kernel, column, type, 1);
+      }
+      // the dates of files that may hold corrupt (shifted) values are corrected as they are read, not in
+      // the statistics
+      if (values instanceof DateVector && type == PrimitiveTypeName.INT32 &&
+          column.parentReader.getDateCorruptionStatus() ==
+              ParquetReaderUtility.DateCorruptionStatus.META_SHOWS_NO_CORRUPTION) {
+        return new PageFilter(kernel, column, type, DateTimeConstants.MILLIS_PER_DAY);
+      }
+      return null;
+    }
+
+    /**
+     * @return false if the statistics of the page show that none of its values can pass the kernel
+     */
+    boolean mayMatch(PageHeader header) {
+      final DataPageHeader page = header.getData_page_header();
+      if (header.getType() != PageType.DATA_PAGE || page == null || !page.isSetStatistics() ||
+          !page.getStatistics().isSetNull_count()) {
+        return true;
+      }
+      final org.apache.parquet.format.Statistics statistics = page.getStatistics();
+      final boolean hasNulls = statistics.getNull_count() > 0;
+      final boolean hasValues = statistics.getNull_count() < page.getNum_values();
+      if (!hasValues || kernel instanceof FilterKernel.NullKernel) {
+        return kernel.mayMatch(hasValues, hasNulls, 0L, 0L);
+      }
+      if (!statistics.isSetMin() || !statistics.isSetMax()) {
+        return true;
+      }
+      final Statistics<?> stats = fromParquetStatistics(statistics, type);
+      switch (type) {
+        case INT32:
+          final IntStatistics intStats = (IntStatistics) stats;
+          return kernel.mayMatch(true, hasNulls, intStats.getMin() * scale, intStats.getMax() * scale);
+        case INT64:
+          final LongStatistics longStats = (LongStatistics) stats;
+          return kernel.mayMatch(true, hasNulls, longStats.getMin(), longStats.getMax());
+        default:
+          final DoubleStatistics doubleStats = (DoubleStatistics) stats;
+          return kernel.mayMatch(true, hasNulls, doubleStats.getMin(), doubleStats.getMax());
+      }
+    }
+  }
+}
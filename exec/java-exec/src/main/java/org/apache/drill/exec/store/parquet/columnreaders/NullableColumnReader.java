@@ -176,6 +176,17 @@ abstract class NullableColumnReader<V extends ValueVector> extends ColumnReader<
     valueVec.getMutator().setValueCount(valuesReadInCurrentPass);
   }
 
+  @Override
+  protected int valuesLeftInPage() {
+    return pageReader.hasPage() ? (int) (pageReader.currentPageCount - definitionLevelsRead) : 0;
+  }
+
+  @Override
+  protected void endPage() {
+    // the values are accounted for in the total as they are read
+    pageReader.currentPageCount = -1;
+  }
+
     @Override
   protected abstract void readField(long recordsToRead);
 }
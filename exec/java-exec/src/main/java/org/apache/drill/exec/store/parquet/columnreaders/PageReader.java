@@ -95,6 +95,8 @@ class PageReader {
   ValuesReader dictionaryValueReader;
   Dictionary dictionary;
   PageHeader pageHeader = null;
+  // the header of the next data page, read ahead by peekDataPageHeader()
+  private PageHeader nextPageHeader = null;
 
   int currentPageCount = -1;
 
@@ -160,23 +162,7 @@ class PageReader {
       final ColumnChunkMetaData columnChunkMetaData, final DirectBufInputStream f) throws IOException {
     Stopwatch timer = Stopwatch.createUnstarted();
     if (columnChunkMetaData.getDictionaryPageOffset() > 0) {
-      long bytesToSkip = columnChunkMetaData.getDictionaryPageOffset() - dataReader.getPos();
-      while (bytesToSkip > 0) {
-        long skipped = dataReader.skip(bytesToSkip);
-        if (skipped > 0) {
-          bytesToSkip -= skipped;
-        } else {
-          // no good way to handle this. Guava uses InputStream.available to check
-          // if EOF is reached and because available is not reliable,
-          // tries to read the rest of the data.
-          DrillBuf skipBuf = dataReader.getNext((int) bytesToSkip);
-          if (skipBuf != null) {
-            skipBuf.release();
-          } else {
-            throw new EOFException("End of File reachecd.");
-          }
-        }
-      }
+      skip(columnChunkMetaData.getDictionaryPageOffset() - dataReader.getPos());
 
       long start=dataReader.getPos();
       timer.start();
@@ -189,6 +175,25 @@ class PageReader {
     }
   }
 
+  protected void skip(long bytesToSkip) throws IOException {
+    while (bytesToSkip > 0) {
+      long skipped = dataReader.skip(bytesToSkip);
+      if (skipped > 0) {
+        bytesToSkip -= skipped;
+      } else {
+        // no good way to handle this. Guava uses InputStream.available to check
+        // if EOF is reached and because available is not reliable,
+        // tries to read the rest of the data.
+        DrillBuf skipBuf = dataReader.getNext((int) bytesToSkip);
+        if (skipBuf != null) {
+          skipBuf.release();
+        } else {
+          throw new EOFException("End of File reachecd.");
+        }
+      }
+    }
+  }
+
   private void readDictionaryPage(final PageHeader pageHeader,
                                   final ColumnReader<?> parentStatus) throws IOException {
     int compressedSize = pageHeader.getCompressed_page_size();
@@ -255,35 +260,81 @@ class PageReader {
 
 
   /**
-   * Get the page header and the pageData (uncompressed) for the next page
+   * Read the header of the next data page, loading the dictionary page(s) met on the way
    */
-  protected void nextInternal() throws IOException{
+  private PageHeader readDataPageHeader() throws IOException {
     Stopwatch timer = Stopwatch.createUnstarted();
-    // next, we need to decompress the bytes
+    PageHeader header;
     // TODO - figure out if we need multiple dictionary pages, I believe it may be limited to one
     // I think we are clobbering parts of the dictionary if there can be multiple pages of dictionary
     do {
       long start=dataReader.getPos();
       timer.start();
-      pageHeader = Util.readPageHeader(dataReader);
+      header = Util.readPageHeader(dataReader);
       long timeToRead = timer.elapsed(TimeUnit.NANOSECONDS);
       long pageHeaderBytes=dataReader.getPos()-start;
-      this.updateStats(pageHeader, "Page Header", start, timeToRead, pageHeaderBytes, pageHeaderBytes);
+      this.updateStats(header, "Page Header", start, timeToRead, pageHeaderBytes, pageHeaderBytes);
       logger.trace("ParquetTrace,{},{},{},{},{},{},{},{}","Page Header Read","",
           this.parentColumnReader.parentReader.hadoopPath,
           this.parentColumnReader.columnDescriptor.toString(), start, 0, 0, timeToRead);
       timer.reset();
-      if (pageHeader.getType() == PageType.DICTIONARY_PAGE) {
-        readDictionaryPage(pageHeader, parentColumnReader);
+      if (header.getType() == PageType.DICTIONARY_PAGE) {
+        readDictionaryPage(header, parentColumnReader);
       }
-    } while (pageHeader.getType() == PageType.DICTIONARY_PAGE);
+    } while (header.getType() == PageType.DICTIONARY_PAGE);
+    return header;
+  }
 
+  /**
+   * Get the page header and the pageData (uncompressed) for the next page
+   */
+  protected void nextInternal() throws IOException{
+    if (nextPageHeader != null) {
+      pageHeader = nextPageHeader;
+      nextPageHeader = null;
+    } else {
+      pageHeader = readDataPageHeader();
+    }
+
+    // next, we need to decompress the bytes
     int compressedSize = pageHeader.getCompressed_page_size();
     int uncompressedSize = pageHeader.getUncompressed_page_size();
     pageData = readPage(pageHeader, compressedSize, uncompressedSize);
 
   }
 
+  /**
+   * Read ahead the header of the next data page, e.g. to check its statistics before reading it. The
+   * page is then either read by {@link #next()} or passed over by {@link #skipDataPage()}.
+   *
+   * @return the header of the next data page, or null if all the pages of the column chunk were read
+   * @throws IOException
+   */
+  PageHeader peekDataPageHeader() throws IOException {
+    if (nextPageHeader == null) {
+      if (parentColumnReader.totalValuesRead >= parentColumnReader.columnChunkMetaData.getValueCount()) {
+        return null;
+      }
+      nextPageHeader = readDataPageHeader();
+    }
+    return nextPageHeader;
+  }
+
+  /**
+   * Pass over the data page whose header was read ahead, without reading (nor decompressing) its data.
+   * The caller accounts for the values of the page.
+   *
+   * @return the number of values of the page
+   * @throws IOException
+   */
+  int skipDataPage() throws IOException {
+    assert nextPageHeader != null;
+    final PageHeader header = nextPageHeader;
+    nextPageHeader = null;
+    skip(header.getCompressed_page_size());
+    return header.data_page_header.num_values;
+  }
+
   /**
    * Grab the next page.
    *
@@ -17,12 +17,14 @@
  */
 package org.apache.drill.exec.store.parquet.columnreaders;
 
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
 import org.apache.drill.common.exceptions.DrillRuntimeException;
 import org.apache.drill.common.exceptions.ExecutionSetupException;
+import org.apache.drill.common.expression.LogicalExpression;
 import org.apache.drill.common.expression.SchemaPath;
 import org.apache.drill.exec.ExecConstants;
 import org.apache.drill.exec.exception.OutOfMemoryException;
@@ -30,6 +32,7 @@ import org.apache.drill.exec.ops.FragmentContext;
 import org.apache.drill.exec.ops.MetricDef;
 import org.apache.drill.exec.ops.OperatorContext;
 import org.apache.drill.exec.physical.impl.OutputMutator;
+import org.apache.drill.exec.physical.impl.common.RuntimeFilter;
 import org.apache.drill.exec.store.AbstractRecordReader;
 import org.apache.drill.exec.store.parquet.ParquetReaderStats;
 import org.apache.drill.exec.store.parquet.ParquetReaderUtility;
@@ -85,6 +88,7 @@ public class ParquetRecordReader extends AbstractRecordReader {
 
   public boolean useAsyncColReader;
   public boolean useAsyncPageReader;
+  public boolean useAsyncDecompression;
   public boolean useBufferedReader;
   public int bufferedReadSize;
   public boolean useFadvise;
@@ -96,6 +100,11 @@ public class ParquetRecordReader extends AbstractRecordReader {
 
   public ParquetReaderStats parquetReaderStats = new ParquetReaderStats();
   private BatchReader batchReader;
+  // the filter pushed down into the scan (a part of the filter applied above the scan), if any
+  private LogicalExpression filter;
+  // the runtime filters of the joins above the scan, which are added as they become available
+  private List<RuntimeFilter> runtimeFilters = Collections.emptyList();
+  private int appliedRuntimeFilters;
 
   public enum Metric implements MetricDef {
     NUM_DICT_PAGE_LOADS,         // Number of dictionary pages read
@@ -117,7 +126,11 @@ public class ParquetRecordReader extends AbstractRecordReader {
     TIME_DISK_SCAN,                // Time in nanos spent in reading data from disk.
     TIME_FIXEDCOLUMN_READ,         // Time in nanos spent in converting fixed width data to value vectors
     TIME_VARCOLUMN_READ,           // Time in nanos spent in converting varwidth data to value vectors
-    TIME_PROCESS;                  // Time in nanos spent in processing
+    TIME_PROCESS,                  // Time in nanos spent in processing
+    NUM_RECORDS_FILTERED,          // Number of records dropped by the pushed down filter (late materialization)
+    NUM_DATA_PAGES_SKIPPED,        // Number of data pages not decoded, as none of their records matched the filter
+    NUM_DATA_PAGES_PRUNED,         // Number of data pages of the filter columns whose statistics ruled out all their records
+    NUM_RECORDS_RUNTIME_FILTERED;  // Number of records (of those matching the pushed down filter) dropped by the runtime filters
 
     @Override public int metricId() {
       return ordinal();
@@ -175,6 +188,8 @@ public class ParquetRecordReader extends AbstractRecordReader {
         fragmentContext.getOptions().getOption(ExecConstants.PARQUET_COLUMNREADER_ASYNC).bool_val;
     useAsyncPageReader =
         fragmentContext.getOptions().getOption(ExecConstants.PARQUET_PAGEREADER_ASYNC).bool_val;
+    useAsyncDecompression =
+        fragmentContext.getOptions().getOption(ExecConstants.PARQUET_PAGEREADER_ASYNC_DECOMPRESS).bool_val;
     useBufferedReader =
         fragmentContext.getOptions().getOption(ExecConstants.PARQUET_PAGEREADER_USE_BUFFERED_READ).bool_val;
     bufferedReadSize =
@@ -227,6 +242,27 @@ public class ParquetRecordReader extends AbstractRecordReader {
     return operatorContext;
   }
 
+  /**
+   * Sets the filter pushed down into the scan. When late materialization is enabled, the rows that do not
+   * match (a part of) it are dropped by the reader, before the values of their other columns are decoded.
+   *
+   * @param filter the (non materialized) pushed down filter; may be null
+   */
+  public void setFilter(LogicalExpression filter) {
+    this.filter = filter;
+  }
+
+  /**
+   * Sets the runtime filters of the scan: the rows whose key is not in the build side of a hash join above
+   * the scan are dropped by the reader, as for the pushed down filter (whether late materialization is enabled
+   * or not).
+   *
+   * @param runtimeFilters the filters of the scan, to which more filters may be added during the read
+   */
+  public void setRuntimeFilters(List<RuntimeFilter> runtimeFilters) {
+    this.runtimeFilters = runtimeFilters;
+  }
+
   public FragmentContext getFragmentContext() {
     return fragmentContext;
   }
@@ -259,10 +295,27 @@ public class ParquetRecordReader extends AbstractRecordReader {
     ColumnReader<?> firstColumnStatus = readState.getFirstColumnReader();
     if (firstColumnStatus == null) {
       batchReader = new BatchReader.MockBatchReader(readState);
-    } else if (schema.allFieldsFixedLength()) {
-      batchReader = new BatchReader.FixedWidthReader(readState);
     } else {
-      batchReader = new BatchReader.VariableWidthReader(readState);
+      createBatchReader();
+    }
+  }
+
+  /**
+   * Create the reader of the batches, filtering the rows as they are read if (a part of) the pushed down filter
+   * or a runtime filter can be evaluated by the reader. Called again between batches as runtime filters come in.
+   */
+  private void createBatchReader() {
+    final List<RuntimeFilter> filters = ImmutableList.copyOf(runtimeFilters);
+    appliedRuntimeFilters = filters.size();
+    final LogicalExpression lateFilter =
+        fragmentContext.getOptions().getOption(ExecConstants.PARQUET_LATE_MATERIALIZATION).bool_val ? filter : null;
+    batchReader = null;
+    if (lateFilter != null || !filters.isEmpty()) {
+      batchReader = LateMaterializationReader.create(this, readState, lateFilter, filters);
+    }
+    if (batchReader == null) {
+      batchReader = schema.allFieldsFixedLength() ?
+          new BatchReader.FixedWidthReader(readState) : new BatchReader.VariableWidthReader(readState);
     }
   }
 
@@ -294,6 +347,9 @@ public class ParquetRecordReader extends AbstractRecordReader {
     readState.resetBatch();
     Stopwatch timer = Stopwatch.createStarted();
     try {
+      if (runtimeFilters.size() > appliedRuntimeFilters && readState.getFirstColumnReader() != null) {
+        createBatchReader();
+      }
       return batchReader.readBatch();
     } catch (Exception e) {
       throw handleException("\nHadoop path: " + hadoopPath.toUri().getPath() +
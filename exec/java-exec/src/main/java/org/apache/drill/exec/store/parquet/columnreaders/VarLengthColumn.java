@@ -18,6 +18,8 @@
 package org.apache.drill.exec.store.parquet.columnreaders;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 
 import org.apache.drill.common.exceptions.ExecutionSetupException;
 import org.apache.drill.exec.vector.ValueVector;
@@ -55,6 +57,16 @@ public abstract class VarLengthColumn<V extends ValueVector> extends ColumnReade
     pageReader.valuesReadyToRead = 0;
   }
 
+  @Override
+  protected long dropValues(long count) throws IOException {
+    final List<VarLengthColumn<? extends ValueVector>> column = new ArrayList<>();
+    column.add(this);
+    valuesReadInCurrentPass = 0;
+    final long dropped = new VarLenBinaryReader(parentReader, column).readFields(count);
+    valuesReadInCurrentPass = 0;
+    return dropped;
+  }
+
   protected abstract boolean readAndStoreValueSizeInformation() throws IOException;
 
   public abstract boolean skipReadyToReadPositionUpdate();
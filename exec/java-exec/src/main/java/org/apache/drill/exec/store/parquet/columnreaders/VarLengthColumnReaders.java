@@ -38,6 +38,7 @@ import org.apache.drill.exec.vector.VarCharVector;
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.format.SchemaElement;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
+import org.apache.parquet.io.api.Binary;
 
 public class VarLengthColumnReaders {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(VarLengthColumnReaders.class);
@@ -55,9 +56,25 @@ public class VarLengthColumnReaders {
 
     @Override
     public boolean setSafe(int index, DrillBuf bytebuf, int start, int length) {
+      return setDecimal(index, DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length, schemaElement.getScale()));
+    }
+
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      boolean success = setSafe(index, bytes, start, length);
+      assert success;
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      final byte[] bytes = value.getBytes();
+      boolean success = setDecimal(index,
+          DecimalUtility.getBigDecimalFromByteArray(bytes, 0, bytes.length, schemaElement.getScale()));
+      assert success;
+    }
+
+    private boolean setDecimal(int index, BigDecimal intermediate) {
       int width = Decimal28SparseHolder.WIDTH;
-      BigDecimal intermediate = DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length,
-          schemaElement.getScale());
       if (index >= decimal28Vector.getValueCapacity()) {
         return false;
       }
@@ -85,9 +102,25 @@ public class VarLengthColumnReaders {
 
     @Override
     public boolean setSafe(int index, DrillBuf bytebuf, int start, int length) {
+      return setDecimal(index, DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length, schemaElement.getScale()));
+    }
+
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      boolean success = setSafe(index, bytes, start, length);
+      assert success;
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      final byte[] bytes = value.getBytes();
+      boolean success = setDecimal(index,
+          DecimalUtility.getBigDecimalFromByteArray(bytes, 0, bytes.length, schemaElement.getScale()));
+      assert success;
+    }
+
+    private boolean setDecimal(int index, BigDecimal intermediate) {
       int width = Decimal28SparseHolder.WIDTH;
-      BigDecimal intermediate = DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length,
-          schemaElement.getScale());
       if (index >= nullableDecimal28Vector.getValueCapacity()) {
         return false;
       }
@@ -116,9 +149,25 @@ public class VarLengthColumnReaders {
 
     @Override
     public boolean setSafe(int index, DrillBuf bytebuf, int start, int length) {
+      return setDecimal(index, DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length, schemaElement.getScale()));
+    }
+
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      boolean success = setSafe(index, bytes, start, length);
+      assert success;
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      final byte[] bytes = value.getBytes();
+      boolean success = setDecimal(index,
+          DecimalUtility.getBigDecimalFromByteArray(bytes, 0, bytes.length, schemaElement.getScale()));
+      assert success;
+    }
+
+    private boolean setDecimal(int index, BigDecimal intermediate) {
       int width = Decimal38SparseHolder.WIDTH;
-      BigDecimal intermediate = DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length,
-          schemaElement.getScale());
       if (index >= decimal28Vector.getValueCapacity()) {
         return false;
       }
@@ -146,13 +195,28 @@ public class VarLengthColumnReaders {
 
     @Override
     public boolean setSafe(int index, DrillBuf bytebuf, int start, int length) {
+      return setDecimal(index, DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length, schemaElement.getScale()));
+    }
+
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      boolean success = setSafe(index, bytes, start, length);
+      assert success;
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      final byte[] bytes = value.getBytes();
+      boolean success = setDecimal(index,
+          DecimalUtility.getBigDecimalFromByteArray(bytes, 0, bytes.length, schemaElement.getScale()));
+      assert success;
+    }
+
+    private boolean setDecimal(int index, BigDecimal intermediate) {
       int width = Decimal38SparseHolder.WIDTH;
-      BigDecimal intermediate = DecimalUtility.getBigDecimalFromDrillBuf(bytebuf, start, length,
-          schemaElement.getScale());
       if (index >= nullableDecimal38Vector.getValueCapacity()) {
         return false;
       }
-
       DecimalUtility.getSparseFromBigDecimal(intermediate, nullableDecimal38Vector.getBuffer(), index * width, schemaElement.getScale(),
               schemaElement.getPrecision(), Decimal38SparseHolder.nDecimalDigits);
       nullableDecimal38Vector.getMutator().setIndexDefined(index);
@@ -195,6 +259,17 @@ public class VarLengthColumnReaders {
       return true;
     }
 
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      mutator.setSafe(index, start, start + length, bytes);
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      ByteBuffer buf = value.toByteBuffer();
+      mutator.setSafe(index, buf, buf.position(), value.length());
+    }
+
     @Override
     public int capacity() {
       return varCharVector.getBuffer().capacity();
@@ -232,6 +307,17 @@ public class VarLengthColumnReaders {
       return true;
     }
 
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      mutator.setSafe(index, 1, start, start + length, bytes);
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      ByteBuffer buf = value.toByteBuffer();
+      mutator.setSafe(index, buf, buf.position(), value.length());
+    }
+
     @Override
     public int capacity() {
       return vector.getBuffer().capacity();
@@ -268,6 +354,17 @@ public class VarLengthColumnReaders {
       return true;
     }
 
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      mutator.setSafe(index, start, start + length, bytes);
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      ByteBuffer buf = value.toByteBuffer();
+      mutator.setSafe(index, buf, buf.position(), value.length());
+    }
+
     @Override
     public int capacity() {
       return varBinaryVector.getBuffer().capacity();
@@ -306,6 +403,17 @@ public class VarLengthColumnReaders {
       return true;
     }
 
+    @Override
+    protected void setSelectedValue(int index, DrillBuf bytes, int start, int length) {
+      mutator.setSafe(index, 1, start, start + length, bytes);
+    }
+
+    @Override
+    protected void setSelectedValue(int index, Binary value) {
+      ByteBuffer buf = value.toByteBuffer();
+      mutator.setSafe(index, buf, buf.position(), value.length());
+    }
+
     @Override
     public int capacity() {
       return nullableVarBinaryVector.getBuffer().capacity();
@@ -27,6 +27,7 @@ import org.apache.drill.exec.vector.VariableWidthVector;
 
 import org.apache.parquet.column.ColumnDescriptor;
 import org.apache.parquet.format.Encoding;
+import org.apache.parquet.format.PageHeader;
 import org.apache.parquet.format.SchemaElement;
 import org.apache.parquet.hadoop.metadata.ColumnChunkMetaData;
 import org.apache.parquet.io.api.Binary;
@@ -52,6 +53,96 @@ public abstract class VarLengthValuesColumn<V extends ValueVector> extends VarLe
 
   public abstract boolean setSafe(int index, DrillBuf bytes, int start, int length);
 
+  /**
+   * Copies a (plain encoded) value of the page into the vector, when reading the selected values only.
+   */
+  protected abstract void setSelectedValue(int index, DrillBuf bytes, int start, int length);
+
+  /**
+   * Copies a dictionary value into the vector, when reading the selected values only.
+   */
+  protected abstract void setSelectedValue(int index, Binary value);
+
+  /**
+   * Reads the next values of the column, but copies into the vector only the selected ones (late
+   * materialization). Unlike the regular read, no lengths are determined ahead of the copy: the caller
+   * knows the number of values to read from the other columns. The unselected values are skipped over,
+   * the values left in a page are not decoded at all once no more of them are selected, and the pages
+   * none of whose values are selected are not even decompressed.
+   * <p>
+   * A column read this way must not be read with {@link #determineSize(long)} / {@link #readRecords(int)}.
+   *
+   * @param recordsToRead number of values to read
+   * @param selection the positions (relative to the first value read, ascending) of the values to keep
+   * @param selectedCount number of selected positions
+   * @return number of pages none of whose values were decoded
+   * @throws IOException
+   */
+  int readSelectedValues(int recordsToRead, int[] selection, int selectedCount) throws IOException {
+    reset();
+    valuesReadInCurrentPass = 0;
+    final boolean nullable = columnDescriptor.getMaxDefinitionLevel() > 0;
+    int pagesSkipped = 0;
+    int nextSelected = 0;
+    int position = 0;
+    while (position < recordsToRead) {
+      final int selected = nextSelected < selectedCount ? selection[nextSelected] : recordsToRead;
+      if (!pageReader.hasPage() || pageReader.valuesRead == pageReader.currentPageCount) {
+        endPage();
+        // a next page none of whose values is selected is passed over without being decompressed
+        final PageHeader header = pageReader.peekDataPageHeader();
+        if (header != null && header.data_page_header.num_values <= selected - position) {
+          final int pageValues = pageReader.skipDataPage();
+          totalValuesRead += pageValues;
+          position += pageValues;
+          pagesSkipped++;
+          continue;
+        }
+        if (!pageReader.next()) {
+          throw new IOException(String.format("Reached the end of column %s after %d of %d values",
+              schemaElement.getName(), position, recordsToRead));
+        }
+      }
+      final int valuesLeftInPage = pageReader.currentPageCount - pageReader.valuesRead;
+      if (selected - position >= valuesLeftInPage) {
+        // none of the rest of the page is selected
+        if (pageReader.valuesRead == 0) {
+          pagesSkipped++;
+        }
+        pageReader.valuesRead = pageReader.currentPageCount;
+        position += valuesLeftInPage;
+        continue;
+      }
+
+      final boolean keep = position == selected;
+      if (!nullable ||
+          pageReader.definitionLevels.readInteger() == columnDescriptor.getMaxDefinitionLevel()) {
+        if (usingDictionary) {
+          final Binary value = pageReader.dictionaryValueReader.readBytes();
+          if (keep) {
+            setSelectedValue(valuesReadInCurrentPass, value);
+          }
+        } else {
+          final int length = pageReader.pageData.getInt((int) pageReader.readPosInBytes);
+          if (keep) {
+            setSelectedValue(valuesReadInCurrentPass, pageReader.pageData, (int) pageReader.readPosInBytes + 4, length);
+            bytesReadInCurrentPass += length;
+          }
+          pageReader.readPosInBytes += length + 4;
+        }
+      } // else null: the vector values default to null
+
+      if (keep) {
+        valuesReadInCurrentPass++;
+        nextSelected++;
+      }
+      pageReader.valuesRead++;
+      position++;
+    }
+    valueVec.getMutator().setValueCount(valuesReadInCurrentPass);
+    return pagesSkipped;
+  }
+
   @Override
   protected void readField(long recordToRead) {
     dataTypeLengthInBits = variableWidthVector.getAccessor().getValueLength(valuesReadInCurrentPass);
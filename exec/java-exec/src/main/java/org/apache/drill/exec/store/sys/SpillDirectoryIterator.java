@@ -0,0 +1,82 @@
+/**
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.store.sys;
+
+import java.util.Iterator;
+
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.physical.impl.spill.SpillDirectory;
+import org.apache.drill.exec.proto.CoordinationProtos.DrillbitEndpoint;
+
+/**
+ * Spill directories used on the drillbit, with their load, free space and
+ * write throughput.
+ */
+public class SpillDirectoryIterator implements Iterator<Object> {
+
+  private final DrillbitEndpoint endpoint;
+  private final Iterator<SpillDirectory> directories;
+
+  public SpillDirectoryIterator(final FragmentContext context) {
+    this.endpoint = context.getIdentity();
+    this.directories = context.getDrillbitContext().getSpillDirectories().getAll().iterator();
+  }
+
+  @Override
+  public boolean hasNext() {
+    return directories.hasNext();
+  }
+
+  @Override
+  public Object next() {
+    final SpillDirectory directory = directories.next();
+    final SpillDirectoryInfo info = new SpillDirectoryInfo();
+    info.hostname = endpoint.getAddress();
+    info.user_port = endpoint.getUserPort();
+    info.directory = directory.getPath();
+    info.status = directory.isFull() ? "FULL" : directory.isSlow() ? "SLOW" : "OK";
+    info.free_space = directory.getFreeSpace();
+    info.open_files = directory.getOpenFiles();
+    info.in_flight_bytes = directory.getInFlightBytes();
+    info.total_files = directory.getTotalFiles();
+    info.written_bytes = directory.getWrittenBytes();
+    info.write_time_ms = directory.getWriteNanos() / 1_000_000;
+    // the recent throughput, which the status is based on
+    info.write_throughput_mb = directory.getThroughput(System.nanoTime()) / 1024.0 / 1024.0;
+    return info;
+  }
+
+  @Override
+  public void remove() {
+    throw new UnsupportedOperationException();
+  }
+
+  public static class SpillDirectoryInfo {
+    public String hostname;
+    public long user_port;
+    public String directory;
+    public String status;
+    public long free_space;
+    public long open_files;
+    public long in_flight_bytes;
+    public long total_files;
+    public long written_bytes;
+    public long write_time_ms;
+    public double write_throughput_mb;
+  }
+}
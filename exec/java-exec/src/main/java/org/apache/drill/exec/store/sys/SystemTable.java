@@ -27,7 +27,8 @@ import org.apache.drill.exec.store.sys.OptionIterator.OptionValueWrapper;
  * <p>
  *   OPTION, DRILLBITS and VERSION are local tables available on every Drillbit.
  *   MEMORY and THREADS are distributed tables with one record on every
- *   Drillbit.
+ *   Drillbit. SPILL_DIRECTORIES is a distributed table with one record
+ *   for each spill directory used on every Drillbit.
  * </p>
  */
 public enum SystemTable {
@@ -72,6 +73,13 @@ public enum SystemTable {
   public Iterator<Object> getIterator(final FragmentContext context) {
       return new ThreadsIterator(context);
     }
+  },
+
+  SPILL_DIRECTORIES("spill_directories", true, SpillDirectoryIterator.SpillDirectoryInfo.class) {
+    @Override
+    public Iterator<Object> getIterator(final FragmentContext context) {
+      return new SpillDirectoryIterator(context);
+    }
   };
 
 //  private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(SystemTable.class);
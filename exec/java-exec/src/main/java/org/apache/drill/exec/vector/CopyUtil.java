@@ -23,24 +23,29 @@ import org.apache.drill.exec.record.TypedFieldId;
 import org.apache.drill.exec.record.VectorAccessible;
 import org.apache.drill.exec.record.VectorWrapper;
 
+import com.sun.codemodel.JBlock;
 import com.sun.codemodel.JExpr;
 import com.sun.codemodel.JExpression;
+import com.sun.codemodel.JForLoop;
 import com.sun.codemodel.JVar;
 
 public class CopyUtil {
   public static void generateCopies(ClassGenerator<?> g, VectorAccessible batch, boolean hyper){
+    generateCopies(g, batch, hyper, false);
+  }
+
+  /**
+   * @param safe whether the fixed width values are copied with copyFromSafe() as well, for outgoing vectors not
+   *             allocated for all the copied records
+   */
+  public static void generateCopies(ClassGenerator<?> g, VectorAccessible batch, boolean hyper, boolean safe){
     // we have parallel ids for each value vector so we don't actually have to deal with managing the ids at all.
     int fieldId = 0;
 
     JExpression inIndex = JExpr.direct("inIndex");
     JExpression outIndex = JExpr.direct("outIndex");
     for(VectorWrapper<?> vv : batch) {
-      String copyMethod;
-      if (!Types.isFixedWidthType(vv.getField().getType()) || Types.isRepeated(vv.getField().getType()) || Types.isComplex(vv.getField().getType())) {
-        copyMethod = "copyFromSafe";
-      } else {
-        copyMethod = "copyFrom";
-      }
+      String copyMethod = getCopyMethod(vv, safe);
       g.rotateBlock();
       JVar inVV = g.declareVectorValueSetupAndMember("incoming", new TypedFieldId(vv.getField().getType(), vv.isHyper(), fieldId));
       JVar outVV = g.declareVectorValueSetupAndMember("outgoing", new TypedFieldId(vv.getField().getType(), false, fieldId));
@@ -66,4 +71,45 @@ public class CopyUtil {
     }
   }
 
+  /**
+   * Generates the copy of consecutive records, one loop per vector, in a method with the parameters inIndex (for a
+   * hyper batch, (batch index << 16) + index of the first record in the batch), outIndex and count.
+   */
+  public static void generateRangeCopies(ClassGenerator<?> g, VectorAccessible batch, boolean hyper) {
+    int fieldId = 0;
+
+    JExpression inIndex = JExpr.direct("inIndex");
+    JExpression outIndex = JExpr.direct("outIndex");
+    JExpression count = JExpr.direct("count");
+    for (VectorWrapper<?> vv : batch) {
+      String copyMethod = getCopyMethod(vv, false);
+      g.rotateBlock();
+      JVar inVV = g.declareVectorValueSetupAndMember("incoming", new TypedFieldId(vv.getField().getType(), vv.isHyper(), fieldId));
+      JVar outVV = g.declareVectorValueSetupAndMember("outgoing", new TypedFieldId(vv.getField().getType(), false, fieldId));
+
+      JBlock block = g.getEvalBlock();
+      JExpression in = inVV;
+      JExpression first = inIndex;
+      if (hyper) {
+        in = block.decl(inVV.type().elementType(), "in" + fieldId, inVV.component(inIndex.shrz(JExpr.lit(16))));
+        first = block.decl(g.getModel().INT, "first" + fieldId, inIndex.band(JExpr.lit((int) Character.MAX_VALUE)));
+      }
+      JForLoop loop = block._for();
+      JVar i = loop.init(g.getModel().INT, "i", JExpr.lit(0));
+      loop.test(i.lt(count));
+      loop.update(i.incr());
+      loop.body().add(outVV.invoke(copyMethod).arg(first.plus(i)).arg(outIndex.plus(i)).arg(in));
+
+      g.rotateBlock();
+      fieldId++;
+    }
+  }
+
+  private static String getCopyMethod(VectorWrapper<?> vv, boolean safe) {
+    if (safe || !Types.isFixedWidthType(vv.getField().getType()) || Types.isRepeated(vv.getField().getType()) || Types.isComplex(vv.getField().getType())) {
+      return "copyFromSafe";
+    }
+    return "copyFrom";
+  }
+
 }
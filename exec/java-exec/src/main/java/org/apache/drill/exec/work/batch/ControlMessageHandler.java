@@ -128,6 +128,13 @@ public class ControlMessageHandler implements RequestHandler<ControlConnection>
       break;
     }
 
+    case RpcType.REQ_RUNTIME_FILTER_VALUE: {
+      final FragmentHandle handle = get(pBody, FragmentHandle.PARSER);
+      receiveRuntimeFilter(handle, (DrillBuf) dBody);
+      sender.send(ControlRpcConfig.OK);
+      break;
+    }
+
     case RpcType.REQ_UNPAUSE_FRAGMENT_VALUE: {
       final FragmentHandle handle = get(pBody, FragmentHandle.PARSER);
       resumeFragment(handle);
@@ -226,6 +233,26 @@ public class ControlMessageHandler implements RequestHandler<ControlConnection>
     return Acks.OK;
   }
 
+  private Ack receiveRuntimeFilter(final FragmentHandle handle, final DrillBuf filter) {
+    // the fragment may not have started yet
+    final FragmentManager manager = bee.getContext().getWorkBus().getFragmentManagerIfExists(handle);
+    if (manager != null) {
+      manager.getFragmentContext().getRuntimeFilters().receive(filter);
+      return Acks.OK;
+    }
+
+    final FragmentExecutor runner = bee.getFragmentRunner(handle);
+    if (runner != null) {
+      runner.getContext().getRuntimeFilters().receive(filter);
+      return Acks.OK;
+    }
+
+    // fragment completed or does not exist
+    logger.debug("Dropping runtime filter for fragment {}, which does not exist.",
+        QueryIdHelper.getQueryIdentifier(handle));
+    return Acks.OK;
+  }
+
   private Ack receivingFragmentFinished(final FinishedReceiver finishedReceiver) {
 
     final FragmentManager manager =
@@ -25,17 +25,17 @@ import org.apache.drill.exec.record.RawFragmentBatch;
 
 import com.google.common.collect.Queues;
 
+/**
+ * In memory buffer of the batches received from the sending fragments. The ack of a batch, which gives its credit back
+ * to the sender, is only sent once the batch is consumed: as the senders hold {@link #bufferSizePerSocket} credits per
+ * receiving fragment, the buffer never holds more than that many batches per sender.
+ */
 public class UnlimitedRawBatchBuffer extends BaseRawBatchBuffer<RawFragmentBatch> {
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(UnlimitedRawBatchBuffer.class);
 
-  private final int softlimit;
-  private final int startlimit;
-
   public UnlimitedRawBatchBuffer(FragmentContext context, int fragmentCount, int oppositeId) {
     super(context, fragmentCount);
-    this.softlimit = bufferSizePerSocket * fragmentCount;
-    this.startlimit = Math.max(softlimit/2, 1);
-    logger.trace("softLimit: {}, startLimit: {}", softlimit, startlimit);
+    logger.trace("limit: {} batches per sender", bufferSizePerSocket);
     this.bufferQueue = new UnlimitedBufferQueue();
   }
 
@@ -85,9 +85,7 @@ public class UnlimitedRawBatchBuffer extends BaseRawBatchBuffer<RawFragmentBatch
   }
 
   protected void enqueueInner(final RawFragmentBatch batch) throws IOException {
-    if (bufferQueue.size() < softlimit) {
-      batch.sendOk();
-    }
+    // acked when polled from the queue
     bufferQueue.add(batch);
   }
 
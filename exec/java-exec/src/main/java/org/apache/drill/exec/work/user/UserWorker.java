@@ -18,9 +18,17 @@
 package org.apache.drill.exec.work.user;
 
 import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
 
+import org.apache.drill.common.exceptions.UserException;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.physical.impl.materialize.ResultSpool;
+import org.apache.drill.exec.physical.impl.materialize.ResultSpools;
+import org.apache.drill.exec.physical.impl.materialize.ResumedResults;
 import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
 import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.proto.UserBitShared.QueryResult;
+import org.apache.drill.exec.proto.UserBitShared.QueryResult.QueryState;
 import org.apache.drill.exec.proto.UserProtos.CreatePreparedStatementReq;
 import org.apache.drill.exec.proto.UserProtos.GetCatalogsReq;
 import org.apache.drill.exec.proto.UserProtos.GetColumnsReq;
@@ -31,10 +39,12 @@ import org.apache.drill.exec.proto.UserProtos.GetTablesReq;
 import org.apache.drill.exec.proto.UserProtos.QueryPlanFragments;
 import org.apache.drill.exec.proto.UserProtos.RunQuery;
 import org.apache.drill.exec.rpc.Acks;
+import org.apache.drill.exec.rpc.BaseRpcOutcomeListener;
 import org.apache.drill.exec.rpc.ResponseSender;
 import org.apache.drill.exec.rpc.UserClientConnection;
 import org.apache.drill.exec.rpc.user.UserSession;
 import org.apache.drill.exec.rpc.user.UserSession.QueryCountIncrementer;
+import org.apache.drill.exec.server.DrillbitContext;
 import org.apache.drill.exec.server.options.OptionManager;
 import org.apache.drill.exec.work.WorkManager.WorkerBee;
 import org.apache.drill.exec.work.foreman.Foreman;
@@ -96,6 +106,29 @@ public class UserWorker{
     return Acks.OK;
   }
 
+  /**
+   * Resumes the delivery of the spooled results of a query to its client, reconnected after it disconnected before it
+   * took them all. If no results of the query are kept for the user, the query fails on the client.
+   */
+  public void resumeResults(UserClientConnection connection, QueryId queryId) {
+    final DrillbitContext context = bee.getContext();
+    final ResultSpools spools = context.getResultSpools();
+    final ResultSpool spool;
+    try {
+      spool = spools.take(queryId, connection.getSession().getCredentials().getUserName());
+    } catch (UserException e) {
+      connection.sendResult(new BaseRpcOutcomeListener<Ack>(), QueryResult.newBuilder()
+          .setQueryId(queryId)
+          .setQueryState(QueryState.FAILED)
+          .addError(e.getOrCreatePBError(false))
+          .build());
+      return;
+    }
+    final long ttlMillis = TimeUnit.SECONDS.toMillis(
+        context.getOptionManager().getOption(ExecConstants.RESULT_SPOOL_TTL_VALIDATOR));
+    bee.addNewWork(new ResumedResults(connection, queryId, spool, spools, ttlMillis, context.getExecutor()));
+  }
+
   public OptionManager getSystemOptions() {
     return bee.getContext().getOptionManager();
   }
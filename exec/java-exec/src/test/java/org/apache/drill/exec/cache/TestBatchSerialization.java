@@ -17,6 +17,9 @@
  */
 package org.apache.drill.exec.cache;
 
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
 import java.io.BufferedInputStream;
 import java.io.BufferedOutputStream;
 import java.io.File;
@@ -25,6 +28,8 @@ import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
 
 import org.apache.drill.common.types.TypeProtos.MinorType;
 import org.apache.drill.exec.record.BatchSchema;
@@ -135,6 +140,43 @@ public class TestBatchSerialization extends DrillTest {
     outFile.delete();
   }
 
+  /**
+   * Verify batches read back from a file channel, at their positions in
+   * the file: the larger vectors are mapped from the file, the others read.
+   *
+   * @throws IOException
+   */
+
+  @Test
+  public void testChannelReader() throws IOException {
+    BatchSchema schema = new SchemaBuilder( )
+        .add("col", MinorType.BIGINT)
+        .build();
+    int[] rowCounts = { 20, 65_000, 20 };
+    assertTrue(65_000 * 8 >= VectorAccessibleSerializable.MIN_MAPPED_LENGTH);
+
+    File dir = OperatorFixture.getTempDir("serial");
+    File outFile = new File(dir, "serialize-channel.dat");
+    try (OutputStream out = new BufferedOutputStream(new FileOutputStream(outFile))) {
+      VectorSerializer.Writer writer = VectorSerializer.writer(fixture.allocator(), out);
+      for (int rowCount : rowCounts) {
+        SingleRowSet rowSet = makeRowSet(schema, rowCount);
+        writer.write(rowSet.container(), rowSet.getSv2());
+      }
+    }
+
+    try (FileChannel channel = new RandomAccessFile(outFile, "rw").getChannel()) {
+      VectorSerializer.ChannelReader reader = VectorSerializer.reader(fixture.allocator(), channel);
+      for (int rowCount : rowCounts) {
+        RowSet result = fixture.wrap(reader.read());
+        new RowSetComparison(makeRowSet(schema, rowCount))
+          .verifyAndClearAll(result);
+      }
+      assertEquals(channel.size(), reader.position());
+    }
+    outFile.delete();
+  }
+
   @Test
   public void testTypes() throws IOException {
     testType(MinorType.TINYINT);
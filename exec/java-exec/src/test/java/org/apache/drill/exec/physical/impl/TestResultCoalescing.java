@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Small batches of results coalesced by the screen before they are sent to the client
+ */
+public class TestResultCoalescing extends DrillTest {
+
+  /**
+   * @return a union of many single row queries, each sent to the client in a batch of its own
+   */
+  private static String unionQuery(int count) {
+    final StringBuilder query = new StringBuilder();
+    for (int i = 0; i < count; i++) {
+      if (i > 0) {
+        query.append(" union all ");
+      }
+      query.append("select region_id, sales_city from cp.`region.json` where region_id = ").append(i);
+    }
+    return query.toString();
+  }
+
+  @Test
+  public void testCoalescing() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder().build();
+         ClientFixture client = cluster.clientFixture()) {
+      final String query = unionQuery(20);
+      final QuerySummary plain = client.queryBuilder().sql(query).run();
+      assertEquals(20, plain.recordCount());
+
+      client.alterSession(ExecConstants.RESULT_COALESCE_BYTES_KEY, 1024 * 1024);
+      final QuerySummary coalesced = client.queryBuilder().sql(query).run();
+      assertEquals(20, coalesced.recordCount());
+      assertTrue(coalesced.batchCount() < plain.batchCount());
+
+      // the batches over the target are sent as they come
+      client.alterSession(ExecConstants.RESULT_COALESCE_BYTES_KEY, 1);
+      assertEquals(plain.batchCount(), client.queryBuilder().sql(query).run().batchCount());
+
+      final String aggregate = "select sum(l_orderkey * l_linenumber) from cp.`tpch/lineitem.parquet`";
+      client.runSqlSilently("alter session reset `" + ExecConstants.RESULT_COALESCE_BYTES_KEY + "`");
+      final long expected = client.queryBuilder().sql(aggregate).singletonLong();
+      client.alterSession(ExecConstants.RESULT_COALESCE_BYTES_KEY, 1024 * 1024);
+      assertEquals(expected, client.queryBuilder().sql(aggregate).singletonLong());
+    }
+  }
+}
@@ -0,0 +1,83 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.apache.drill.common.exceptions.UserRemoteException;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.rpc.user.AwaitableUserResultsListener;
+import org.apache.drill.test.BufferingQueryEventListener;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Results spooled to the local disk of the drillbit of the screen, then sent to the client
+ */
+public class TestResultSpooling extends DrillTest {
+
+  private static final String QUERY = "select l_orderkey, l_linenumber, l_comment from cp.`tpch/lineitem.parquet`";
+
+  @Test
+  public void testSpooling() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder().build();
+         ClientFixture client = cluster.clientFixture()) {
+      final QuerySummary plain = client.queryBuilder().sql(QUERY).run();
+      final String aggregate = "select sum(l_orderkey * l_linenumber) from cp.`tpch/lineitem.parquet`";
+      final long expected = client.queryBuilder().sql(aggregate).singletonLong();
+
+      client.alterSession(ExecConstants.RESULT_SPOOL_KEY, true);
+      final QuerySummary spooled = client.queryBuilder().sql(QUERY).run();
+      assertEquals(plain.recordCount(), spooled.recordCount());
+      assertEquals(plain.batchCount(), spooled.batchCount());
+      assertEquals(expected, client.queryBuilder().sql(aggregate).singletonLong());
+
+      // a query without results still sends its schema
+      assertEquals(0, client.queryBuilder().sql(QUERY + " where l_orderkey < 0").run().recordCount());
+
+      // the spooled batches are coalesced as well
+      client.alterSession(ExecConstants.RESULT_COALESCE_BYTES_KEY, 64 * 1024 * 1024);
+      final QuerySummary coalesced = client.queryBuilder().sql(QUERY).run();
+      assertEquals(plain.recordCount(), coalesced.recordCount());
+      assertTrue(coalesced.batchCount() <= plain.batchCount());
+    }
+  }
+
+  @Test
+  public void testResumeWithoutSpool() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder().build();
+         ClientFixture client = cluster.clientFixture()) {
+      final QueryId queryId = QueryId.newBuilder().setPart1(1).setPart2(2).build();
+      final AwaitableUserResultsListener listener =
+          new AwaitableUserResultsListener(new BufferingQueryEventListener());
+      client.client().resumeResults(queryId, listener);
+      try {
+        listener.await();
+        fail("The results of an unknown query were resumed");
+      } catch (UserRemoteException e) {
+        assertTrue(e.getMessage().contains("No spooled results are kept"));
+      }
+    }
+  }
+}
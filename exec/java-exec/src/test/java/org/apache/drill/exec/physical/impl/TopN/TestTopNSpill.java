@@ -0,0 +1,91 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.TopN;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.List;
+
+import org.apache.drill.BaseTestQuery;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.proto.UserBitShared;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder;
+import org.junit.Test;
+
+/**
+ *  Test spilling for the TopN operator (large limits with a small memory budget)
+ */
+public class TestTopNSpill extends BaseTestQuery {
+
+  // A checksum over the selected (unique) keys and a wide column
+  private static final String TOP_N = "select sum(l_orderkey * 8 + l_linenumber + char_length(l_comment)) s from " +
+      "(select l_orderkey, l_linenumber, l_comment from cp.`tpch/lineitem.parquet` " +
+      "order by l_orderkey desc, l_linenumber limit %d)";
+
+  private long runAndCheckSpill(ClientFixture client, String sql, boolean expectSpill) throws Exception {
+    QueryBuilder.QuerySummary summary = client.queryBuilder().sql(sql).run();
+    ProfileParser profile = client.parseProfile(summary.queryIdString());
+    List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(UserBitShared.CoreOperatorType.TOP_N_SORT_VALUE);
+    assertFalse(ops.isEmpty());
+    long spillCount = ops.get(0).getMetric(TopNBatch.Metric.SPILL_COUNT.ordinal());
+    assertEquals(expectSpill, spillCount > 0);
+    return client.queryBuilder().sql(sql).singletonLong();
+  }
+
+  @Test
+  public void testTopNSpill() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(1)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      // the second limit is larger than the table: every row is retained
+      for (int limit : new int[] {30_000, 100_000}) {
+        final String sql = String.format(TOP_N, limit);
+        client.alterSession(ExecConstants.TOPN_MAX_MEMORY_KEY, 0);
+        final long expected = runAndCheckSpill(client, sql, false);
+        client.alterSession(ExecConstants.TOPN_MAX_MEMORY_KEY, 1_000_000);
+        assertEquals(expected, runAndCheckSpill(client, sql, true));
+      }
+    }
+  }
+
+  /**
+   * The rows of a TopN that spilled are still returned (in order) with a four byte selection vector
+   */
+  @Test
+  public void testSpilledOutputOrder() throws Exception {
+    final String sql = "select l_orderkey, l_linenumber, l_comment from cp.`tpch/lineitem.parquet` " +
+        "order by l_orderkey desc, l_linenumber limit 20000";
+    try {
+      testBuilder()
+          .sqlQuery(sql)
+          .optionSettingQueriesForTestQuery("alter session set `%s` = 1000000", ExecConstants.TOPN_MAX_MEMORY_KEY)
+          .ordered()
+          .optionSettingQueriesForBaseline("alter session set `%s` = 0", ExecConstants.TOPN_MAX_MEMORY_KEY)
+          .sqlBaselineQuery(sql)
+          .go();
+    } finally {
+      test("alter session reset `%s`", ExecConstants.TOPN_MAX_MEMORY_KEY);
+    }
+  }
+}
@@ -45,6 +45,47 @@ public class TestHashAggr extends BaseTestQuery{
     testPhysicalFromFile("agg/hashagg/q7_3.json");
   }
 
+  @Test
+  public void testOpenAddressingHashTable() throws Exception {
+    // high cardinality group by: (almost) every key is new
+    final String query = "select l_orderkey, l_linenumber, count(*) cnt, sum(l_quantity) qty " +
+        "from cp.`tpch/lineitem.parquet` group by l_orderkey, l_linenumber";
+
+    testBuilder()
+        .sqlQuery(query)
+        .unOrdered()
+        .optionSettingQueriesForTestQuery("alter session set `exec.hashtable.open_addressing` = true")
+        .optionSettingQueriesForBaseline("alter session set `exec.hashtable.open_addressing` = false")
+        .sqlBaselineQuery(query)
+        .go();
+    test("alter session reset `exec.hashtable.open_addressing`");
+  }
+
+  @Test
+  public void testNullableKeys() throws Exception {
+    final String table = "dfs_test.tmp.`lineitem_nullable_keys`";
+    try {
+      test("create table %s as select case when mod(l_linenumber, 3) = 0 then null else l_partkey end k, " +
+          "l_orderkey, l_quantity from cp.`tpch/lineitem.parquet`", table);
+      // the batches are hashed at once, or row by row when the filter hands its selection vector to the aggregate
+      for (String where : new String[] {"", "where l_orderkey > 1000"}) {
+        final String query = String.format("select k, count(*) cnt, sum(l_quantity) qty from %s %s group by k",
+            table, where);
+
+        testBuilder()
+            .sqlQuery(query)
+            .unOrdered()
+            .optionSettingQueriesForBaseline("alter session set `planner.enable_hashagg` = false")
+            .optionSettingQueriesForTestQuery("alter session set `planner.enable_hashagg` = true")
+            .sqlBaselineQuery(query)
+            .go();
+      }
+    } finally {
+      test("alter session reset `planner.enable_hashagg`");
+      test("drop table if exists %s", table);
+    }
+  }
+
   @Ignore // ignore temporarily since this shows memory leak in ParquetRecordReader (DRILL-443)
   @Test
   public void testQ8_1() throws Exception{
@@ -138,4 +138,35 @@ public class TestHashAggrSpill extends BaseTestQuery {
             runAndDump(client, sql, 1_100_000, 3, 2);
         }
     }
-}
\ No newline at end of file
+
+    /**
+     *  Test the adaptive bypass of the 1st phase: (almost) all the keys are unique, so the 1st phase
+     *  should return its partitions as soon as they are full. The results must not be affected.
+     *
+     * @throws Exception
+     */
+    @Test
+    public void testHashAggrAdaptiveBypass() throws Exception {
+        FixtureBuilder builder = ClusterFixture.builder()
+            .configProperty(ExecConstants.HASHAGG_NUM_PARTITIONS,2) // so that the partitions' batches get full
+            .sessionOption(PlannerSettings.FORCE_2PHASE_AGGR_KEY,true)
+            .sessionOption(ExecConstants.HASHAGG_ADAPTIVE_BYPASS_KEY,true)
+            .maxParallelization(1)
+            .saveProfiles()
+            ;
+        try (ClusterFixture cluster = builder.build();
+             ClientFixture client = cluster.clientFixture()) {
+            String sql = "SELECT empid_s17, dept_i, branch_i, AVG(salary_i) FROM `mock`.`employee_1200K` GROUP BY empid_s17, dept_i, branch_i";
+            QueryBuilder.QuerySummary summary = client.queryBuilder().sql(sql).run();
+            assertEquals(1_200_000, summary.recordCount());
+
+            ProfileParser profile = client.parseProfile(summary.queryIdString());
+            List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(UserBitShared.CoreOperatorType.HASH_AGGREGATE_VALUE);
+            long flushed = 0;
+            for (ProfileParser.OperatorProfile hag : ops) {
+                flushed += hag.getMetric(HashAggTemplate.Metric.FLUSHED_WHEN_FULL.ordinal());
+            }
+            assertTrue(flushed > 0);
+        }
+    }
+}
@@ -0,0 +1,278 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.common;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.drill.common.config.DrillConfig;
+import org.apache.drill.common.expression.FieldReference;
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.common.logical.data.NamedExpression;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.common.types.Types;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.ExecTest;
+import org.apache.drill.exec.expr.fn.FunctionImplementationRegistry;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.ops.FragmentContext;
+import org.apache.drill.exec.proto.BitControl.PlanFragment;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
+import org.apache.drill.exec.record.MaterializedField;
+import org.apache.drill.exec.record.SimpleRecordBatch;
+import org.apache.drill.exec.record.VectorContainer;
+import org.apache.drill.exec.rpc.UserClientConnection;
+import org.apache.drill.exec.server.DrillbitContext;
+import org.apache.drill.exec.server.options.OptionValue;
+import org.apache.drill.exec.server.options.OptionValue.OptionType;
+import org.apache.drill.exec.vector.NullableIntVector;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+import mockit.Injectable;
+
+/**
+ * The batch hashing and lookup of the hash tables ({@link HashTable#computeHashCodes} and
+ * {@link HashTable#containsKeys}) give the same results as the row at a time methods, over nullable keys,
+ * with both layouts (chained and open addressing); and the memory the layouts take for the same keys.
+ */
+public class TestHashTableBatchLookup extends ExecTest {
+  private final DrillConfig c = DrillConfig.create();
+
+  private static final int BUILD_ROWS = 1000;
+  private static final int PROBE_ROWS = 200;
+  // distinct keys that fit the initial table size of both layouts (under the load factor) and one batch holder
+  private static final int DISTINCT_KEYS = 40_000;
+
+  /**
+   * Keys 0 to 99 (with duplicates), except those ending with a 0, which are null instead
+   */
+  private static VectorContainer buildBatch(BufferAllocator allocator) {
+    return buildBatch(allocator, BUILD_ROWS, 100);
+  }
+
+  private static VectorContainer buildBatch(BufferAllocator allocator, int rows, int keys) {
+    final VectorContainer container = new VectorContainer(allocator);
+    final NullableIntVector column = new NullableIntVector(
+        MaterializedField.create("b", Types.optional(MinorType.INT)), allocator);
+    column.allocateNew(rows);
+    for (int i = 0; i < rows; i++) {
+      if (i % 10 != 0) {
+        column.getMutator().setSafe(i, i % keys);
+      }
+    }
+    column.getMutator().setValueCount(rows);
+    container.add(column);
+    container.buildSchema(SelectionVectorMode.NONE);
+    container.setRecordCount(rows);
+    return container;
+  }
+
+  /**
+   * Keys 0 to 199, every 7th null
+   */
+  private static VectorContainer probeBatch(BufferAllocator allocator) {
+    final VectorContainer container = new VectorContainer(allocator);
+    final NullableIntVector keys = new NullableIntVector(
+        MaterializedField.create("p", Types.optional(MinorType.INT)), allocator);
+    keys.allocateNew(PROBE_ROWS);
+    for (int i = 0; i < PROBE_ROWS; i++) {
+      if (i % 7 != 0) {
+        keys.getMutator().setSafe(i, i);
+      }
+    }
+    keys.getMutator().setValueCount(PROBE_ROWS);
+    container.add(keys);
+    container.buildSchema(SelectionVectorMode.NONE);
+    container.setRecordCount(PROBE_ROWS);
+    return container;
+  }
+
+  private static HashTable createHashTable(FragmentContext context, VectorContainer build, VectorContainer probe,
+                                           Comparator comparator) throws Exception {
+    final HashTableConfig htConfig = new HashTableConfig(HashTable.DEFAULT_INITIAL_CAPACITY,
+        HashTable.DEFAULT_LOAD_FACTOR,
+        Lists.newArrayList(new NamedExpression(SchemaPath.getSimplePath("b"), new FieldReference("b"))),
+        Lists.newArrayList(new NamedExpression(SchemaPath.getSimplePath("p"), new FieldReference("p"))),
+        Lists.newArrayList(comparator));
+    final ChainedHashTable ht = new ChainedHashTable(htConfig, context, context.getAllocator(),
+        new SimpleRecordBatch(build, null, context), new SimpleRecordBatch(probe, null, context), null);
+    return ht.createAndSetupHashTable(null, 1);
+  }
+
+  private static void insert(HashTable hashTable, int rows) throws Exception {
+    final int[] buildHashCodes = new int[rows];
+    hashTable.computeHashCodes(rows, buildHashCodes, false);
+    final IndexPointer htIndex = new IndexPointer();
+    for (int i = 0; i < rows; i++) {
+      assertEquals(hashTable.getHashCode(i), buildHashCodes[i]);
+      hashTable.put(i, htIndex, buildHashCodes[i]);
+    }
+  }
+
+  private static void setOpenAddressing(boolean openAddressing) {
+    optionManager.setOption(OptionValue.createBoolean(OptionType.SYSTEM, ExecConstants.HASHTABLE_OPEN_ADDRESSING_KEY,
+        openAddressing));
+  }
+
+  private void checkLookup(FragmentContext context, Comparator comparator) throws Exception {
+    final BufferAllocator allocator = context.getAllocator();
+    final VectorContainer build = buildBatch(allocator);
+    final VectorContainer probe = probeBatch(allocator);
+    HashTable hashTable = null;
+    try {
+      hashTable = createHashTable(context, build, probe, comparator);
+      insert(hashTable, BUILD_ROWS);
+
+      final int[] probeHashCodes = new int[PROBE_ROWS];
+      final int[] matches = new int[PROBE_ROWS];
+      hashTable.computeHashCodes(PROBE_ROWS, probeHashCodes, true);
+      hashTable.containsKeys(PROBE_ROWS, probeHashCodes, matches, true);
+      for (int i = 0; i < PROBE_ROWS; i++) {
+        assertEquals(hashTable.getProbeHashCode(i), probeHashCodes[i]);
+        assertEquals(hashTable.containsKey(i, probeHashCodes[i], true), matches[i]);
+        final boolean expected = i % 7 == 0 ?
+            comparator == Comparator.IS_NOT_DISTINCT_FROM : // a null key matches the null build keys
+            i < 100 && i % 10 != 0;
+        assertEquals("probe key " + i, expected, matches[i] >= 0);
+      }
+      assertTrue(hashTable.size() > 0);
+    } finally {
+      if (hashTable != null) {
+        hashTable.clear();
+      }
+      build.clear();
+      probe.clear();
+    }
+  }
+
+  /**
+   * @return the memory taken by a table of the given layout, holding DISTINCT_KEYS keys (besides nulls)
+   */
+  private long tableMemory(FragmentContext context, boolean openAddressing) throws Exception {
+    setOpenAddressing(openAddressing);
+    final BufferAllocator allocator = context.getAllocator();
+    final VectorContainer build = buildBatch(allocator, DISTINCT_KEYS * 10 / 9, DISTINCT_KEYS * 10 / 9);
+    final VectorContainer probe = probeBatch(allocator);
+    final long before = allocator.getAllocatedMemory();
+    HashTable hashTable = null;
+    try {
+      hashTable = createHashTable(context, build, probe, Comparator.EQUALS);
+      insert(hashTable, build.getRecordCount());
+      return allocator.getAllocatedMemory() - before;
+    } finally {
+      if (hashTable != null) {
+        hashTable.clear();
+      }
+      assertEquals("memory released by the table", before, allocator.getAllocatedMemory());
+      build.clear();
+      probe.clear();
+    }
+  }
+
+  private FragmentContext newContext(DrillbitContext bitContext, UserClientConnection connection) throws Exception {
+    mockDrillbitContext(bitContext);
+    final FunctionImplementationRegistry registry = new FunctionImplementationRegistry(c);
+    return new FragmentContext(bitContext, PlanFragment.getDefaultInstance(), connection, registry);
+  }
+
+  @Test
+  public void testNullableKeys(@Injectable final DrillbitContext bitContext,
+                               @Injectable UserClientConnection connection) throws Throwable {
+    final FragmentContext context = newContext(bitContext, connection);
+    try {
+      for (boolean openAddressing : new boolean[] {false, true}) {
+        setOpenAddressing(openAddressing);
+        checkLookup(context, Comparator.EQUALS);
+        checkLookup(context, Comparator.IS_NOT_DISTINCT_FROM);
+      }
+    } finally {
+      optionManager.deleteOption(ExecConstants.HASHTABLE_OPEN_ADDRESSING_KEY, OptionType.SYSTEM);
+      context.close();
+    }
+  }
+
+  /**
+   * The batch hashing chains the key columns as the row at a time hashing does: with two keys (no probe side, as
+   * for the hash aggregate), the hash codes of a batch match those of each row.
+   */
+  @Test
+  public void testMultipleKeys(@Injectable final DrillbitContext bitContext,
+                               @Injectable UserClientConnection connection) throws Throwable {
+    final FragmentContext context = newContext(bitContext, connection);
+    final BufferAllocator allocator = context.getAllocator();
+    final VectorContainer build = buildBatch(allocator);
+    final NullableIntVector second = new NullableIntVector(
+        MaterializedField.create("c", Types.optional(MinorType.INT)), allocator);
+    second.allocateNew(BUILD_ROWS);
+    for (int i = 0; i < BUILD_ROWS; i++) {
+      if (i % 3 != 0) {
+        second.getMutator().setSafe(i, i % 7);
+      }
+    }
+    second.getMutator().setValueCount(BUILD_ROWS);
+    build.add(second);
+    build.buildSchema(SelectionVectorMode.NONE);
+    build.setRecordCount(BUILD_ROWS);
+    try {
+      for (boolean openAddressing : new boolean[] {false, true}) {
+        setOpenAddressing(openAddressing);
+        final HashTableConfig htConfig = new HashTableConfig(HashTable.DEFAULT_INITIAL_CAPACITY,
+            HashTable.DEFAULT_LOAD_FACTOR,
+            Lists.newArrayList(new NamedExpression(SchemaPath.getSimplePath("b"), new FieldReference("b")),
+                new NamedExpression(SchemaPath.getSimplePath("c"), new FieldReference("c"))),
+            null, Lists.newArrayList(Comparator.EQUALS, Comparator.EQUALS));
+        final HashTable hashTable = new ChainedHashTable(htConfig, context, allocator,
+            new SimpleRecordBatch(build, null, context), null, null).createAndSetupHashTable(null, 1);
+        try {
+          insert(hashTable, BUILD_ROWS);
+        } finally {
+          hashTable.clear();
+        }
+      }
+    } finally {
+      optionManager.deleteOption(ExecConstants.HASHTABLE_OPEN_ADDRESSING_KEY, OptionType.SYSTEM);
+      build.clear();
+      context.close();
+    }
+  }
+
+  /**
+   * The open addressing table keeps the hash code and the key index in its 8 byte slots, instead of the 4 byte
+   * bucket heads, links and hash values of the chained table: for the same number of keys (and buckets or slots),
+   * it takes the size of the keys, plus 8 bytes per slot; the chained table, 4 bytes per bucket plus 8 bytes per
+   * entry of its batch holders.
+   */
+  @Test
+  public void testTableMemory(@Injectable final DrillbitContext bitContext,
+                              @Injectable UserClientConnection connection) throws Throwable {
+    final FragmentContext context = newContext(bitContext, connection);
+    try {
+      final long chained = tableMemory(context, false);
+      final long openAddressing = tableMemory(context, true);
+      final int slots = HashTable.DEFAULT_INITIAL_CAPACITY;
+      assertEquals("metadata of the chained table over that of the open addressing table",
+          4L * slots + 8L * HashTable.BATCH_SIZE - 8L * slots, chained - openAddressing);
+      assertTrue(openAddressing < chained);
+    } finally {
+      optionManager.deleteOption(ExecConstants.HASHTABLE_OPEN_ADDRESSING_KEY, OptionType.SYSTEM);
+      context.close();
+    }
+  }
+}
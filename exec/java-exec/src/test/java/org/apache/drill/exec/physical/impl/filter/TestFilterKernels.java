@@ -0,0 +1,174 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.filter;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.drill.BaseTestQuery;
+import org.apache.drill.common.expression.ExpressionPosition;
+import org.apache.drill.common.expression.ExpressionStringBuilder;
+import org.apache.drill.common.expression.FunctionCallFactory;
+import org.apache.drill.common.expression.LogicalExpression;
+import org.apache.drill.common.expression.SchemaPath;
+import org.apache.drill.common.expression.ValueExpressions;
+import org.apache.drill.common.types.TypeProtos.MinorType;
+import org.apache.drill.common.types.Types;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.expr.ExpressionTreeMaterializer;
+import org.apache.drill.exec.record.BatchSchema.SelectionVectorMode;
+import org.apache.drill.exec.record.MaterializedField;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.exec.record.SimpleRecordBatch;
+import org.apache.drill.exec.record.VectorContainer;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Compare the results of filters evaluated by the prebuilt kernels with those of the generated code
+ */
+public class TestFilterKernels extends BaseTestQuery {
+
+  private static final String LINEITEM = "select l_orderkey, l_linenumber, l_shipdate, l_returnflag, l_quantity " +
+      "from cp.`tpch/lineitem.parquet` where ";
+  private static final String EMPLOYEE = "select employee_id, first_name, salary, management_role " +
+      "from cp.`employee.json` where ";
+
+  private void compare(String query) throws Exception {
+    testBuilder()
+        .sqlQuery(query)
+        .unOrdered()
+        .optionSettingQueriesForTestQuery(String.format("alter session set `%s` = true", ExecConstants.FILTER_KERNELS_KEY))
+        .optionSettingQueriesForBaseline(String.format("alter session set `%s` = false", ExecConstants.FILTER_KERNELS_KEY))
+        .sqlBaselineQuery(query)
+        .go();
+  }
+
+  private static LogicalExpression call(String op, LogicalExpression... args) {
+    return FunctionCallFactory.createExpression(op, ExpressionPosition.UNKNOWN, args);
+  }
+
+  private static LogicalExpression column(String name) {
+    return SchemaPath.getSimplePath(name);
+  }
+
+  /**
+   * Check whether the conditions are evaluated by kernels, over a batch of an INT (i), a BIGINT (b), a FLOAT8 (d),
+   * a VARCHAR (s), a DATE (dt) and a nullable INT (n) column
+   */
+  private void checkKernels(boolean expected, LogicalExpression... conditions) throws Exception {
+    final VectorContainer container = new VectorContainer(getDrillbitContext().getAllocator());
+    try {
+      container.addOrGet(MaterializedField.create("i", Types.required(MinorType.INT)));
+      container.addOrGet(MaterializedField.create("b", Types.required(MinorType.BIGINT)));
+      container.addOrGet(MaterializedField.create("d", Types.required(MinorType.FLOAT8)));
+      container.addOrGet(MaterializedField.create("s", Types.required(MinorType.VARCHAR)));
+      container.addOrGet(MaterializedField.create("dt", Types.required(MinorType.DATE)));
+      container.addOrGet(MaterializedField.create("n", Types.optional(MinorType.INT)));
+      container.buildSchema(SelectionVectorMode.NONE);
+      final RecordBatch batch = new SimpleRecordBatch(container, null, null);
+      for (LogicalExpression condition : conditions) {
+        final LogicalExpression expr = ExpressionTreeMaterializer.materializeAndCheckErrors(condition, batch,
+            getDrillbitContext().getFunctionImplementationRegistry());
+        assertEquals(ExpressionStringBuilder.toString(condition), expected, KernelFilterer.create(expr, batch) != null);
+      }
+    } finally {
+      container.clear();
+    }
+  }
+
+  @Test
+  public void testSupportedShapes() throws Exception {
+    checkKernels(true,
+        call("<", column("i"), ValueExpressions.getInt(100)),
+        call(">=", ValueExpressions.getInt(50), column("i")),
+        call("and", call("<>", column("i"), ValueExpressions.getInt(1)), call("=", column("b"), ValueExpressions.getBigInt(2))),
+        call(">", column("dt"), ValueExpressions.getDate(820454400000L)),
+        call("and", call(">=", column("i"), ValueExpressions.getInt(100)), call("<=", column("i"), ValueExpressions.getInt(200))),
+        call("or", call("=", column("i"), ValueExpressions.getInt(1)), call("=", column("i"), ValueExpressions.getInt(7))),
+        call("<", column("d"), ValueExpressions.getFloat8(20000.0)),
+        call("or", call("=", column("d"), ValueExpressions.getFloat8(5000.0)), call("=", column("d"), ValueExpressions.getFloat8(6700.0))),
+        call(">=", column("s"), ValueExpressions.getChar("M", 1)),
+        call("or", call("=", column("s"), ValueExpressions.getChar("A", 1)), call("=", column("s"), ValueExpressions.getChar("R", 1))),
+        call("is null", column("n")),
+        call("and", call("is not null", column("n")), call(">", column("n"), ValueExpressions.getInt(1000))));
+  }
+
+  /**
+   * The constants (or INT columns) widened by an implicit cast, as in l_quantity between 10 and 20 over a DOUBLE column
+   */
+  @Test
+  public void testImplicitCasts() throws Exception {
+    checkKernels(true,
+        call("and", call(">=", column("d"), ValueExpressions.getInt(10)), call("<=", column("d"), ValueExpressions.getInt(20))),
+        call("=", column("b"), ValueExpressions.getInt(2)),
+        call("<", column("i"), ValueExpressions.getBigInt(5_000_000_000L)),
+        call("or", call("=", column("d"), ValueExpressions.getInt(5000)), call("=", column("d"), ValueExpressions.getFloat8(6700.5))),
+        call("or", call("=", column("b"), ValueExpressions.getInt(1)), call("=", column("b"), ValueExpressions.getInt(3))));
+  }
+
+  @Test
+  public void testUnsupportedKernelShapes() throws Exception {
+    checkKernels(false,
+        call(">", call("+", column("i"), ValueExpressions.getInt(1)), ValueExpressions.getInt(100)),
+        call("<", column("i"), column("b")),
+        call("<", column("i"), ValueExpressions.getFloat8(2.5)),
+        call("or", call("=", column("i"), ValueExpressions.getInt(1)), call("=", column("b"), ValueExpressions.getInt(1))));
+  }
+
+  @AfterClass
+  public static void resetOption() throws Exception {
+    test(String.format("alter session reset `%s`", ExecConstants.FILTER_KERNELS_KEY));
+  }
+
+  @Test
+  public void testCompareIntAndDate() throws Exception {
+    compare(LINEITEM + "l_orderkey < 100");
+    compare(LINEITEM + "50 >= l_orderkey");
+    compare(LINEITEM + "l_orderkey <> 1 and l_linenumber = 2");
+    compare(LINEITEM + "l_shipdate > date '1996-01-01'");
+  }
+
+  @Test
+  public void testBetweenAndInList() throws Exception {
+    compare(LINEITEM + "l_orderkey between 100 and 200");
+    compare(LINEITEM + "l_orderkey in (1, 3, 7, 32, 33)");
+    compare(LINEITEM + "l_returnflag in ('A', 'R') and l_quantity between 10 and 20");
+    compare(LINEITEM + "l_quantity between 10 and 20");
+    compare(LINEITEM + "l_quantity in (1, 2.5, 7)");
+  }
+
+  @Test
+  public void testVarCharAndDouble() throws Exception {
+    compare(EMPLOYEE + "first_name = 'Sheri'");
+    compare(EMPLOYEE + "first_name >= 'M' and salary < 20000.0");
+    compare(EMPLOYEE + "salary in (5000.0, 6700.0, 10000.0)");
+  }
+
+  @Test
+  public void testNulls() throws Exception {
+    compare(EMPLOYEE + "management_role is null");
+    compare(EMPLOYEE + "management_role is not null and employee_id > 1000");
+    compare(EMPLOYEE + "management_role = 'Store Management'");
+  }
+
+  @Test
+  public void testUnsupportedShapes() throws Exception {
+    // evaluated by generated code
+    compare(EMPLOYEE + "employee_id + 1 > 100 or first_name like 'S%'");
+  }
+}
@@ -126,4 +126,61 @@ public class TestHashJoinAdvanced extends BaseTestQuery {
         .baselineValues(4l)
         .go();
   }
+
+  @Test // the runtime filter only skips probe rows without a match; results must not change
+  public void testJoinWithRuntimeFilter() throws Exception {
+    for (String joinType : new String[] {"inner", "left", "right", "full"}) {
+      final String query = String.format("select l.l_orderkey, l.l_linenumber, o.o_custkey from cp.`tpch/lineitem.parquet` l " +
+          "%s join (select * from cp.`tpch/orders.parquet` where o_orderkey < 1000) o on l.l_orderkey = o.o_orderkey", joinType);
+
+      testBuilder()
+          .sqlQuery(query)
+          .unOrdered()
+          .optionSettingQueriesForTestQuery("alter session set `exec.hashjoin.enable_runtime_filter` = true")
+          .optionSettingQueriesForBaseline("alter session set `exec.hashjoin.enable_runtime_filter` = false")
+          .sqlBaselineQuery(query)
+          .go();
+    }
+    test("alter session reset `exec.hashjoin.enable_runtime_filter`");
+  }
+
+  @Test
+  public void testJoinWithOpenAddressingHashTable() throws Exception {
+    for (String joinType : new String[] {"inner", "left", "right", "full"}) {
+      final String query = String.format("select l.l_orderkey, l.l_linenumber, o.o_custkey from cp.`tpch/lineitem.parquet` l " +
+          "%s join (select * from cp.`tpch/orders.parquet` where o_orderkey < 1000) o on l.l_orderkey = o.o_orderkey", joinType);
+
+      testBuilder()
+          .sqlQuery(query)
+          .unOrdered()
+          .optionSettingQueriesForTestQuery("alter session set `exec.hashtable.open_addressing` = true")
+          .optionSettingQueriesForBaseline("alter session set `exec.hashtable.open_addressing` = false")
+          .sqlBaselineQuery(query)
+          .go();
+    }
+    test("alter session reset `exec.hashtable.open_addressing`");
+  }
+
+  @Test // the probe batches are hashed and looked up at once; the null keys match nothing
+  public void testJoinWithNullableKeys() throws Exception {
+    for (String joinType : new String[] {"inner", "left", "right", "full"}) {
+      final String query = String.format("select l.l_orderkey, l.l_linenumber, o.o_custkey from " +
+          "(select case when mod(l_linenumber, 3) = 0 then null else l_orderkey end k, l_orderkey, l_linenumber " +
+          "from cp.`tpch/lineitem.parquet`) l %s join " +
+          "(select case when mod(o_custkey, 5) = 0 then null else o_orderkey end k, o_custkey " +
+          "from cp.`tpch/orders.parquet`) o on l.k = o.k", joinType);
+
+      testBuilder()
+          .sqlQuery(query)
+          .unOrdered()
+          .optionSettingQueriesForBaseline("alter session set `planner.enable_hashjoin` = false; " +
+              "alter session set `planner.enable_mergejoin` = true")
+          .optionSettingQueriesForTestQuery("alter session set `planner.enable_hashjoin` = true; " +
+              "alter session set `planner.enable_mergejoin` = false")
+          .sqlBaselineQuery(query)
+          .go();
+    }
+    test("alter session reset `planner.enable_hashjoin`");
+    test("alter session set `planner.enable_mergejoin` = false");
+  }
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.join;
+
+import org.apache.drill.BaseTestQuery;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
+import org.apache.drill.exec.proto.UserBitShared;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.FixtureBuilder;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ *  Test spilling for the Hash Join operator (the hybrid hash join)
+ */
+public class TestHashJoinSpill extends BaseTestQuery {
+
+  private static final String SELF_JOIN = "select count(*) cnt from cp.`tpch/lineitem.parquet` l1, cp.`tpch/lineitem.parquet` l2 " +
+      "where l1.l_partkey = l2.l_partkey and l1.l_suppkey < 30 and l2.l_suppkey < 30";
+
+  private static final String OUTER_JOIN = "select count(*) cnt from cp.`tpch/lineitem.parquet` l " +
+      "%s join cp.`tpch/orders.parquet` o on l.l_orderkey = o.o_orderkey";
+
+  // few orders match, so that most of the line items are rejected by the runtime filter
+  private static final String SELECTIVE_JOIN = "select count(*) cnt from cp.`tpch/lineitem.parquet` l, " +
+      "cp.`tpch/orders.parquet` o where l.l_orderkey = o.o_orderkey and o.o_totalprice < 5000";
+
+  private FixtureBuilder spillingCluster(long memLimit) {
+    return ClusterFixture.builder()
+        .sessionOption(ExecConstants.HASHJOIN_NUM_PARTITIONS_KEY, 8)
+        .sessionOption(ExecConstants.HASHJOIN_MAX_MEMORY_KEY, memLimit)
+        .sessionOption(PlannerSettings.MERGEJOIN.getOptionName(), false)
+        .sessionOption(PlannerSettings.BROADCAST.getOptionName(), false)
+        .maxParallelization(1)
+        .saveProfiles();
+  }
+
+  private long runAndCheckSpill(ClientFixture client, String sql, boolean expectSpill) throws Exception {
+    QueryBuilder.QuerySummary summary = client.queryBuilder().sql(sql).run();
+    ProfileParser profile = client.parseProfile(summary.queryIdString());
+    List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(UserBitShared.CoreOperatorType.HASH_JOIN_VALUE);
+    assertFalse(ops.isEmpty());
+    long spilledPartitions = ops.get(0).getMetric(HashJoinBatch.Metric.SPILLED_PARTITIONS.ordinal());
+    assertEquals(expectSpill, spilledPartitions > 0);
+    return client.queryBuilder().sql(sql).singletonLong();
+  }
+
+  /**
+   * The build side does not fit in the memory limit: some partitions are spilled,
+   * and joined in a later cycle.
+   */
+  @Test
+  public void testHashJoinSpill() throws Exception {
+    try (ClusterFixture cluster = spillingCluster(4_000_000).build();
+         ClientFixture client = cluster.clientFixture()) {
+      assertEquals(202452L, runAndCheckSpill(client, SELF_JOIN, true));
+    }
+  }
+
+  /**
+   * With a large enough memory limit the hybrid hash join does not spill at all.
+   */
+  @Test
+  public void testHashJoinNoSpill() throws Exception {
+    try (ClusterFixture cluster = spillingCluster(0).build();
+         ClientFixture client = cluster.clientFixture()) {
+      assertEquals(202452L, runAndCheckSpill(client, SELF_JOIN, false));
+    }
+  }
+
+  /**
+   * Outer joins: the unmatched rows of the spilled partitions are returned in their own cycle.
+   */
+  @Test
+  public void testOuterHashJoinSpill() throws Exception {
+    try (ClusterFixture cluster = spillingCluster(2_000_000).build();
+         ClientFixture client = cluster.clientFixture()) {
+      for (String joinType : new String[] {"left", "right", "full"}) {
+        assertEquals(60175L, runAndCheckSpill(client, String.format(OUTER_JOIN, joinType), true));
+      }
+    }
+  }
+
+  /**
+   * The probe rows whose key is not in the runtime filter built over the build side are rejected before
+   * they are probed, whether their partition is spilled or not.
+   */
+  @Test
+  public void testRuntimeFilter() throws Exception {
+    try (ClusterFixture cluster = spillingCluster(2_000_000).build();
+         ClientFixture client = cluster.clientFixture()) {
+      final long expected = client.queryBuilder().sql(SELECTIVE_JOIN).singletonLong();
+      client.alterSession(ExecConstants.HASHJOIN_ENABLE_RUNTIME_FILTER_KEY, true);
+      QueryBuilder.QuerySummary summary = client.queryBuilder().sql(SELECTIVE_JOIN).run();
+      ProfileParser profile = client.parseProfile(summary.queryIdString());
+      List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(UserBitShared.CoreOperatorType.HASH_JOIN_VALUE);
+      assertFalse(ops.isEmpty());
+      assertTrue(ops.get(0).getMetric(HashJoinBatch.Metric.RUNTIME_FILTERED_ROWS.ordinal()) > 0);
+      assertEquals(expected, client.queryBuilder().sql(SELECTIVE_JOIN).singletonLong());
+    }
+  }
+}
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.join;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.exec.store.parquet.columnreaders.ParquetRecordReader;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Runtime filters of hash joins applied below the joins: by the Parquet scans of their fragments, and by the
+ * hash partition senders feeding them (and the scans below these)
+ */
+public class TestRuntimeFilterPropagation extends DrillTest {
+
+  private static final String TABLE = "dfs_test.tmp.`lineitem_row_groups`";
+
+  // few orders match, so that most of the line items are rejected by the runtime filter
+  private static final String QUERY = "select count(*) cnt from " + TABLE + " l, " +
+      "cp.`tpch/orders.parquet` o where l.l_orderkey = o.o_orderkey and o.o_totalprice < 5000";
+
+  /**
+   * A table of several row groups, so that the scan reads some after the build side of the join is in
+   */
+  private static void createTable(ClientFixture client) throws Exception {
+    client.alterSession(ExecConstants.PARQUET_BLOCK_SIZE, 64 * 1024);
+    client.queryBuilder().sql("create table " + TABLE +
+        " as select l_orderkey, l_quantity, l_comment from cp.`tpch/lineitem.parquet`").run();
+    client.alterSession(ExecConstants.PARQUET_BLOCK_SIZE,
+        ExecConstants.PARQUET_BLOCK_SIZE_VALIDATOR.getDefault().num_val);
+  }
+
+  private static long getMetric(ProfileParser profile, int operatorType, int metric) {
+    long value = 0;
+    for (ProfileParser.OperatorProfile op : profile.getOpsOfType(operatorType)) {
+      value += op.getMetric(metric);
+    }
+    return value;
+  }
+
+  @Test
+  public void testScanFilter() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(1)
+            .sessionOption(PlannerSettings.MERGEJOIN.getOptionName(), false)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      try {
+        createTable(client);
+        final long expected = client.queryBuilder().sql(QUERY).singletonLong();
+        client.alterSession(ExecConstants.HASHJOIN_ENABLE_RUNTIME_FILTER_KEY, true);
+        final QuerySummary summary = client.queryBuilder().sql(QUERY).run();
+        final ProfileParser profile = client.parseProfile(summary.queryIdString());
+        assertTrue(getMetric(profile, CoreOperatorType.PARQUET_ROW_GROUP_SCAN_VALUE,
+            ParquetRecordReader.Metric.NUM_RECORDS_RUNTIME_FILTERED.ordinal()) > 0);
+        assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+      } finally {
+        client.queryBuilder().sql("drop table if exists " + TABLE).run();
+      }
+    }
+  }
+
+  @Test
+  public void testPartitionedJoin() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(4)
+            .sessionOption(ExecConstants.SLICE_TARGET, 1)
+            .sessionOption(PlannerSettings.MERGEJOIN.getOptionName(), false)
+            .sessionOption(PlannerSettings.BROADCAST.getOptionName(), false)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      try {
+        createTable(client);
+        final long expected = client.queryBuilder().sql(QUERY).singletonLong();
+        client.alterSession(ExecConstants.HASHJOIN_ENABLE_RUNTIME_FILTER_KEY, true);
+        // the filters reach the senders while they send, or once they are done: only the result is checked
+        for (int i = 0; i < 3; i++) {
+          assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+        }
+      } finally {
+        client.queryBuilder().sql("drop table if exists " + TABLE).run();
+      }
+    }
+  }
+}
@@ -0,0 +1,125 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.mergereceiver;
+
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * 256-way merges of sorted int streams with the loser tree, driven as the merging receiver drives it, and with the
+ * priority queue the merging receiver used before: of interleaved streams (no runs) and of streams with runs of 64
+ * records.
+ * <p>
+ * Not run with the unit tests; run {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LoserTreeBenchmark {
+
+  private static final int STREAMS = 256;
+  private static final int STREAM_LENGTH = 4000;
+
+  @State(Scope.Benchmark)
+  public static class Streams {
+
+    @Param({ "interleaved", "runs" })
+    public String layout;
+
+    private int[][] streams;
+    private int length;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      if ("runs".equals(layout)) {
+        streams = new int[STREAMS][];
+        for (int i = 0; i < streams.length; i++) {
+          streams[i] = new int[STREAM_LENGTH];
+          for (int j = 0; j < streams[i].length; j++) {
+            streams[i][j] = ((j >>> 6) * streams.length + i) * 64 + (j & 63);
+          }
+        }
+      } else {
+        streams = TestLoserTree.streams(new Random(31), STREAMS, STREAM_LENGTH, Integer.MAX_VALUE);
+      }
+      length = TestLoserTree.expected(streams).length;
+    }
+  }
+
+  @Benchmark
+  public int[] loserTree(Streams streams) {
+    return TestLoserTree.merge(streams.streams, streams.length);
+  }
+
+  @Benchmark
+  public int[] priorityQueue(Streams streams) {
+    return mergeWithPriorityQueue(streams.streams, streams.length);
+  }
+
+  private static int[] mergeWithPriorityQueue(final int[][] streams, int length) {
+    final int[] indexes = new int[streams.length];
+    final PriorityQueue<Integer> queue = new PriorityQueue<>(streams.length, new Comparator<Integer>() {
+      @Override
+      public int compare(Integer left, Integer right) {
+        return Integer.compare(streams[left][indexes[left]], streams[right][indexes[right]]);
+      }
+    });
+    for (int i = 0; i < streams.length; i++) {
+      if (streams[i].length != 0) {
+        queue.add(i);
+      }
+    }
+
+    final int[] merged = new int[length];
+    int position = 0;
+    while (!queue.isEmpty()) {
+      final int stream = queue.poll();
+      merged[position++] = streams[stream][indexes[stream]++];
+      if (indexes[stream] < streams[stream].length) {
+        queue.add(stream);
+      }
+    }
+    return merged;
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    new Runner(new OptionsBuilder()
+        .include(LoserTreeBenchmark.class.getSimpleName())
+        .build()).run();
+  }
+}
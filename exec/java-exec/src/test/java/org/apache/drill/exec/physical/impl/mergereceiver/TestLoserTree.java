@@ -0,0 +1,162 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.mergereceiver;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import org.apache.drill.test.DrillTest;
+import org.junit.Test;
+
+/**
+ * Merges of sorted int streams with the loser tree, driven as the merging receiver drives it: the records of the
+ * winner given by {@link LoserTree#takeRun(int, int, int)} are copied, then its matches are replayed (or it is
+ * removed). Checked against the sorted streams.
+ */
+public class TestLoserTree extends DrillTest {
+
+  static int[][] streams(Random random, int count, int maxLength, int maxValue) {
+    final int[][] streams = new int[count][];
+    for (int i = 0; i < count; i++) {
+      streams[i] = new int[random.nextInt(maxLength + 1)];
+      for (int j = 0; j < streams[i].length; j++) {
+        streams[i][j] = random.nextInt(maxValue);
+      }
+      Arrays.sort(streams[i]);
+    }
+    return streams;
+  }
+
+  static int[] expected(int[][] streams) {
+    int length = 0;
+    for (int[] stream : streams) {
+      length += stream.length;
+    }
+    final int[] expected = new int[length];
+    int position = 0;
+    for (int[] stream : streams) {
+      System.arraycopy(stream, 0, expected, position, stream.length);
+      position += stream.length;
+    }
+    Arrays.sort(expected);
+    return expected;
+  }
+
+  static int[] merge(final int[][] streams, int length) {
+    final int[] indexes = new int[streams.length];
+    final LoserTree tree = new LoserTree(streams.length) {
+      @Override
+      protected int compare(int left, int right) {
+        return Integer.compare(streams[left][indexes[left]], streams[right][indexes[right]]);
+      }
+
+      @Override
+      protected int compareToHead(int stream, int index, int other) {
+        return Integer.compare(streams[stream][index], streams[other][indexes[other]]);
+      }
+    };
+    for (int i = 0; i < streams.length; i++) {
+      if (streams[i].length == 0) {
+        tree.end(i);
+      }
+    }
+    tree.build();
+
+    final int[] merged = new int[length];
+    int position = 0;
+    int stream;
+    while ((stream = tree.winner()) != -1) {
+      final int end = tree.takeRun(stream, indexes[stream], streams[stream].length);
+      System.arraycopy(streams[stream], indexes[stream], merged, position, end - indexes[stream]);
+      position += end - indexes[stream];
+      indexes[stream] = end;
+      if (end == streams[stream].length) {
+        tree.remove(stream);
+      } else {
+        tree.replay(stream);
+      }
+    }
+    assertEquals(length, position);
+    return merged;
+  }
+
+  @Test
+  public void testMerge() {
+    final Random random = new Random(17);
+    for (int count : new int[] { 1, 2, 3, 5, 8, 13, 100, 256 }) {
+      // many ties, and a few empty streams
+      int[][] streams = streams(random, count, 50, 20);
+      int[] expected = expected(streams);
+      assertArrayEquals(expected, merge(streams, expected.length));
+
+      // long runs
+      streams = streams(random, count, 1000, 1000000);
+      expected = expected(streams);
+      assertArrayEquals(expected, merge(streams, expected.length));
+    }
+  }
+
+  @Test
+  public void testAllStreamsEmpty() {
+    assertEquals(-1, new LoserTree(0) {
+      @Override
+      protected int compare(int left, int right) {
+        throw new IllegalStateException();
+      }
+
+      @Override
+      protected int compareToHead(int stream, int index, int other) {
+        throw new IllegalStateException();
+      }
+    }.winner());
+
+    final LoserTree tree = new LoserTree(4) {
+      @Override
+      protected int compare(int left, int right) {
+        throw new IllegalStateException();
+      }
+
+      @Override
+      protected int compareToHead(int stream, int index, int other) {
+        throw new IllegalStateException();
+      }
+    };
+    for (int i = 0; i < 4; i++) {
+      tree.end(i);
+    }
+    tree.build();
+    assertEquals(-1, tree.winner());
+  }
+
+  @Test
+  public void testSingleRun() {
+    // the streams do not overlap: a single run each
+    final int[][] streams = new int[3][];
+    for (int i = 0; i < streams.length; i++) {
+      streams[i] = new int[100];
+      for (int j = 0; j < 100; j++) {
+        streams[i][j] = (2 - i) * 100 + j;
+      }
+    }
+    final int[] expected = expected(streams);
+    assertArrayEquals(expected, merge(streams, expected.length));
+  }
+}
@@ -0,0 +1,151 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.partitionsender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.exec.record.RecordBatch;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Records of incoming batches grouped by destination on a fork-join pool, and queries with several partitioners per
+ * hash partition sender
+ */
+public class TestPartitionedRecords extends DrillTest {
+
+  private static final String QUERY = "select sum(c * l_orderkey) from " +
+      "(select l_orderkey, count(*) c from cp.`tpch/lineitem.parquet` group by l_orderkey)";
+
+  private static int destination(int recordId, int destinations) {
+    return (recordId * 31 + recordId / 7) % destinations;
+  }
+
+  /**
+   * @return an evaluator of the destinations, failing if called by several threads at once
+   */
+  private static Partitioner evaluator(final int destinations) {
+    final Partitioner evaluator = mock(Partitioner.class);
+    final AtomicBoolean busy = new AtomicBoolean();
+    doAnswer(new Answer<Void>() {
+      @Override
+      public Void answer(InvocationOnMock invocation) {
+        assertTrue("evaluator used concurrently", busy.compareAndSet(false, true));
+        final Object[] arguments = invocation.getArguments();
+        final int[] buckets = (int[]) arguments[2];
+        for (int recordId = (Integer) arguments[0]; recordId < (Integer) arguments[1]; recordId++) {
+          buckets[recordId] = destination(recordId, destinations);
+        }
+        busy.set(false);
+        return null;
+      }
+    }).when(evaluator).evaluateDestinations(anyInt(), anyInt(), any(int[].class));
+    return evaluator;
+  }
+
+  private static void checkPartition(PartitionedRecords records, int recordCount, final int destinations,
+                                     List<Partitioner> evaluators) {
+    final RecordBatch incoming = mock(RecordBatch.class);
+    when(incoming.getRecordCount()).thenReturn(recordCount);
+
+    records.partition(evaluators, incoming);
+
+    assertEquals(0, records.start(0));
+    assertEquals(recordCount, records.end(destinations - 1));
+    for (int destination = 0; destination < destinations; destination++) {
+      int expected = 0;
+      for (int position = records.start(destination); position < records.end(destination); position++) {
+        final int recordId = records.record(position);
+        // in the order of the incoming batch
+        assertTrue(recordId >= expected);
+        assertEquals(destination, destination(recordId, destinations));
+        expected = recordId + 1;
+      }
+    }
+  }
+
+  @Test
+  public void testPartition() {
+    final ForkJoinPool pool = new ForkJoinPool(4);
+    try {
+      for (int destinations : new int[] { 1, 3, 100 }) {
+        // a single evaluator, as many as the chunks of the largest batch, and fewer
+        for (int evaluatorCount : new int[] { 1, 16, 3 }) {
+          final List<Partitioner> evaluators = Lists.newArrayList();
+          for (int i = 0; i < evaluatorCount; i++) {
+            evaluators.add(evaluator(destinations));
+          }
+          final PartitionedRecords records = new PartitionedRecords(pool, destinations);
+          // batches processed inline, then split by the pool, and smaller batches again
+          for (int recordCount : new int[] { 0, 1, 1000, 65535, 5000, 1025, 17 }) {
+            checkPartition(records, recordCount, destinations, evaluators);
+          }
+        }
+      }
+    } finally {
+      pool.shutdown();
+    }
+  }
+
+  @Test
+  public void testPartitioners() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(4)
+            .sessionOption(ExecConstants.SLICE_TARGET, 1)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      final long expected = client.queryBuilder().sql(QUERY).singletonLong();
+
+      client.alterSession(PlannerSettings.PARTITION_SENDER_SET_THREADS.getOptionName(), 2);
+      final QuerySummary summary = client.queryBuilder().sql(QUERY).run();
+      final ProfileParser profile = client.parseProfile(summary.queryIdString());
+      final List<ProfileParser.OperatorProfile> ops =
+          profile.getOpsOfType(CoreOperatorType.HASH_PARTITION_SENDER_VALUE);
+      assertFalse(ops.isEmpty());
+      for (ProfileParser.OperatorProfile op : ops) {
+        final long partitionNanos = op.getMetric(PartitionSenderRootExec.Metric.PARTITION_NANOS.ordinal());
+        assertTrue(partitionNanos > 0);
+        assertTrue(op.getMetric(PartitionSenderRootExec.Metric.MAX_BATCH_PARTITION_NANOS.ordinal()) <= partitionNanos);
+      }
+      assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+    }
+  }
+}
@@ -0,0 +1,110 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.partitionsender;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Outgoing batches of the hash partition sender sized from the width of the rows
+ */
+public class TestPartitionerBatchSizing extends DrillTest {
+
+  private static final String QUERY = "select sum(c * l_orderkey) from " +
+      "(select l_orderkey, count(*) c from cp.`tpch/lineitem.parquet` group by l_orderkey)";
+
+  private static ClusterFixture cluster() throws Exception {
+    return ClusterFixture.builder()
+        .maxParallelization(2)
+        .sessionOption(ExecConstants.SLICE_TARGET, 1)
+        .saveProfiles()
+        .build();
+  }
+
+  /**
+   * @return the average number of rows of the batches sent by the hash partition senders
+   */
+  private static long rowsPerBatch(ClientFixture client, QuerySummary summary) throws Exception {
+    ProfileParser profile = client.parseProfile(summary.queryIdString());
+    List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(CoreOperatorType.HASH_PARTITION_SENDER_VALUE);
+    assertFalse(ops.isEmpty());
+    long records = 0;
+    long batches = 0;
+    for (ProfileParser.OperatorProfile op : ops) {
+      records += op.getMetric(PartitionSenderRootExec.Metric.RECORDS_SENT.ordinal());
+      batches += op.getMetric(PartitionSenderRootExec.Metric.BATCHES_SENT.ordinal());
+    }
+    return records / batches;
+  }
+
+  @Test
+  public void testBatchSize() throws Exception {
+    try (ClusterFixture cluster = cluster();
+         ClientFixture client = cluster.clientFixture()) {
+      final long expected = client.queryBuilder().sql(QUERY).singletonLong();
+
+      // narrow rows: more than the former fixed 1023 rows per batch
+      QuerySummary summary = client.queryBuilder().sql(QUERY).run();
+      assertTrue(rowsPerBatch(client, summary) > 1023);
+
+      // small batches
+      client.alterSession(ExecConstants.PARTITIONER_BATCH_SIZE_KEY, 1024);
+      summary = client.queryBuilder().sql(QUERY).run();
+      assertTrue(rowsPerBatch(client, summary) < 128);
+      assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+      client.runSqlSilently("alter session reset `" + ExecConstants.PARTITIONER_BATCH_SIZE_KEY + "`");
+
+      // the memory budget shared by the receivers caps the size of the batches
+      client.alterSession(ExecConstants.PARTITIONER_MEMORY_BUDGET_KEY, 1024 * 1024);
+      assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+    }
+  }
+
+  @Test
+  public void testRowsUnderBudget() {
+    final long batchSize = ExecConstants.PARTITIONER_BATCH_SIZE_VALIDATOR.getDefault().num_val;
+    final long budget = ExecConstants.PARTITIONER_MEMORY_BUDGET_VALIDATOR.getDefault().num_val;
+    // few receivers: the target batch size
+    assertEquals(batchSize, PartitionerTemplate.getOutgoingBatchBytes(batchSize, budget, 2));
+    // many receivers: an equal share of the budget each
+    assertEquals(budget / 1000, PartitionerTemplate.getOutgoingBatchBytes(batchSize, budget, 1000));
+    assertEquals(1024, PartitionerTemplate.getOutgoingBatchBytes(batchSize, 1024 * 1024, 1024));
+
+    // 1K for rows of 12 bytes: 85 rows, rounded down to 2^x - 1
+    assertEquals(63, PartitionerTemplate.getOutgoingBatchRows(1024, 12));
+    final long bytes = PartitionerTemplate.getOutgoingBatchBytes(batchSize, budget, 1000);
+    final int rows = PartitionerTemplate.getOutgoingBatchRows(bytes, 100);
+    assertEquals(255, rows);
+    assertTrue(1000L * rows * 100 <= budget);
+    // bounds: one row at least, 64K rows at most
+    assertEquals(1, PartitionerTemplate.getOutgoingBatchRows(1024, 4096));
+    assertEquals(65535, PartitionerTemplate.getOutgoingBatchRows(16 * 1024 * 1024, 1));
+  }
+}
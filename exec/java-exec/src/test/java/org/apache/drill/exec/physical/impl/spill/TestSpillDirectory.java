@@ -0,0 +1,152 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.OutputStream;
+import java.util.List;
+import java.util.UUID;
+
+import org.apache.drill.common.config.DrillConfig;
+import org.apache.drill.common.expression.FieldReference;
+import org.apache.drill.common.logical.data.Order.Ordering;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.physical.config.Sort;
+import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.test.DrillTest;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.typesafe.config.ConfigValueFactory;
+
+/**
+ * Placement of the spill files across the spill directories
+ */
+public class TestSpillDirectory extends DrillTest {
+
+  private static final long GB = 1024L * 1024 * 1024;
+
+  private static List<SpillDirectory> directories(int count) {
+    final String base = "/tmp/drill/test-spill-" + UUID.randomUUID() + "/";
+    final SpillDirectories spillDirectories = new SpillDirectories();
+    final List<SpillDirectory> directories = Lists.newArrayList();
+    for (int i = 0; i < count; i++) {
+      directories.add(spillDirectories.get("file:///", base + i));
+    }
+    return directories;
+  }
+
+  @Test
+  public void testChoose() {
+    final List<SpillDirectory> directories = directories(3);
+    final long now = System.nanoTime();
+    for (SpillDirectory directory : directories) {
+      directory.setFreeSpace(10 * GB, now);
+    }
+
+    // round-robin among equally loaded directories
+    assertEquals(1, SpillDirectory.choose(directories, 1, GB, 0.25, now));
+    assertEquals(2, SpillDirectory.choose(directories, 2, GB, 0.25, now));
+
+    // the fewest files being written, then the fewest bytes in flight
+    directories.get(0).fileOpened();
+    directories.get(1).fileOpened();
+    directories.get(1).written(100);
+    directories.get(2).fileOpened();
+    directories.get(2).written(10);
+    assertEquals(0, SpillDirectory.choose(directories, 1, GB, 0.25, now));
+    directories.get(0).written(1000);
+    assertEquals(2, SpillDirectory.choose(directories, 0, GB, 0.25, now));
+    directories.get(0).fileClosed(1000);
+    directories.get(1).fileClosed(100);
+    directories.get(2).fileClosed(10);
+
+    // full directories are skipped, unless all of them are
+    directories.get(1).setFreeSpace(GB / 2, now);
+    assertEquals(2, SpillDirectory.choose(directories, 1, GB, 0.25, now));
+    assertTrue(directories.get(1).isFull());
+    assertEquals(1, SpillDirectory.choose(directories, 1, 100 * GB, 0.25, now));
+
+    // slow directories are skipped once enough is flushed to them
+    directories.get(1).setFreeSpace(10 * GB, now);
+    directories.get(0).flushed(SpillDirectory.MIN_THROUGHPUT_SAMPLE, 1_000_000_000, now);
+    directories.get(2).flushed(SpillDirectory.MIN_THROUGHPUT_SAMPLE, 100_000_000, now);
+    assertEquals(1, SpillDirectory.choose(directories, 0, GB, 0.25, now));
+    assertTrue(directories.get(0).isSlow());
+    assertFalse(directories.get(2).isSlow());
+    assertTrue(directories.get(1).isHealthy());
+
+    // until their throughput is too old to tell
+    final long later = now + 10 * SpillDirectory.THROUGHPUT_WINDOW_NANOS;
+    assertEquals(0, SpillDirectory.choose(directories, 0, GB, 0.25, later));
+    assertFalse(directories.get(0).isSlow());
+    assertEquals(0, directories.get(0).getThroughput(later), 0);
+  }
+
+  @Test
+  public void testStriping() throws Exception {
+    final String base = "/tmp/drill/test-spill-" + UUID.randomUUID() + "/";
+    final List<String> dirs = Lists.newArrayList(base + "a", base + "b", base + "c");
+    final DrillConfig config = new DrillConfig(DrillConfig.create()
+        .withValue(ExecConstants.EXTERNAL_SORT_SPILL_DIRS, ConfigValueFactory.fromIterable(dirs)), false);
+    final FragmentHandle handle = FragmentHandle.newBuilder()
+        .setMajorFragmentId(1)
+        .setMinorFragmentId(2)
+        .setQueryId(QueryId.newBuilder().setPart1(1234).setPart2(5678).build())
+        .build();
+    final Sort popConfig = new Sort(null,
+        Lists.newArrayList(new Ordering("ASC", FieldReference.getWithQuotedRef("key"), "FIRST")), false);
+    final SpillDirectories spillDirectories = new SpillDirectories();
+    final SpillSet spillSet = new SpillSet(config, handle, popConfig, null, null, null, spillDirectories);
+    try {
+      // the runs of the operator go to each directory in turn
+      final List<String> dirsUsed = Lists.newArrayList();
+      for (int i = 0; i < dirs.size(); i++) {
+        final String fileName = spillSet.getNextSpillFile();
+        dirsUsed.add(fileName.substring(0, base.length() + 1));
+        try (OutputStream out = spillSet.openForOutput(fileName)) {
+          out.write(new byte[1000]);
+          assertEquals(1000, spillSet.getPosition(out));
+        }
+        spillSet.delete(fileName);
+      }
+      assertTrue(dirsUsed.containsAll(dirs));
+
+      // a file being written keeps the next one off its directory
+      final String first = spillSet.getNextSpillFile();
+      try (OutputStream out = spillSet.openForOutput(first)) {
+        final SpillDirectory directory = spillDirectories.get("file:///", first.substring(0, base.length() + 1));
+        out.write(new byte[1000]);
+        assertEquals(1, directory.getOpenFiles());
+        assertEquals(1000, directory.getInFlightBytes());
+        for (int i = 0; i < 2 * dirs.size(); i++) {
+          final String fileName = spillSet.getNextSpillFile();
+          assertFalse(fileName.startsWith(first.substring(0, base.length() + 1)));
+          spillSet.delete(fileName);
+        }
+      }
+      spillSet.delete(first);
+    } finally {
+      spillSet.close();
+    }
+  }
+}
@@ -0,0 +1,226 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.spill;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.FileChannel;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.apache.drill.common.config.DrillConfig;
+import org.apache.drill.common.expression.FieldReference;
+import org.apache.drill.common.logical.data.Order.Ordering;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.physical.config.Sort;
+import org.apache.drill.exec.physical.impl.aggregate.HashAggTemplate;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
+import org.apache.drill.exec.proto.ExecProtos.FragmentHandle;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.exec.server.options.OptionSet;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Spill files written and read by compressed blocks, and asynchronously
+ */
+public class TestSpillStreams extends DrillTest {
+
+  // the spill I/O threads of the drillbit
+  private static final ExecutorService IO_EXECUTOR = Executors.newFixedThreadPool(2);
+
+  @AfterClass
+  public static void shutdown() {
+    IO_EXECUTOR.shutdownNow();
+  }
+
+  private static SpillSet spillSet(boolean compress, boolean asyncIo) {
+    return spillSet(compress, asyncIo, false);
+  }
+
+  private static SpillSet spillSet(boolean compress, boolean asyncIo, boolean mmapReads) {
+    final OptionSet options = mock(OptionSet.class);
+    when(options.getOption(ExecConstants.SPILL_COMPRESS_VALIDATOR)).thenReturn(compress);
+    when(options.getOption(ExecConstants.SPILL_ASYNC_IO_VALIDATOR)).thenReturn(asyncIo);
+    when(options.getOption(ExecConstants.SPILL_MMAP_READS_VALIDATOR)).thenReturn(mmapReads);
+    final FragmentHandle handle = FragmentHandle.newBuilder()
+        .setMajorFragmentId(1)
+        .setMinorFragmentId(2)
+        .setQueryId(QueryId.newBuilder().setPart1(1234).setPart2(5678).build())
+        .build();
+    final Sort popConfig = new Sort(null,
+        Lists.newArrayList(new Ordering("ASC", FieldReference.getWithQuotedRef("key"), "FIRST")), false);
+    return new SpillSet(DrillConfig.create(), handle, popConfig, null, options, IO_EXECUTOR, new SpillDirectories());
+  }
+
+  /**
+   * @return blocks of repeated bytes, which compress, then of random bytes, which do not
+   */
+  private static byte[] data(int length) {
+    final byte[] data = new byte[length];
+    final Random random = new Random(length);
+    for (int i = 0; i < length; i++) {
+      data[i] = (i / 100_000) % 2 == 0 ? (byte) (i % 7) : (byte) random.nextInt();
+    }
+    return data;
+  }
+
+  private static void checkRoundTrip(boolean compress, boolean asyncIo, byte[] data) throws Exception {
+    final SpillSet spillSet = spillSet(compress, asyncIo);
+    try {
+      final String fileName = spillSet.getNextSpillFile();
+      final Random random = new Random(data.length);
+      long written;
+      try (OutputStream out = spillSet.openForOutput(fileName)) {
+        int position = 0;
+        while (position < data.length) {
+          if (random.nextInt(10) == 0) {
+            out.write(data[position++]);
+          } else {
+            final int length = Math.min(data.length - position, random.nextInt(200_000));
+            out.write(data, position, length);
+            position += length;
+          }
+        }
+        written = spillSet.getPosition(out);
+        spillSet.tallyWriteBytes(written);
+      }
+      assertEquals(data.length, spillSet.getRawWriteBytes());
+      if (!compress) {
+        assertEquals(data.length, written);
+      } else if (data.length > SpillOutputStream.BLOCK_SIZE) {
+        assertTrue(written < data.length);
+      }
+
+      final byte[] read = new byte[data.length];
+      try (InputStream in = spillSet.openForInput(fileName)) {
+        int position = 0;
+        while (position < data.length) {
+          if (random.nextInt(10) == 0) {
+            read[position++] = (byte) in.read();
+          } else {
+            // reads return all the bytes asked for, but at the end of the file
+            final int length = Math.min(data.length - position, random.nextInt(200_000));
+            assertEquals(length, in.read(read, position, length));
+            position += length;
+          }
+        }
+        assertEquals(-1, in.read());
+        assertEquals(-1, in.read(new byte[10], 0, 10));
+        assertEquals(written, spillSet.getPosition(in));
+      }
+      assertArrayEquals(data, read);
+      spillSet.delete(fileName);
+    } finally {
+      spillSet.close();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    for (int length : new int[] { 0, 1, SpillOutputStream.BLOCK_SIZE, 1_000_000 }) {
+      final byte[] data = data(length);
+      checkRoundTrip(false, false, data);
+      checkRoundTrip(true, false, data);
+      checkRoundTrip(false, true, data);
+      checkRoundTrip(true, true, data);
+    }
+  }
+
+  @Test
+  public void testOutputBufferBytes() {
+    assertEquals(0, spillSet(false, false).getOutputBufferBytes());
+    assertEquals(2 * SpillOutputStream.BLOCK_SIZE, spillSet(false, true).getOutputBufferBytes());
+    // the block, and the frames double-buffered: about 4 blocks
+    final long bytes = spillSet(true, true).getOutputBufferBytes();
+    assertTrue(bytes > 3 * SpillOutputStream.BLOCK_SIZE && bytes < 4 * SpillOutputStream.BLOCK_SIZE);
+  }
+
+  @Test
+  public void testOpenForMapping() throws Exception {
+    // only the uncompressed files are mapped
+    for (boolean compress : new boolean[] { false, true }) {
+      for (boolean mmapReads : new boolean[] { false, true }) {
+        final SpillSet spillSet = spillSet(compress, false, mmapReads);
+        try {
+          final String fileName = spillSet.getNextSpillFile();
+          try (OutputStream out = spillSet.openForOutput(fileName)) {
+            out.write(data(1000));
+          }
+          try (FileChannel channel = spillSet.openForMapping(fileName)) {
+            if (mmapReads && !compress) {
+              assertEquals(1000, channel.size());
+            } else {
+              assertNull(channel);
+            }
+          }
+          spillSet.delete(fileName);
+        } finally {
+          spillSet.close();
+        }
+      }
+    }
+  }
+
+  @Test
+  public void testHashAggSpill() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .configProperty(ExecConstants.HASHAGG_MAX_MEMORY, 74_000_000)
+            .configProperty(ExecConstants.HASHAGG_NUM_PARTITIONS, 16)
+            .configProperty(ExecConstants.HASHAGG_MIN_BATCHES_PER_PARTITION, 3)
+            .sessionOption(PlannerSettings.FORCE_2PHASE_AGGR_KEY, true)
+            .sessionOption(ExecConstants.SPILL_COMPRESS_KEY, true)
+            .sessionOption(ExecConstants.SPILL_ASYNC_IO_KEY, true)
+            .maxParallelization(2)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      final String sql = "SELECT empid_s17, dept_i, branch_i, AVG(salary_i) FROM `mock`.`employee_1200K` " +
+          "GROUP BY empid_s17, dept_i, branch_i";
+      final QuerySummary summary = client.queryBuilder().sql(sql).run();
+      assertEquals(1_200_000, summary.recordCount());
+      final ProfileParser profile = client.parseProfile(summary.queryIdString());
+      final List<ProfileParser.OperatorProfile> ops = profile.getOpsOfType(CoreOperatorType.HASH_AGGREGATE_VALUE);
+      long spilledMb = 0;
+      long rawMb = 0;
+      for (ProfileParser.OperatorProfile op : ops) {
+        spilledMb += op.getMetric(HashAggTemplate.Metric.SPILL_MB.ordinal());
+        rawMb += op.getMetric(HashAggTemplate.Metric.SPILL_RAW_MB.ordinal());
+      }
+      assertTrue(rawMb > 0);
+      assertTrue(spilledMb <= rawMb);
+    }
+  }
+}
@@ -0,0 +1,71 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.physical.impl.xsort.managed;
+
+import static org.junit.Assert.assertEquals;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.DrillTest;
+import org.junit.Test;
+
+/**
+ * In-memory sorts by the normalized keys of the leading sort key, checked against the merge of the sorted runs
+ */
+public class TestNormalizedKeySort extends DrillTest {
+
+  /**
+   * @return a checksum of the order of the rows of a table by the given sort keys, ending with a unique key
+   */
+  private static String orderQuery(String table, String orderBy, String id) {
+    return String.format("select sum(rn * %s) from " +
+        "(select %s, row_number() over (order by %s) rn from %s)", id, id, orderBy, table);
+  }
+
+  @Test
+  public void testNormalizedKeys() throws Exception {
+    final String lineitem = "cp.`tpch/lineitem.parquet`";
+    final String employee = "(select employee_id, salary, " +
+        "case when mod(employee_id, 5) = 0 then null else last_name end name, " +
+        "case when mod(employee_id, 7) = 0 then null else salary end bonus from cp.`employee.json`)";
+    final String[] queries = {
+        orderQuery(lineitem, "l_orderkey desc, l_linenumber", "l_orderkey * 10 + l_linenumber"),
+        orderQuery(lineitem, "l_shipdate, l_orderkey, l_linenumber", "l_orderkey * 10 + l_linenumber"),
+        orderQuery(lineitem, "l_extendedprice desc, l_orderkey, l_linenumber", "l_orderkey * 10 + l_linenumber"),
+        orderQuery(lineitem, "l_comment, l_orderkey, l_linenumber", "l_orderkey * 10 + l_linenumber"),
+        orderQuery(employee, "salary desc, employee_id", "employee_id"),
+        orderQuery(employee, "name nulls first, employee_id", "employee_id"),
+        orderQuery(employee, "name desc nulls last, employee_id", "employee_id"),
+        orderQuery(employee, "bonus nulls first, employee_id desc", "employee_id"),
+        orderQuery(employee, "bonus desc, employee_id", "employee_id")
+    };
+
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .configProperty(ExecConstants.EXTERNAL_SORT_DISABLE_MANAGED, false)
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      for (String query : queries) {
+        client.alterSession(ExecConstants.EXTERNAL_SORT_NORMALIZED_KEYS_KEY, false);
+        final long expected = client.queryBuilder().sql(query).singletonLong();
+        client.alterSession(ExecConstants.EXTERNAL_SORT_NORMALIZED_KEYS_KEY, true);
+        assertEquals(query, expected, client.queryBuilder().sql(query).singletonLong());
+      }
+    }
+  }
+}
@@ -0,0 +1,128 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.embedded.EmbeddedChannel;
+
+import java.io.ByteArrayOutputStream;
+
+import org.apache.drill.exec.ExecTest;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.memory.RootAllocatorFactory;
+import org.apache.drill.exec.metrics.DrillMetrics;
+import org.apache.drill.exec.proto.GeneralRPCProtos.Ack;
+import org.apache.drill.exec.proto.GeneralRPCProtos.CompleteRpcMessage;
+import org.apache.drill.exec.proto.GeneralRPCProtos.RpcHeader;
+import org.apache.drill.exec.proto.GeneralRPCProtos.RpcMode;
+import org.junit.Test;
+
+import com.google.protobuf.ByteString;
+
+/**
+ * Messages encoded without building their header, and decoded without parsing it
+ */
+public class TestRpcCodec extends ExecTest {
+
+  private static byte[] bytes(ByteBuf buffer) {
+    final byte[] bytes = new byte[buffer.readableBytes()];
+    buffer.getBytes(buffer.readerIndex(), bytes);
+    return bytes;
+  }
+
+  private static long count(String name) {
+    return DrillMetrics.getRegistry().counter(RpcConstants.CODEC_COUNTER_PREFIX + name).getCount();
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final Ack ack = Ack.newBuilder().setOk(true).build();
+    final byte[] raw = new byte[] { 1, 2, 3, 5, 8, 13 };
+    final long encoded = count("test.encoded");
+    final long decoded = count("test.decoded");
+    final long protobufBytes = count("test.protobuf_bytes");
+    long expectedBytes = 0;
+
+    try (BufferAllocator allocator = RootAllocatorFactory.newRoot(c)) {
+      final EmbeddedChannel encoder = new EmbeddedChannel(new RpcEncoder("test"));
+      final EmbeddedChannel decoder = new EmbeddedChannel(
+          new ProtobufLengthDecoder(allocator, OutOfMemoryHandler.DEFAULT_INSTANCE), new RpcDecoder("test"));
+
+      for (int coordinationId : new int[] { 0, 300, Integer.MAX_VALUE, -1 }) {
+        // the same bytes as the protobuf message built from the header and body
+        encoder.writeOutbound(new OutboundRpcMessage(RpcMode.RESPONSE, 7, coordinationId, ack));
+        final ByteBuf message = (ByteBuf) encoder.readOutbound();
+        final RpcHeader header = RpcHeader.newBuilder()
+            .setMode(RpcMode.RESPONSE)
+            .setCoordinationId(coordinationId)
+            .setRpcType(7)
+            .build();
+        final ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        CompleteRpcMessage.newBuilder()
+            .setHeader(header)
+            .setProtobufBody(ack.toByteString())
+            .build()
+            .writeDelimitedTo(expected);
+        assertArrayEquals(expected.toByteArray(), bytes(message));
+        expectedBytes += expected.size();
+
+        // the length split across two reads
+        decoder.writeInbound(message.readSlice(1).retain());
+        assertNull(decoder.readInbound());
+        decoder.writeInbound(message);
+        final InboundRpcMessage inbound = (InboundRpcMessage) decoder.readInbound();
+        try {
+          assertEquals(RpcMode.RESPONSE, inbound.mode);
+          assertEquals(coordinationId, inbound.coordinationId);
+          assertEquals(7, inbound.rpcType);
+          assertEquals(ack.toByteString(), ByteString.copyFrom(bytes(inbound.pBody)));
+          assertNull(inbound.dBody);
+        } finally {
+          inbound.release();
+        }
+      }
+
+      final ByteBuf body = allocator.buffer(raw.length);
+      body.writeBytes(raw);
+      encoder.writeOutbound(new OutboundRpcMessage(RpcMode.REQUEST, 3, 42, ack, body));
+      final ByteBuf message = (ByteBuf) encoder.readOutbound();
+      // the raw body is not counted, it is not copied
+      expectedBytes += message.readableBytes() - raw.length;
+      decoder.writeInbound(message);
+      final InboundRpcMessage inbound = (InboundRpcMessage) decoder.readInbound();
+      try {
+        assertEquals(RpcMode.REQUEST, inbound.mode);
+        assertEquals(42, inbound.coordinationId);
+        assertEquals(3, inbound.rpcType);
+        assertArrayEquals(raw, bytes(inbound.dBody));
+      } finally {
+        inbound.release();
+      }
+
+      assertEquals(encoded + 5, count("test.encoded"));
+      assertEquals(decoded + 5, count("test.decoded"));
+      assertEquals(protobufBytes + expectedBytes, count("test.protobuf_bytes"));
+      encoder.finish();
+      decoder.finish();
+    }
+  }
+}
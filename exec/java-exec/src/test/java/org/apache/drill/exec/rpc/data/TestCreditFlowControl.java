@@ -0,0 +1,88 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.ExecTest;
+import org.apache.drill.exec.physical.impl.partitionsender.PartitionSenderRootExec;
+import org.apache.drill.exec.planner.physical.PlannerSettings;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Queries over exchanges with the senders holding a single credit per receiver, that is, the receivers buffering a
+ * single batch per sender
+ */
+public class TestCreditFlowControl extends ExecTest {
+
+  private static final String JOIN = "select sum(o.o_custkey * l.l_linenumber) from cp.`tpch/lineitem.parquet` l " +
+      "join cp.`tpch/orders.parquet` o on l.l_orderkey = o.o_orderkey";
+  private static final String AGGREGATE = "select sum(c * l_orderkey) from " +
+      "(select l_orderkey, count(*) c from cp.`tpch/lineitem.parquet` group by l_orderkey)";
+
+  private static ClusterFixture cluster(int bufferSize) throws Exception {
+    return ClusterFixture.builder()
+        .clusterSize(2)
+        .configProperty(ExecConstants.INCOMING_BUFFER_SIZE, bufferSize)
+        .sessionOption(ExecConstants.SLICE_TARGET, 1)
+        .sessionOption(PlannerSettings.BROADCAST.getOptionName(), false)
+        .saveProfiles()
+        .build();
+  }
+
+  private static long run(int bufferSize, String sql) throws Exception {
+    try (ClusterFixture cluster = cluster(bufferSize);
+         ClientFixture client = cluster.clientFixture()) {
+      return client.queryBuilder().sql(sql).singletonLong();
+    }
+  }
+
+  @Test
+  public void testSingleCredit() throws Exception {
+    // the probe side of the join is only consumed once the build side was, its senders run out of credits
+    assertEquals(run(6, JOIN), run(1, JOIN));
+    assertEquals(run(6, AGGREGATE), run(1, AGGREGATE));
+  }
+
+  @Test
+  public void testCreditWaitMetric() throws Exception {
+    try (ClusterFixture cluster = cluster(1);
+         ClientFixture client = cluster.clientFixture()) {
+      QuerySummary summary = client.queryBuilder().sql(JOIN).run();
+      ProfileParser profile = client.parseProfile(summary.queryIdString());
+      List<ProfileParser.OperatorProfile> ops =
+          profile.getOpsOfType(CoreOperatorType.HASH_PARTITION_SENDER_VALUE);
+      assertFalse(ops.isEmpty());
+      long creditWaitNanos = 0;
+      for (ProfileParser.OperatorProfile op : ops) {
+        creditWaitNanos += op.getMetric(PartitionSenderRootExec.Metric.CREDIT_WAIT_NANOS.ordinal());
+      }
+      assertTrue(creditWaitNanos > 0);
+    }
+  }
+}
@@ -0,0 +1,169 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.IOException;
+import java.util.Random;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.DrillBuf;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.ExecTest;
+import org.apache.drill.exec.memory.BufferAllocator;
+import org.apache.drill.exec.memory.RootAllocatorFactory;
+import org.apache.drill.exec.physical.impl.partitionsender.PartitionSenderRootExec;
+import org.apache.drill.exec.proto.UserBitShared.CoreOperatorType;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.ProfileParser.OperatorProfile;
+import org.apache.drill.test.QueryBuilder.QuerySummary;
+import org.junit.Test;
+
+/**
+ * Round trips of record batch bodies through the data connection codecs, and queries over compressed data
+ * connections
+ */
+public class TestDataCompression extends ExecTest {
+
+  private static final String QUERY = "select sum(c * l_orderkey) from " +
+      "(select l_orderkey, count(distinct l_comment) c from cp.`tpch/lineitem.parquet` group by l_orderkey)";
+
+  private static DrillBuf buffer(BufferAllocator allocator, byte[] bytes) {
+    final DrillBuf buffer = allocator.buffer(Math.max(bytes.length, 1));
+    buffer.writeBytes(bytes);
+    return buffer;
+  }
+
+  private static void roundTrip(BufferAllocator allocator, byte[]... chunks) throws IOException {
+    roundTrip(DataCompressionCodec.SNAPPY, allocator, chunks);
+  }
+
+  private static void roundTrip(DataCompressionCodec codec, BufferAllocator allocator, byte[]... chunks)
+      throws IOException {
+    final ByteBuf[] buffers = new ByteBuf[chunks.length];
+    int length = 0;
+    for (int i = 0; i < chunks.length; i++) {
+      buffers[i] = buffer(allocator, chunks[i]);
+      length += chunks[i].length;
+    }
+    final DrillBuf compressed = codec.compress(buffers, allocator);
+    final DrillBuf body = codec.decompress(compressed, allocator);
+    try {
+      assertEquals(length, body.readableBytes());
+      for (byte[] chunk : chunks) {
+        for (byte b : chunk) {
+          assertEquals(b, body.readByte());
+        }
+      }
+    } finally {
+      for (ByteBuf buffer : buffers) {
+        buffer.release();
+      }
+      compressed.release();
+      body.release();
+    }
+  }
+
+  @Test
+  public void testRoundTrip() throws Exception {
+    final Random random = new Random(17);
+    final byte[] compressible = new byte[100000];
+    for (int i = 0; i < compressible.length; i++) {
+      compressible[i] = (byte) (i % 7);
+    }
+    final byte[] incompressible = new byte[5000];
+    random.nextBytes(incompressible);
+
+    try (BufferAllocator allocator = RootAllocatorFactory.newRoot(c)) {
+      roundTrip(allocator, compressible);
+      roundTrip(allocator, incompressible);
+      // empty buffers (e.g. the offsets of an empty batch) are skipped
+      roundTrip(allocator, new byte[0], compressible, new byte[0], incompressible, new byte[] { 1 });
+      // no compression: the buffers are passed through
+      roundTrip(DataCompressionCodec.NONE, allocator, compressible, new byte[0], incompressible);
+    }
+  }
+
+  @Test
+  public void testCorruptBody() throws Exception {
+    try (BufferAllocator allocator = RootAllocatorFactory.newRoot(c)) {
+      final DrillBuf body = allocator.buffer(12);
+      body.writeInt(4);
+      body.writeInt(-1000);
+      body.writeLong(0);
+      try {
+        DataCompressionCodec.SNAPPY.decompress(body, allocator);
+        fail();
+      } catch (IOException e) {
+        // expected, the chunk is larger than the batch
+      } finally {
+        body.release();
+      }
+    }
+  }
+
+  @Test
+  public void testFromName() {
+    assertEquals(DataCompressionCodec.NONE, DataCompressionCodec.fromName(null));
+    assertEquals(DataCompressionCodec.NONE, DataCompressionCodec.fromName("none"));
+    assertEquals(DataCompressionCodec.SNAPPY, DataCompressionCodec.fromName("Snappy"));
+    assertNull(DataCompressionCodec.fromName("zip"));
+  }
+
+  private static long run(String codec) throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .clusterSize(2)
+            .configProperty(ExecConstants.BIT_DATA_COMPRESSION_CODEC, codec)
+            .sessionOption(ExecConstants.SLICE_TARGET, 1)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      // the bytes compressed by the partition senders are in the profile of the query
+      final QuerySummary summary = client.queryBuilder().sql(QUERY).run();
+      final ProfileParser profile = client.parseProfile(summary.queryIdString());
+      long uncompressed = 0;
+      long compressed = 0;
+      for (OperatorProfile sender : profile.getOpsOfType(CoreOperatorType.HASH_PARTITION_SENDER_VALUE)) {
+        uncompressed += sender.getMetric(PartitionSenderRootExec.Metric.UNCOMPRESSED_BYTES.ordinal());
+        compressed += sender.getMetric(PartitionSenderRootExec.Metric.COMPRESSED_BYTES.ordinal());
+      }
+      if (DataCompressionCodec.fromName(codec) == DataCompressionCodec.NONE) {
+        assertEquals(0, uncompressed);
+        assertEquals(0, compressed);
+      } else {
+        assertTrue(uncompressed > 0);
+        assertTrue(compressed > 0);
+      }
+
+      return client.queryBuilder().sql(QUERY).singletonLong();
+    }
+  }
+
+  @Test
+  public void testQuery() throws Exception {
+    final long expected = run("none");
+    assertTrue(expected > 0);
+    assertEquals(expected, run("snappy"));
+  }
+}
@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.rpc.data;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.ExecTest;
+import org.apache.drill.exec.proto.UserBitShared.QueryId;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Order in which the senders of several queries take their turn on a congested data connection, and queries over
+ * pools of data connections
+ */
+public class TestFairSendScheduler extends ExecTest {
+
+  private static final String QUERY = "select sum(c * l_orderkey) from " +
+      "(select l_orderkey, count(*) c from cp.`tpch/lineitem.parquet` group by l_orderkey)";
+
+  private static QueryId queryId(long id) {
+    return QueryId.newBuilder().setPart1(id).setPart2(id).build();
+  }
+
+  /**
+   * Sends a batch in a new thread, once it waits for its turn.
+   */
+  private static Thread send(final FairSendScheduler scheduler, final List<String> sent, final String name,
+                             final QueryId queryId, final int weight, final long bytes) throws InterruptedException {
+    final Thread thread = new Thread() {
+      @Override
+      public void run() {
+        try {
+          scheduler.acquire(queryId, weight, bytes);
+        } catch (InterruptedException e) {
+          sent.add(name + " interrupted");
+          return;
+        }
+        sent.add(name);
+        scheduler.sent();
+      }
+    };
+    thread.start();
+    while (thread.getState() != Thread.State.WAITING) {
+      Thread.sleep(1);
+    }
+    return thread;
+  }
+
+  @Test
+  public void testWeightedOrder() throws Exception {
+    final FairSendScheduler scheduler = new FairSendScheduler();
+    final List<String> sent = Collections.synchronizedList(Lists.<String>newArrayList());
+
+    // a batch being sent holds the others back, as a congested connection would
+    scheduler.acquire(queryId(1), 1, 1000);
+    final List<Thread> threads = Lists.newArrayList();
+    for (int i = 1; i <= 3; i++) {
+      threads.add(send(scheduler, sent, "etl" + i, queryId(2), 1, 1000));
+    }
+    for (int i = 1; i <= 3; i++) {
+      threads.add(send(scheduler, sent, "bi" + i, queryId(3), 10, 1000));
+    }
+    scheduler.sent();
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // the batches of the query with the larger weight pass the backlog of the other query
+    assertEquals(Lists.newArrayList("etl1", "bi1", "bi2", "bi3", "etl2", "etl3"), sent);
+  }
+
+  @Test
+  public void testInterrupted() throws Exception {
+    final FairSendScheduler scheduler = new FairSendScheduler();
+    final List<String> sent = Collections.synchronizedList(Lists.<String>newArrayList());
+
+    scheduler.acquire(queryId(1), 1, 1000);
+    final Thread first = send(scheduler, sent, "first", queryId(2), 1, 1000);
+    final Thread second = send(scheduler, sent, "second", queryId(3), 1, 1000);
+    final Thread third = send(scheduler, sent, "third", queryId(3), 1, 1000);
+    first.interrupt();
+    first.join();
+    // the query of the interrupted batch is not charged for it: its next batch goes before the third
+    final Thread again = send(scheduler, sent, "again", queryId(2), 1, 1000);
+    scheduler.sent();
+    second.join();
+    third.join();
+    again.join();
+    assertEquals(Lists.newArrayList("first interrupted", "second", "again", "third"), sent);
+
+    // the scheduler is free again
+    scheduler.acquire(queryId(1), 1, 1000);
+    scheduler.sent();
+  }
+
+  @Test
+  public void testConnectionPool() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .clusterSize(2)
+            .configProperty(ExecConstants.BIT_DATA_CONNECTIONS_PER_PEER, 3)
+            .sessionOption(ExecConstants.SLICE_TARGET, 1)
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      final long expected = client.queryBuilder().sql(QUERY).singletonLong();
+      assertTrue(expected > 0);
+      client.alterSession(ExecConstants.SEND_WEIGHT_KEY, 10);
+      assertEquals(expected, client.queryBuilder().sql(QUERY).singletonLong());
+    }
+  }
+}
@@ -0,0 +1,78 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.store.parquet.columnreaders;
+
+import org.apache.drill.BaseTestQuery;
+import org.apache.drill.exec.ExecConstants;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Compare the results of scans with the pages decompressed on the scan decode thread pool (ahead of the
+ * scan) and by the scan thread itself
+ */
+public class TestAsyncDecompression extends BaseTestQuery {
+
+  private void compare(String query) throws Exception {
+    testBuilder()
+        .sqlQuery(query)
+        .unOrdered()
+        .optionSettingQueriesForTestQuery(String.format("alter session set `%s` = true",
+            ExecConstants.PARQUET_PAGEREADER_ASYNC_DECOMPRESS))
+        .optionSettingQueriesForBaseline(String.format("alter session set `%s` = false",
+            ExecConstants.PARQUET_PAGEREADER_ASYNC_DECOMPRESS))
+        .sqlBaselineQuery(query)
+        .go();
+  }
+
+  @AfterClass
+  public static void resetOptions() throws Exception {
+    test("alter session reset `%s`", ExecConstants.PARQUET_PAGEREADER_ASYNC_DECOMPRESS);
+    test("alter session reset `%s`", ExecConstants.PARQUET_COLUMNREADER_ASYNC);
+  }
+
+  @Test
+  public void testScan() throws Exception {
+    compare("select * from cp.`tpch/lineitem.parquet`");
+    compare("select l_orderkey, l_comment from cp.`tpch/lineitem.parquet` where l_orderkey < 1000");
+  }
+
+  @Test
+  public void testAsyncColumnReaders() throws Exception {
+    // the column readers run on the decode thread pool too
+    test("alter session set `%s` = true", ExecConstants.PARQUET_COLUMNREADER_ASYNC);
+    compare("select * from cp.`tpch/lineitem.parquet`");
+    test("alter session reset `%s`", ExecConstants.PARQUET_COLUMNREADER_ASYNC);
+  }
+
+  @Test
+  public void testGzip() throws Exception {
+    final String table = "dfs_test.tmp.`lineitem_gzip`";
+    try {
+      test("alter session set `%s` = 'gzip'", ExecConstants.PARQUET_WRITER_COMPRESSION_TYPE);
+      test("alter session set `%s` = 4096", ExecConstants.PARQUET_PAGE_SIZE);
+      test("create table %s as select * from cp.`tpch/lineitem.parquet`", table);
+      compare("select * from " + table);
+      compare("select count(*) c, max(l_comment) m from " + table + " where l_linenumber = 2");
+    } finally {
+      test("alter session reset `%s`", ExecConstants.PARQUET_WRITER_COMPRESSION_TYPE);
+      test("alter session reset `%s`", ExecConstants.PARQUET_PAGE_SIZE);
+      test("drop table if exists %s", table);
+    }
+  }
+}
@@ -0,0 +1,165 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.store.parquet.columnreaders;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.apache.drill.BaseTestQuery;
+import org.apache.drill.exec.ExecConstants;
+import org.apache.drill.exec.proto.UserBitShared;
+import org.apache.drill.test.ClientFixture;
+import org.apache.drill.test.ClusterFixture;
+import org.apache.drill.test.ProfileParser;
+import org.apache.drill.test.QueryBuilder;
+import org.junit.AfterClass;
+import org.junit.Test;
+
+/**
+ * Compare the results of scans with and without late materialization (of the variable width columns
+ * that are not in the pushed down filter), and pruning of the pages with their statistics
+ */
+public class TestLateMaterialization extends BaseTestQuery {
+
+  private static final String LINEITEM = "select l_orderkey, l_linenumber, l_shipdate, l_returnflag, l_comment, " +
+      "l_shipinstruct from cp.`tpch/lineitem.parquet` where ";
+
+  private void compare(String query) throws Exception {
+    testBuilder()
+        .sqlQuery(query)
+        .unOrdered()
+        .optionSettingQueriesForTestQuery(String.format("alter session set `%s` = true",
+            ExecConstants.PARQUET_LATE_MATERIALIZATION))
+        .optionSettingQueriesForBaseline(String.format("alter session set `%s` = false",
+            ExecConstants.PARQUET_LATE_MATERIALIZATION))
+        .sqlBaselineQuery(query)
+        .go();
+  }
+
+  @AfterClass
+  public static void resetOption() throws Exception {
+    test(String.format("alter session reset `%s`", ExecConstants.PARQUET_LATE_MATERIALIZATION));
+  }
+
+  @Test
+  public void testFixedWidthFilterColumns() throws Exception {
+    compare(LINEITEM + "l_orderkey < 1000");
+    compare(LINEITEM + "l_orderkey between 10000 and 10100 and l_linenumber = 1");
+    compare(LINEITEM + "l_linenumber in (3, 7) and l_shipdate > date '1997-01-01'");
+  }
+
+  @Test
+  public void testVarCharFilterColumn() throws Exception {
+    // the filter column itself is read up front, the others late
+    compare(LINEITEM + "l_returnflag = 'R' and l_orderkey > 50000");
+    compare(LINEITEM + "l_shipinstruct in ('NONE', 'TAKE BACK RETURN')");
+  }
+
+  @Test
+  public void testPartialFilter() throws Exception {
+    // only the comparison of l_orderkey is evaluated by the reader
+    compare(LINEITEM + "l_orderkey < 5000 and l_comment like '%the%'");
+    compare("select l_comment from cp.`tpch/lineitem.parquet` where l_orderkey + 1 < 3000 or l_linenumber = 2");
+  }
+
+  @Test
+  public void testNoMatch() throws Exception {
+    // all the batches of the row group are read (and dropped) within one call to the reader
+    compare("select count(*) c, sum(char_length(l_comment)) s from cp.`tpch/lineitem.parquet` " +
+        "where l_orderkey > 1000000000");
+    compare("select count(*) c, sum(char_length(l_comment)) s from cp.`tpch/lineitem.parquet` " +
+        "where l_orderkey in (1, 60000)");
+  }
+
+  @Test
+  public void testPagePruning() throws Exception {
+    // small pages, with the rows sorted on l_orderkey (and so on the order dates)
+    final String table = "dfs_test.tmp.`lineitem_small_pages`";
+    try {
+      test("alter session set `%s` = 4096", ExecConstants.PARQUET_PAGE_SIZE);
+      test("create table %s as select l_orderkey, l_linenumber, " +
+          "date_add(date '1970-01-01', l_orderkey / 100) l_date, " +
+          "cast(date_add(date '1970-01-01', l_orderkey / 100) as timestamp) l_ts, l_extendedprice, l_comment " +
+          "from cp.`tpch/lineitem.parquet` order by l_orderkey", table);
+      final String select = "select l_orderkey, l_linenumber, l_date, l_extendedprice, l_comment from " + table +
+          " where ";
+      compare(select + "l_orderkey between 1000 and 2000");
+      compare(select + "l_orderkey in (10, 30000, 59000) and l_linenumber > 1");
+      compare(select + "l_date = date '1970-01-11'");
+      compare(select + "l_ts >= timestamp '1970-02-01 00:00:00' and l_orderkey < 50000");
+      compare(select + "l_extendedprice < 1000.0 and l_orderkey > 59000");
+      compare("select count(*) c from " + table + " where l_orderkey > 1000000");
+    } finally {
+      test("alter session reset `%s`", ExecConstants.PARQUET_PAGE_SIZE);
+      test("drop table if exists %s", table);
+    }
+  }
+
+  @Test
+  public void testPagesPruned() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(1)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      client.alterSession(ExecConstants.PARQUET_PAGE_SIZE, 4096);
+      client.queryBuilder().sql("create table dfs_test.tmp.`lineitem_sorted` as " +
+          "select l_orderkey, l_quantity, l_comment from cp.`tpch/lineitem.parquet` order by l_orderkey").run();
+      try {
+        final String sql = "select count(*) from dfs_test.tmp.`lineitem_sorted` where l_orderkey between 100 and 200";
+        client.alterSession(ExecConstants.PARQUET_LATE_MATERIALIZATION, false);
+        final long expected = client.queryBuilder().sql(sql).singletonLong();
+        client.alterSession(ExecConstants.PARQUET_LATE_MATERIALIZATION, true);
+        QueryBuilder.QuerySummary summary = client.queryBuilder().sql(sql).run();
+        ProfileParser profile = client.parseProfile(summary.queryIdString());
+        List<ProfileParser.OperatorProfile> ops =
+            profile.getOpsOfType(UserBitShared.CoreOperatorType.PARQUET_ROW_GROUP_SCAN_VALUE);
+        assertFalse(ops.isEmpty());
+        assertTrue(ops.get(0).getMetric(ParquetRecordReader.Metric.NUM_DATA_PAGES_PRUNED.ordinal()) > 0);
+        assertEquals(expected, client.queryBuilder().sql(sql).singletonLong());
+      } finally {
+        client.queryBuilder().sql("drop table if exists dfs_test.tmp.`lineitem_sorted`").run();
+      }
+    }
+  }
+
+  @Test
+  public void testRecordsFiltered() throws Exception {
+    try (ClusterFixture cluster = ClusterFixture.builder()
+            .maxParallelization(1)
+            .saveProfiles()
+            .build();
+         ClientFixture client = cluster.clientFixture()) {
+      final String sql = "select count(*) from cp.`tpch/lineitem.parquet` " +
+          "where l_orderkey < 100 and char_length(l_comment) > 10";
+      client.alterSession(ExecConstants.PARQUET_LATE_MATERIALIZATION, false);
+      final long expected = client.queryBuilder().sql(sql).singletonLong();
+      client.alterSession(ExecConstants.PARQUET_LATE_MATERIALIZATION, true);
+      QueryBuilder.QuerySummary summary = client.queryBuilder().sql(sql).run();
+      ProfileParser profile = client.parseProfile(summary.queryIdString());
+      List<ProfileParser.OperatorProfile> ops =
+          profile.getOpsOfType(UserBitShared.CoreOperatorType.PARQUET_ROW_GROUP_SCAN_VALUE);
+      assertFalse(ops.isEmpty());
+      assertTrue(ops.get(0).getMetric(ParquetRecordReader.Metric.NUM_RECORDS_FILTERED.ordinal()) > 0);
+      assertEquals(expected, client.queryBuilder().sql(sql).singletonLong());
+    }
+  }
+}
@@ -0,0 +1,59 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package io.netty.buffer;
+
+import io.netty.util.internal.PlatformDependent;
+
+import java.nio.MappedByteBuffer;
+
+/**
+ * A MutableWrappedByteBuf over a region of a file mapped in memory, which unmaps the region when released rather
+ * than waiting for the mapped buffer to be garbage collected.
+ */
+public class MappedBuffer extends MutableWrappedByteBuf {
+
+  private final MappedByteBuffer mapped;
+
+  /**
+   * @param mapped region of a file mapped in private (copy-on-write) mode, so writable
+   */
+  public MappedBuffer(MappedByteBuffer mapped) {
+    super(new UnpooledUnsafeDirectByteBuf(UnpooledByteBufAllocator.DEFAULT, mapped, mapped.remaining()));
+    this.mapped = mapped;
+  }
+
+  @Override
+  public ByteBuf copy(int index, int length) {
+    return unwrap().copy(index, length);
+  }
+
+  @Override
+  public boolean release() {
+    return release(1);
+  }
+
+  @Override
+  public boolean release(int decrement) {
+    boolean released = unwrap().release(decrement);
+    if (released) {
+      PlatformDependent.freeDirectBuffer(mapped);
+    }
+    return released;
+  }
+
+}
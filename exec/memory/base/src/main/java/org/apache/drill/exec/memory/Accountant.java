@@ -28,6 +28,11 @@ import com.google.common.base.Preconditions;
 /**
  * Provides a concurrent way to manage account for memory usage without locking. Used as basis for Allocators. All
  * operations are threadsafe (except for close).
+ *
+ * An Accountant may cache budget from its parent beyond its reservation: with a reservation chunk, the memory it needs
+ * from its parent is claimed a chunk at a time, and the memory it releases is kept (up to a chunk) for its next
+ * allocations. Allocations within the cache do not go up the parent chain. The parent accounts for the cached budget
+ * as allocated.
  */
 @ThreadSafe
 class Accountant implements AutoCloseable {
@@ -57,6 +62,17 @@ class Accountant implements AutoCloseable {
    */
   private final AtomicLong locallyHeldMemory = new AtomicLong();
 
+  /**
+   * Budget claimed from the parent beyond the reservation and not allocated yet.
+   */
+  private final AtomicLong cachedReservation = new AtomicLong();
+
+  /**
+   * Bytes of budget claimed from the parent at a time, and kept when released. 0 to claim and release the exact
+   * amounts.
+   */
+  private volatile long reservationChunk = Long.getLong(BaseAllocator.RESERVATION_CHUNK, 0);
+
   public Accountant(Accountant parent, long reservation, long maxAllocation) {
     Preconditions.checkArgument(reservation >= 0, "The initial reservation size must be non-negative.");
     Preconditions.checkArgument(maxAllocation >= 0, "The maximum allocation limit must be non-negative.");
@@ -93,6 +109,13 @@ class Accountant implements AutoCloseable {
     final AllocationOutcome outcome = allocate(size, true, false);
     if (!outcome.isOk()) {
       releaseBytes(size);
+      // short of memory: give the cached budget back to the parent
+      if (parent != null) {
+        final long cached = cachedReservation.getAndSet(0);
+        if (cached > 0) {
+          parent.releaseBytes(cached);
+        }
+      }
     }
     return outcome;
   }
@@ -155,7 +178,9 @@ class Accountant implements AutoCloseable {
     if (beyondReservation > 0 && parent != null) {
       // we need to get memory from our parent.
       final long parentRequest = Math.min(beyondReservation, size);
-      parentOutcome = parent.allocate(parentRequest, updatePeak, forceAllocation);
+      if (!takeCached(parentRequest)) {
+        parentOutcome = allocateFromParent(parentRequest, updatePeak, forceAllocation);
+      }
     }
 
     final AllocationOutcome finalOutcome = beyondLimit ? AllocationOutcome.FAILED_LOCAL :
@@ -168,6 +193,35 @@ class Accountant implements AutoCloseable {
     return finalOutcome;
   }
 
+  /**
+   * Satisfy the part of an allocation beyond the reservation from the cached budget, if it holds enough.
+   */
+  private boolean takeCached(long size) {
+    while (true) {
+      final long cached = cachedReservation.get();
+      if (cached < size) {
+        return false;
+      }
+      if (cachedReservation.compareAndSet(cached, cached - size)) {
+        return true;
+      }
+    }
+  }
+
+  private AllocationOutcome allocateFromParent(long size, boolean updatePeak, boolean forceAllocation) {
+    final long chunk = reservationChunk;
+    if (chunk > 0 && !forceAllocation) {
+      // claim a chunk more than needed for the next allocations; if the parent can't afford it, the exact amount
+      final AllocationOutcome outcome = parent.allocate(size + chunk, updatePeak, false);
+      if (outcome.isOk()) {
+        cachedReservation.addAndGet(chunk);
+        return outcome;
+      }
+      parent.releaseBytes(size + chunk);
+    }
+    return parent.allocate(size, updatePeak, forceAllocation);
+  }
+
   public void releaseBytes(long size) {
     // reduce local memory. all memory released above reservation should be released up the tree.
     final long newSize = locallyHeldMemory.addAndGet(-size);
@@ -179,11 +233,57 @@ class Accountant implements AutoCloseable {
       // we deallocated memory that we should release to our parent.
       final long possibleAmountToReleaseToParent = originalSize - reservation;
       final long actualToReleaseToParent = Math.min(size, possibleAmountToReleaseToParent);
-      parent.releaseBytes(actualToReleaseToParent);
+      if (reservationChunk > 0) {
+        // keep it for the next allocations, up to a chunk
+        cachedReservation.addAndGet(actualToReleaseToParent);
+        trimCachedReservation();
+      } else {
+        parent.releaseBytes(actualToReleaseToParent);
+      }
     }
 
   }
 
+  /**
+   * Release the cached budget above the reservation chunk to the parent.
+   */
+  private void trimCachedReservation() {
+    while (true) {
+      final long cached = cachedReservation.get();
+      final long chunk = reservationChunk;
+      if (cached <= chunk) {
+        return;
+      }
+      if (cachedReservation.compareAndSet(cached, chunk)) {
+        parent.releaseBytes(cached - chunk);
+        return;
+      }
+    }
+  }
+
+  /**
+   * Set the bytes of budget claimed from the parent at a time, and kept when released.
+   *
+   * @param chunk
+   *          The chunk in bytes, 0 to claim and release the exact amounts.
+   */
+  void setReservationChunk(long chunk) {
+    Preconditions.checkArgument(chunk >= 0, "The reservation chunk must be non-negative.");
+    reservationChunk = chunk;
+    if (parent != null) {
+      trimCachedReservation();
+    }
+  }
+
+  /**
+   * Return the budget claimed from the parent beyond the reservation and not allocated yet.
+   *
+   * @return Cached budget in bytes.
+   */
+  long getCachedReservation() {
+    return cachedReservation.get();
+  }
+
   /**
    * Set the maximum amount of memory that can be allocated in the this Accountant before failing an allocation.
    *
@@ -204,7 +304,7 @@ class Accountant implements AutoCloseable {
   public void close() {
     // return memory reservation to parent allocator.
     if (parent != null) {
-      parent.releaseBytes(reservation);
+      parent.releaseBytes(reservation + cachedReservation.getAndSet(0));
     }
   }
 
@@ -52,6 +52,10 @@ import com.google.common.base.Preconditions;
  * UnsafeDirectLittleEndian buffer allocation. As such, there will be thousands of these in a typical query. The
  * contention of acquiring a lock on AllocationManager should be very low.
  *
+ * The most frequent operations do not lock at all: retaining the owning ledger of a buffer for its own allocator, and
+ * releasing references of a ledger which do not release the ledger. Both change the reference count of the ledger by
+ * compare-and-set, as long as the ledger is referenced, so that a ledger is only ever released under the write lock.
+ *
  */
 public class AllocationManager {
   // private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(AllocationManager.class);
@@ -86,6 +90,20 @@ public class AllocationManager {
     this.size = underlying.capacity();
   }
 
+  /**
+   * Manage memory obtained elsewhere than from the pooled allocator, such as a region of a file mapped in memory. The
+   * memory is released through the underlying buffer once no allocator references it.
+   */
+  AllocationManager(BaseAllocator accountingAllocator, UnsafeDirectLittleEndian underlying) {
+    Preconditions.checkNotNull(accountingAllocator);
+    accountingAllocator.assertOpen();
+
+    this.root = accountingAllocator.root;
+    this.underlying = underlying;
+    this.owningLedger = associate(accountingAllocator, false);
+    this.size = underlying.capacity();
+  }
+
   /**
    * Associate the existing underlying buffer with a new allocator. This will increase the reference count to the
    * provided ledger by 1.
@@ -105,6 +123,12 @@ public class AllocationManager {
           "A buffer can only be associated between two allocators that share the same root.");
     }
 
+    // lock-free path: the allocator owns the buffer, and the ledger is referenced so won't be released under us
+    final BufferLedger owning = owningLedger;
+    if (retain && owning != null && owning.allocator == allocator && owning.incIfReferenced()) {
+      return owning;
+    }
+
     try (AutoCloseableLock read = readLock.open()) {
 
       final BufferLedger ledger = map.get(allocator);
@@ -301,6 +325,21 @@ public class AllocationManager {
       bufRefCnt.incrementAndGet();
     }
 
+    /**
+     * Increment the ledger's reference count, unless it is not referenced any more (and may be being released).
+     */
+    private boolean incIfReferenced() {
+      while (true) {
+        final int refCnt = bufRefCnt.get();
+        if (refCnt <= 0) {
+          return false;
+        }
+        if (bufRefCnt.compareAndSet(refCnt, refCnt + 1)) {
+          return true;
+        }
+      }
+    }
+
     /**
      * Decrement the ledger's reference count. If the ledger is decremented to zero, this ledger should release its
      * ownership back to the AllocationManager
@@ -308,6 +347,17 @@ public class AllocationManager {
     public int decrement(int decrement) {
       allocator.assertOpen();
 
+      // lock-free path: the ledger stays referenced
+      while (true) {
+        final int refCnt = bufRefCnt.get();
+        if (refCnt <= decrement) {
+          break;
+        }
+        if (bufRefCnt.compareAndSet(refCnt, refCnt - decrement)) {
+          return refCnt - decrement;
+        }
+      }
+
       final int outcome;
       try (AutoCloseableLock write = writeLock.open()) {
         outcome = bufRefCnt.addAndGet(-decrement);
@@ -19,11 +19,14 @@ package org.apache.drill.exec.memory;
 
 import io.netty.buffer.ByteBufAllocator;
 import io.netty.buffer.DrillBuf;
+import io.netty.buffer.MappedBuffer;
 import io.netty.buffer.UnsafeDirectLittleEndian;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
 import java.util.Arrays;
 import java.util.IdentityHashMap;
 import java.util.Set;
@@ -42,6 +45,11 @@ public abstract class BaseAllocator extends Accountant implements BufferAllocato
   private static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(BaseAllocator.class);
 
   public static final String DEBUG_ALLOCATOR = "drill.memory.debug.allocator";
+  /**
+   * System property for the bytes of budget each allocator claims from its parent at a time, and keeps when released
+   * (see {@link Accountant}). 0, the default, claims and releases the exact amounts.
+   */
+  public static final String RESERVATION_CHUNK = "drill.memory.allocator.reservation_chunk";
 
   @SuppressWarnings("unused")
   private static final AtomicLong ID_GENERATOR = new AtomicLong(0);
@@ -626,7 +634,8 @@ public abstract class BaseAllocator extends Accountant implements BufferAllocato
        */
       long childTotal = 0;
       for (final BaseAllocator childAllocator : childSet) {
-        childTotal += Math.max(childAllocator.getAllocatedMemory(), childAllocator.reservation);
+        childTotal += Math.max(childAllocator.getAllocatedMemory(), childAllocator.reservation)
+            + childAllocator.getCachedReservation();
       }
       if (childTotal > getAllocatedMemory()) {
         historicalLog.logHistory(logger);
@@ -839,6 +848,34 @@ public abstract class BaseAllocator extends Accountant implements BufferAllocato
     }
   }
 
+  @Override
+  public DrillBuf map(FileChannel channel, long position, int length) throws IOException {
+    assertOpen();
+
+    Preconditions.checkArgument(length > 0, "the mapped length must be positive");
+
+    AllocationOutcome outcome = this.allocateBytes(length);
+    if (!outcome.isOk()) {
+      throw new OutOfMemoryException(createErrorMsg(this, length, length));
+    }
+
+    boolean success = false;
+    try {
+      final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.PRIVATE, position, length);
+      final AllocationManager manager =
+          new AllocationManager(this, new UnsafeDirectLittleEndian(new MappedBuffer(mapped)));
+      final BufferLedger ledger = manager.associate(this); // +1 ref cnt (required)
+      final DrillBuf buffer = ledger.newDrillBuf(0, length, null);
+      buffer.writerIndex(length);
+      success = true;
+      return buffer;
+    } finally {
+      if (!success) {
+        releaseBytes(length);
+      }
+    }
+  }
+
   @Override
   public void write(DrillBuf buf, OutputStream out) throws IOException {
     assert(buf.readerIndex() == 0);
@@ -23,6 +23,7 @@ import io.netty.buffer.DrillBuf;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.nio.channels.FileChannel;
 
 import org.apache.drill.exec.exception.OutOfMemoryException;
 import org.apache.drill.exec.ops.BufferManager;
@@ -210,4 +211,21 @@ public interface BufferAllocator extends AutoCloseable {
    */
 
   public DrillBuf read(int length, InputStream in) throws IOException;
+
+  /**
+   * Maps a region of a file in memory as a new DrillBuf, rather than reading
+   * it. The region is mapped in private (copy-on-write) mode: the buffer is
+   * writable, but writes to it do not reach the file. The region counts
+   * against the memory of this allocator like a buffer of its length, and is
+   * unmapped when the buffer is released.
+   *
+   * @param channel channel of the file, open for reading and writing
+   * @param position position of the region in the file
+   * @param length number of bytes of the region
+   * @return the buffer over the region
+   * @throws OutOfMemoryException if the allocator can't account for the region
+   * @throws IOException if the region can't be mapped
+   */
+
+  public DrillBuf map(FileChannel channel, long position, int length) throws IOException;
 }
@@ -0,0 +1,126 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one
+ * or more contributor license agreements.  See the NOTICE file
+ * distributed with this work for additional information
+ * regarding copyright ownership.  The ASF licenses this file
+ * to you under the Apache License, Version 2.0 (the
+ * "License"); you may not use this file except in compliance
+ * with the License.  You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.drill.exec.memory;
+
+import io.netty.buffer.DrillBuf;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Throughput of small allocations from the allocators of concurrent fragments: each thread allocates from its own
+ * child of an allocator shared by all the threads, as the operators of the fragments of a query do, with and
+ * without a reservation chunk.
+ * <p>
+ * Not run with the unit tests; run {@link #main(String[])} from the test classpath.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class AllocatorBenchmark {
+
+  private static final int[] THREADS = { 1, 2, 4, 8, 16, 32, 64 };
+
+  @State(Scope.Benchmark)
+  public static class SharedAllocator {
+
+    @Param({ "0", "1048576" })
+    public long reservationChunk;
+
+    @Param({ "256", "4096" })
+    public int bufferSize;
+
+    private RootAllocator root;
+    private BufferAllocator query;
+
+    @Setup(Level.Trial)
+    public void setup() {
+      root = new RootAllocator(Long.MAX_VALUE);
+      query = root.newChildAllocator("query", 0, Long.MAX_VALUE);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      query.close();
+      root.close();
+    }
+  }
+
+  @State(Scope.Thread)
+  public static class FragmentAllocator {
+
+    private BufferAllocator allocator;
+    private int bufferSize;
+
+    @Setup(Level.Trial)
+    public void setup(SharedAllocator shared) {
+      allocator = shared.query.newChildAllocator("fragment-" + Thread.currentThread().getId(), 0, Long.MAX_VALUE);
+      ((BaseAllocator) allocator).setReservationChunk(shared.reservationChunk);
+      bufferSize = shared.bufferSize;
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+      allocator.close();
+    }
+  }
+
+  @Benchmark
+  public void allocateRelease(FragmentAllocator fragment) {
+    final DrillBuf buf = fragment.allocator.buffer(fragment.bufferSize);
+    buf.release();
+  }
+
+  @Benchmark
+  public void retainRelease(FragmentAllocator fragment) {
+    final DrillBuf buf = fragment.allocator.buffer(fragment.bufferSize);
+    // a second consumer of the buffer in the same fragment, as a transfer of vectors between operators does
+    final DrillBuf retained = buf.retain(fragment.allocator);
+    buf.release();
+    retained.release();
+  }
+
+  public static void main(String[] args) throws RunnerException {
+    for (int threads : THREADS) {
+      final Options options = new OptionsBuilder()
+          .include(AllocatorBenchmark.class.getSimpleName())
+          .threads(threads)
+          .build();
+      new Runner(options).run();
+    }
+  }
+}
@@ -72,6 +72,111 @@ public class TestAccountant {
     assertEquals(0, parent.getAllocatedMemory());
   }
 
+  @Test
+  public void reservationChunk() {
+    final Accountant parent = new Accountant(null, 0, 100);
+    final Accountant child = new Accountant(parent, 2, Long.MAX_VALUE);
+    child.setReservationChunk(10);
+    assertEquals(2, parent.getAllocatedMemory());
+
+    // within the reservation
+    assertEquals(AllocationOutcome.SUCCESS, child.allocateBytes(1));
+    assertEquals(2, parent.getAllocatedMemory());
+    assertEquals(0, child.getCachedReservation());
+
+    // beyond the reservation: a chunk more is claimed from the parent
+    assertEquals(AllocationOutcome.SUCCESS, child.allocateBytes(3));
+    assertEquals(4, child.getAllocatedMemory());
+    assertEquals(14, parent.getAllocatedMemory());
+    assertEquals(10, child.getCachedReservation());
+
+    // satisfied from the cache
+    assertEquals(AllocationOutcome.SUCCESS, child.allocateBytes(5));
+    assertEquals(9, child.getAllocatedMemory());
+    assertEquals(14, parent.getAllocatedMemory());
+    assertEquals(5, child.getCachedReservation());
+
+    // released to the cache, up to a chunk
+    child.releaseBytes(9);
+    assertEquals(0, child.getAllocatedMemory());
+    assertEquals(10, child.getCachedReservation());
+    assertEquals(12, parent.getAllocatedMemory());
+
+    child.setReservationChunk(0);
+    assertEquals(0, child.getCachedReservation());
+    assertEquals(2, parent.getAllocatedMemory());
+
+    child.close();
+    assertEquals(0, parent.getAllocatedMemory());
+    parent.close();
+  }
+
+  @Test
+  public void reservationChunkShortOfMemory() {
+    final Accountant parent = new Accountant(null, 0, 20);
+    final Accountant child = new Accountant(parent, 0, Long.MAX_VALUE);
+    child.setReservationChunk(10);
+
+    // the parent can't afford the chunk: the exact amount is claimed
+    assertEquals(AllocationOutcome.SUCCESS, child.allocateBytes(15));
+    assertEquals(15, parent.getAllocatedMemory());
+    assertEquals(0, child.getCachedReservation());
+
+    // a failed allocation gives the cache back to the parent
+    assertEquals(AllocationOutcome.FAILED_PARENT, child.allocateBytes(10));
+    assertEquals(15, child.getAllocatedMemory());
+    assertEquals(15, parent.getAllocatedMemory());
+    assertEquals(0, child.getCachedReservation());
+
+    child.releaseBytes(15);
+    assertEquals(10, child.getCachedReservation());
+    assertEquals(10, parent.getAllocatedMemory());
+
+    child.close();
+    assertEquals(0, parent.getAllocatedMemory());
+    parent.close();
+  }
+
+  @Test
+  public void reservationChunkMultiThread() throws InterruptedException {
+    final Accountant parent = new Accountant(null, 0, Long.MAX_VALUE);
+    final Accountant child = new Accountant(parent, 0, Long.MAX_VALUE);
+    child.setReservationChunk(1000);
+
+    final int numberOfThreads = 32;
+    final int loops = 1000;
+    Thread[] threads = new Thread[numberOfThreads];
+
+    for (int i = 0; i < numberOfThreads; i++) {
+      final int size = i + 1;
+      Thread t = new Thread() {
+
+        @Override
+        public void run() {
+          for (int i = 0; i < loops; i++) {
+            assertEquals(AllocationOutcome.SUCCESS, child.allocateBytes(size));
+            child.releaseBytes(size);
+          }
+        }
+
+      };
+      threads[i] = t;
+      t.start();
+    }
+
+    for (Thread thread : threads) {
+      thread.join();
+    }
+
+    // the parent accounts for the cache only
+    assertEquals(0, child.getAllocatedMemory());
+    assertEquals(child.getCachedReservation(), parent.getAllocatedMemory());
+    Assert.assertTrue(child.getCachedReservation() <= 1000);
+
+    child.close();
+    assertEquals(0, parent.getAllocatedMemory());
+  }
+
   private void ensureAccurateReservations(Accountant outsideParent) {
     final Accountant parent = new Accountant(outsideParent, 0, 10);
     assertEquals(0, parent.getAllocatedMemory());
@@ -26,7 +26,6 @@ import java.util.List;
 
 import org.apache.drill.exec.memory.BufferAllocator;
 
-import com.google.protobuf.CodedInputStream;
 import org.apache.drill.exec.exception.OutOfMemoryException;
 
 /**
@@ -36,6 +35,9 @@ import org.apache.drill.exec.exception.OutOfMemoryException;
 public class ProtobufLengthDecoder extends ByteToMessageDecoder {
   static final org.slf4j.Logger logger = org.slf4j.LoggerFactory.getLogger(ProtobufLengthDecoder.class);
 
+  // bytes of a varint of 32 bits
+  private static final int MAX_LENGTH_BYTES = 5;
+
   private BufferAllocator allocator;
   private OutOfMemoryHandler outOfMemoryHandler;
 
@@ -57,17 +59,17 @@ public class ProtobufLengthDecoder extends ByteToMessageDecoder {
     }
 
     in.markReaderIndex();
-    final byte[] buf = new byte[5];
-    for (int i = 0; i < buf.length; i++) {
+    // the length is read as a varint straight from the incoming buffer
+    int length = 0;
+    for (int i = 0; i < MAX_LENGTH_BYTES; i++) {
       if (!in.isReadable()) {
         in.resetReaderIndex();
         return;
       }
 
-      buf[i] = in.readByte();
-      if (buf[i] >= 0) {
-
-        int length = CodedInputStream.newInstance(buf, 0, i + 1).readRawVarint32();
+      final byte b = in.readByte();
+      length |= (b & 0x7f) << (7 * i);
+      if (b >= 0) {
 
         if (length < 0) {
           throw new CorruptedFrameException("negative length: " + length);
@@ -39,6 +39,9 @@ public class RpcConstants {
   public static final String LENGTH_DECODER_HANDLER = "length-decoder";
   public static final String CHUNK_CREATION_HANDLER = "chunk-creation-handler";
 
+  // prefix of the counters of the messages encoded and decoded, by connection name
+  public static final String CODEC_COUNTER_PREFIX = "drill.codec.rpc.";
+
 
 
   // GSSAPI RFC 2222 allows only 3 octets to specify the length of maximum encoded buffer each side can receive.
@@ -18,27 +18,48 @@
 package org.apache.drill.exec.rpc;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufInputStream;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.CorruptedFrameException;
 import io.netty.handler.codec.MessageToMessageDecoder;
 
-import java.io.IOException;
 import java.util.List;
 import java.util.concurrent.atomic.AtomicLong;
 
+import org.apache.drill.exec.metrics.DrillMetrics;
 import org.apache.drill.exec.proto.GeneralRPCProtos.RpcHeader;
+import org.apache.drill.exec.proto.GeneralRPCProtos.RpcMode;
+
+import com.codahale.metrics.Counter;
+import com.google.protobuf.WireFormat;
 
 /**
  * Converts a previously length adjusted buffer into an RpcMessage.
+ * <p>
+ * The RpcHeader is read field by field from the buffer, without parsing it into a message, and the bodies are slices
+ * of the buffer.
  */
 class RpcDecoder extends MessageToMessageDecoder<ByteBuf> {
   final org.slf4j.Logger logger;
 
+  // the wire type in the low bits of a tag, as in WireFormat where it isn't public
+  static final int TAG_TYPE_MASK = 7;
+  static final int MODE_TAG = RpcEncoder.makeTag(RpcHeader.MODE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+  static final int COORDINATION_ID_TAG =
+      RpcEncoder.makeTag(RpcHeader.COORDINATION_ID_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+  static final int RPC_TYPE_TAG = RpcEncoder.makeTag(RpcHeader.RPC_TYPE_FIELD_NUMBER, WireFormat.WIRETYPE_VARINT);
+
   private final AtomicLong messageCounter = new AtomicLong();
+  private final Counter decodedCounter;
 
   public RpcDecoder(String name) {
     this.logger = org.slf4j.LoggerFactory.getLogger(RpcDecoder.class.getCanonicalName() + "-" + name);
+    this.decodedCounter = DrillMetrics.getRegistry().counter(RpcConstants.CODEC_COUNTER_PREFIX + name + ".decoded");
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    logger.debug("Decoded {} messages on channel {}.", messageCounter.get(), ctx.channel());
+    super.handlerRemoved(ctx);
   }
 
 
@@ -53,21 +74,41 @@ class RpcDecoder extends MessageToMessageDecoder<ByteBuf> {
     }
 
     // now, we know the entire message is in the buffer and the buffer is constrained to this message. Additionally,
-    // this process should avoid reading beyond the end of this buffer so we inform the ByteBufInputStream to throw an
-    // exception if be go beyond readable bytes (as opposed to blocking).
-    final ByteBufInputStream is = new ByteBufInputStream(buffer, buffer.readableBytes());
+    // this process should avoid reading beyond the end of this buffer: the buffer throws an exception if we go beyond
+    // its readable bytes.
 
     // read the rpc header, saved in delimited format.
-    checkTag(is, RpcEncoder.HEADER_TAG);
-    final RpcHeader header = RpcHeader.parseDelimitedFrom(is);
+    checkTag(buffer, RpcEncoder.HEADER_TAG);
+    final int headerEnd = readRawVarint32(buffer) + buffer.readerIndex();
+    if (headerEnd > buffer.writerIndex()) {
+      throw new CorruptedFrameException("The rpc header goes beyond the end of the message.");
+    }
+    RpcMode mode = RpcHeader.getDefaultInstance().getMode();
+    int coordinationId = 0;
+    int rpcType = 0;
+    while (buffer.readerIndex() < headerEnd) {
+      final int tag = readRawVarint32(buffer);
+      if (tag == MODE_TAG) {
+        mode = RpcMode.valueOf(readRawVarint32(buffer));
+        if (mode == null) {
+          throw new CorruptedFrameException("Received an unknown rpc mode.");
+        }
+      } else if (tag == COORDINATION_ID_TAG) {
+        coordinationId = readRawVarint32(buffer);
+      } else if (tag == RPC_TYPE_TAG) {
+        rpcType = readRawVarint32(buffer);
+      } else {
+        skipField(buffer, tag);
+      }
+    }
 
     if (RpcConstants.EXTRA_DEBUGGING) {
       logger.debug(" post header read index {}", buffer.readerIndex());
     }
 
     // read the protobuf body into a buffer.
-    checkTag(is, RpcEncoder.PROTOBUF_BODY_TAG);
-    final int pBodyLength = readRawVarint32(is);
+    checkTag(buffer, RpcEncoder.PROTOBUF_BODY_TAG);
+    final int pBodyLength = readRawVarint32(buffer);
     final ByteBuf pBody = buffer.slice(buffer.readerIndex(), pBodyLength);
     buffer.skipBytes(pBodyLength);
     pBody.retain(1);
@@ -86,10 +127,10 @@ class RpcDecoder extends MessageToMessageDecoder<ByteBuf> {
     if (buffer.readableBytes() > 0) {
 
       if (RpcConstants.EXTRA_DEBUGGING) {
-        logger.debug("Reading raw body, buffer has {} bytes available, is available {}.", buffer.readableBytes(), is.available());
+        logger.debug("Reading raw body, buffer has {} bytes available.", buffer.readableBytes());
       }
-      checkTag(is, RpcEncoder.RAW_BODY_TAG);
-      dBodyLength = readRawVarint32(is);
+      checkTag(buffer, RpcEncoder.RAW_BODY_TAG);
+      dBodyLength = readRawVarint32(buffer);
       if (buffer.readableBytes() != dBodyLength) {
         throw new CorruptedFrameException(String.format("Expected to receive a raw body of %d bytes but received a buffer with %d bytes.", dBodyLength, buffer.readableBytes()));
       }
@@ -107,12 +148,12 @@ class RpcDecoder extends MessageToMessageDecoder<ByteBuf> {
 
 
     // return the rpc message.
-    InboundRpcMessage m = new InboundRpcMessage(header.getMode(), header.getRpcType(), header.getCoordinationId(),
-        pBody, dBody);
+    InboundRpcMessage m = new InboundRpcMessage(mode, rpcType, coordinationId, pBody, dBody);
 
     // move the reader index forward so the next rpc call won't try to work with it.
     buffer.skipBytes(dBodyLength);
     messageCounter.incrementAndGet();
+    decodedCounter.inc();
     if (RpcConstants.SOME_DEBUGGING) {
       logger.debug("Inbound Rpc Message Decoded {}.", m);
     }
@@ -120,37 +161,59 @@ class RpcDecoder extends MessageToMessageDecoder<ByteBuf> {
 
   }
 
-  private void checkTag(ByteBufInputStream is, int expectedTag) throws IOException {
-    int actualTag = readRawVarint32(is);
+  private void checkTag(ByteBuf buffer, int expectedTag) {
+    int actualTag = readRawVarint32(buffer);
     if (actualTag != expectedTag) {
       throw new CorruptedFrameException(String.format("Expected to read a tag of %d but actually received a value of %d.  Happened after reading %d message.", expectedTag, actualTag, messageCounter.get()));
     }
   }
 
+  /**
+   * Skips an unknown field of the rpc header, as protobuf would.
+   */
+  private static void skipField(ByteBuf buffer, int tag) {
+    switch (tag & TAG_TYPE_MASK) {
+    case WireFormat.WIRETYPE_VARINT:
+      readRawVarint32(buffer);
+      break;
+    case WireFormat.WIRETYPE_FIXED64:
+      buffer.skipBytes(8);
+      break;
+    case WireFormat.WIRETYPE_LENGTH_DELIMITED:
+      buffer.skipBytes(readRawVarint32(buffer));
+      break;
+    case WireFormat.WIRETYPE_FIXED32:
+      buffer.skipBytes(4);
+      break;
+    default:
+      throw new CorruptedFrameException(String.format("Received an rpc header with a field of tag %d.", tag));
+    }
+  }
+
   // Taken from CodedInputStream and modified to enable ByteBufInterface.
-  public static int readRawVarint32(ByteBufInputStream is) throws IOException {
-    byte tmp = is.readByte();
+  public static int readRawVarint32(ByteBuf buffer) {
+    byte tmp = buffer.readByte();
     if (tmp >= 0) {
       return tmp;
     }
     int result = tmp & 0x7f;
-    if ((tmp = is.readByte()) >= 0) {
+    if ((tmp = buffer.readByte()) >= 0) {
       result |= tmp << 7;
     } else {
       result |= (tmp & 0x7f) << 7;
-      if ((tmp = is.readByte()) >= 0) {
+      if ((tmp = buffer.readByte()) >= 0) {
         result |= tmp << 14;
       } else {
         result |= (tmp & 0x7f) << 14;
-        if ((tmp = is.readByte()) >= 0) {
+        if ((tmp = buffer.readByte()) >= 0) {
           result |= tmp << 21;
         } else {
           result |= (tmp & 0x7f) << 21;
-          result |= (tmp = is.readByte()) << 28;
+          result |= (tmp = buffer.readByte()) << 28;
           if (tmp < 0) {
             // Discard upper 32 bits.
             for (int i = 0; i < 5; i++) {
-              if (is.readByte() >= 0) {
+              if (buffer.readByte() >= 0) {
                 return result;
               }
             }
@@ -18,7 +18,6 @@
 package org.apache.drill.exec.rpc;
 
 import io.netty.buffer.ByteBuf;
-import io.netty.buffer.ByteBufOutputStream;
 import io.netty.buffer.CompositeByteBuf;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.handler.codec.MessageToMessageEncoder;
@@ -26,14 +25,20 @@ import io.netty.handler.codec.MessageToMessageEncoder;
 import java.io.OutputStream;
 import java.util.List;
 
+import org.apache.drill.exec.metrics.DrillMetrics;
 import org.apache.drill.exec.proto.GeneralRPCProtos.CompleteRpcMessage;
 import org.apache.drill.exec.proto.GeneralRPCProtos.RpcHeader;
 
+import com.codahale.metrics.Counter;
 import com.google.protobuf.CodedOutputStream;
 import com.google.protobuf.WireFormat;
 
 /**
  * Converts an RPCMessage into wire format.
+ * <p>
+ * The header and protobuf body of a message are written into a pooled direct buffer of their exact size, through a
+ * stream reused for all the messages of the channel: the RpcHeader is written field by field rather than built, so
+ * that encoding a message allocates nothing on the heap.
  */
 class RpcEncoder extends MessageToMessageEncoder<OutboundRpcMessage>{
   final org.slf4j.Logger logger;
@@ -45,8 +50,30 @@ class RpcEncoder extends MessageToMessageEncoder<OutboundRpcMessage>{
   static final int PROTOBUF_BODY_TAG_LENGTH = getRawVarintSize(PROTOBUF_BODY_TAG);
   static final int RAW_BODY_TAG_LENGTH = getRawVarintSize(RAW_BODY_TAG);
 
+  // buffer of the coded stream, enough for the header and most protobuf bodies
+  private static final int CODED_BUFFER_SIZE = 256;
+
+  private final BufOutputStream bufStream = new BufOutputStream();
+  private CodedOutputStream cos = CodedOutputStream.newInstance(bufStream, CODED_BUFFER_SIZE);
+
+  private final Counter messageCounter;
+  private final Counter protobufBytesCounter;
+  // messages encoded, and bytes of the buffers allocated for their headers and protobuf bodies, on this channel
+  private long messages;
+  private long protobufBytes;
+
   public RpcEncoder(String name) {
     this.logger = org.slf4j.LoggerFactory.getLogger(RpcEncoder.class.getCanonicalName() + "-" + name);
+    this.messageCounter = DrillMetrics.getRegistry().counter(RpcConstants.CODEC_COUNTER_PREFIX + name + ".encoded");
+    this.protobufBytesCounter =
+        DrillMetrics.getRegistry().counter(RpcConstants.CODEC_COUNTER_PREFIX + name + ".protobuf_bytes");
+  }
+
+  @Override
+  public void handlerRemoved(ChannelHandlerContext ctx) throws Exception {
+    logger.debug("Encoded {} messages with {} bytes of headers and protobuf bodies on channel {}.", messages,
+        protobufBytes, ctx.channel());
+    super.handlerRemoved(ctx);
   }
 
   @Override
@@ -66,62 +93,75 @@ class RpcEncoder extends MessageToMessageEncoder<OutboundRpcMessage>{
       if (RpcConstants.EXTRA_DEBUGGING) {
         logger.debug("Encoding outbound message {}", msg);
       }
-      // first we build the RpcHeader
-      RpcHeader header = RpcHeader.newBuilder() //
-          .setMode(msg.mode) //
-          .setCoordinationId(msg.coordinationId) //
-          .setRpcType(msg.rpcType).build();
-
-      // figure out the full length
-      int headerLength = header.getSerializedSize();
+      // figure out the full length, the header fields being serialized as RpcHeader would
+      int headerLength = //
+          CodedOutputStream.computeEnumSize(RpcHeader.MODE_FIELD_NUMBER, msg.mode.getNumber()) + //
+          CodedOutputStream.computeInt32Size(RpcHeader.COORDINATION_ID_FIELD_NUMBER, msg.coordinationId) + //
+          CodedOutputStream.computeInt32Size(RpcHeader.RPC_TYPE_FIELD_NUMBER, msg.rpcType);
       int protoBodyLength = msg.pBody.getSerializedSize();
       int rawBodyLength = msg.getRawBodySize();
       int fullLength = //
           HEADER_TAG_LENGTH + getRawVarintSize(headerLength) + headerLength +   //
           PROTOBUF_BODY_TAG_LENGTH + getRawVarintSize(protoBodyLength) + protoBodyLength; //
 
+      int bufLength = getRawVarintSize(fullLength) + fullLength;
       if (rawBodyLength > 0) {
         fullLength += (RAW_BODY_TAG_LENGTH + getRawVarintSize(rawBodyLength) + rawBodyLength);
+        bufLength = getRawVarintSize(fullLength) + fullLength - rawBodyLength;
       }
 
-      ByteBuf buf = ctx.alloc().buffer();
-      OutputStream os = new ByteBufOutputStream(buf);
-      CodedOutputStream cos = CodedOutputStream.newInstance(os);
-
-      // write full length first (this is length delimited stream).
-      cos.writeRawVarint32(fullLength);
-
-      // write header
-      cos.writeRawVarint32(HEADER_TAG);
-      cos.writeRawVarint32(headerLength);
-      header.writeTo(cos);
-
-      // write protobuf body length and body
-      cos.writeRawVarint32(PROTOBUF_BODY_TAG);
-      cos.writeRawVarint32(protoBodyLength);
-      msg.pBody.writeTo(cos);
+      ByteBuf buf = ctx.alloc().ioBuffer(bufLength);
+      bufStream.buf = buf;
+      messages++;
+      protobufBytes += bufLength;
+      messageCounter.inc();
+      protobufBytesCounter.inc(bufLength);
+
+      try {
+        // write full length first (this is length delimited stream).
+        cos.writeRawVarint32(fullLength);
+
+        // write header
+        cos.writeRawVarint32(HEADER_TAG);
+        cos.writeRawVarint32(headerLength);
+        cos.writeEnum(RpcHeader.MODE_FIELD_NUMBER, msg.mode.getNumber());
+        cos.writeInt32(RpcHeader.COORDINATION_ID_FIELD_NUMBER, msg.coordinationId);
+        cos.writeInt32(RpcHeader.RPC_TYPE_FIELD_NUMBER, msg.rpcType);
+
+        // write protobuf body length and body
+        cos.writeRawVarint32(PROTOBUF_BODY_TAG);
+        cos.writeRawVarint32(protoBodyLength);
+        msg.pBody.writeTo(cos);
+
+        // if exists, write data body tag.
+        if (rawBodyLength > 0) {
+          cos.writeRawVarint32(RAW_BODY_TAG);
+          cos.writeRawVarint32(rawBodyLength);
+        }
+        cos.flush(); // need to flush so that dbody goes after if cos is caching.
+      } catch (Exception e) {
+        // the coded stream may hold part of this message, do not let it reach the next one
+        cos = CodedOutputStream.newInstance(bufStream, CODED_BUFFER_SIZE);
+        buf.release();
+        throw e;
+      }
 
-      // if exists, write data body and tag.
-      if (msg.getRawBodySize() > 0) {
+      // if exists, add data body.
+      if (rawBodyLength > 0) {
         if(RpcConstants.EXTRA_DEBUGGING) {
-          logger.debug("Writing raw body of size {}", msg.getRawBodySize());
+          logger.debug("Writing raw body of size {}", rawBodyLength);
         }
 
-        cos.writeRawVarint32(RAW_BODY_TAG);
-        cos.writeRawVarint32(rawBodyLength);
-        cos.flush(); // need to flush so that dbody goes after if cos is caching.
-
         final CompositeByteBuf cbb = ctx.alloc().compositeBuffer(msg.dBodies.length + 1);
         cbb.addComponent(buf);
-        int bufLength = buf.readableBytes();
+        int cbbLength = buf.readableBytes();
         for (ByteBuf b : msg.dBodies) {
           cbb.addComponent(b);
-          bufLength += b.readableBytes();
+          cbbLength += b.readableBytes();
         }
-        cbb.writerIndex(bufLength);
+        cbb.writerIndex(cbbLength);
         out.add(cbb);
       } else {
-        cos.flush();
         out.add(buf);
       }
 
@@ -132,11 +172,29 @@ class RpcEncoder extends MessageToMessageEncoder<OutboundRpcMessage>{
         logger.debug("Sent message.  Ending writer index was {}.", buf.writerIndex());
       }
     } finally {
+      bufStream.buf = null;
       // make sure to release Rpc Messages underlying byte buffers.
       //msg.release();
     }
   }
 
+  /**
+   * Stream writing to the buffer of the message being encoded, flushed into by the coded stream.
+   */
+  private static class BufOutputStream extends OutputStream {
+    private ByteBuf buf;
+
+    @Override
+    public void write(int b) {
+      buf.writeByte(b);
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      buf.writeBytes(b, off, len);
+    }
+  }
+
   /** Makes a tag value given a field number and wire type, copied from WireFormat since it isn't public.  */
   static int makeTag(final int fieldNumber, final int wireType) {
     return (fieldNumber << 3) | wireType;
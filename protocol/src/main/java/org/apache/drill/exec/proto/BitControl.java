@@ -102,6 +102,14 @@ public final class BitControl {
      * <code>REQ_CUSTOM = 17;</code>
      */
     REQ_CUSTOM(11, 17),
+    /**
+     * <code>REQ_RUNTIME_FILTER = 20;</code>
+     *
+     * <pre>
+     * send a runtime filter to a fragment, returns Ack
+     * </pre>
+     */
+    REQ_RUNTIME_FILTER(12, 20),
     /**
      * <code>RESP_FRAGMENT_HANDLE = 11;</code>
      *
@@ -109,23 +117,23 @@ public final class BitControl {
      * bit responses
      * </pre>
      */
-    RESP_FRAGMENT_HANDLE(12, 11),
+    RESP_FRAGMENT_HANDLE(13, 11),
     /**
      * <code>RESP_FRAGMENT_STATUS = 12;</code>
      */
-    RESP_FRAGMENT_STATUS(13, 12),
+    RESP_FRAGMENT_STATUS(14, 12),
     /**
      * <code>RESP_BIT_STATUS = 13;</code>
      */
-    RESP_BIT_STATUS(14, 13),
+    RESP_BIT_STATUS(15, 13),
     /**
      * <code>RESP_QUERY_STATUS = 14;</code>
      */
-    RESP_QUERY_STATUS(15, 14),
+    RESP_QUERY_STATUS(16, 14),
     /**
      * <code>RESP_CUSTOM = 18;</code>
      */
-    RESP_CUSTOM(16, 18),
+    RESP_CUSTOM(17, 18),
     /**
      * <code>SASL_MESSAGE = 19;</code>
      *
@@ -133,7 +141,7 @@ public final class BitControl {
      * both bit request and response
      * </pre>
      */
-    SASL_MESSAGE(17, 19),
+    SASL_MESSAGE(18, 19),
     ;
 
     /**
@@ -204,6 +212,14 @@ public final class BitControl {
      * <code>REQ_CUSTOM = 17;</code>
      */
     public static final int REQ_CUSTOM_VALUE = 17;
+    /**
+     * <code>REQ_RUNTIME_FILTER = 20;</code>
+     *
+     * <pre>
+     * send a runtime filter to a fragment, returns Ack
+     * </pre>
+     */
+    public static final int REQ_RUNTIME_FILTER_VALUE = 20;
     /**
      * <code>RESP_FRAGMENT_HANDLE = 11;</code>
      *
@@ -254,6 +270,7 @@ public final class BitControl {
         case 15: return REQ_QUERY_CANCEL;
         case 16: return REQ_UNPAUSE_FRAGMENT;
         case 17: return REQ_CUSTOM;
+        case 20: return REQ_RUNTIME_FILTER;
         case 11: return RESP_FRAGMENT_HANDLE;
         case 12: return RESP_FRAGMENT_STATUS;
         case 13: return RESP_BIT_STATUS;
@@ -9421,13 +9438,14 @@ public final class BitControl {
       "eport_time\030\003 \001(\003\"h\n\020FinishedReceiver\022*\n\010" +
       "receiver\030\001 \001(\0132\030.exec.bit.FragmentHandle" +
       "\022(\n\006sender\030\002 \001(\0132\030.exec.bit.FragmentHand" +
-      "le*\206\003\n\007RpcType\022\r\n\tHANDSHAKE\020\000\022\007\n\003ACK\020\001\022\013",
+      "le*\236\003\n\007RpcType\022\r\n\tHANDSHAKE\020\000\022\007\n\003ACK\020\001\022\013",
       "\n\007GOODBYE\020\002\022\034\n\030REQ_INITIALIZE_FRAGMENTS\020" +
       "\003\022\027\n\023REQ_CANCEL_FRAGMENT\020\006\022\031\n\025REQ_RECEIV" +
       "ER_FINISHED\020\007\022\027\n\023REQ_FRAGMENT_STATUS\020\010\022\022" +
       "\n\016REQ_BIT_STATUS\020\t\022\024\n\020REQ_QUERY_STATUS\020\n" +
       "\022\024\n\020REQ_QUERY_CANCEL\020\017\022\030\n\024REQ_UNPAUSE_FR" +
-      "AGMENT\020\020\022\016\n\nREQ_CUSTOM\020\021\022\030\n\024RESP_FRAGMEN" +
+      "AGMENT\020\020\022\016\n\nREQ_CUSTOM\020\021\022\026\n\022REQ_RUNTIME_" +
+      "FILTER\020\024\022\030\n\024RESP_FRAGMEN" +
       "T_HANDLE\020\013\022\030\n\024RESP_FRAGMENT_STATUS\020\014\022\023\n\017" +
       "RESP_BIT_STATUS\020\r\022\025\n\021RESP_QUERY_STATUS\020\016" +
       "\022\017\n\013RESP_CUSTOM\020\022\022\020\n\014SASL_MESSAGE\020\023B+\n\033o" +
@@ -172,6 +172,21 @@ public final class BitData {
      * <code>optional .exec.shared.RpcChannel channel = 2 [default = BIT_DATA];</code>
      */
     org.apache.drill.exec.proto.UserBitShared.RpcChannel getChannel();
+
+    // optional string compression_codec = 3;
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    boolean hasCompressionCodec();
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    java.lang.String getCompressionCodec();
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    com.google.protobuf.ByteString
+        getCompressionCodecBytes();
   }
   /**
    * Protobuf type {@code exec.bit.data.BitClientHandshake}
@@ -240,6 +255,11 @@ public final class BitData {
               }
               break;
             }
+            case 26: {
+              bitField0_ |= 0x00000004;
+              compressionCodec_ = input.readBytes();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -312,9 +332,53 @@ public final class BitData {
       return channel_;
     }
 
+    // optional string compression_codec = 3;
+    public static final int COMPRESSION_CODEC_FIELD_NUMBER = 3;
+    private java.lang.Object compressionCodec_;
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public boolean hasCompressionCodec() {
+      return ((bitField0_ & 0x00000004) == 0x00000004);
+    }
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public java.lang.String getCompressionCodec() {
+      java.lang.Object ref = compressionCodec_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          compressionCodec_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public com.google.protobuf.ByteString
+        getCompressionCodecBytes() {
+      java.lang.Object ref = compressionCodec_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        compressionCodec_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
     private void initFields() {
       rpcVersion_ = 0;
       channel_ = org.apache.drill.exec.proto.UserBitShared.RpcChannel.BIT_DATA;
+      compressionCodec_ = "";
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -334,6 +398,9 @@ public final class BitData {
       if (((bitField0_ & 0x00000002) == 0x00000002)) {
         output.writeEnum(2, channel_.getNumber());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        output.writeBytes(3, getCompressionCodecBytes());
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -351,6 +418,10 @@ public final class BitData {
         size += com.google.protobuf.CodedOutputStream
           .computeEnumSize(2, channel_.getNumber());
       }
+      if (((bitField0_ & 0x00000004) == 0x00000004)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, getCompressionCodecBytes());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -471,6 +542,8 @@ public final class BitData {
         bitField0_ = (bitField0_ & ~0x00000001);
         channel_ = org.apache.drill.exec.proto.UserBitShared.RpcChannel.BIT_DATA;
         bitField0_ = (bitField0_ & ~0x00000002);
+        compressionCodec_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
         return this;
       }
 
@@ -507,6 +580,10 @@ public final class BitData {
           to_bitField0_ |= 0x00000002;
         }
         result.channel_ = channel_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000004;
+        }
+        result.compressionCodec_ = compressionCodec_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -529,6 +606,11 @@ public final class BitData {
         if (other.hasChannel()) {
           setChannel(other.getChannel());
         }
+        if (other.hasCompressionCodec()) {
+          bitField0_ |= 0x00000004;
+          compressionCodec_ = other.compressionCodec_;
+          onChanged();
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -625,6 +707,80 @@ public final class BitData {
         return this;
       }
 
+      // optional string compression_codec = 3;
+      private java.lang.Object compressionCodec_ = "";
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public boolean hasCompressionCodec() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public java.lang.String getCompressionCodec() {
+        java.lang.Object ref = compressionCodec_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          compressionCodec_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public com.google.protobuf.ByteString
+          getCompressionCodecBytes() {
+        java.lang.Object ref = compressionCodec_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          compressionCodec_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder setCompressionCodec(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        compressionCodec_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder clearCompressionCodec() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        compressionCodec_ = getDefaultInstance().getCompressionCodec();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder setCompressionCodecBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        compressionCodec_ = value;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:exec.bit.data.BitClientHandshake)
     }
 
@@ -668,6 +824,21 @@ public final class BitData {
      */
     com.google.protobuf.ByteString
         getAuthenticationMechanismsBytes(int index);
+
+    // optional string compression_codec = 3;
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    boolean hasCompressionCodec();
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    java.lang.String getCompressionCodec();
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    com.google.protobuf.ByteString
+        getCompressionCodecBytes();
   }
   /**
    * Protobuf type {@code exec.bit.data.BitServerHandshake}
@@ -733,6 +904,11 @@ public final class BitData {
               authenticationMechanisms_.add(input.readBytes());
               break;
             }
+            case 26: {
+              bitField0_ |= 0x00000002;
+              compressionCodec_ = input.readBytes();
+              break;
+            }
           }
         }
       } catch (com.google.protobuf.InvalidProtocolBufferException e) {
@@ -822,9 +998,53 @@ public final class BitData {
       return authenticationMechanisms_.getByteString(index);
     }
 
+    // optional string compression_codec = 3;
+    public static final int COMPRESSION_CODEC_FIELD_NUMBER = 3;
+    private java.lang.Object compressionCodec_;
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public boolean hasCompressionCodec() {
+      return ((bitField0_ & 0x00000002) == 0x00000002);
+    }
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public java.lang.String getCompressionCodec() {
+      java.lang.Object ref = compressionCodec_;
+      if (ref instanceof java.lang.String) {
+        return (java.lang.String) ref;
+      } else {
+        com.google.protobuf.ByteString bs = 
+            (com.google.protobuf.ByteString) ref;
+        java.lang.String s = bs.toStringUtf8();
+        if (bs.isValidUtf8()) {
+          compressionCodec_ = s;
+        }
+        return s;
+      }
+    }
+    /**
+     * <code>optional string compression_codec = 3;</code>
+     */
+    public com.google.protobuf.ByteString
+        getCompressionCodecBytes() {
+      java.lang.Object ref = compressionCodec_;
+      if (ref instanceof java.lang.String) {
+        com.google.protobuf.ByteString b = 
+            com.google.protobuf.ByteString.copyFromUtf8(
+                (java.lang.String) ref);
+        compressionCodec_ = b;
+        return b;
+      } else {
+        return (com.google.protobuf.ByteString) ref;
+      }
+    }
+
     private void initFields() {
       rpcVersion_ = 0;
       authenticationMechanisms_ = com.google.protobuf.LazyStringArrayList.EMPTY;
+      compressionCodec_ = "";
     }
     private byte memoizedIsInitialized = -1;
     public final boolean isInitialized() {
@@ -844,6 +1064,9 @@ public final class BitData {
       for (int i = 0; i < authenticationMechanisms_.size(); i++) {
         output.writeBytes(2, authenticationMechanisms_.getByteString(i));
       }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        output.writeBytes(3, getCompressionCodecBytes());
+      }
       getUnknownFields().writeTo(output);
     }
 
@@ -866,6 +1089,10 @@ public final class BitData {
         size += dataSize;
         size += 1 * getAuthenticationMechanismsList().size();
       }
+      if (((bitField0_ & 0x00000002) == 0x00000002)) {
+        size += com.google.protobuf.CodedOutputStream
+          .computeBytesSize(3, getCompressionCodecBytes());
+      }
       size += getUnknownFields().getSerializedSize();
       memoizedSerializedSize = size;
       return size;
@@ -986,6 +1213,8 @@ public final class BitData {
         bitField0_ = (bitField0_ & ~0x00000001);
         authenticationMechanisms_ = com.google.protobuf.LazyStringArrayList.EMPTY;
         bitField0_ = (bitField0_ & ~0x00000002);
+        compressionCodec_ = "";
+        bitField0_ = (bitField0_ & ~0x00000004);
         return this;
       }
 
@@ -1024,6 +1253,10 @@ public final class BitData {
           bitField0_ = (bitField0_ & ~0x00000002);
         }
         result.authenticationMechanisms_ = authenticationMechanisms_;
+        if (((from_bitField0_ & 0x00000004) == 0x00000004)) {
+          to_bitField0_ |= 0x00000002;
+        }
+        result.compressionCodec_ = compressionCodec_;
         result.bitField0_ = to_bitField0_;
         onBuilt();
         return result;
@@ -1053,6 +1286,11 @@ public final class BitData {
           }
           onChanged();
         }
+        if (other.hasCompressionCodec()) {
+          bitField0_ |= 0x00000004;
+          compressionCodec_ = other.compressionCodec_;
+          onChanged();
+        }
         this.mergeUnknownFields(other.getUnknownFields());
         return this;
       }
@@ -1206,6 +1444,80 @@ public final class BitData {
         return this;
       }
 
+      // optional string compression_codec = 3;
+      private java.lang.Object compressionCodec_ = "";
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public boolean hasCompressionCodec() {
+        return ((bitField0_ & 0x00000004) == 0x00000004);
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public java.lang.String getCompressionCodec() {
+        java.lang.Object ref = compressionCodec_;
+        if (!(ref instanceof java.lang.String)) {
+          java.lang.String s = ((com.google.protobuf.ByteString) ref)
+              .toStringUtf8();
+          compressionCodec_ = s;
+          return s;
+        } else {
+          return (java.lang.String) ref;
+        }
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public com.google.protobuf.ByteString
+          getCompressionCodecBytes() {
+        java.lang.Object ref = compressionCodec_;
+        if (ref instanceof String) {
+          com.google.protobuf.ByteString b = 
+              com.google.protobuf.ByteString.copyFromUtf8(
+                  (java.lang.String) ref);
+          compressionCodec_ = b;
+          return b;
+        } else {
+          return (com.google.protobuf.ByteString) ref;
+        }
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder setCompressionCodec(
+          java.lang.String value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        compressionCodec_ = value;
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder clearCompressionCodec() {
+        bitField0_ = (bitField0_ & ~0x00000004);
+        compressionCodec_ = getDefaultInstance().getCompressionCodec();
+        onChanged();
+        return this;
+      }
+      /**
+       * <code>optional string compression_codec = 3;</code>
+       */
+      public Builder setCompressionCodecBytes(
+          com.google.protobuf.ByteString value) {
+        if (value == null) {
+    throw new NullPointerException();
+  }
+  bitField0_ |= 0x00000004;
+        compressionCodec_ = value;
+        onChanged();
+        return this;
+      }
+
       // @@protoc_insertion_point(builder_scope:exec.bit.data.BitServerHandshake)
     }
 
@@ -2423,11 +2735,13 @@ public final class BitData {
     java.lang.String[] descriptorData = {
       "\n\rBitData.proto\022\rexec.bit.data\032\025Executio" +
       "nProtos.proto\032\022Coordination.proto\032\023UserB" +
-      "itShared.proto\"]\n\022BitClientHandshake\022\023\n\013" +
+      "itShared.proto\"x\n\022BitClientHandshake\022\023\n\013" +
       "rpc_version\030\001 \001(\005\0222\n\007channel\030\002 \001(\0162\027.exe" +
-      "c.shared.RpcChannel:\010BIT_DATA\"K\n\022BitServ" +
+      "c.shared.RpcChannel:\010BIT_DATA\022\031\n\021compr" +
+      "ession_codec\030\003 \001(\t\"f\n\022BitServ" +
       "erHandshake\022\023\n\013rpc_version\030\001 \001(\005\022 \n\030auth" +
-      "enticationMechanisms\030\002 \003(\t\"\214\002\n\023FragmentR" +
+      "enticationMechanisms\030\002 \003(\t\022\031\n\021compressi" +
+      "on_codec\030\003 \001(\t\"\214\002\n\023FragmentR" +
       "ecordBatch\022&\n\010query_id\030\001 \001(\0132\024.exec.shar" +
       "ed.QueryId\022#\n\033receiving_major_fragment_i" +
       "d\030\002 \001(\005\022#\n\033receiving_minor_fragment_id\030\003",
@@ -2449,13 +2763,13 @@ public final class BitData {
           internal_static_exec_bit_data_BitClientHandshake_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_exec_bit_data_BitClientHandshake_descriptor,
-              new java.lang.String[] { "RpcVersion", "Channel", });
+              new java.lang.String[] { "RpcVersion", "Channel", "CompressionCodec", });
           internal_static_exec_bit_data_BitServerHandshake_descriptor =
             getDescriptor().getMessageTypes().get(1);
           internal_static_exec_bit_data_BitServerHandshake_fieldAccessorTable = new
             com.google.protobuf.GeneratedMessage.FieldAccessorTable(
               internal_static_exec_bit_data_BitServerHandshake_descriptor,
-              new java.lang.String[] { "RpcVersion", "AuthenticationMechanisms", });
+              new java.lang.String[] { "RpcVersion", "AuthenticationMechanisms", "CompressionCodec", });
           internal_static_exec_bit_data_FragmentRecordBatch_descriptor =
             getDescriptor().getMessageTypes().get(2);
           internal_static_exec_bit_data_FragmentRecordBatch_fieldAccessorTable = new
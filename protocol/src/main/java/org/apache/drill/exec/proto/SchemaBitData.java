@@ -39,6 +39,8 @@ public final class SchemaBitData
                     output.writeInt32(1, message.getRpcVersion(), false);
                 if(message.hasChannel())
                     output.writeEnum(2, message.getChannel().getNumber(), false);
+                if(message.hasCompressionCodec())
+                    output.writeString(3, message.getCompressionCodec(), false);
             }
             public boolean isInitialized(org.apache.drill.exec.proto.BitData.BitClientHandshake message)
             {
@@ -84,6 +86,9 @@ public final class SchemaBitData
                         case 2:
                             builder.setChannel(org.apache.drill.exec.proto.UserBitShared.RpcChannel.valueOf(input.readEnum()));
                             break;
+                        case 3:
+                            builder.setCompressionCodec(input.readString());
+                            break;
                         default:
                             input.handleUnknownField(number, this);
                     }
@@ -126,6 +131,7 @@ public final class SchemaBitData
             {
                 case 1: return "rpcVersion";
                 case 2: return "channel";
+                case 3: return "compressionCodec";
                 default: return null;
             }
         }
@@ -139,6 +145,7 @@ public final class SchemaBitData
         {
             fieldMap.put("rpcVersion", 1);
             fieldMap.put("channel", 2);
+            fieldMap.put("compressionCodec", 3);
         }
     }
 
@@ -157,6 +164,8 @@ public final class SchemaBitData
                     output.writeInt32(1, message.getRpcVersion(), false);
                 for(String authenticationMechanisms : message.getAuthenticationMechanismsList())
                     output.writeString(2, authenticationMechanisms, true);
+                if(message.hasCompressionCodec())
+                    output.writeString(3, message.getCompressionCodec(), false);
             }
             public boolean isInitialized(org.apache.drill.exec.proto.BitData.BitServerHandshake message)
             {
@@ -202,6 +211,9 @@ public final class SchemaBitData
                         case 2:
                             builder.addAuthenticationMechanisms(input.readString());
                             break;
+                        case 3:
+                            builder.setCompressionCodec(input.readString());
+                            break;
                         default:
                             input.handleUnknownField(number, this);
                     }
@@ -244,6 +256,7 @@ public final class SchemaBitData
             {
                 case 1: return "rpcVersion";
                 case 2: return "authenticationMechanisms";
+                case 3: return "compressionCodec";
                 default: return null;
             }
         }
@@ -257,6 +270,7 @@ public final class SchemaBitData
         {
             fieldMap.put("rpcVersion", 1);
             fieldMap.put("authenticationMechanisms", 2);
+            fieldMap.put("compressionCodec", 3);
         }
     }
 
@@ -214,6 +214,14 @@ public final class UserProtos {
      * </pre>
      */
     SASL_MESSAGE(24, 24),
+    /**
+     * <code>RESUME_RESULTS = 25;</code>
+     *
+     * <pre>
+     * user to bit
+     * </pre>
+     */
+    RESUME_RESULTS(25, 25),
     ;
 
     /**
@@ -396,6 +404,14 @@ public final class UserProtos {
      * </pre>
      */
     public static final int SASL_MESSAGE_VALUE = 24;
+    /**
+     * <code>RESUME_RESULTS = 25;</code>
+     *
+     * <pre>
+     * user to bit
+     * </pre>
+     */
+    public static final int RESUME_RESULTS_VALUE = 25;
 
 
     public final int getNumber() { return value; }
@@ -427,6 +443,7 @@ public final class UserProtos {
         case 9: return SERVER_META;
         case 10: return QUERY_RESULT;
         case 24: return SASL_MESSAGE;
+        case 25: return RESUME_RESULTS;
         default: return null;
       }
     }
@@ -41972,7 +41989,7 @@ public final class UserProtos {
       "lan\030\003 \001(\t\0221\n\tfragments\030\004 \003(\0132\036.exec.bit." +
       "control.PlanFragment\022E\n\031prepared_stateme" +
       "nt_handle\030\005 \001(\0132\".exec.user.PreparedStat" +
-      "ementHandle*\320\003\n\007RpcType\022\r\n\tHANDSHAKE\020\000\022\007" +
+      "ementHandle*\344\003\n\007RpcType\022\r\n\tHANDSHAKE\020\000\022\007" +
       "\n\003ACK\020\001\022\013\n\007GOODBYE\020\002\022\r\n\tRUN_QUERY\020\003\022\020\n\014C" +
       "ANCEL_QUERY\020\004\022\023\n\017REQUEST_RESULTS\020\005\022\027\n\023RE" +
       "SUME_PAUSED_QUERY\020\013\022\034\n\030GET_QUERY_PLAN_FR" +
@@ -41983,7 +42000,7 @@ public final class UserProtos {
       "E\020\007\022\030\n\024QUERY_PLAN_FRAGMENTS\020\r\022\014\n\010CATALOG" +
       "S\020\022\022\013\n\007SCHEMAS\020\023\022\n\n\006TABLES\020\024\022\013\n\007COLUMNS\020" +
       "\025\022\026\n\022PREPARED_STATEMENT\020\027\022\017\n\013SERVER_META" +
-      "\020\t\022\020\n\014QUERY_RESULT\020\n\022\020\n\014SASL_MESSAGE\020\030*H" +
+      "\020\t\022\020\n\014QUERY_RESULT\020\n\022\020\n\014SASL_MESSAGE\020\030\022\022\n\016RESUME_RESULTS\020\031*H" +
       "\n\013SaslSupport\022\030\n\024UNKNOWN_SASL_SUPPORT\020\000\022" +
       "\r\n\tSASL_AUTH\020\001\022\020\n\014SASL_PRIVACY\020\002*#\n\020Quer" +
       "yResultsMode\022\017\n\013STREAM_FULL\020\001*q\n\017Handsha",
@@ -49,6 +49,7 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
     
     private int rpcVersion;
     private RpcChannel channel;
+    private String compressionCodec;
 
     public BitClientHandshake()
     {
@@ -83,6 +84,19 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
         return this;
     }
 
+    // compressionCodec
+
+    public String getCompressionCodec()
+    {
+        return compressionCodec;
+    }
+
+    public BitClientHandshake setCompressionCodec(String compressionCodec)
+    {
+        this.compressionCodec = compressionCodec;
+        return this;
+    }
+
     // java serialization
 
     public void readExternal(ObjectInput in) throws IOException
@@ -143,6 +157,9 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
                 case 2:
                     message.channel = RpcChannel.valueOf(input.readEnum());
                     break;
+                case 3:
+                    message.compressionCodec = input.readString();
+                    break;
                 default:
                     input.handleUnknownField(number, this);
             }   
@@ -157,6 +174,9 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
 
         if(message.channel != null)
              output.writeEnum(2, message.channel.number, false);
+
+        if(message.compressionCodec != null)
+            output.writeString(3, message.compressionCodec, false);
     }
 
     public String getFieldName(int number)
@@ -165,6 +185,7 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
         {
             case 1: return "rpcVersion";
             case 2: return "channel";
+            case 3: return "compressionCodec";
             default: return null;
         }
     }
@@ -180,6 +201,7 @@ public final class BitClientHandshake implements Externalizable, Message<BitClie
     {
         __fieldMap.put("rpcVersion", 1);
         __fieldMap.put("channel", 2);
+        __fieldMap.put("compressionCodec", 3);
     }
     
 }
@@ -46,7 +46,8 @@ public enum RpcType implements com.dyuproject.protostuff.EnumLite<RpcType>
     PREPARED_STATEMENT(23),
     SERVER_META(9),
     QUERY_RESULT(10),
-    SASL_MESSAGE(24);
+    SASL_MESSAGE(24),
+    RESUME_RESULTS(25);
     
     public final int number;
     
@@ -89,6 +90,7 @@ public enum RpcType implements com.dyuproject.protostuff.EnumLite<RpcType>
             case 22: return CREATE_PREPARED_STATEMENT;
             case 23: return PREPARED_STATEMENT;
             case 24: return SASL_MESSAGE;
+            case 25: return RESUME_RESULTS;
             default: return null;
         }
     }